@@ -7,6 +7,7 @@ const ChatApp = () => {
   const [chatHistory, setChatHistory] = useState([]);
   const [loading, setLoading] = useState(false);
   const [savedSessions, setSavedSessions] = useState([]);
+  const [savedSessionsCursor, setSavedSessionsCursor] = useState(null);
   const [showSaved, setShowSaved] = useState(false);
   const [currentSessionId, setCurrentSessionId] = useState(null);
   const [viewingSession, setViewingSession] = useState(null);
@@ -24,11 +25,13 @@ const ChatApp = () => {
     chatEndRef.current?.scrollIntoView({ behavior: 'smooth' });
   }, [chatHistory, sessionMessages]);
 
-  const loadSavedSessions = async () => {
+  // Without a cursor this reloads the first page; with one it appends the next page
+  const loadSavedSessions = async (cursor) => {
     try {
-      const response = await apiService.chat.getHistory();
+      const response = await apiService.chat.getHistory(undefined, cursor);
       const responseData = response.data?.data || [];
-      setSavedSessions(responseData);
+      setSavedSessions(prev => cursor ? [...prev, ...responseData] : responseData);
+      setSavedSessionsCursor(apiService.nextCursor(response));
     } catch (err) {
       console.error('Error loading saved sessions:', err);
     }
@@ -226,7 +229,7 @@ const ChatApp = () => {
             onClick={() => setShowSaved(!showSaved)} 
             className="saved-btn"
           >
-            {showSaved ? 'Hide Saved' : `📚 Saved (${savedSessions.length})`}
+            {showSaved ? 'Hide Saved' : `📚 Saved (${savedSessions.length}${savedSessionsCursor ? '+' : ''})`}
           </button>
           {chatHistory.length > 0 && !viewingSession && (
             <button onClick={clearHistory} className="clear-history-btn">
@@ -267,7 +270,7 @@ const ChatApp = () => {
                             {new Date(session.timestamp).toLocaleTimeString([], { hour: '2-digit', minute: '2-digit' })}
                           </span>
                           <span className="session-message">
-                            {session.userMessage.substring(0, 40)}...
+                            {(session.promptSnippet || '').substring(0, 40)}...
                           </span>
                         </div>
                         <button 
@@ -280,6 +283,11 @@ const ChatApp = () => {
                     ))}
                   </div>
                 ))}
+                {savedSessionsCursor && (
+                  <button onClick={() => loadSavedSessions(savedSessionsCursor)} className="load-more-btn">
+                    Load more
+                  </button>
+                )}
               </div>
             )}
           </div>
@@ -440,6 +448,22 @@ const ChatApp = () => {
           transform: translateY(-2px);
         }
 
+        .load-more-btn {
+          display: block;
+          margin: 1rem auto 0;
+          padding: 0.4rem 1rem;
+          background: none;
+          color: #4f46e5;
+          border: 1px solid #4f46e5;
+          border-radius: 8px;
+          cursor: pointer;
+          font-size: 0.85rem;
+        }
+
+        .load-more-btn:hover {
+          background: #eef2ff;
+        }
+
         .clear-history-btn, .back-btn {
           padding: 0.5rem 1rem;
           background: #10b981;
@@ -75,22 +75,17 @@ const Dashboard = () => {
         try {
             const userId = localStorage.getItem('userId');
             console.log('Loading stats for user:', userId);
-            // Load trips count
-            const tripsResponse = await apiService.travel.getSavedItineraries();
-            const tripsData = tripsResponse.data?.data || [];
-            
-            // Load chats count
-            const chatsResponse = await apiService.chat.getHistory(userId);
-            const chatsData = chatsResponse.data?.data || [];
-            
-            // Load recipes count
-            const recipesResponse = await apiService.recipe.getSavedRecipes(userId);
-            const recipesData = recipesResponse.data?.data || [];
+            // The lists are paged, so ask for the counts rather than counting a page
+            const [tripsResponse, chatsResponse, recipesResponse] = await Promise.all([
+                apiService.travel.countSavedItineraries(userId),
+                apiService.chat.countHistory(userId),
+                apiService.recipe.countSavedRecipes(userId)
+            ]);
 
             setStats({
-                trips: tripsData.length,
-                chats: chatsData.length,
-                recipes: recipesData.length
+                trips: tripsResponse.data?.data || 0,
+                chats: chatsResponse.data?.data || 0,
+                recipes: recipesResponse.data?.data || 0
             });
         } catch (error) {
             console.error('Error loading statistics:', error);
@@ -12,6 +12,7 @@ const RecipeGenerator = () => {
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState('');
   const [savedRecipes, setSavedRecipes] = useState([]);
+  const [savedRecipesCursor, setSavedRecipesCursor] = useState(null);
   const [saveSuccess, setSaveSuccess] = useState('');
 
   // Load saved recipes from database on mount
@@ -19,16 +20,39 @@ const RecipeGenerator = () => {
     loadSavedRecipes();
   }, []);
 
-  const loadSavedRecipes = async () => {
+  // Without a cursor this reloads the first page; with one it appends the next page
+  const loadSavedRecipes = async (cursor) => {
     try {
-      const response = await apiService.recipe.getSavedRecipes();
+      const response = await apiService.recipe.getSavedRecipes(undefined, cursor);
       const responseData = response.data?.data || [];
-      setSavedRecipes(responseData);
+      setSavedRecipes(prev => cursor ? [...prev, ...responseData] : responseData);
+      setSavedRecipesCursor(apiService.nextCursor(response));
     } catch (err) {
       console.error('Error loading saved recipes:', err);
     }
   };
 
+  // The list only carries summaries; the recipe and its parameters come from /saved/{id}
+  const loadSavedRecipe = async (summary) => {
+    try {
+      const response = await apiService.recipe.getSavedRecipe(summary.id);
+      const saved = response.data?.data;
+      if (!saved) {
+        setError('Failed to load recipe');
+        return;
+      }
+      setRecipe(saved.recipeText);
+      setFormData({
+        ingredients: saved.ingredients || '',
+        cuisine: saved.cuisine || 'any',
+        dietaryRestrictions: saved.dietaryRestrictions || ''
+      });
+    } catch (err) {
+      console.error('Error loading saved recipe:', err);
+      setError('Error loading recipe: ' + (err.response?.data?.error || err.message));
+    }
+  };
+
   const handleChange = (e) => {
     setFormData(prev => ({
       ...prev,
@@ -342,20 +366,18 @@ const RecipeGenerator = () => {
                 </div>
                 <div 
                   className="recipe-preview"
-                  onClick={() => {
-                    setRecipe(saved.recipeText);
-                    setFormData({
-                      ingredients: saved.ingredients,
-                      cuisine: saved.cuisine,
-                      dietaryRestrictions: saved.dietaryRestrictions
-                    });
-                  }}
+                  onClick={() => loadSavedRecipe(saved)}
                 >
                   <small>{saved.ingredients.substring(0, 30)}...</small>
                 </div>
               </div>
             ))}
           </div>
+          {savedRecipesCursor && (
+            <button onClick={() => loadSavedRecipes(savedRecipesCursor)} className="load-more-btn">
+              Load more
+            </button>
+          )}
         </div>
       )}
 
@@ -629,6 +651,22 @@ const RecipeGenerator = () => {
           font-size: 0.9rem;
         }
 
+        .load-more-btn {
+          display: block;
+          margin: 1rem auto 0;
+          padding: 0.4rem 1rem;
+          background: none;
+          color: #4f46e5;
+          border: 1px solid #4f46e5;
+          border-radius: 8px;
+          cursor: pointer;
+          font-size: 0.85rem;
+        }
+
+        .load-more-btn:hover {
+          background: #eef2ff;
+        }
+
         .delete-btn {
           background: none;
           border: none;
@@ -17,6 +17,7 @@ const TravelPlanner = () => {
   const [error, setError] = useState('');
   const [saveSuccess, setSaveSuccess] = useState('');
   const [savedTrips, setSavedTrips] = useState([]);
+  const [savedTripsCursor, setSavedTripsCursor] = useState(null);
   const [showSaved, setShowSaved] = useState(false);
 
   useEffect(() => {
@@ -33,11 +34,13 @@ const TravelPlanner = () => {
     }
   }, [navigate]);
 
-  const loadSavedTrips = async () => {
+  // Without a cursor this reloads the first page; with one it appends the next page
+  const loadSavedTrips = async (cursor) => {
     try {
-      const response = await apiService.travel.getSavedItineraries();
+      const response = await apiService.travel.getSavedItineraries(undefined, cursor);
       const responseData = response.data?.data || [];
-      setSavedTrips(responseData);
+      setSavedTrips(prev => cursor ? [...prev, ...responseData] : responseData);
+      setSavedTripsCursor(apiService.nextCursor(response));
     } catch (err) {
       console.error('Error loading saved trips:', err);
     }
@@ -147,15 +150,27 @@ const TravelPlanner = () => {
     }
   };
 
-  const loadSavedTrip = (trip) => {
-    setFormData({
-      destination: trip.destination,
-      days: trip.days,
-      interests: trip.interests || '',
-      budget: trip.budget || 'moderate'
-    });
-    setItinerary(trip.itineraryText);
-    setShowSaved(false);
+  // The list only carries summaries; the itinerary and its parameters come from /saved/{id}
+  const loadSavedTrip = async (summary) => {
+    try {
+      const response = await apiService.travel.getSavedItinerary(summary.id);
+      const trip = response.data?.data;
+      if (!trip) {
+        setError('Failed to load trip');
+        return;
+      }
+      setFormData({
+        destination: trip.destination,
+        days: trip.days,
+        interests: trip.interests || '',
+        budget: trip.budget || 'moderate'
+      });
+      setItinerary(trip.itineraryText);
+      setShowSaved(false);
+    } catch (err) {
+      console.error('Error loading saved trip:', err);
+      setError('Error loading trip: ' + (err.response?.data?.error || err.message));
+    }
   };
 
   const deleteSavedTrip = async (id) => {
@@ -205,7 +220,7 @@ const TravelPlanner = () => {
               onClick={() => setShowSaved(!showSaved)} 
               className="saved-btn"
             >
-              {showSaved ? 'Hide Saved' : `📚 Saved (${savedTrips.length})`}
+              {showSaved ? 'Hide Saved' : `📚 Saved (${savedTrips.length}${savedTripsCursor ? '+' : ''})`}
             </button>
           )}
         </div>
@@ -239,6 +254,11 @@ const TravelPlanner = () => {
               </div>
             ))}
           </div>
+          {savedTripsCursor && (
+            <button onClick={() => loadSavedTrips(savedTripsCursor)} className="load-more-btn">
+              Load more
+            </button>
+          )}
         </div>
       )}
       
@@ -372,6 +392,22 @@ const TravelPlanner = () => {
           transform: translateY(-2px);
         }
 
+        .load-more-btn {
+          display: block;
+          margin: 1rem auto 0;
+          padding: 0.4rem 1rem;
+          background: none;
+          color: #4f46e5;
+          border: 1px solid #4f46e5;
+          border-radius: 8px;
+          cursor: pointer;
+          font-size: 0.85rem;
+        }
+
+        .load-more-btn:hover {
+          background: #eef2ff;
+        }
+
         .saved-items {
           margin-bottom: 2rem;
           background: white;
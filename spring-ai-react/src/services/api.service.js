@@ -42,6 +42,11 @@ class ApiService {
     });
   }
 
+  // List endpoints return one page at a time; this is the cursor for the next, or null after the last
+  nextCursor(response) {
+    return response.headers?.['x-next-cursor'] || null;
+  }
+
   // Travel module endpoints
   travel = {
     getItinerary: (params) => 
@@ -50,8 +55,14 @@ class ApiService {
     saveItinerary: (data) => 
       this.api.post('/api/travel/save', data),
     
-    getSavedItineraries: (userId) => 
-      this.api.get('/api/travel/saved', { params: { userId } }),
+    getSavedItineraries: (userId, cursor, limit) => 
+      this.api.get('/api/travel/saved', { params: { userId, cursor, limit } }),
+    
+    countSavedItineraries: (userId) => 
+      this.api.get('/api/travel/saved/count', { params: { userId } }),
+    
+    getSavedItinerary: (id, userId) => 
+      this.api.get(`/api/travel/saved/${id}`, { params: { userId } }),
     
     deleteSavedItinerary: (id, userId) => 
       this.api.delete(`/api/travel/saved/${id}`, { params: { userId } })
@@ -65,8 +76,11 @@ class ApiService {
     saveMessage: (data) => 
       this.api.post('/api/chat/save', data),
     
-    getHistory: (userId) => 
-      this.api.get('/api/chat/history', { params: { userId } }),
+    getHistory: (userId, cursor, limit) => 
+      this.api.get('/api/chat/history', { params: { userId, cursor, limit } }),
+    
+    countHistory: (userId) => 
+      this.api.get('/api/chat/history/count', { params: { userId } }),
     
     getChatSession: (sessionId, userId) => 
       this.api.get(`/api/chat/session/${sessionId}`, { params: { userId } })
@@ -80,8 +94,14 @@ class ApiService {
     saveRecipe: (data) => 
       this.api.post('/api/recipes/save', data),
     
-    getSavedRecipes: (userId) => 
-      this.api.get('/api/recipes/saved', { params: { userId } }),
+    getSavedRecipes: (userId, cursor, limit) => 
+      this.api.get('/api/recipes/saved', { params: { userId, cursor, limit } }),
+    
+    countSavedRecipes: (userId) => 
+      this.api.get('/api/recipes/saved/count', { params: { userId } }),
+    
+    getSavedRecipe: (id, userId) => 
+      this.api.get(`/api/recipes/saved/${id}`, { params: { userId } }),
     
     deleteSavedRecipe: (id, userId) => 
       this.api.delete(`/api/recipes/saved/${id}`, { params: { userId } })
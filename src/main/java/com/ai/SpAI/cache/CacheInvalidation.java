@@ -0,0 +1,64 @@
+package com.ai.SpAI.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Message telling other nodes to drop their local copy of an entry. A {@code null} key means
+ * the whole cache was cleared. {@code origin} identifies the sending cache instance so a node
+ * ignores its own messages.
+ */
+public record CacheInvalidation(String origin, String cacheName, String key) {
+
+    public boolean clearsAll() {
+        return key == null;
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, origin);
+            writeString(out, cacheName);
+            writeString(out, key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static CacheInvalidation decode(byte[] message) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(message))) {
+            return new CacheInvalidation(readString(in), readString(in), readString(in));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed cache invalidation message", e);
+        }
+    }
+
+    // Length-prefixed rather than writeUTF, which caps strings at 64KB and prompts can be longer.
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = in.readNBytes(length);
+        if (utf8.length != length) {
+            throw new IOException("Truncated string");
+        }
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
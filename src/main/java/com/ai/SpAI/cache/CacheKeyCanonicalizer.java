@@ -0,0 +1,210 @@
+package com.ai.SpAI.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Builds {@code @Cacheable} keys from request parameters so that requests which mean the same
+ * thing share one cache entry: {@code "tomato, basil"} and {@code "Basil,Tomato "} become the
+ * same key. Free text is case-folded, accent- and punctuation-normalized and whitespace-collapsed;
+ * list parameters are split, de-duplicated and sorted. Destinations go through the synonym map
+ * configured under {@code app.cache.keys.synonyms.*} ({@code la} means Los Angeles only as a
+ * destination) and ingredients through {@code app.cache.keys.ingredient-synonyms.*}. The
+ * canonical form is hashed so keys have a fixed size no matter how long the input is.
+ * <p>
+ * Referenced from SpEL as {@code @cacheKeys}. Also counts how many lookups can only be served
+ * because of canonicalization (the raw key was never seen, its canonical form was), exported as
+ * {@code ai.cache.keys.uplift}; divided by {@code ai.cache.keys.requests} it estimates the hit-rate
+ * gained over raw-string keys. Every key computed for a request is also reported to the
+ * {@link PopularityTracker} that drives cache warming.
+ */
+@Component("cacheKeys")
+public class CacheKeyCanonicalizer {
+
+    /**
+     * Separators between the items of a list parameter (ingredients, interests, ...), matched
+     * against lower-cased text. Also used to count items for cost estimates.
+     */
+    public static final Pattern LIST_SEPARATORS = Pattern.compile("\\s*(?:[,;/&+]|\\band\\b)\\s*");
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}\\s-]");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final int SEEN_KEYS = 100_000;
+
+    private final Map<String, String> destinationSynonyms;
+    private final Map<String, String> ingredientSynonyms;
+    private final Cache<String, Boolean> seenRaw = Caffeine.newBuilder().maximumSize(SEEN_KEYS).build();
+    private final Cache<String, Boolean> seenCanonical = Caffeine.newBuilder().maximumSize(SEEN_KEYS).build();
+    private final MeterRegistry meterRegistry;
+    private final PopularityTracker popularity;
+
+    @Autowired
+    public CacheKeyCanonicalizer(Environment environment, MeterRegistry meterRegistry, PopularityTracker popularity) {
+        this(synonyms(environment, "app.cache.keys.synonyms"),
+                synonyms(environment, "app.cache.keys.ingredient-synonyms"), meterRegistry, popularity);
+    }
+
+    CacheKeyCanonicalizer(Map<String, String> destinationSynonyms, Map<String, String> ingredientSynonyms,
+                          MeterRegistry meterRegistry, PopularityTracker popularity) {
+        this.destinationSynonyms = normalized(destinationSynonyms);
+        this.ingredientSynonyms = normalized(ingredientSynonyms);
+        this.meterRegistry = meterRegistry;
+        this.popularity = popularity;
+    }
+
+    /**
+     * Cache key for a recipe request; also counts the request towards the key's popularity.
+     */
+    public String recipe(String ingredients, String cuisine, String dietaryRestrictions) {
+        String key = recipeKey(ingredients, cuisine, dietaryRestrictions);
+        recordUplift("recipes", Objects.toString(ingredients) + '_' + cuisine + '_' + dietaryRestrictions, key);
+        popularity.record(key, new WarmRequest.Recipe(ingredients, cuisine, dietaryRestrictions));
+        return key;
+    }
+
+    /**
+     * Cache key for an itinerary request; also counts the request towards the key's popularity.
+     */
+    public String itinerary(String destination, Integer days, String interests, String budget) {
+        String key = itineraryKey(destination, days, interests, budget);
+        recordUplift("itineraries", destination + '_' + days + '_' + interests + '_' + budget, key);
+        popularity.record(key, new WarmRequest.Itinerary(destination, days, interests, budget));
+        return key;
+    }
+
+    /**
+     * Key of the day-theme outline shared by every length of trip with the same destination,
+     * interests and budget.
+     */
+    public String itineraryOutline(String destination, String interests, String budget) {
+        return "outline:" + hash(String.join("\u001F", destination(destination), terms(interests), term(budget)));
+    }
+
+    /**
+     * Key of one day of a fanned-out itinerary. It does not include the trip length, so a 5-day
+     * and a 7-day trip share days 1-5; {@code themesSoFar} ties it to the outline it was written
+     * against.
+     */
+    public String itineraryDay(String destination, String interests, String budget, int day, String themesSoFar) {
+        return "day:" + day + ':' + hash(String.join("\u001F",
+                destination(destination), terms(interests), term(budget), String.valueOf(day), themesSoFar));
+    }
+
+    String recipeKey(String ingredients, String cuisine, String dietaryRestrictions) {
+        return hash(String.join("\u001F", ingredients(ingredients), term(cuisine), terms(dietaryRestrictions)));
+    }
+
+    String itineraryKey(String destination, Integer days, String interests, String budget) {
+        return hash(String.join("\u001F", destination(destination), String.valueOf(days), terms(interests), term(budget)));
+    }
+
+    /**
+     * Canonical form of a single free-text value.
+     */
+    String term(String value) {
+        return normalizeText(value);
+    }
+
+    /**
+     * Canonical form of a destination, with destination synonyms applied.
+     */
+    String destination(String value) {
+        String text = normalizeText(value);
+        return destinationSynonyms.getOrDefault(text, text);
+    }
+
+    /**
+     * Canonical form of a list value: each element canonicalized, then de-duplicated and sorted.
+     */
+    String terms(String value) {
+        return terms(value, Map.of());
+    }
+
+    /**
+     * Canonical form of an ingredient list, with ingredient synonyms applied to each element.
+     */
+    String ingredients(String value) {
+        return terms(value, ingredientSynonyms);
+    }
+
+    private static String terms(String value, Map<String, String> synonyms) {
+        if (value == null) {
+            return "";
+        }
+        return Arrays.stream(LIST_SEPARATORS.split(value.toLowerCase(Locale.ROOT)))
+                .map(CacheKeyCanonicalizer::normalizeText)
+                .map(term -> synonyms.getOrDefault(term, term))
+                .filter(term -> !term.isEmpty())
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    private void recordUplift(String cacheName, String rawKey, String canonicalKey) {
+        boolean rawSeen = seenRaw.asMap().putIfAbsent(cacheName + ':' + rawKey, Boolean.TRUE) != null;
+        boolean canonicalSeen = seenCanonical.asMap().putIfAbsent(cacheName + ':' + canonicalKey, Boolean.TRUE) != null;
+        Counter.builder("ai.cache.keys.requests")
+                .description("Cache key computations")
+                .tag("cache", cacheName)
+                .register(meterRegistry)
+                .increment();
+        if (canonicalSeen && !rawSeen) {
+            Counter.builder("ai.cache.keys.uplift")
+                    .description("Lookups that match an earlier request only after canonicalization")
+                    .tag("cache", cacheName)
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    private static Map<String, String> synonyms(Environment environment, String prefix) {
+        return Binder.get(environment).bind(prefix, Bindable.mapOf(String.class, String.class)).orElse(Map.of());
+    }
+
+    private static Map<String, String> normalized(Map<String, String> synonyms) {
+        Map<String, String> normalized = new HashMap<>();
+        synonyms.forEach((from, to) -> normalized.put(normalizeText(from), normalizeText(to)));
+        return normalized;
+    }
+
+    private static String normalizeText(String value) {
+        if (value == null) {
+            return "";
+        }
+        String text = Normalizer.normalize(value, Normalizer.Form.NFKD);
+        text = DIACRITICS.matcher(text).replaceAll("");
+        text = NON_WORD.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return WHITESPACE.matcher(text).replaceAll(" ").strip();
+    }
+
+    private static String hash(String canonical) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            // 128 bits is plenty to make collisions between distinct requests negligible.
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
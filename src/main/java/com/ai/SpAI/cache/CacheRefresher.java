@@ -0,0 +1,16 @@
+package com.ai.SpAI.cache;
+
+/**
+ * Regenerates a cache entry that is due for a background refresh. Refreshes go straight to the
+ * service layer rather than replaying the {@code @Cacheable} method, which would run the
+ * controller's per-user rate limiting without a user on the refresh thread.
+ */
+@FunctionalInterface
+public interface CacheRefresher {
+
+    /**
+     * The new value for {@code key} of {@code cacheName}, or null when the key cannot be mapped
+     * back to the request that produced it.
+     */
+    Object regenerate(String cacheName, Object key);
+}
@@ -0,0 +1,75 @@
+package com.ai.SpAI.cache;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-cache sizing and freshness settings, parsed from a comma-separated spec such as
+ * {@code maximumWeight=64MB,expireAfterWrite=6h,refreshAfterWrite=1h}.
+ * <ul>
+ *     <li>{@code maximumWeight} caps the estimated heap held by the cache's values.</li>
+ *     <li>{@code expireAfterWrite} is the hard TTL: the age after which an entry is dropped and the
+ *     next caller has to wait for a fresh generation.</li>
+ *     <li>{@code refreshAfterWrite} is the soft TTL: the age after which a read still returns the
+ *     entry but regenerates it in the background; zero disables refreshing.</li>
+ *     <li>{@code jitter} (e.g. {@code 10%}) randomly stretches or shortens both TTLs per entry, so
+ *     entries written together do not all go stale at the same moment.</li>
+ *     <li>{@code storeAs=gzip-json} keeps HTTP responses as their final gzip-compressed JSON
+ *     bytes instead of as objects (see {@link PrecompressedJson}); the default is {@code object}.</li>
+ * </ul>
+ */
+public record CacheSpec(long maximumWeightBytes, Duration expireAfterWrite, Duration refreshAfterWrite,
+                        double jitter, boolean precompressed) {
+
+    public static CacheSpec parse(String spec) {
+        long maximumWeight = DataSize.ofMegabytes(32).toBytes();
+        Duration expireAfterWrite = Duration.ofHours(1);
+        Duration refreshAfterWrite = Duration.ZERO;
+        double jitter = 0;
+        boolean precompressed = false;
+
+        for (String setting : spec.split(",")) {
+            String[] pair = setting.trim().split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid cache setting '" + setting + "' in spec: " + spec);
+            }
+            String value = pair[1].trim();
+            switch (pair[0].trim()) {
+                case "maximumWeight" -> maximumWeight = DataSize.parse(value).toBytes();
+                case "expireAfterWrite" -> expireAfterWrite = DurationStyle.detectAndParse(value);
+                case "refreshAfterWrite" -> refreshAfterWrite = DurationStyle.detectAndParse(value);
+                case "jitter" -> jitter = value.endsWith("%")
+                        ? Double.parseDouble(value.substring(0, value.length() - 1)) / 100
+                        : Double.parseDouble(value);
+                case "storeAs" -> precompressed = switch (value) {
+                    case "gzip-json" -> true;
+                    case "object" -> false;
+                    default -> throw new IllegalArgumentException("Unknown storeAs '" + value + "' in spec: " + spec);
+                };
+                default -> throw new IllegalArgumentException("Unknown cache setting '" + pair[0] + "' in spec: " + spec);
+            }
+        }
+        if (jitter < 0 || jitter >= 1) {
+            throw new IllegalArgumentException("jitter must be in [0%, 100%) in spec: " + spec);
+        }
+        return new CacheSpec(maximumWeight, expireAfterWrite, refreshAfterWrite, jitter, precompressed);
+    }
+
+    public boolean refreshes() {
+        return !refreshAfterWrite.isZero() && refreshAfterWrite.compareTo(expireAfterWrite) < 0;
+    }
+
+    /**
+     * Returns {@code ttl} randomly scaled by up to &plusmn;{@code jitter}, in milliseconds.
+     */
+    public long jittered(Duration ttl) {
+        long millis = ttl.toMillis();
+        if (jitter == 0 || millis == 0) {
+            return millis;
+        }
+        return Math.round(millis * (1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter)));
+    }
+}
@@ -0,0 +1,166 @@
+package com.ai.SpAI.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of cached controller results for the shared tier. The envelope (status,
+ * headers, write time) is written with {@link DataOutputStream}; bodies are encoded as Smile,
+ * Jackson's binary JSON, which is smaller and faster to parse than text JSON.
+ * <p>
+ * Bodies come back as {@link JsonNode} trees rather than the original DTO classes. Spring
+ * serializes a tree to exactly the JSON the DTO would have produced, so clients cannot tell.
+ */
+public class CacheValueCodec {
+
+    private static final byte VERSION = 1;
+    private static final byte RESPONSE_ENTITY = 0;
+    private static final byte TEXT = 1;
+    private static final byte JSON = 2;
+    private static final byte PRECOMPRESSED_ENTITY = 3;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper binaryMapper;
+
+    public CacheValueCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // Keep the application's modules and settings, only swap the wire format.
+        this.binaryMapper = objectMapper.copyWith(new SmileFactory());
+    }
+
+    /**
+     * Replaces a response's body with its final JSON, gzip-compressed. Other values are
+     * returned unchanged.
+     */
+    public Object precompress(Object value) {
+        if (!(value instanceof ResponseEntity<?> response) || response.getBody() == null
+                || response.getBody() instanceof PrecompressedJson) {
+            return value;
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(response.getBody());
+            return ResponseEntity.status(response.getStatusCode())
+                    .headers(response.getHeaders())
+                    .body(PrecompressedJson.of(json));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize " + response.getBody().getClass().getName(), e);
+        }
+    }
+
+    public record Decoded(Object value, long writtenAt) {
+    }
+
+    public byte[] encode(Object value, long writtenAt) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeLong(writtenAt);
+            if (value instanceof ResponseEntity<?> response && response.getBody() instanceof PrecompressedJson body) {
+                out.writeByte(PRECOMPRESSED_ENTITY);
+                out.writeShort(response.getStatusCode().value());
+                writeHeaders(out, response.getHeaders());
+                out.writeInt(body.length());
+                out.writeInt(body.gzip().length);
+                out.write(body.gzip());
+            } else if (value instanceof ResponseEntity<?> response) {
+                out.writeByte(RESPONSE_ENTITY);
+                out.writeShort(response.getStatusCode().value());
+                writeHeaders(out, response.getHeaders());
+                writeBody(out, response.getBody());
+            } else if (value instanceof String text) {
+                out.writeByte(TEXT);
+                CacheInvalidation.writeString(out, text);
+            } else {
+                out.writeByte(JSON);
+                writeBody(out, value);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot encode " + value.getClass().getName() + " for the shared cache", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public Decoded decode(byte[] encoded) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported cache entry version " + version);
+            }
+            long writtenAt = in.readLong();
+            byte kind = in.readByte();
+            Object value = switch (kind) {
+                case RESPONSE_ENTITY -> {
+                    int status = in.readShort();
+                    HttpHeaders headers = readHeaders(in);
+                    yield ResponseEntity.status(status).headers(headers).body(readBody(in));
+                }
+                case PRECOMPRESSED_ENTITY -> {
+                    int status = in.readShort();
+                    HttpHeaders headers = readHeaders(in);
+                    int length = in.readInt();
+                    byte[] gzip = in.readNBytes(in.readInt());
+                    yield ResponseEntity.status(status).headers(headers).body(new PrecompressedJson(gzip, length));
+                }
+                case TEXT -> CacheInvalidation.readString(in);
+                case JSON -> readBody(in);
+                default -> throw new IllegalArgumentException("Unknown cache entry kind " + kind);
+            };
+            return new Decoded(value, writtenAt);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed cache entry", e);
+        }
+    }
+
+    private void writeHeaders(DataOutputStream out, HttpHeaders headers) throws IOException {
+        out.writeShort(headers.size());
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            CacheInvalidation.writeString(out, header.getKey());
+            out.writeShort(header.getValue().size());
+            for (String value : header.getValue()) {
+                CacheInvalidation.writeString(out, value);
+            }
+        }
+    }
+
+    private HttpHeaders readHeaders(DataInputStream in) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        int count = in.readShort();
+        for (int i = 0; i < count; i++) {
+            String name = CacheInvalidation.readString(in);
+            int values = in.readShort();
+            for (int v = 0; v < values; v++) {
+                headers.add(name, CacheInvalidation.readString(in));
+            }
+        }
+        return headers;
+    }
+
+    private void writeBody(DataOutputStream out, Object body) throws IOException {
+        if (body == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] smile = binaryMapper.writeValueAsBytes(body);
+        out.writeInt(smile.length);
+        out.write(smile);
+    }
+
+    private JsonNode readBody(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        return binaryMapper.readTree(in.readNBytes(length));
+    }
+}
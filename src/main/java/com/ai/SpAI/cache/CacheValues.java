@@ -0,0 +1,74 @@
+package com.ai.SpAI.cache;
+
+import com.ai.SpAI.util.ApiResponseWrapper;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Helpers for deciding which controller results are worth caching and how much heap they hold.
+ */
+public final class CacheValues {
+
+    private static final int OBJECT_OVERHEAD = 64;
+
+    private CacheValues() {
+    }
+
+    /**
+     * Only successful responses that carry a payload are cached; errors, rate-limit rejections,
+     * overload responses and anything marked {@code Cache-Control: no-store} (the circuit-breaker
+     * fallbacks) must not be replayed to later callers.
+     */
+    public static boolean isCacheable(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof ResponseEntity<?> response) {
+            return response.getStatusCode().is2xxSuccessful() && !isNoStore(response)
+                    && isCacheable(response.getBody());
+        }
+        if (value instanceof ApiResponseWrapper<?> wrapper) {
+            return wrapper.isSuccess() && hasPayload(wrapper);
+        }
+        return true;
+    }
+
+    private static boolean isNoStore(ResponseEntity<?> response) {
+        String cacheControl = response.getHeaders().getCacheControl();
+        return cacheControl != null && cacheControl.contains("no-store");
+    }
+
+    /**
+     * Structured results are carried in {@code data}. Generated text (chat answers and options,
+     * prose itineraries and recipes) is carried in {@code message}, because
+     * {@code success(String)} binds to the message overload.
+     */
+    private static boolean hasPayload(ApiResponseWrapper<?> wrapper) {
+        return wrapper.getData() != null || wrapper.getMessage() != null;
+    }
+
+    /**
+     * Rough retained-size estimate used as the cache weight.
+     */
+    public static int estimateBytes(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof ResponseEntity<?> response) {
+            return OBJECT_OVERHEAD * 4 + estimateBytes(response.getBody());
+        }
+        if (value instanceof ApiResponseWrapper<?> wrapper) {
+            return OBJECT_OVERHEAD * 2 + estimateBytes(wrapper.getData())
+                    + estimateBytes(wrapper.getMessage()) + estimateBytes(wrapper.getError());
+        }
+        if (value instanceof PrecompressedJson json) {
+            return OBJECT_OVERHEAD + json.gzip().length;
+        }
+        if (value instanceof CharSequence text) {
+            return OBJECT_OVERHEAD + text.length() * 2;
+        }
+        if (value instanceof byte[] bytes) {
+            return OBJECT_OVERHEAD + bytes.length;
+        }
+        return 1024;
+    }
+}
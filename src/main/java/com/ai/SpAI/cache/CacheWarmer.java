@@ -0,0 +1,225 @@
+package com.ai.SpAI.cache;
+
+import com.ai.SpAI.dto.PopularRecipe;
+import com.ai.SpAI.dto.PopularTrip;
+import com.ai.SpAI.repository.SavedRecipeRepository;
+import com.ai.SpAI.repository.SavedTravelRepository;
+import com.ai.SpAI.service.GenerationCancellation;
+import com.ai.SpAI.service.GenerationCancelledException;
+import com.ai.SpAI.service.GenerationContext;
+import com.ai.SpAI.service.GenerationPriority;
+import com.ai.SpAI.service.GenerationScheduler;
+import com.ai.SpAI.util.ApiResponseWrapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Regenerates the most requested itineraries and recipes before they go stale, so popular
+ * requests keep hitting the cache instead of waiting one or two minutes for the model.
+ * <p>
+ * Candidates come from the {@link PopularityTracker}; at startup it is seeded with the
+ * parameter combinations users saved most often. A warm pass runs only while the
+ * {@link GenerationScheduler} is idle, one generation at a time at {@code BACKGROUND} priority,
+ * and any warm generation is cancelled as soon as a user-facing call has to queue. Model time
+ * spent warming is capped at {@code app.cache.warmer.gpu-budget-ms-per-hour}.
+ */
+@Component
+public class CacheWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+    private static final long BUDGET_WINDOW_MS = 3_600_000;
+
+    private final CacheManager cacheManager;
+    private final PopularityTracker popularity;
+    private final CacheKeyCanonicalizer cacheKeys;
+    private final ServiceCacheRefresher refresher;
+    private final GenerationScheduler scheduler;
+    private final SavedTravelRepository savedTravelRepository;
+    private final SavedRecipeRepository savedRecipeRepository;
+    private final Executor executor;
+
+    private final boolean enabled;
+    private final int topN;
+    private final long budgetMsPerHour;
+    private final int startupSeed;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private long windowStart = System.currentTimeMillis();
+    private long spentMs;
+
+    private final MeterRegistry meterRegistry;
+    private final Counter gpuTime;
+
+    public CacheWarmer(CacheManager cacheManager,
+                       PopularityTracker popularity,
+                       CacheKeyCanonicalizer cacheKeys,
+                       ServiceCacheRefresher refresher,
+                       GenerationScheduler scheduler,
+                       SavedTravelRepository savedTravelRepository,
+                       SavedRecipeRepository savedRecipeRepository,
+                       @Qualifier("taskExecutor") Executor executor,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.cache.warmer.enabled:true}") boolean enabled,
+                       @Value("${app.cache.warmer.top-n:20}") int topN,
+                       @Value("${app.cache.warmer.gpu-budget-ms-per-hour:600000}") long budgetMsPerHour,
+                       @Value("${app.cache.warmer.startup-seed:50}") int startupSeed) {
+        this.cacheManager = cacheManager;
+        this.popularity = popularity;
+        this.cacheKeys = cacheKeys;
+        this.refresher = refresher;
+        this.scheduler = scheduler;
+        this.savedTravelRepository = savedTravelRepository;
+        this.savedRecipeRepository = savedRecipeRepository;
+        this.executor = executor;
+        this.enabled = enabled;
+        this.topN = topN;
+        this.budgetMsPerHour = budgetMsPerHour;
+        this.startupSeed = startupSeed;
+
+        this.meterRegistry = meterRegistry;
+        this.gpuTime = Counter.builder("ai.cache.warmer.gpu_ms")
+                .description("Model time spent regenerating popular entries")
+                .register(meterRegistry);
+        Gauge.builder("ai.cache.warmer.budget_remaining_ms", this, CacheWarmer::remainingBudgetMs)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedFromSavedItems() {
+        if (enabled) {
+            submit(() -> {
+                seed();
+                warmPopular();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.warmer.interval-ms:30000}")
+    public void scheduleWarmPass() {
+        if (enabled) {
+            submit(this::warmPopular);
+        }
+    }
+
+    void seed() {
+        PageRequest top = PageRequest.of(0, startupSeed);
+        try {
+            for (PopularTrip trip : savedTravelRepository.findMostSaved(top)) {
+                String interests = orDefault(trip.getInterests(), "general sightseeing");
+                String budget = orDefault(trip.getBudget(), "moderate");
+                popularity.record(cacheKeys.itineraryKey(trip.getDestination(), trip.getDays(), interests, budget),
+                        new WarmRequest.Itinerary(trip.getDestination(), trip.getDays(), interests, budget),
+                        trip.getSaves().intValue());
+            }
+            for (PopularRecipe recipe : savedRecipeRepository.findMostSaved(top)) {
+                String cuisine = orDefault(recipe.getCuisine(), "any");
+                String dietaryRestrictions = orDefault(recipe.getDietaryRestrictions(), "");
+                popularity.record(cacheKeys.recipeKey(recipe.getIngredients(), cuisine, dietaryRestrictions),
+                        new WarmRequest.Recipe(recipe.getIngredients(), cuisine, dietaryRestrictions),
+                        recipe.getSaves().intValue());
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not seed cache warmer from saved items: {}", e.getMessage());
+        }
+    }
+
+    void warmPopular() {
+        for (PopularityTracker.Candidate candidate : popularity.top(topN)) {
+            if (remainingBudgetMs() <= 0) {
+                logger.debug("Cache warming budget for this hour is spent");
+                return;
+            }
+            if (!scheduler.isIdle()) {
+                return;
+            }
+            Cache cache = cacheManager.getCache(candidate.request().cacheName());
+            if (cache instanceof GenerationCache generationCache && !generationCache.isFresh(candidate.key())) {
+                warm(generationCache, candidate);
+            }
+        }
+    }
+
+    private void warm(GenerationCache cache, PopularityTracker.Candidate candidate) {
+        GenerationCancellation cancellation = new GenerationCancellation();
+        GenerationContext context = GenerationContext.of(GenerationPriority.BACKGROUND, remainingBudgetMs(), cancellation)
+                .forUser("system:cache-warmer");
+        scheduler.registerPreemptible(cancellation);
+        long start = System.currentTimeMillis();
+        String result;
+        try {
+            String text = GenerationContext.callWith(context, () -> refresher.generate(candidate.request()));
+            cache.put(candidate.key(), ResponseEntity.ok(ApiResponseWrapper.success(text)));
+            result = "warmed";
+        } catch (GenerationCancelledException e) {
+            result = "preempted".equals(cancellation.getReason()) ? "preempted" : "over_budget";
+        } catch (RuntimeException e) {
+            logger.warn("Warming {} entry failed: {}", candidate.request().cacheName(), e.getMessage());
+            result = "failed";
+        } finally {
+            scheduler.unregisterPreemptible(cancellation);
+        }
+        charge(System.currentTimeMillis() - start);
+        Counter.builder("ai.cache.warmer.generations")
+                .tag("cache", candidate.request().cacheName())
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void submit(Runnable pass) {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    pass.run();
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+
+    synchronized long remainingBudgetMs() {
+        rollWindow();
+        return Math.max(0, budgetMsPerHour - spentMs);
+    }
+
+    private synchronized void charge(long elapsedMs) {
+        rollWindow();
+        spentMs += elapsedMs;
+        gpuTime.increment(elapsedMs);
+    }
+
+    private void rollWindow() {
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= BUDGET_WINDOW_MS) {
+            windowStart = now;
+            spentMs = 0;
+        }
+    }
+
+    private static String orDefault(String value, String fallback) {
+        return value == null || value.isBlank() ? fallback : value;
+    }
+}
@@ -0,0 +1,585 @@
+package com.ai.SpAI.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Restart-surviving {@link ResponseStore} on local disk.
+ * <p>
+ * Entries are appended to a single log file and read back through a read-only memory map; an
+ * in-memory hash index maps each key to its latest record. Evictions and clears are appended
+ * as tombstones, so the log can always be replayed to rebuild the index on startup. Each
+ * record is {@code [length][crc32][payload]}; a torn or corrupt tail left by a crash is
+ * truncated during replay.
+ * <p>
+ * Values are deflate-compressed and every record carries the chat model name and the
+ * prompt-template version it was generated with. Records from another model or template
+ * version are dropped during replay, so changing either invalidates the store. Compaction
+ * rewrites the live records into a fresh file once most of the log is dead; it runs on the
+ * scheduler, never on a request thread, and holds the write lock only to copy the records
+ * appended while it ran and to swap the new file in.
+ * <p>
+ * The file is mapped with a single buffer, which caps it at {@code maxBytes} (under 2GB). The
+ * mapping grows in chunks ahead of the log, so most appends do not remap; the zero-filled space
+ * past the last record reads as the end of the log and is trimmed on close.
+ */
+public class DiskResponseStore implements ResponseStore, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskResponseStore.class);
+
+    private static final String LOG_FILE = "responses.log";
+    private static final String COMPACT_FILE = "responses.log.compact";
+    private static final int HEADER_BYTES = 8;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+    private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+    private static final long MIN_GROWTH_BYTES = 4 * 1024 * 1024;
+
+    private final Path logPath;
+    private final Path compactPath;
+    private final String model;
+    private final String templateVersion;
+    private final long maxBytes;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Location> index = new HashMap<>();
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long size;
+    private long capacity;
+    private long liveBytes;
+    private volatile boolean full;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter staleDropped;
+    private final Counter compactions;
+
+    public DiskResponseStore(Path directory, String model, String templateVersion, long maxBytes,
+                             MeterRegistry meterRegistry) {
+        if (maxBytes <= 0 || maxBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxBytes must be between 1 and " + Integer.MAX_VALUE);
+        }
+        this.logPath = directory.resolve(LOG_FILE);
+        this.compactPath = directory.resolve(COMPACT_FILE);
+        this.model = model;
+        this.templateVersion = templateVersion;
+        this.maxBytes = maxBytes;
+
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+        this.staleDropped = Counter.builder("ai.cache.disk.stale_dropped")
+                .description("Stored responses dropped because the model or prompt template changed")
+                .register(meterRegistry);
+        this.compactions = Counter.builder("ai.cache.disk.compactions")
+                .register(meterRegistry);
+        Gauge.builder("ai.cache.disk.bytes", this, DiskResponseStore::sizeBytes)
+                .description("Size of the response log on disk")
+                .register(meterRegistry);
+        Gauge.builder("ai.cache.disk.live_bytes", this, DiskResponseStore::liveBytes)
+                .register(meterRegistry);
+        Gauge.builder("ai.cache.disk.entries", this, DiskResponseStore::entries)
+                .register(meterRegistry);
+
+        try {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(compactPath);
+            open();
+            replay();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open response store in " + directory, e);
+        }
+        logger.info("Response store {} loaded: {} entries, {} of {} bytes live",
+                logPath, index.size(), liveBytes, size);
+    }
+
+    @Override
+    public byte[] get(String cacheName, String key) {
+        lock.readLock().lock();
+        try {
+            Location location = index.get(indexKey(cacheName, key));
+            if (location == null || location.isExpired()) {
+                misses.increment();
+                return null;
+            }
+            Record record = Record.read(mapped, location.offset());
+            hits.increment();
+            return record.decompress();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(String cacheName, String key, byte[] value, Duration ttl) {
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        byte[] record = Record.encodePut(cacheName, key, expiresAt, model, templateVersion, value);
+        lock.writeLock().lock();
+        try {
+            if (size + record.length > maxBytes) {
+                // The next compaction pass makes room; until then the entry lives in memory only.
+                if (!full) {
+                    full = true;
+                    logger.warn("Response store full ({} bytes), not persisting entries until it is compacted", size);
+                }
+                return;
+            }
+            long offset = append(record);
+            Location previous = index.put(indexKey(cacheName, key), new Location(offset, record.length, expiresAt));
+            liveBytes += record.length - (previous != null ? previous.length() : 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void evict(String cacheName, String key) {
+        lock.writeLock().lock();
+        try {
+            Location removed = index.remove(indexKey(cacheName, key));
+            if (removed != null) {
+                liveBytes -= removed.length();
+                append(Record.encodeDelete(DELETE, cacheName, key));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear(String cacheName) {
+        lock.writeLock().lock();
+        try {
+            removeCache(cacheName);
+            append(Record.encodeDelete(CLEAR, cacheName, null));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Compacts when more than half of the log is overwritten, evicted or expired records, or when
+     * the store filled up and compaction can free anything.
+     */
+    @Scheduled(fixedDelayString = "${app.cache.disk.compaction-interval-ms:600000}")
+    public synchronized void compactIfFragmented() {
+        boolean due;
+        lock.writeLock().lock();
+        try {
+            dropExpired();
+            due = (size > MIN_COMPACTION_BYTES && liveBytes < size / 2) || (full && liveBytes < size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!due) {
+            return;
+        }
+        try {
+            compact();
+            full = false;
+        } catch (IOException e) {
+            logger.warn("Response store compaction failed: {}", e.getMessage());
+        }
+    }
+
+    public long sizeBytes() {
+        return size;
+    }
+
+    public long liveBytes() {
+        return liveBytes;
+    }
+
+    public int entries() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel != null && channel.isOpen()) {
+                channel.truncate(size);
+                channel.force(false);
+                channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        size = channel.size();
+        capacity = size;
+        remap();
+    }
+
+    private void remap() throws IOException {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, capacity);
+    }
+
+    private long append(byte[] record) throws IOException {
+        long offset = size;
+        ensureCapacity(offset + record.length);
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, offset + buffer.position());
+        }
+        size += record.length;
+        return offset;
+    }
+
+    /**
+     * Extends the file and its mapping by at least a chunk (a quarter of the file once that is
+     * larger) so that appends only remap once in a while.
+     */
+    private void ensureCapacity(long end) throws IOException {
+        if (end <= capacity) {
+            return;
+        }
+        long grown = Math.max(end, Math.min(maxBytes, capacity + Math.max(MIN_GROWTH_BYTES, capacity / 4)));
+        channel.write(ByteBuffer.allocate(1), grown - 1);
+        capacity = grown;
+        remap();
+    }
+
+    private void replay() throws IOException {
+        long now = System.currentTimeMillis();
+        long position = 0;
+        while (position < size) {
+            if (position + Integer.BYTES <= size && mapped.getInt((int) position) == 0) {
+                // Space preallocated for the log but never written: the log ends here.
+                size = position;
+                break;
+            }
+            Record record;
+            try {
+                record = Record.read(mapped, position);
+            } catch (IllegalStateException e) {
+                logger.warn("Truncating response store at byte {}: {}", position, e.getMessage());
+                channel.truncate(position);
+                size = position;
+                capacity = position;
+                remap();
+                break;
+            }
+            String key = indexKey(record.cacheName(), record.key());
+            switch (record.op()) {
+                case PUT -> {
+                    Location previous;
+                    if (!model.equals(record.model()) || !templateVersion.equals(record.templateVersion())) {
+                        staleDropped.increment();
+                        previous = index.remove(key);
+                    } else if (record.expiresAt() <= now) {
+                        previous = index.remove(key);
+                    } else {
+                        previous = index.put(key, new Location(position, record.length(), record.expiresAt()));
+                        liveBytes += record.length();
+                    }
+                    if (previous != null) {
+                        liveBytes -= previous.length();
+                    }
+                }
+                case DELETE -> {
+                    Location removed = index.remove(key);
+                    if (removed != null) {
+                        liveBytes -= removed.length();
+                    }
+                }
+                case CLEAR -> removeCache(record.cacheName());
+                default -> throw new IllegalStateException("Unknown record type " + record.op());
+            }
+            position += record.length();
+        }
+    }
+
+    private void dropExpired() {
+        Iterator<Location> locations = index.values().iterator();
+        while (locations.hasNext()) {
+            Location location = locations.next();
+            if (location.isExpired()) {
+                liveBytes -= location.length();
+                locations.remove();
+            }
+        }
+    }
+
+    /**
+     * Copies the live records, unchanged, into a new file without holding the write lock, then takes
+     * it to copy the records appended meanwhile, move the new file over the log and only then swap
+     * the channel, mapping and index. Readers keep using the old mapping until the swap.
+     */
+    private void compact() throws IOException {
+        MappedByteBuffer source;
+        long copiedUpTo;
+        Map<String, Location> snapshot;
+        lock.readLock().lock();
+        try {
+            source = mapped;
+            copiedUpTo = size;
+            snapshot = new HashMap<>(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        FileChannel target = FileChannel.open(compactPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            Map<String, Location> copied = new HashMap<>();
+            long offset = 0;
+            for (Map.Entry<String, Location> entry : snapshot.entrySet()) {
+                Location location = entry.getValue();
+                // Appends never rewrite bytes below copiedUpTo, so the old mapping is safe to read unlocked.
+                write(target, source.slice((int) location.offset(), location.length()), offset);
+                copied.put(entry.getKey(), new Location(offset, location.length(), location.expiresAt()));
+                offset += location.length();
+            }
+
+            lock.writeLock().lock();
+            try {
+                long before = size;
+                int appended = (int) (size - copiedUpTo);
+                write(target, mapped.slice((int) copiedUpTo, appended), offset);
+                Map<String, Location> relocated = new HashMap<>();
+                long live = 0;
+                for (Map.Entry<String, Location> entry : index.entrySet()) {
+                    Location location = entry.getValue();
+                    Location moved = location.offset() >= copiedUpTo
+                            ? new Location(offset + location.offset() - copiedUpTo, location.length(), location.expiresAt())
+                            : copied.get(entry.getKey());
+                    if (moved != null) {
+                        relocated.put(entry.getKey(), moved);
+                        live += moved.length();
+                    }
+                }
+                long compactedSize = offset + appended;
+                target.force(false);
+                MappedByteBuffer remapped = target.map(FileChannel.MapMode.READ_ONLY, 0, compactedSize);
+                Files.move(compactPath, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                FileChannel previous = channel;
+                channel = target;
+                target = null;
+                mapped = remapped;
+                size = compactedSize;
+                capacity = compactedSize;
+                index.clear();
+                index.putAll(relocated);
+                liveBytes = live;
+                previous.close();
+                compactions.increment();
+                logger.info("Compacted response store from {} to {} bytes", before, size);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            if (target != null) {
+                target.close();
+                Files.deleteIfExists(compactPath);
+            }
+        }
+    }
+
+    private static void write(FileChannel target, ByteBuffer bytes, long position) throws IOException {
+        while (bytes.hasRemaining()) {
+            target.write(bytes, position + bytes.position());
+        }
+    }
+
+    private void removeCache(String cacheName) {
+        String prefix = cacheName + '\u0000';
+        Iterator<Map.Entry<String, Location>> entries = index.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Location> entry = entries.next();
+            if (entry.getKey().startsWith(prefix)) {
+                liveBytes -= entry.getValue().length();
+                entries.remove();
+            }
+        }
+    }
+
+    private static String indexKey(String cacheName, String key) {
+        return cacheName + '\u0000' + key;
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ai.cache.disk.lookups")
+                .description("Persistent response store lookups by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Location(long offset, int length, long expiresAt) {
+        boolean isExpired() {
+            return expiresAt <= System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * One decoded log record. {@code length} includes the header.
+     */
+    private record Record(byte op, String cacheName, String key, long expiresAt, String model,
+                          String templateVersion, int rawLength, byte[] compressed, int length) {
+
+        static byte[] encodePut(String cacheName, String key, long expiresAt, String model,
+                                String templateVersion, byte[] value) {
+            return frame(out -> {
+                out.writeByte(PUT);
+                CacheInvalidation.writeString(out, cacheName);
+                CacheInvalidation.writeString(out, key);
+                out.writeLong(expiresAt);
+                CacheInvalidation.writeString(out, model);
+                CacheInvalidation.writeString(out, templateVersion);
+                byte[] compressed = compress(value);
+                out.writeInt(value.length);
+                out.writeInt(compressed.length);
+                out.write(compressed);
+            });
+        }
+
+        static byte[] encodeDelete(byte op, String cacheName, String key) {
+            return frame(out -> {
+                out.writeByte(op);
+                CacheInvalidation.writeString(out, cacheName);
+                CacheInvalidation.writeString(out, key);
+            });
+        }
+
+        static Record read(ByteBuffer file, long offset) {
+            if (offset + HEADER_BYTES > file.limit()) {
+                throw new IllegalStateException("truncated record header");
+            }
+            int payloadLength = file.getInt((int) offset);
+            int checksum = file.getInt((int) offset + 4);
+            if (payloadLength <= 0 || offset + HEADER_BYTES + payloadLength > file.limit()) {
+                throw new IllegalStateException("truncated record");
+            }
+            ByteBuffer payload = file.slice((int) offset + HEADER_BYTES, payloadLength);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IllegalStateException("checksum mismatch");
+            }
+
+            byte op = payload.get();
+            String cacheName = readString(payload);
+            String key = readString(payload);
+            if (op != PUT) {
+                return new Record(op, cacheName, key, 0, null, null, 0, null, HEADER_BYTES + payloadLength);
+            }
+            long expiresAt = payload.getLong();
+            String model = readString(payload);
+            String templateVersion = readString(payload);
+            int rawLength = payload.getInt();
+            byte[] compressed = new byte[payload.getInt()];
+            payload.get(compressed);
+            return new Record(op, cacheName, key, expiresAt, model, templateVersion, rawLength, compressed,
+                    HEADER_BYTES + payloadLength);
+        }
+
+        byte[] decompress() {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                byte[] value = new byte[rawLength];
+                int read = 0;
+                while (read < rawLength && !inflater.finished()) {
+                    read += inflater.inflate(value, read, rawLength - read);
+                }
+                return value;
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Corrupt stored response", e);
+            } finally {
+                inflater.end();
+            }
+        }
+
+        private static byte[] compress(byte[] value) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(value);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, value.length / 2));
+                byte[] chunk = new byte[8192];
+                while (!deflater.finished()) {
+                    out.write(chunk, 0, deflater.deflate(chunk));
+                }
+                return out.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private static byte[] frame(RecordWriter writer) {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+            try (DataOutputStream out = new DataOutputStream(payload)) {
+                writer.write(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            byte[] body = payload.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            return ByteBuffer.allocate(HEADER_BYTES + body.length)
+                    .putInt(body.length)
+                    .putInt((int) crc.getValue())
+                    .put(body)
+                    .array();
+        }
+
+        private static String readString(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] utf8 = new byte[length];
+            buffer.get(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,381 @@
+package com.ai.SpAI.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size-bounded Spring {@link org.springframework.cache.Cache} for generated responses.
+ * <p>
+ * Entries live in a Caffeine cache (W-TinyLFU admission, so one-off prompts do not push out
+ * popular itineraries) whose capacity is measured in estimated bytes rather than entry count.
+ * Entries expire {@code expireAfterWrite} (hard TTL) after they were generated; only then does a
+ * caller have to wait for a new generation, and concurrent misses on one key wait for a single
+ * load, as {@code @Cacheable(sync = true)} expects. Once an entry is older than
+ * {@code refreshAfterWrite} (soft TTL), a read returns it at once but also triggers a single
+ * background regeneration through the {@link CacheRefresher}, so popular entries are renewed
+ * before they expire. Without a refresher entries simply live until their hard TTL. Both TTLs
+ * are jittered per entry, so entries written in the same burst go stale at different times
+ * instead of all together.
+ * <p>
+ * With a {@link SharedCacheStore} the local Caffeine cache becomes the L1 in front of a
+ * cluster-wide L2: local misses fall through to the shared tier before generating, writes go
+ * to both tiers, and other nodes are told to drop their stale local copy. Keys are shared by
+ * their {@code toString()} form.
+ * <p>
+ * With a disk {@link ResponseStore} entries are also persisted locally, so a restarted node
+ * starts warm: misses in the faster tiers are answered from disk before generating.
+ * Failures in the shared or disk tier only cost a cache miss.
+ */
+public class GenerationCache extends AbstractValueAdaptingCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationCache.class);
+    // Decoded object graphs take a few times their Smile-encoded size on the heap.
+    private static final int DECODED_WEIGHT_FACTOR = 4;
+
+    private final String name;
+    private final CacheSpec spec;
+    private final Cache<Object, Entry> cache;
+    private final Executor refreshExecutor;
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+    private final Map<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    private final CacheRefresher refresher;
+    private final SharedCacheStore sharedStore;
+    private final ResponseStore diskStore;
+    private final CacheValueCodec codec;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public GenerationCache(String name, CacheSpec spec, Executor refreshExecutor) {
+        this(name, spec, refreshExecutor, null, null, null);
+    }
+
+    public GenerationCache(String name, CacheSpec spec, Executor refreshExecutor,
+                           SharedCacheStore sharedStore, CacheValueCodec codec) {
+        this(name, spec, refreshExecutor, sharedStore, null, codec);
+    }
+
+    public GenerationCache(String name, CacheSpec spec, Executor refreshExecutor,
+                           SharedCacheStore sharedStore, ResponseStore diskStore, CacheValueCodec codec) {
+        this(name, spec, refreshExecutor, null, sharedStore, diskStore, codec);
+    }
+
+    public GenerationCache(String name, CacheSpec spec, Executor refreshExecutor, CacheRefresher refresher,
+                           SharedCacheStore sharedStore, ResponseStore diskStore, CacheValueCodec codec) {
+        super(false);
+        this.name = name;
+        this.spec = spec;
+        this.refreshExecutor = refreshExecutor;
+        this.refresher = refresher;
+        this.sharedStore = sharedStore;
+        this.diskStore = diskStore;
+        this.codec = codec;
+        if (spec.precompressed() && codec == null) {
+            throw new IllegalArgumentException("Cache " + name + " stores gzip-json and needs a codec");
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(spec.maximumWeightBytes())
+                .weigher((Object key, Entry entry) -> entry.weight())
+                .expireAfter(new Expiry<Object, Entry>() {
+                    // Each entry carries its own jittered deadline; ones adopted from a lower tier keep their original write time.
+                    @Override
+                    public long expireAfterCreate(Object key, Entry entry, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(entry.remainingMs());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Object key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Object key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        if (sharedStore != null) {
+            sharedStore.subscribe(this::onInvalidation);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Cache<Object, Entry> getNativeCache() {
+        return cache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Entry entry = lookupTiers(key);
+        return entry != null ? entry.value() : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Entry entry = lookupTiers(key);
+        if (entry != null) {
+            if (needsRefresh(entry)) {
+                refreshInBackground(key);
+            }
+            return (T) fromStoreValue(entry.value());
+        }
+
+        CompletableFuture<Object> ours = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(key, ours);
+        if (existing != null) {
+            Object shared = awaitLoad(existing);
+            // Uncacheable results (a caller's 429, an error) are that caller's own; load ours.
+            return CacheValues.isCacheable(shared) ? (T) shared : load(key, valueLoader);
+        }
+
+        try {
+            // The load we would have waited for may have finished between our lookup and our claim.
+            entry = lookupTiers(key);
+            T value = entry != null ? (T) fromStoreValue(entry.value()) : load(key, valueLoader);
+            if (entry == null) {
+                put(key, value);
+            }
+            ours.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            ours.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, ours);
+        }
+    }
+
+    /**
+     * True if the key has an entry (in any tier) that is not yet due for regeneration. Entries
+     * of caches without a soft TTL count as due during the last tenth of their life.
+     */
+    public boolean isFresh(Object key) {
+        Entry entry = lookupTiers(key);
+        if (entry == null) {
+            return false;
+        }
+        long freshUntil = Math.min(entry.refreshAt(), entry.expiresAt() - spec.expireAfterWrite().toMillis() / 10);
+        return System.currentTimeMillis() < freshUntil;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (!CacheValues.isCacheable(value)) {
+            return;
+        }
+        Object stored = spec.precompressed() ? precompress(value) : value;
+        Entry entry = newEntry(toStoreValue(stored), System.currentTimeMillis(), CacheValues.estimateBytes(stored));
+        cache.put(key, entry);
+        if (sharedStore != null) {
+            writeShared(key, entry);
+        }
+        if (diskStore != null) {
+            tier("disk", "write", () -> diskStore.put(name, key.toString(), codec.encode(entry.value(), entry.writtenAt()),
+                    Duration.ofMillis(entry.remainingMs())));
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        cache.invalidate(key);
+        if (sharedStore != null) {
+            tier("shared", "evict", () -> {
+                sharedStore.evict(name, key.toString());
+                sharedStore.publish(new CacheInvalidation(instanceId, name, key.toString()));
+            });
+        }
+        if (diskStore != null) {
+            tier("disk", "evict", () -> diskStore.evict(name, key.toString()));
+        }
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+        if (sharedStore != null) {
+            tier("shared", "clear", () -> {
+                sharedStore.clear(name);
+                sharedStore.publish(new CacheInvalidation(instanceId, name, null));
+            });
+        }
+        if (diskStore != null) {
+            tier("disk", "clear", () -> diskStore.clear(name));
+        }
+    }
+
+    /**
+     * Looks the key up tier by tier (local, shared, disk) and promotes what it finds to the
+     * faster tiers.
+     */
+    private Entry lookupTiers(Object key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            return entry;
+        }
+        if (sharedStore != null) {
+            entry = readTier(sharedStore, "shared", key);
+            if (entry != null) {
+                cache.put(key, entry);
+                return entry;
+            }
+        }
+        if (diskStore != null) {
+            entry = readTier(diskStore, "disk", key);
+            if (entry != null) {
+                cache.put(key, entry);
+                if (sharedStore != null) {
+                    writeShared(key, entry);
+                }
+            }
+        }
+        return entry;
+    }
+
+    private Entry readTier(ResponseStore store, String tierName, Object key) {
+        try {
+            byte[] encoded = store.get(name, key.toString());
+            if (encoded == null) {
+                return null;
+            }
+            CacheValueCodec.Decoded decoded = codec.decode(encoded);
+            Entry entry = newEntry(decoded.value(), decoded.writtenAt(), DECODED_WEIGHT_FACTOR * encoded.length);
+            return entry.remainingMs() > 0 ? entry : null;
+        } catch (RuntimeException e) {
+            logger.warn("{} {} cache read failed, treating as miss: {}", tierName, name, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeShared(Object key, Entry entry) {
+        tier("shared", "write", () -> {
+            byte[] encoded = codec.encode(entry.value(), entry.writtenAt());
+            sharedStore.put(name, key.toString(), encoded, Duration.ofMillis(Math.max(1, entry.remainingMs())));
+            sharedStore.publish(new CacheInvalidation(instanceId, name, key.toString()));
+        });
+    }
+
+    private void tier(String tierName, String operation, Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            logger.warn("{} {} cache {} failed, continuing without it: {}", tierName, name, operation, e.getMessage());
+        }
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (instanceId.equals(invalidation.origin()) || !name.equals(invalidation.cacheName())) {
+            return;
+        }
+        if (invalidation.clearsAll()) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(invalidation.key());
+        }
+    }
+
+    private Object precompress(Object value) {
+        try {
+            return codec.precompress(value);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Storing {} entry as an object, it cannot be pre-serialized: {}", name, e.getMessage());
+            return value;
+        }
+    }
+
+    private Entry newEntry(Object value, long writtenAt, int weight) {
+        long expiresAt = writtenAt + spec.jittered(spec.expireAfterWrite());
+        long refreshAt = spec.refreshes()
+                ? Math.min(writtenAt + spec.jittered(spec.refreshAfterWrite()), expiresAt)
+                : Long.MAX_VALUE;
+        return new Entry(value, writtenAt, weight, refreshAt, expiresAt);
+    }
+
+    private static boolean needsRefresh(Entry entry) {
+        return System.currentTimeMillis() >= entry.refreshAt();
+    }
+
+    private void refreshInBackground(Object key) {
+        if (refresher == null || !refreshing.add(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    // Another node may already have regenerated it; adopt that instead of paying again.
+                    Entry shared = sharedStore != null ? readTier(sharedStore, "shared", key) : null;
+                    if (shared != null && !needsRefresh(shared)) {
+                        cache.put(key, shared);
+                        return;
+                    }
+                    Object value = refresher.regenerate(name, key);
+                    if (value == null) {
+                        logger.debug("No request known for {} entry {}, leaving it to expire", name, key);
+                    } else if (!CacheValues.isCacheable(value)) {
+                        logger.warn("Background refresh of {} entry produced an uncacheable result, keeping the stale one", name);
+                    } else {
+                        put(key, value);
+                        logger.debug("Refreshed {} entry {}", name, key);
+                    }
+                } catch (RuntimeException e) {
+                    logger.warn("Background refresh of {} entry failed: {}", name, e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            logger.debug("Refresh executor saturated, serving {} entry without refresh", name);
+        }
+    }
+
+    /**
+     * The result of another caller's load of the same key, or null if that load failed.
+     */
+    private static Object awaitLoad(CompletableFuture<Object> load) {
+        try {
+            return load.join();
+        } catch (CompletionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    private static <T> T load(Object key, Callable<T> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    /**
+     * A cached value with its write time, estimated size and this entry's jittered soft
+     * ({@code refreshAt}) and hard ({@code expiresAt}) deadlines.
+     */
+    public record Entry(Object value, long writtenAt, int weight, long refreshAt, long expiresAt) {
+        long remainingMs() {
+            return Math.max(0, expiresAt - System.currentTimeMillis());
+        }
+    }
+}
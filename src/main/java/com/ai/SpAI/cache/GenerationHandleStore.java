@@ -0,0 +1,125 @@
+package com.ai.SpAI.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Short-lived handles to generated text held on the server, so that clients can save a
+ * generation by handle instead of uploading the text they just downloaded.
+ * <p>
+ * A handle is derived from the text itself, so every response carrying the same generation
+ * (including cache hits) hands out the same handle and issuing it again only extends its life.
+ * Handles are kept locally and, when the shared L2 tier is enabled, in it as well so that a
+ * save may land on a different node than the generation.
+ */
+public class GenerationHandleStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationHandleStore.class);
+    private static final String SHARED_NAMESPACE = "generationHandles";
+
+    private final Cache<String, String> texts;
+    // Handles of cached gzip bodies, by identity, so a cache hit is only inflated the first time
+    private final Cache<PrecompressedJson, String> compressedHandles;
+    private final SharedCacheStore sharedStore;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+
+    public GenerationHandleStore(Duration ttl, long maxChars, SharedCacheStore sharedStore, ObjectMapper objectMapper) {
+        this.ttl = ttl;
+        this.sharedStore = sharedStore;
+        this.objectMapper = objectMapper;
+        this.texts = Caffeine.newBuilder()
+                .expireAfterAccess(ttl)
+                .maximumWeight(maxChars)
+                .<String, String>weigher((handle, text) -> text.length())
+                .build();
+        this.compressedHandles = Caffeine.newBuilder()
+                .weakKeys()
+                .build();
+    }
+
+    /**
+     * The handle for {@code text}. It stays valid on this node until it goes unused for the
+     * TTL, and in the shared tier for the TTL from when it was first issued.
+     */
+    public String issue(String text) {
+        String handle = handleOf(text);
+        if (texts.getIfPresent(handle) == null) {
+            texts.put(handle, text);
+            if (sharedStore != null) {
+                try {
+                    sharedStore.put(SHARED_NAMESPACE, handle, text.getBytes(StandardCharsets.UTF_8), ttl);
+                } catch (Exception e) {
+                    logger.warn("Failed to share generation handle: {}", e.getMessage());
+                }
+            }
+        }
+        return handle;
+    }
+
+    /**
+     * The handle for the generated text in a cached response body, whose JSON carries it in
+     * {@code message}; empty if the body holds no text.
+     */
+    public Optional<String> issue(PrecompressedJson body) {
+        String handle = compressedHandles.getIfPresent(body);
+        if (handle != null && texts.getIfPresent(handle) != null) {
+            return Optional.of(handle);
+        }
+        try (InputStream json = body.inflate()) {
+            JsonNode message = objectMapper.readTree(json).path("message");
+            if (!message.isTextual()) {
+                return Optional.empty();
+            }
+            handle = issue(message.asText());
+            compressedHandles.put(body, handle);
+            return Optional.of(handle);
+        } catch (IOException e) {
+            logger.warn("Failed to read cached response body: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public Optional<String> resolve(String handle) {
+        if (handle == null || handle.isBlank()) {
+            return Optional.empty();
+        }
+        String text = texts.getIfPresent(handle);
+        if (text == null && sharedStore != null) {
+            try {
+                byte[] shared = sharedStore.get(SHARED_NAMESPACE, handle);
+                if (shared != null) {
+                    text = new String(shared, StandardCharsets.UTF_8);
+                    texts.put(handle, text);
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to look up shared generation handle: {}", e.getMessage());
+            }
+        }
+        return Optional.ofNullable(text);
+    }
+
+    static String handleOf(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            // 128 bits keep handles short while ruling out collisions
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
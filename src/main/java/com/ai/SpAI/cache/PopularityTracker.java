@@ -0,0 +1,180 @@
+package com.ai.SpAI.cache;
+
+import com.ai.SpAI.util.CountMinSketch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks how often each canonical itinerary and recipe key is requested. Frequencies live in a
+ * {@link CountMinSketch}, so any number of distinct keys costs fixed memory; only the
+ * {@code candidates} most popular keys keep their request parameters for re-generation.
+ * <p>
+ * {@link #record} runs inside cache key evaluation on every request, so keys are spread over
+ * independently locked stripes, each with its own sketch and a min-heap of its candidates
+ * ordered by estimate. Admitting a new key compares it with the heap head instead of scanning
+ * every candidate.
+ */
+@Component
+public class PopularityTracker {
+
+    private static final int MAX_STRIPES = 16;
+    private static final int MIN_CANDIDATES_PER_STRIPE = 16;
+    private static final int SKETCH_WIDTH = 1 << 16;
+
+    private final Stripe[] stripes;
+
+    @Autowired
+    public PopularityTracker(@Value("${app.cache.warmer.candidates:256}") int maxCandidates) {
+        this(maxCandidates, stripesFor(maxCandidates));
+    }
+
+    PopularityTracker(int maxCandidates, int stripeCount) {
+        int perStripe = Math.max(1, (maxCandidates + stripeCount - 1) / stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(SKETCH_WIDTH / stripeCount, perStripe);
+        }
+    }
+
+    public record Candidate(String key, WarmRequest request) {
+    }
+
+    public void record(String key, WarmRequest request) {
+        record(key, request, 1);
+    }
+
+    public void record(String key, WarmRequest request, int count) {
+        String sketchKey = request.cacheName() + ':' + key;
+        stripeOf(sketchKey).record(sketchKey, new Candidate(key, request), count);
+    }
+
+    /**
+     * The request behind {@code key} of {@code cacheName}, or null if the key is not among the
+     * tracked candidates.
+     */
+    public WarmRequest requestFor(String cacheName, String key) {
+        String sketchKey = cacheName + ':' + key;
+        Candidate candidate = stripeOf(sketchKey).get(sketchKey);
+        return candidate != null ? candidate.request() : null;
+    }
+
+    /**
+     * The {@code limit} most requested keys, most popular first.
+     */
+    public List<Candidate> top(int limit) {
+        List<Ranked> ranked = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.collect(ranked);
+        }
+        return ranked.stream()
+                .sorted(Comparator.comparingInt(Ranked::estimate).reversed())
+                .limit(limit)
+                .map(Ranked::candidate)
+                .toList();
+    }
+
+    private Stripe stripeOf(String sketchKey) {
+        int hash = sketchKey.hashCode();
+        return stripes[((hash ^ (hash >>> 16)) & 0x7fffffff) % stripes.length];
+    }
+
+    private static int stripesFor(int maxCandidates) {
+        int stripes = Integer.highestOneBit(Math.max(1, maxCandidates / MIN_CANDIDATES_PER_STRIPE));
+        return Math.min(MAX_STRIPES, stripes);
+    }
+
+    private record Ranked(Candidate candidate, int estimate) {
+    }
+
+    /**
+     * A heap entry; {@code estimate} is the sketch estimate when it was pushed and may be out of
+     * date, so the head is re-ranked before it is compared or evicted.
+     */
+    private record HeapEntry(String sketchKey, int estimate) {
+    }
+
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final CountMinSketch sketch;
+        private final int maxCandidates;
+        private final Map<String, Candidate> candidates = new HashMap<>();
+        private final PriorityQueue<HeapEntry> coldest = new PriorityQueue<>(
+                Comparator.comparingInt(HeapEntry::estimate));
+
+        Stripe(int sketchWidth, int maxCandidates) {
+            this.sketch = new CountMinSketch(sketchWidth);
+            this.maxCandidates = maxCandidates;
+        }
+
+        void record(String sketchKey, Candidate candidate, int count) {
+            lock.lock();
+            try {
+                int estimate = sketch.add(sketchKey, count);
+                if (candidates.containsKey(sketchKey)) {
+                    // Its heap entry is re-ranked lazily when it reaches the head.
+                    candidates.put(sketchKey, candidate);
+                    return;
+                }
+                if (candidates.size() >= maxCandidates) {
+                    HeapEntry head = reRankHead();
+                    if (estimate <= head.estimate()) {
+                        return;
+                    }
+                    coldest.poll();
+                    candidates.remove(head.sketchKey());
+                }
+                candidates.put(sketchKey, candidate);
+                coldest.add(new HeapEntry(sketchKey, estimate));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Candidate get(String sketchKey) {
+            lock.lock();
+            try {
+                return candidates.get(sketchKey);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void collect(List<Ranked> into) {
+            lock.lock();
+            try {
+                for (Map.Entry<String, Candidate> entry : candidates.entrySet()) {
+                    into.add(new Ranked(entry.getValue(), sketch.estimate(entry.getKey())));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Refreshes stale heap entries until the head carries its current estimate, which makes
+         * it the least popular candidate. Estimates grow with requests and shrink when the
+         * sketch halves, so an entry is pushed back whenever it differs either way.
+         */
+        private HeapEntry reRankHead() {
+            while (true) {
+                HeapEntry head = coldest.peek();
+                int current = sketch.estimate(head.sketchKey());
+                if (current == head.estimate()) {
+                    return head;
+                }
+                coldest.poll();
+                coldest.add(new HeapEntry(head.sketchKey(), current));
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.ai.SpAI.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response body held as its final JSON bytes, gzip-compressed. Cached responses are stored in
+ * this form so that a hit neither re-serializes the body through Jackson nor re-compresses it:
+ * {@code PrecompressedJsonHttpMessageConverter} copies the bytes straight to the client when it
+ * accepts gzip and inflates them on the fly otherwise. Text-heavy generations typically shrink
+ * 4-5x, which is also what they cost on the heap.
+ */
+public record PrecompressedJson(byte[] gzip, int length) {
+
+    public static PrecompressedJson of(byte[] json) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, json.length / 3));
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new PrecompressedJson(bytes.toByteArray(), json.length);
+    }
+
+    public InputStream inflate() throws IOException {
+        return new GZIPInputStream(new ByteArrayInputStream(gzip));
+    }
+}
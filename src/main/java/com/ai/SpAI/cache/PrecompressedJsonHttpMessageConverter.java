@@ -0,0 +1,113 @@
+package com.ai.SpAI.cache;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Writes {@link PrecompressedJson} bodies. Clients that accept gzip get the stored bytes as-is
+ * with {@code Content-Encoding: gzip} (the servlet container does not compress a response that
+ * already has a content encoding); other clients get the JSON inflated while it is copied out.
+ * Write-only: must be registered ahead of the Jackson converter, which would otherwise
+ * serialize the record's fields.
+ */
+public class PrecompressedJsonHttpMessageConverter extends AbstractHttpMessageConverter<PrecompressedJson> {
+
+    public PrecompressedJsonHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return PrecompressedJson.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected PrecompressedJson readInternal(Class<? extends PrecompressedJson> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("PrecompressedJson is write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(PrecompressedJson body, MediaType contentType) {
+        return (long) (acceptsGzip() ? body.gzip().length : body.length());
+    }
+
+    @Override
+    protected void writeInternal(PrecompressedJson body, HttpOutputMessage outputMessage) throws IOException {
+        HttpHeaders headers = outputMessage.getHeaders();
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip()) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            outputMessage.getBody().write(body.gzip());
+            return;
+        }
+        try (InputStream json = body.inflate()) {
+            json.transferTo(outputMessage.getBody());
+        }
+    }
+
+    private static boolean acceptsGzip() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return false;
+        }
+        HttpServletRequest request = servletAttributes.getRequest();
+        return acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    /**
+     * True if an {@code Accept-Encoding} header allows gzip: {@code gzip} (or {@code x-gzip}) is
+     * listed with a non-zero quality, or it is not listed and {@code *} is. {@code gzip;q=0}
+     * refuses gzip even when {@code *} would allow it.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double wildcard = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase();
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = Math.max(gzip != null ? gzip : 0, quality(parts));
+            } else if (coding.equals("*")) {
+                wildcard = quality(parts);
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return wildcard != null && wildcard > 0;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    // A weight we cannot read is no permission to compress.
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,121 @@
+package com.ai.SpAI.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link SharedCacheStore} on Redis: entries are plain keys {@code spai:cache:<cache>:<key>}
+ * with a TTL, invalidations go over a pub/sub channel every node subscribes to.
+ */
+public class RedisSharedCacheStore implements SharedCacheStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisSharedCacheStore.class);
+    private static final String KEY_PREFIX = "spai:cache:";
+
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final String channel;
+    private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidationsReceived;
+
+    public RedisSharedCacheStore(RedisConnectionFactory connectionFactory,
+                                 RedisMessageListenerContainer listenerContainer,
+                                 MeterRegistry meterRegistry,
+                                 String channel) {
+        this.redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(RedisSerializer.string());
+        redisTemplate.setValueSerializer(RedisSerializer.byteArray());
+        redisTemplate.afterPropertiesSet();
+        this.channel = channel;
+
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+        this.invalidationsReceived = Counter.builder("ai.cache.l2.invalidations")
+                .description("Invalidation messages received from other nodes")
+                .register(meterRegistry);
+
+        listenerContainer.addMessageListener((message, pattern) -> dispatch(message.getBody()), new ChannelTopic(channel));
+    }
+
+    @Override
+    public byte[] get(String cacheName, String key) {
+        byte[] value = redisTemplate.opsForValue().get(redisKey(cacheName, key));
+        (value != null ? hits : misses).increment();
+        return value;
+    }
+
+    @Override
+    public void put(String cacheName, String key, byte[] value, Duration ttl) {
+        redisTemplate.opsForValue().set(redisKey(cacheName, key), value, ttl);
+    }
+
+    @Override
+    public void evict(String cacheName, String key) {
+        redisTemplate.delete(redisKey(cacheName, key));
+    }
+
+    @Override
+    public void clear(String cacheName) {
+        List<String> keys = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + cacheName + ":*").count(500).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            cursor.forEachRemaining(keys::add);
+        }
+        if (!keys.isEmpty()) {
+            redisTemplate.delete(keys);
+        }
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        redisTemplate.convertAndSend(channel, invalidation.encode());
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> listener) {
+        listeners.add(listener);
+    }
+
+    private void dispatch(byte[] body) {
+        CacheInvalidation invalidation;
+        try {
+            invalidation = CacheInvalidation.decode(body);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Ignoring malformed cache invalidation: {}", e.getMessage());
+            return;
+        }
+        invalidationsReceived.increment();
+        for (Consumer<CacheInvalidation> listener : listeners) {
+            listener.accept(invalidation);
+        }
+    }
+
+    private static String redisKey(String cacheName, String key) {
+        return KEY_PREFIX + cacheName + ':' + key;
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ai.cache.l2.lookups")
+                .description("Shared cache tier lookups by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
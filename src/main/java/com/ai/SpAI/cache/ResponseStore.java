@@ -0,0 +1,18 @@
+package com.ai.SpAI.cache;
+
+import java.time.Duration;
+
+/**
+ * A tier below a node's in-memory {@link GenerationCache}. Values are opaque bytes produced by
+ * {@link CacheValueCodec}; implementations only store and expire them.
+ */
+public interface ResponseStore {
+
+    byte[] get(String cacheName, String key);
+
+    void put(String cacheName, String key, byte[] value, Duration ttl);
+
+    void evict(String cacheName, String key);
+
+    void clear(String cacheName);
+}
@@ -0,0 +1,106 @@
+package com.ai.SpAI.cache;
+
+import com.ai.SpAI.dto.StructuredItinerary;
+import com.ai.SpAI.dto.StructuredRecipe;
+import com.ai.SpAI.dto.TravelPlanRequest;
+import com.ai.SpAI.service.ChatService;
+import com.ai.SpAI.service.GenerationContext;
+import com.ai.SpAI.service.GenerationCostModel;
+import com.ai.SpAI.service.GenerationPriority;
+import com.ai.SpAI.service.RecipeService;
+import com.ai.SpAI.service.StructuredPlanService;
+import com.ai.SpAI.service.TravelPlannerService;
+import com.ai.SpAI.util.ApiResponseWrapper;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link CacheRefresher} that calls the services the controllers would, at {@code BACKGROUND}
+ * priority on behalf of {@code system:cache-refresh}. Chat entries are keyed by their prompt;
+ * itinerary and recipe keys are hashes, so their parameters are looked up in the
+ * {@link PopularityTracker}. Keys it no longer tracks are left to expire.
+ */
+@Component
+public class ServiceCacheRefresher implements CacheRefresher {
+
+    static final String STRUCTURED_PREFIX = "structured:";
+
+    private final PopularityTracker popularity;
+    private final ChatService chatService;
+    private final TravelPlannerService travelPlannerService;
+    private final RecipeService recipeService;
+    private final StructuredPlanService structuredPlanService;
+    private final GenerationCostModel costModel;
+
+    public ServiceCacheRefresher(PopularityTracker popularity,
+                                 ChatService chatService,
+                                 TravelPlannerService travelPlannerService,
+                                 RecipeService recipeService,
+                                 StructuredPlanService structuredPlanService,
+                                 GenerationCostModel costModel) {
+        this.popularity = popularity;
+        this.chatService = chatService;
+        this.travelPlannerService = travelPlannerService;
+        this.recipeService = recipeService;
+        this.structuredPlanService = structuredPlanService;
+        this.costModel = costModel;
+    }
+
+    @Override
+    public Object regenerate(String cacheName, Object key) {
+        GenerationContext context = GenerationContext.of(GenerationPriority.BACKGROUND, 0, null)
+                .forUser("system:cache-refresh");
+        return GenerationContext.callWith(context, () -> generate(cacheName, key.toString()));
+    }
+
+    /**
+     * Generates the text of an itinerary or recipe request, with the same parameter clean-up
+     * the controllers do before calling the services.
+     */
+    public String generate(WarmRequest request) {
+        if (request instanceof WarmRequest.Itinerary itinerary) {
+            return travelPlannerService.generateItinerary(toTravelPlanRequest(itinerary));
+        }
+        WarmRequest.Recipe recipe = (WarmRequest.Recipe) request;
+        return recipeService.createRecipe(
+                recipe.ingredients().trim(),
+                recipe.cuisine().trim().toLowerCase(),
+                recipe.dietaryRestrictions().trim());
+    }
+
+    private Object generate(String cacheName, String key) {
+        if ("chatResponses".equals(cacheName)) {
+            return ResponseEntity.ok(ApiResponseWrapper.success(chatService.getResponse(key.trim())));
+        }
+
+        boolean structured = key.startsWith(STRUCTURED_PREFIX);
+        String canonicalKey = structured ? key.substring(STRUCTURED_PREFIX.length()) : key;
+        WarmRequest request = popularity.requestFor(cacheName, canonicalKey);
+        if (request == null) {
+            return null;
+        }
+        if (!structured) {
+            return ResponseEntity.ok(ApiResponseWrapper.success(generate(request)));
+        }
+        if (request instanceof WarmRequest.Itinerary itinerary) {
+            StructuredItinerary plan = structuredPlanService.generateItinerary(toTravelPlanRequest(itinerary),
+                    costModel.itinerary(itinerary.days(), itinerary.interests().trim()));
+            return ResponseEntity.ok(ApiResponseWrapper.success("Itinerary generated", plan));
+        }
+        WarmRequest.Recipe recipe = (WarmRequest.Recipe) request;
+        StructuredRecipe plan = structuredPlanService.generateRecipe(
+                recipe.ingredients().trim(),
+                recipe.cuisine().trim().toLowerCase(),
+                recipe.dietaryRestrictions().trim(),
+                costModel.recipe(recipe.ingredients().trim()));
+        return ResponseEntity.ok(ApiResponseWrapper.success("Recipe generated", plan));
+    }
+
+    private static TravelPlanRequest toTravelPlanRequest(WarmRequest.Itinerary itinerary) {
+        return new TravelPlanRequest(
+                itinerary.destination().trim(),
+                itinerary.days(),
+                itinerary.interests().trim(),
+                itinerary.budget().trim().toLowerCase());
+    }
+}
@@ -0,0 +1,15 @@
+package com.ai.SpAI.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Cluster-wide second tier behind each node's {@link GenerationCache}. Invalidations are
+ * broadcast to every node so their local copies are dropped when an entry is rewritten or
+ * evicted elsewhere.
+ */
+public interface SharedCacheStore extends ResponseStore {
+
+    void publish(CacheInvalidation invalidation);
+
+    void subscribe(Consumer<CacheInvalidation> listener);
+}
@@ -0,0 +1,24 @@
+package com.ai.SpAI.cache;
+
+/**
+ * The request parameters behind a cache key, kept so the entry can be regenerated without a
+ * caller.
+ */
+public sealed interface WarmRequest {
+
+    String cacheName();
+
+    record Itinerary(String destination, Integer days, String interests, String budget) implements WarmRequest {
+        @Override
+        public String cacheName() {
+            return "itineraries";
+        }
+    }
+
+    record Recipe(String ingredients, String cuisine, String dietaryRestrictions) implements WarmRequest {
+        @Override
+        public String cacheName() {
+            return "recipes";
+        }
+    }
+}
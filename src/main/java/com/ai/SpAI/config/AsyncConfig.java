@@ -1,6 +1,10 @@
 package com.ai.SpAI.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.context.annotation.Bean;
@@ -10,6 +14,8 @@ import java.util.concurrent.Executor;
 @EnableAsync
 public class AsyncConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(AsyncConfig.class);
+
     @Bean(name = "taskExecutor")
     public Executor taskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
@@ -20,4 +26,56 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs the /async endpoints, whose tasks spend nearly all their time blocked on the model.
+     * With {@code spring.threads.virtual.enabled} each task gets its own virtual thread; otherwise
+     * they share a fixed pool of platform threads.
+     */
+    @Bean(name = "generationExecutor")
+    public Executor generationExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${app.ai.execution.platform-threads:64}") int platformThreads,
+            @Value("${app.ai.execution.queue-capacity:500}") int queueCapacity) {
+        return blockingExecutor("Generation-", virtualThreads, platformThreads, queueCapacity);
+    }
+
+    /**
+     * Runs the per-day generations of a fanned-out itinerary. Kept apart from taskExecutor,
+     * whose threads block on whole itineraries (cache refresh, warming) and would otherwise wait
+     * on day tasks queued behind themselves.
+     */
+    @Bean(name = "itineraryDayExecutor")
+    public Executor itineraryDayExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${app.ai.itinerary.fan-out.parallelism:8}") int parallelism) {
+        return blockingExecutor("ItineraryDay-", virtualThreads, parallelism, 500);
+    }
+
+    /**
+     * An executor for tasks that block on I/O. Virtual threads cost a few hundred bytes of heap
+     * while parked instead of a platform thread and its stack, so they are unbounded here; the
+     * {@link com.ai.SpAI.service.GenerationScheduler} queue is what bounds the waiting work. On a
+     * JVM without virtual threads (before 21) this falls back to the platform pool.
+     */
+    static Executor blockingExecutor(String threadNamePrefix, boolean virtualThreads,
+                                     int platformThreads, int queueCapacity) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+            try {
+                executor.setVirtualThreads(true);
+                return executor;
+            } catch (UnsupportedOperationException e) {
+                logger.warn("Virtual threads are not available on Java {}; {} runs on platform threads",
+                        Runtime.version().feature(), threadNamePrefix);
+            }
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(platformThreads);
+        executor.setMaxPoolSize(platformThreads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.initialize();
+        return executor;
+    }
+}
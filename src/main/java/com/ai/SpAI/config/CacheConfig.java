@@ -1,31 +1,132 @@
 package com.ai.SpAI.config;
 
+import com.ai.SpAI.cache.CacheRefresher;
+import com.ai.SpAI.cache.CacheSpec;
+import com.ai.SpAI.cache.CacheValueCodec;
+import com.ai.SpAI.cache.DiskResponseStore;
+import com.ai.SpAI.cache.GenerationCache;
+import com.ai.SpAI.cache.GenerationHandleStore;
+import com.ai.SpAI.cache.RedisSharedCacheStore;
+import com.ai.SpAI.cache.SharedCacheStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 @Configuration
 @EnableCaching
 @EnableScheduling
 public class CacheConfig {
 
+    // Defaults per cache; override with app.cache.spec.<name>
+    private static final Map<String, String> DEFAULT_SPECS = Map.of(
+            "itineraries", "maximumWeight=64MB,expireAfterWrite=6h,refreshAfterWrite=1h,jitter=10%,storeAs=gzip-json",
+            "itineraryDays", "maximumWeight=64MB,expireAfterWrite=6h,refreshAfterWrite=1h,jitter=10%,storeAs=object",
+            "chatResponses", "maximumWeight=32MB,expireAfterWrite=1h,refreshAfterWrite=30m,jitter=10%,storeAs=gzip-json",
+            "chatOptions", "maximumWeight=8MB,expireAfterWrite=1h,jitter=10%,storeAs=gzip-json",
+            "recipes", "maximumWeight=32MB,expireAfterWrite=6h,refreshAfterWrite=1h,jitter=10%,storeAs=gzip-json"
+    );
+
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager(
-                "itineraries",
-                "chatResponses",
-                "chatOptions",
-                "recipes"
-        );
+    public CacheManager cacheManager(Environment environment,
+                                     @Qualifier("taskExecutor") Executor refreshExecutor,
+                                     ObjectProvider<SharedCacheStore> sharedCacheStore,
+                                     ObjectProvider<DiskResponseStore> diskResponseStore,
+                                     ObjectProvider<CacheRefresher> cacheRefresher,
+                                     ObjectMapper objectMapper) {
+        SharedCacheStore sharedStore = sharedCacheStore.getIfAvailable();
+        DiskResponseStore diskStore = diskResponseStore.getIfAvailable();
+        CacheValueCodec codec = new CacheValueCodec(objectMapper);
+        // Resolved per refresh: the refresher depends on services that are created after the caches.
+        CacheRefresher refresher = (cacheName, key) -> cacheRefresher.getObject().regenerate(cacheName, key);
+
+        List<GenerationCache> caches = DEFAULT_SPECS.keySet().stream()
+                .sorted()
+                .map(name -> new GenerationCache(name,
+                        CacheSpec.parse(environment.getProperty("app.cache.spec." + name, DEFAULT_SPECS.get(name))),
+                        refreshExecutor, refresher, sharedStore, diskStore, codec))
+                .toList();
+
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
+        return cacheManager;
     }
 
-    @Scheduled(fixedRate = 3600000) // Clear cache every hour
-    public void clearCache() {
-        cacheManager().getCacheNames().stream()
-                .forEach(name -> cacheManager().getCache(name).clear());
+    /**
+     * Shared L2 tier so that nodes reuse each other's generations. Off by default, each node
+     * then only has its local cache.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.l2.enabled", havingValue = "true")
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.l2.enabled", havingValue = "true")
+    public SharedCacheStore sharedCacheStore(RedisConnectionFactory connectionFactory,
+                                             RedisMessageListenerContainer cacheInvalidationListenerContainer,
+                                             MeterRegistry meterRegistry,
+                                             @Value("${app.cache.l2.channel:spai:cache:invalidate}") String channel) {
+        return new RedisSharedCacheStore(connectionFactory, cacheInvalidationListenerContainer, meterRegistry, channel);
+    }
+
+    /**
+     * Local append-only store that keeps generated responses across restarts. Entries written
+     * with a different chat model or prompt-template version are discarded on startup, so bump
+     * {@code app.cache.disk.template-version} whenever a prompt template changes.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.cache.disk.enabled", havingValue = "true")
+    public DiskResponseStore diskResponseStore(@Value("${app.cache.disk.directory:data/response-store}") String directory,
+                                               @Value("${spring.ai.ollama.chat.options.model:unknown}") String model,
+                                               @Value("${app.cache.disk.template-version:1}") String templateVersion,
+                                               @Value("${app.cache.disk.max-size:1GB}") DataSize maxSize,
+                                               MeterRegistry meterRegistry) {
+        return new DiskResponseStore(Path.of(directory), model, templateVersion, maxSize.toBytes(), meterRegistry);
+    }
+
+    /**
+     * Handles that let clients save a generation without uploading its text again. Shared
+     * through the L2 tier when that is enabled.
+     */
+    @Bean
+    public GenerationHandleStore generationHandleStore(@Value("${app.ai.handles.ttl-ms:1800000}") long ttlMs,
+                                                       @Value("${app.ai.handles.max-size:64MB}") DataSize maxSize,
+                                                       ObjectProvider<SharedCacheStore> sharedCacheStore,
+                                                       ObjectMapper objectMapper) {
+        // Weighed in chars, which take two bytes each
+        return new GenerationHandleStore(Duration.ofMillis(ttlMs), maxSize.toBytes() / 2,
+                sharedCacheStore.getIfAvailable(), objectMapper);
+    }
+
+    /**
+     * Lets the actuator cache metrics pick up hit/miss/eviction/weight stats of our caches.
+     */
+    @Bean
+    public CacheMeterBinderProvider<GenerationCache> generationCacheMeterBinderProvider() {
+        return (cache, tags) -> new CaffeineCacheMetrics<>(cache.getNativeCache(), cache.getName(), tags);
     }
-}
\ No newline at end of file
+}
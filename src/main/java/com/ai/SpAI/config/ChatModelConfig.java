@@ -0,0 +1,52 @@
+package com.ai.SpAI.config;
+
+import com.ai.SpAI.service.GenerationCancellationMetrics;
+import com.ai.SpAI.service.GenerationScheduler;
+import com.ai.SpAI.service.OllamaBackendPool;
+import com.ai.SpAI.service.ScheduledChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.autoconfigure.ollama.OllamaChatProperties;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ChatModelConfig {
+
+    static final String OLLAMA_CHAT_MODEL = "ollamaChatModel";
+
+    @Bean
+    public OllamaBackendPool ollamaBackendPool(OllamaChatProperties chatProperties,
+                                               MeterRegistry meterRegistry,
+                                               @Value("${app.ai.ollama.endpoints:}") String endpoints,
+                                               @Value("${app.ai.ollama.eject-duration-ms:30000}") long ejectDurationMs,
+                                               @Value("${app.ai.ollama.slow-factor:3.0}") double slowFactor) {
+        return new OllamaBackendPool(OllamaBackendPool.parseEndpoints(endpoints), chatProperties.getOptions(),
+                meterRegistry, ejectDurationMs, slowFactor);
+    }
+
+    /**
+     * Wraps the auto-configured Ollama model in place, so the services keep injecting
+     * {@code @Qualifier("ollamaChatModel")} and transparently go through the dispatcher,
+     * and through the backend pool when several endpoints are configured.
+     */
+    @Bean
+    public static BeanPostProcessor chatModelDispatchPostProcessor(ObjectProvider<GenerationScheduler> scheduler,
+                                                                   ObjectProvider<OllamaBackendPool> pool,
+                                                                   ObjectProvider<GenerationCancellationMetrics> cancellationMetrics) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (OLLAMA_CHAT_MODEL.equals(beanName) && bean instanceof ChatModel chatModel) {
+                    OllamaBackendPool backendPool = pool.getObject();
+                    ChatModel target = backendPool.isEnabled() ? backendPool : chatModel;
+                    return new ScheduledChatModel(target, scheduler.getObject(), cancellationMetrics.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
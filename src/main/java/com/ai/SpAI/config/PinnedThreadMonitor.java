@@ -0,0 +1,100 @@
+package com.ai.SpAI.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Watches for virtual threads that stay pinned to their carrier, typically by blocking inside a
+ * {@code synchronized} block or a native frame. A pinned thread holds one of the few carriers
+ * for as long as it blocks, so a handful of them starve every other virtual thread.
+ * <p>
+ * Pins longer than the threshold are counted and timed, and the first one from each call site is
+ * logged with its stack. Reads the JDK Flight Recorder {@code jdk.VirtualThreadPinned} event,
+ * which needs Java 21.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class PinnedThreadMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+
+    private final Counter pinned;
+    private final Timer pinnedTime;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private final RecordingStream stream;
+
+    public PinnedThreadMonitor(MeterRegistry meterRegistry,
+                               @Value("${app.ai.execution.pinned-threshold-ms:20}") long thresholdMs) {
+        this.pinned = Counter.builder("ai.virtual_threads.pinned")
+                .description("Virtual threads that blocked while pinned to their carrier")
+                .register(meterRegistry);
+        this.pinnedTime = Timer.builder("ai.virtual_threads.pinned.duration")
+                .description("How long pinned virtual threads held their carrier")
+                .register(meterRegistry);
+
+        if (Runtime.version().feature() < 21) {
+            logger.info("Pinned-thread monitoring needs Java 21, running on {}", Runtime.version());
+            this.stream = null;
+            return;
+        }
+        this.stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        logger.info("Monitoring virtual threads pinned for more than {} ms", thresholdMs);
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.increment();
+        pinnedTime.record(event.getDuration());
+
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return;
+        }
+        String stack = stackTrace.getFrames().stream()
+                .limit(LOGGED_FRAMES)
+                .map(PinnedThreadMonitor::describe)
+                .collect(Collectors.joining("\n\tat ", "\tat ", ""));
+        // The innermost frame is the blocking call itself; the first application frame names the site.
+        String site = stackTrace.getFrames().stream()
+                .map(PinnedThreadMonitor::describe)
+                .filter(frame -> frame.startsWith("com.ai.SpAI."))
+                .findFirst()
+                .orElse(describe(stackTrace.getFrames().get(0)));
+        if (reportedSites.add(site)) {
+            logger.warn("Virtual thread pinned for {} ms at {}:\n{}",
+                    event.getDuration().toMillis(), site, stack);
+        }
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + ":" + frame.getLineNumber();
+    }
+
+    @PreDestroy
+    void close() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
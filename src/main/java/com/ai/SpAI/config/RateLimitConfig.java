@@ -0,0 +1,22 @@
+package com.ai.SpAI.config;
+
+import com.ai.SpAI.util.PermitStore;
+import com.ai.SpAI.util.RedisPermitStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+@Configuration
+public class RateLimitConfig {
+
+    /**
+     * Shares the per-user rate limits across every node pointed at the same Redis; without it
+     * each node enforces the limits on its own.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.rate-limit.cluster.enabled", havingValue = "true")
+    public PermitStore permitStore(RedisConnectionFactory connectionFactory) {
+        return new RedisPermitStore(connectionFactory);
+    }
+}
@@ -1,13 +1,25 @@
 package com.ai.SpAI.config;
 
+import com.ai.SpAI.cache.PrecompressedJsonHttpMessageConverter;
+import jakarta.persistence.EntityManagerFactory;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final EntityManagerFactory entityManagerFactory;
+
+    public WebConfig(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**")
@@ -17,4 +29,24 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowCredentials(true)
                 .maxAge(3600);
     }
+
+    /**
+     * Open-in-view for every request except the ones that regenerate part of a saved plan: an
+     * entity manager open for the whole request holds its database connection through the model
+     * call. Those endpoints load and save in their own short transactions instead.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        OpenEntityManagerInViewInterceptor openInView = new OpenEntityManagerInViewInterceptor();
+        openInView.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(openInView)
+                .excludePathPatterns("/api/travel/saved/*/days/*/regenerate",
+                        "/api/recipes/saved/*/steps/*/regenerate");
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // Ahead of Jackson, which would otherwise serialize cached bodies as a record.
+        converters.add(0, new PrecompressedJsonHttpMessageConverter());
+    }
 }
\ No newline at end of file
@@ -1,24 +1,36 @@
 package com.ai.SpAI.controller;
 
+import com.ai.SpAI.cache.GenerationHandleStore;
+import com.ai.SpAI.dto.ChatMessageSummary;
 import com.ai.SpAI.dto.ChatRequest;
 import com.ai.SpAI.entity.ChatMessage;
 import com.ai.SpAI.repository.ChatMessageRepository;
 import com.ai.SpAI.service.ChatService;
+import com.ai.SpAI.service.GenerationCancellationMetrics;
+import com.ai.SpAI.service.GenerationCostModel;
+import com.ai.SpAI.service.GenerationEstimate;
+import com.ai.SpAI.service.GenerationOverloadedException;
 import com.ai.SpAI.util.ApiResponseWrapper;
+import com.ai.SpAI.util.KeysetCursor;
 import com.ai.SpAI.util.RateLimiter;
+import com.ai.SpAI.util.SseTokenSubscriber;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.MediaType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.constraints.NotBlank;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -29,20 +41,38 @@ public class ChatController {
 
     private final ChatService chatService;
     private final RateLimiter rateLimiter;
+    private final GenerationCancellationMetrics cancellationMetrics;
+    private final GenerationCostModel costModel;
+    private final GenerationHandleStore generationHandles;
+
+    @Value("${app.chat.stream.timeout-ms:180000}")
+    private long streamTimeoutMs;
+
+    @Value("${app.pagination.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-page-size:100}")
+    private int maxPageSize;
 
     @Autowired
     private ChatMessageRepository chatMessageRepository;
 
     @Autowired
-    public ChatController(ChatService chatService, RateLimiter rateLimiter) {
+    public ChatController(ChatService chatService, RateLimiter rateLimiter,
+                          GenerationCancellationMetrics cancellationMetrics, GenerationCostModel costModel,
+                          GenerationHandleStore generationHandles) {
         this.chatService = chatService;
         this.rateLimiter = rateLimiter;
+        this.cancellationMetrics = cancellationMetrics;
+        this.costModel = costModel;
+        this.generationHandles = generationHandles;
     }
 
     @GetMapping("/ask")
+    @GeneratedText
     @Cacheable(value = "chatResponses",
             key = "#prompt",
-            unless = "#result.body.data == null")
+            sync = true)
     @CircuitBreaker(name = "chatService", fallbackMethod = "chatFallback")
     @io.github.resilience4j.ratelimiter.annotation.RateLimiter(name = "chatService")
     @Retry(name = "chatService")
@@ -51,18 +81,21 @@ public class ChatController {
         logger.info("Chat request: {}", prompt);
 
         try {
-            if (!rateLimiter.tryAcquire("chat")) {
+            GenerationEstimate estimate = costModel.chat(prompt.trim());
+            if (!rateLimiter.tryAcquireForCurrentUser(estimate.cost())) {
                 return ResponseEntity.status(429)
                         .body(ApiResponseWrapper.error("Too many requests. Please try again later."));
             }
 
-            String response = chatService.getResponse(prompt.trim());
+            String response = chatService.getResponse(prompt.trim(), estimate);
 
             long duration = System.currentTimeMillis() - startTime;
             logger.info("Chat response generated in {} ms", duration);
 
             return ResponseEntity.ok(ApiResponseWrapper.success(response));
 
+        } catch (GenerationOverloadedException e) {
+            throw e;
         } catch (IllegalArgumentException e) {
             logger.warn("Invalid chat request: {}", e.getMessage());
             return ResponseEntity.badRequest()
@@ -74,32 +107,27 @@ public class ChatController {
         }
     }
 
-    @GetMapping("/ask/stream")
-    public DeferredResult<ResponseEntity<?>> getResponseStream(@RequestParam @NotBlank String prompt) {
-        DeferredResult<ResponseEntity<?>> deferredResult = new DeferredResult<>(60000L);
+    @GetMapping(value = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getResponseStream(@RequestParam @NotBlank String prompt) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
 
         logger.info("Stream chat request for: {}", prompt);
 
-        CompletableFuture.supplyAsync(() ->
-                chatService.getResponse(prompt.trim())
-        ).thenAccept(result -> {
-            deferredResult.setResult(ResponseEntity.ok(ApiResponseWrapper.success(result)));
-        }).exceptionally(error -> {
-            logger.error("Stream chat failed: {}", error.getMessage());
-            deferredResult.setErrorResult(
-                    ResponseEntity.status(500).body(ApiResponseWrapper.error("Failed to process request"))
-            );
-            return null;
-        });
-
-        deferredResult.onTimeout(() -> {
-            logger.warn("Stream chat timeout for: {}", prompt);
-            deferredResult.setErrorResult(
-                    ResponseEntity.status(408).body(ApiResponseWrapper.error("Request timeout"))
-            );
-        });
-
-        return deferredResult;
+        GenerationEstimate estimate;
+        try {
+            estimate = costModel.chat(prompt.trim());
+        } catch (IllegalArgumentException e) {
+            return SseTokenSubscriber.reject(emitter, ApiResponseWrapper.error(400, e.getMessage()));
+        }
+        if (!rateLimiter.tryAcquireForCurrentUser(estimate.cost())) {
+            return SseTokenSubscriber.reject(emitter,
+                    ApiResponseWrapper.error(429, "Too many requests. Please try again later."));
+        }
+
+        chatService.streamResponse(prompt.trim(), estimate)
+                .subscribe(new SseTokenSubscriber(emitter, cancellationMetrics));
+
+        return emitter;
     }
 
     // 🔥 FIXED: Save using userId from request body
@@ -113,9 +141,19 @@ public class ChatController {
                 userId = "anonymous_user";
             }
 
+            // Saving never generates: the answer comes with the request or from its handle
             String aiResponse = request.getAiResponse();
             if (aiResponse == null || aiResponse.isEmpty()) {
-                aiResponse = chatService.getResponse(request.getPrompt());
+                if (request.getHandle() == null || request.getHandle().isEmpty()) {
+                    return ResponseEntity.badRequest()
+                            .body(ApiResponseWrapper.error("Either aiResponse or handle is required"));
+                }
+                Optional<String> held = generationHandles.resolve(request.getHandle());
+                if (held.isEmpty()) {
+                    return ResponseEntity.status(410)
+                            .body(ApiResponseWrapper.error("Generation handle has expired; send aiResponse instead"));
+                }
+                aiResponse = held.get();
             }
 
             ChatMessage message = new ChatMessage();
@@ -136,26 +174,43 @@ public class ChatController {
     }
 
     // 🔥 FIXED: Get history using userId from query parameter
+    /**
+     * One page of history: a session's messages oldest first, or all of the user's newest first.
+     * Pass the {@code X-Next-Cursor} of the previous page as {@code cursor} to get the next one.
+     * Messages are listed as summaries; full ones come from /message/{id}.
+     */
     @GetMapping("/history")
-    public ResponseEntity<ApiResponseWrapper<List<ChatMessage>>> getChatHistory(
+    public ResponseEntity<ApiResponseWrapper<List<ChatMessageSummary>>> getChatHistory(
             @RequestParam(required = false) String sessionId,
-            @RequestParam String userId) {
+            @RequestParam String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
 
         try {
             if (userId == null || userId.isEmpty()) {
                 userId = "anonymous_user";
             }
 
-            List<ChatMessage> history;
+            int pageSize = KeysetCursor.pageSize(limit, defaultPageSize, maxPageSize);
+            KeysetCursor after = cursor != null && !cursor.isEmpty() ? KeysetCursor.decode(cursor) : null;
+            PageRequest fetch = PageRequest.of(0, pageSize + 1);
+            List<ChatMessageSummary> history;
 
             if (sessionId != null && !sessionId.isEmpty()) {
-                history = chatMessageRepository.findBySessionIdOrderByTimestampAsc(sessionId);
+                history = after == null
+                        ? chatMessageRepository.findSummariesBySessionId(sessionId, fetch)
+                        : chatMessageRepository.findSummariesBySessionIdAfter(sessionId, after.at(), after.id(), fetch);
             } else {
-                history = chatMessageRepository.findByUserIdOrderByTimestampDesc(userId);
+                history = after == null
+                        ? chatMessageRepository.findSummariesByUserId(userId, fetch)
+                        : chatMessageRepository.findSummariesByUserIdBefore(userId, after.at(), after.id(), fetch);
             }
 
-            logger.info("Retrieved {} chat messages for user: {}", history.size(), userId);
-            return ResponseEntity.ok(ApiResponseWrapper.success("History retrieved", history));
+            logger.info("Retrieved {} chat messages for user: {}", Math.min(history.size(), pageSize), userId);
+            return KeysetCursor.page("History retrieved", history, pageSize,
+                    ChatMessageSummary::getTimestamp, ChatMessageSummary::getId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponseWrapper.error(e.getMessage()));
         } catch (Exception e) {
             logger.error("Failed to get history: {}", e.getMessage());
             return ResponseEntity.status(500)
@@ -163,6 +218,46 @@ public class ChatController {
         }
     }
 
+    /**
+     * How many saved chat messages the user has, for counts that would otherwise have to page through all of them.
+     */
+    @GetMapping("/history/count")
+    public ResponseEntity<ApiResponseWrapper<Long>> countChatHistory(@RequestParam(required = false) String userId) {
+        try {
+            if (userId == null || userId.trim().isEmpty()) {
+                userId = "anonymous_user";
+            }
+            return ResponseEntity.ok(ApiResponseWrapper.success("Messages counted", chatMessageRepository.countByUserId(userId)));
+        } catch (Exception e) {
+            logger.error("Failed to count chat history: {}", e.getMessage());
+            return ResponseEntity.status(500).body(ApiResponseWrapper.error("Failed to count history"));
+        }
+    }
+
+    @GetMapping("/message/{id}")
+    public ResponseEntity<ApiResponseWrapper<ChatMessage>> getChatMessage(
+            @PathVariable Long id,
+            @RequestParam String userId) {
+
+        try {
+            ChatMessage message = chatMessageRepository.findById(id).orElse(null);
+            if (message == null) {
+                return ResponseEntity.status(404).body(ApiResponseWrapper.error("Message not found"));
+            }
+
+            if (!message.getUserId().equals(userId)) {
+                return ResponseEntity.status(403)
+                        .body(ApiResponseWrapper.error("You don't have permission to view this message"));
+            }
+
+            return ResponseEntity.ok(ApiResponseWrapper.success("Message retrieved", message));
+        } catch (Exception e) {
+            logger.error("Failed to get chat message: {}", e.getMessage());
+            return ResponseEntity.status(500)
+                    .body(ApiResponseWrapper.error("Failed to get message: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/session/{sessionId}")
     public ResponseEntity<ApiResponseWrapper<List<ChatMessage>>> getChatSession(
             @PathVariable String sessionId,
@@ -202,11 +297,14 @@ public class ChatController {
     }
 
     @GetMapping("/options")
-    @Cacheable(value = "chatOptions", key = "#prompt")
+    @GeneratedText
+    @Cacheable(value = "chatOptions", key = "#prompt", sync = true)
     public ResponseEntity<?> getResponseOptions(@RequestParam @NotBlank String prompt) {
         try {
             String response = chatService.getResponseOptions(prompt.trim());
             return ResponseEntity.ok(ApiResponseWrapper.success(response));
+        } catch (GenerationOverloadedException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error generating options: {}", e.getMessage());
             return ResponseEntity.status(500)
@@ -215,9 +313,16 @@ public class ChatController {
     }
 
     public ResponseEntity<?> chatFallback(String prompt, Exception e) {
+        if (e instanceof GenerationOverloadedException overloaded) {
+            // A full queue is not a broken backend: answer 503 rather than the placeholder.
+            throw overloaded;
+        }
         logger.warn("Fallback triggered for chat: {}", e.getMessage());
-        return ResponseEntity.ok(ApiResponseWrapper.success(
-                "I'm currently experiencing high demand. Please try again in a moment."
-        ));
+        // Placeholder text must not be cached in place of a real answer.
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(ApiResponseWrapper.success(
+                        "I'm currently experiencing high demand. Please try again in a moment."
+                ));
     }
 }
\ No newline at end of file
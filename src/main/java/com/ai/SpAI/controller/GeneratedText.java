@@ -0,0 +1,17 @@
+package com.ai.SpAI.controller;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler whose successful response carries generated text, so that
+ * {@link GenerationHandleAdvice} hands out a handle the client can save it by.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface GeneratedText {
+}
@@ -0,0 +1,58 @@
+package com.ai.SpAI.controller;
+
+import com.ai.SpAI.cache.GenerationHandleStore;
+import com.ai.SpAI.cache.PrecompressedJson;
+import com.ai.SpAI.util.ApiResponseWrapper;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Optional;
+
+/**
+ * Adds an {@value #HANDLE_HEADER} header to successful responses of {@link GeneratedText}
+ * handlers, whether freshly generated or served from the cache. The save endpoints accept the
+ * handle in place of the text.
+ */
+@ControllerAdvice
+public class GenerationHandleAdvice implements ResponseBodyAdvice<Object> {
+
+    public static final String HANDLE_HEADER = "X-Generation-Handle";
+
+    private final GenerationHandleStore handles;
+
+    public GenerationHandleAdvice(GenerationHandleStore handles) {
+        this.handles = handles;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return returnType.hasMethodAnnotation(GeneratedText.class);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        String cacheControl = response.getHeaders().getCacheControl();
+        if (cacheControl != null && cacheControl.contains("no-store")) {
+            // Fallback placeholders are not generations
+            return body;
+        }
+        Optional<String> handle = Optional.empty();
+        if (body instanceof ApiResponseWrapper<?> wrapper && wrapper.isSuccess()
+                && wrapper.getData() == null && wrapper.getMessage() != null) {
+            // success(String) carries the generated text in the message
+            handle = Optional.of(handles.issue(wrapper.getMessage()));
+        } else if (body instanceof PrecompressedJson json) {
+            handle = handles.issue(json);
+        }
+        handle.ifPresent(value -> response.getHeaders().set(HANDLE_HEADER, value));
+        return body;
+    }
+}
@@ -0,0 +1,199 @@
+package com.ai.SpAI.controller;
+
+import com.ai.SpAI.dto.GenerationJobRequest;
+import com.ai.SpAI.dto.TravelPlanRequest;
+import com.ai.SpAI.entity.GenerationJob;
+import com.ai.SpAI.service.GenerationCostModel;
+import com.ai.SpAI.service.GenerationEstimate;
+import com.ai.SpAI.service.GenerationJobService;
+import com.ai.SpAI.service.TravelPlannerService;
+import com.ai.SpAI.util.ApiResponseWrapper;
+import com.ai.SpAI.util.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.net.URI;
+import java.security.Principal;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submit-and-poll generation API. A job outlives the request that created it and the node that
+ * accepted it: POST returns 202 with the job's URL straight away, and GET reports the job, waiting
+ * up to {@code waitMs} for it to finish when asked to.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@CrossOrigin(origins = "http://localhost:3000")
+public class GenerationJobController {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationJobController.class);
+
+    private final GenerationJobService jobService;
+    private final GenerationCostModel costModel;
+    private final TravelPlannerService travelPlannerService;
+    private final RateLimiter rateLimiter;
+
+    @Value("${app.ai.jobs.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    public GenerationJobController(GenerationJobService jobService, GenerationCostModel costModel,
+                                   TravelPlannerService travelPlannerService, RateLimiter rateLimiter) {
+        this.jobService = jobService;
+        this.costModel = costModel;
+        this.travelPlannerService = travelPlannerService;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> submit(@RequestBody GenerationJobRequest request, Principal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).body(ApiResponseWrapper.error(401, "Authentication required"));
+        }
+        try {
+            GenerationEstimate estimate = validate(request);
+            if (!rateLimiter.tryAcquireForCurrentUser(cost(request, estimate))) {
+                return ResponseEntity.status(429)
+                        .body(ApiResponseWrapper.error("Too many requests. Please try again later."));
+            }
+            Optional<GenerationJob> job = jobService.create(owner(principal), request);
+            if (job.isEmpty()) {
+                return ResponseEntity.status(429)
+                        .body(ApiResponseWrapper.error("Too many pending jobs. Wait for one to finish."));
+            }
+            logger.info("Queued {} generation job {}", request.getType(), job.get().getId());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/jobs/" + job.get().getId()))
+                    .body(ApiResponseWrapper.success("Job queued", job.get()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponseWrapper.error(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Failed to queue generation job: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(ApiResponseWrapper.error("Failed to queue job. Please try again."));
+        }
+    }
+
+    /**
+     * The job, with 200 once it has finished and 202 while it is pending. With {@code waitMs} a
+     * pending job is long-polled until it finishes or the wait (capped at {@code max-wait-ms}) ends.
+     */
+    @GetMapping("/{id}")
+    public DeferredResult<ResponseEntity<?>> get(@PathVariable String id,
+                                                 @RequestParam(defaultValue = "0") long waitMs,
+                                                 Principal principal) {
+        long wait = Math.max(0, Math.min(waitMs, maxWaitMs));
+        DeferredResult<ResponseEntity<?>> deferredResult = new DeferredResult<>(wait + 5000);
+        if (principal == null) {
+            deferredResult.setResult(ResponseEntity.status(401).body(ApiResponseWrapper.error(401, "Authentication required")));
+            return deferredResult;
+        }
+        try {
+            // Other users' jobs are reported as missing rather than forbidden
+            Optional<GenerationJob> found = jobService.find(id)
+                    .filter(job -> job.getUserId().equals(owner(principal)));
+            if (found.isEmpty()) {
+                deferredResult.setResult(ResponseEntity.status(404).body(ApiResponseWrapper.error(404, "Job not found")));
+                return deferredResult;
+            }
+            GenerationJob job = found.get();
+            if (job.isFinished() || wait == 0) {
+                deferredResult.setResult(statusOf(job));
+                return deferredResult;
+            }
+
+            CompletableFuture<GenerationJob> finished = jobService.awaitFinished(id);
+            // Re-read in case the job finished between the lookup and registering the waiter
+            jobService.find(id).filter(GenerationJob::isFinished).ifPresent(finished::complete);
+            finished.copy().orTimeout(wait, TimeUnit.MILLISECONDS)
+                    .whenComplete((done, error) -> deferredResult.setResult(
+                            done != null ? statusOf(done) : statusOf(jobService.find(id).orElse(job))));
+        } catch (Exception e) {
+            logger.error("Failed to look up generation job {}: {}", id, e.getMessage(), e);
+            deferredResult.setResult(ResponseEntity.status(500).body(ApiResponseWrapper.error("Failed to look up job")));
+        }
+        return deferredResult;
+    }
+
+    /**
+     * The job owner: the authenticated user, in the same form as the rate-limit and fair-queuing
+     * identity so the worker can charge the job to them.
+     */
+    private static String owner(Principal principal) {
+        return "user:" + principal.getName();
+    }
+
+    private ResponseEntity<?> statusOf(GenerationJob job) {
+        if (job.isFinished()) {
+            return ResponseEntity.ok(ApiResponseWrapper.success(job));
+        }
+        return ResponseEntity.accepted()
+                .header(HttpHeaders.RETRY_AFTER, "2")
+                .body(ApiResponseWrapper.success("Job " + job.getStatus().name().toLowerCase(), job));
+    }
+
+    /**
+     * Checks the fields the job's type needs, fills in the same defaults as the synchronous
+     * endpoints and returns the cost estimate, which also rejects oversized requests up front.
+     */
+    private GenerationEstimate validate(GenerationJobRequest request) {
+        if (request.getType() == null) {
+            throw new IllegalArgumentException("Job type is required");
+        }
+        switch (request.getType()) {
+            case CHAT -> {
+                if (isBlank(request.getPrompt())) {
+                    throw new IllegalArgumentException("Prompt is required");
+                }
+                return costModel.chat(request.getPrompt().trim());
+            }
+            case RECIPE -> {
+                if (isBlank(request.getIngredients())) {
+                    throw new IllegalArgumentException("Ingredients are required");
+                }
+                if (isBlank(request.getCuisine())) {
+                    request.setCuisine("any");
+                }
+                if (request.getDietaryRestrictions() == null) {
+                    request.setDietaryRestrictions("");
+                }
+                return costModel.recipe(request.getIngredients().trim());
+            }
+            default -> {
+                if (isBlank(request.getDestination())) {
+                    throw new IllegalArgumentException("Destination is required");
+                }
+                if (request.getDays() == null || request.getDays() < 1) {
+                    throw new IllegalArgumentException("Days must be at least 1");
+                }
+                if (isBlank(request.getInterests())) {
+                    request.setInterests("general sightseeing");
+                }
+                if (isBlank(request.getBudget())) {
+                    request.setBudget("moderate");
+                }
+                return costModel.itinerary(request.getDays(), request.getInterests());
+            }
+        }
+    }
+
+    /**
+     * The rate-limit charge: the estimate, except for itineraries the worker will fan out.
+     */
+    private double cost(GenerationJobRequest request, GenerationEstimate estimate) {
+        if (request.getType() != GenerationJob.Type.ITINERARY) {
+            return estimate.cost();
+        }
+        return travelPlannerService.cost(new TravelPlanRequest(request.getDestination().trim(), request.getDays(),
+                request.getInterests().trim(), request.getBudget().trim().toLowerCase()), estimate);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,33 @@
+package com.ai.SpAI.controller;
+
+import com.ai.SpAI.service.GenerationOverloadedException;
+import com.ai.SpAI.util.ApiResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+/**
+ * Answers calls the generation scheduler refused with a 503 and a Retry-After hint. Handlers
+ * that learn of the overload off the request thread, such as {@code DeferredResult} callbacks,
+ * build the same response with {@link #overloadedResponse}.
+ */
+@ControllerAdvice
+public class GenerationOverloadedAdvice {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationOverloadedAdvice.class);
+
+    @ExceptionHandler(GenerationOverloadedException.class)
+    public ResponseEntity<ApiResponseWrapper<Object>> handleOverloaded(GenerationOverloadedException e) {
+        return overloadedResponse(e);
+    }
+
+    public static ResponseEntity<ApiResponseWrapper<Object>> overloadedResponse(GenerationOverloadedException e) {
+        logger.warn("AI backend overloaded: {}", e.getMessage());
+        return ResponseEntity.status(503)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ApiResponseWrapper.error(503, e.getMessage()));
+    }
+}
@@ -0,0 +1,188 @@
+package com.ai.SpAI.controller;
+
+import com.ai.SpAI.cache.CacheKeyCanonicalizer;
+import com.ai.SpAI.dto.TravelPlanRequest;
+import com.ai.SpAI.service.ChatService;
+import com.ai.SpAI.service.GenerationCancelledException;
+import com.ai.SpAI.service.GenerationContext;
+import com.ai.SpAI.service.GenerationCostModel;
+import com.ai.SpAI.service.GenerationEstimate;
+import com.ai.SpAI.service.GenerationOverloadedException;
+import com.ai.SpAI.service.GenerationPriority;
+import com.ai.SpAI.service.ReactiveGeneration;
+import com.ai.SpAI.service.RecipeService;
+import com.ai.SpAI.service.TravelPlannerService;
+import com.ai.SpAI.util.ApiResponseWrapper;
+import com.ai.SpAI.util.RateLimiter;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking variants of the three generation endpoints. The servlet thread is released as
+ * soon as the Mono is returned; the call then waits for a backend slot and streams from the model
+ * without holding any thread, so pending generations cost memory rather than threads.
+ * <p>
+ * They share the response caches (same names and keys) and the per-user rate limiter with the
+ * blocking endpoints, and go through the same resilience4j circuit breakers. A trip the blocking
+ * endpoint would fan out is read from the cache but not written to it.
+ */
+@RestController
+@RequestMapping("/api/reactive")
+@CrossOrigin(origins = "http://localhost:3000")
+public class ReactiveGenerationController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveGenerationController.class);
+
+    private final ChatService chatService;
+    private final RecipeService recipeService;
+    private final TravelPlannerService travelPlannerService;
+    private final RateLimiter rateLimiter;
+    private final GenerationCostModel costModel;
+    private final CacheManager cacheManager;
+    private final CacheKeyCanonicalizer cacheKeys;
+    private final CircuitBreakerRegistry circuitBreakers;
+
+    @Value("${app.ai.reactive.timeout-ms:120000}")
+    private long timeoutMs;
+
+    public ReactiveGenerationController(ChatService chatService, RecipeService recipeService,
+                                        TravelPlannerService travelPlannerService, RateLimiter rateLimiter,
+                                        GenerationCostModel costModel, CacheManager cacheManager,
+                                        CacheKeyCanonicalizer cacheKeys, CircuitBreakerRegistry circuitBreakers) {
+        this.chatService = chatService;
+        this.recipeService = recipeService;
+        this.travelPlannerService = travelPlannerService;
+        this.rateLimiter = rateLimiter;
+        this.costModel = costModel;
+        this.cacheManager = cacheManager;
+        this.cacheKeys = cacheKeys;
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    @GetMapping("/chat/ask")
+    @GeneratedText
+    public Mono<ResponseEntity<?>> ask(@RequestParam @NotBlank String prompt) {
+        try {
+            GenerationEstimate estimate = costModel.chat(prompt.trim());
+            return cachedGeneration("chatResponses", prompt, true, estimate, "chatService",
+                    () -> chatService.getResponseReactive(prompt.trim(), estimate),
+                    "Failed to process request. Please try again.");
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body(ApiResponseWrapper.error(e.getMessage())));
+        }
+    }
+
+    @GetMapping("/recipes/create")
+    @GeneratedText
+    public Mono<ResponseEntity<?>> createRecipe(
+            @RequestParam @NotBlank String ingredients,
+            @RequestParam(defaultValue = "any") String cuisine,
+            @RequestParam(defaultValue = "") String dietaryRestrictions) {
+        try {
+            GenerationEstimate estimate = costModel.recipe(ingredients.trim());
+            return cachedGeneration("recipes", cacheKeys.recipe(ingredients, cuisine, dietaryRestrictions),
+                    true, estimate, "recipeService",
+                    () -> recipeService.createRecipeReactive(
+                            ingredients.trim(), cuisine.trim().toLowerCase(), dietaryRestrictions.trim(), estimate),
+                    "Failed to generate recipe. Please try again.");
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body(ApiResponseWrapper.error(e.getMessage())));
+        }
+    }
+
+    @GetMapping("/travel/itinerary")
+    @GeneratedText
+    public Mono<ResponseEntity<?>> planItinerary(
+            @RequestParam @NotBlank String destination,
+            @RequestParam @Min(1) Integer days,
+            @RequestParam(required = false, defaultValue = "general sightseeing") String interests,
+            @RequestParam(required = false, defaultValue = "moderate") String budget) {
+        try {
+            GenerationEstimate estimate = costModel.itinerary(days, interests);
+            TravelPlanRequest request = new TravelPlanRequest(
+                    destination.trim(), days, interests.trim(), budget.trim().toLowerCase());
+            // A fanned-out trip is cached by the blocking endpoint; it may be served, never replaced
+            return cachedGeneration("itineraries", cacheKeys.itinerary(destination, days, interests, budget),
+                    !travelPlannerService.fansOut(request), estimate, "travelService",
+                    () -> travelPlannerService.generateItineraryReactive(request, estimate),
+                    "Failed to generate itinerary. Please try again.");
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body(ApiResponseWrapper.error(e.getMessage())));
+        }
+    }
+
+    /**
+     * Serves a cached response if there is one; otherwise charges the caller's rate limit and
+     * generates. The cache is read on the request thread (an in-memory hit in the common case)
+     * and written off the event path, since its lower tiers do blocking I/O. The response is only
+     * written when {@code store} is set.
+     */
+    private Mono<ResponseEntity<?>> cachedGeneration(String cacheName, Object key, boolean store,
+                                                     GenerationEstimate estimate,
+                                                     String circuitBreaker, Supplier<Mono<String>> generation,
+                                                     String failureMessage) {
+        Cache cache = cacheManager.getCache(cacheName);
+        Cache.ValueWrapper hit = cache != null ? cache.get(key) : null;
+        if (hit != null && hit.get() instanceof ResponseEntity<?> cached) {
+            return Mono.just(cached);
+        }
+        if (!rateLimiter.tryAcquireForCurrentUser(estimate.cost())) {
+            return Mono.just(ResponseEntity.status(429)
+                    .body(ApiResponseWrapper.error("Too many requests. Please try again later.")));
+        }
+
+        long startTime = System.currentTimeMillis();
+        GenerationContext context = GenerationContext.of(GenerationPriority.INTERACTIVE, timeoutMs, null)
+                .forUser(RateLimiter.currentUser());
+        Mono<String> generated = GenerationContext.callWith(context, generation);
+        return ReactiveGeneration.withCircuitBreaker(circuitBreakers.circuitBreaker(circuitBreaker), generated)
+                .timeout(Duration.ofMillis(timeoutMs))
+                .<ResponseEntity<?>>map(text -> {
+                    ResponseEntity<?> response = ResponseEntity.ok(ApiResponseWrapper.success(text));
+                    if (store && cache != null) {
+                        Schedulers.boundedElastic().schedule(() -> cache.put(key, response));
+                    }
+                    logger.info("Reactive {} generation finished in {} ms", cacheName,
+                            System.currentTimeMillis() - startTime);
+                    return response;
+                })
+                .onErrorResume(error -> Mono.just(errorResponse(cacheName, error, failureMessage)));
+    }
+
+    private ResponseEntity<?> errorResponse(String cacheName, Throwable error, String failureMessage) {
+        if (error instanceof GenerationOverloadedException overloaded) {
+            return GenerationOverloadedAdvice.overloadedResponse(overloaded);
+        }
+        if (error instanceof CallNotPermittedException) {
+            logger.warn("Circuit open, rejecting reactive {} generation", cacheName);
+            return ResponseEntity.status(503)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(ApiResponseWrapper.error(503, "The AI service is temporarily unavailable. Please try again later."));
+        }
+        if (error instanceof TimeoutException || error instanceof GenerationCancelledException) {
+            logger.warn("Reactive {} generation timed out", cacheName);
+            return ResponseEntity.status(408).body(ApiResponseWrapper.error("Request timeout"));
+        }
+        if (error instanceof IllegalArgumentException) {
+            return ResponseEntity.badRequest().body(ApiResponseWrapper.error(error.getMessage()));
+        }
+        logger.error("Reactive {} generation failed: {}", cacheName, error.getMessage(), error);
+        return ResponseEntity.status(500).body(ApiResponseWrapper.error(failureMessage));
+    }
+}
@@ -1,24 +1,46 @@
 package com.ai.SpAI.controller;
 
+import com.ai.SpAI.cache.GenerationHandleStore;
 import com.ai.SpAI.dto.SaveRecipeRequest;
+import com.ai.SpAI.dto.SavedRecipeSummary;
+import com.ai.SpAI.dto.StructuredRecipe;
 import com.ai.SpAI.entity.SavedRecipe;
 import com.ai.SpAI.repository.SavedRecipeRepository;
+import com.ai.SpAI.service.GenerationCancellation;
+import com.ai.SpAI.service.GenerationCancelledException;
+import com.ai.SpAI.service.GenerationContext;
+import com.ai.SpAI.service.GenerationCostModel;
+import com.ai.SpAI.service.GenerationEstimate;
+import com.ai.SpAI.service.GenerationOverloadedException;
+import com.ai.SpAI.service.GenerationPriority;
 import com.ai.SpAI.service.RecipeService;
+import com.ai.SpAI.service.SavedPlanService;
+import com.ai.SpAI.service.StructuredPlanService;
 import com.ai.SpAI.util.ApiResponseWrapper;
+import com.ai.SpAI.util.KeysetCursor;
 import com.ai.SpAI.util.RateLimiter;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.async.DeferredResult;
 
 import jakarta.validation.constraints.NotBlank;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/recipes")
@@ -29,20 +51,44 @@ public class RecipeController {
 
     private final RecipeService recipeService;
     private final RateLimiter rateLimiter;
+    private final GenerationCostModel costModel;
+    private final StructuredPlanService structuredPlanService;
+    private final Executor generationExecutor;
+    private final GenerationHandleStore generationHandles;
+
+    @Value("${app.ai.async.timeout-ms:60000}")
+    private long asyncTimeoutMs;
+
+    @Value("${app.pagination.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-page-size:100}")
+    private int maxPageSize;
 
     @Autowired
     private SavedRecipeRepository savedRecipeRepository;
 
     @Autowired
-    public RecipeController(RecipeService recipeService, RateLimiter rateLimiter) {
+    private SavedPlanService savedPlanService;
+
+    @Autowired
+    public RecipeController(RecipeService recipeService, RateLimiter rateLimiter,
+                            GenerationCostModel costModel, StructuredPlanService structuredPlanService,
+                            @Qualifier("generationExecutor") Executor generationExecutor,
+                            GenerationHandleStore generationHandles) {
         this.recipeService = recipeService;
         this.rateLimiter = rateLimiter;
+        this.costModel = costModel;
+        this.structuredPlanService = structuredPlanService;
+        this.generationExecutor = generationExecutor;
+        this.generationHandles = generationHandles;
     }
 
     @GetMapping("/create")
+    @GeneratedText
     @Cacheable(value = "recipes",
-            key = "#ingredients + '_' + #cuisine + '_' + #dietaryRestrictions",
-            unless = "#result.body.data == null")
+            key = "@cacheKeys.recipe(#ingredients, #cuisine, #dietaryRestrictions)",
+            sync = true)
     @CircuitBreaker(name = "recipeService", fallbackMethod = "recipeFallback")
     @io.github.resilience4j.ratelimiter.annotation.RateLimiter(name = "recipeService")
     @Retry(name = "recipeService")
@@ -55,7 +101,8 @@ public class RecipeController {
         logger.info("Recipe request with ingredients: {}", ingredients);
 
         try {
-            if (!rateLimiter.tryAcquire("recipe")) {
+            GenerationEstimate estimate = costModel.recipe(ingredients.trim());
+            if (!rateLimiter.tryAcquireForCurrentUser(estimate.cost())) {
                 return ResponseEntity.status(429)
                         .body(ApiResponseWrapper.error("Too many requests. Please try again later."));
             }
@@ -63,7 +110,8 @@ public class RecipeController {
             String recipe = recipeService.createRecipe(
                     ingredients.trim(),
                     cuisine.trim().toLowerCase(),
-                    dietaryRestrictions.trim()
+                    dietaryRestrictions.trim(),
+                    estimate
             );
 
             long duration = System.currentTimeMillis() - startTime;
@@ -71,6 +119,8 @@ public class RecipeController {
 
             return ResponseEntity.ok(ApiResponseWrapper.success(recipe));
 
+        } catch (GenerationOverloadedException e) {
+            throw e;
         } catch (IllegalArgumentException e) {
             logger.warn("Invalid recipe request: {}", e.getMessage());
             return ResponseEntity.badRequest()
@@ -83,41 +133,128 @@ public class RecipeController {
     }
 
     @GetMapping("/create/async")
+    @GeneratedText
     public DeferredResult<ResponseEntity<?>> createRecipeAsync(
             @RequestParam @NotBlank String ingredients,
             @RequestParam(defaultValue = "any") String cuisine,
             @RequestParam(defaultValue = "") String dietaryRestrictions) {
 
-        DeferredResult<ResponseEntity<?>> deferredResult = new DeferredResult<>(60000L);
+        DeferredResult<ResponseEntity<?>> deferredResult = new DeferredResult<>(asyncTimeoutMs);
+        GenerationCancellation cancellation = new GenerationCancellation();
+        GenerationContext context = GenerationContext.of(GenerationPriority.ASYNC, asyncTimeoutMs, cancellation)
+                .forUser(RateLimiter.currentUser());
 
         logger.info("Async recipe request with ingredients: {}", ingredients);
 
-        CompletableFuture.supplyAsync(() ->
-                recipeService.createRecipe(
-                        ingredients.trim(),
-                        cuisine.trim().toLowerCase(),
-                        dietaryRestrictions.trim()
-                )
-        ).thenAccept(result -> {
-            deferredResult.setResult(ResponseEntity.ok(ApiResponseWrapper.success(result)));
-        }).exceptionally(error -> {
-            logger.error("Async recipe failed: {}", error.getMessage());
-            deferredResult.setErrorResult(
-                    ResponseEntity.status(500).body(ApiResponseWrapper.error("Failed to generate recipe"))
-            );
-            return null;
-        });
+        GenerationEstimate estimate;
+        try {
+            estimate = costModel.recipe(ingredients.trim());
+        } catch (IllegalArgumentException e) {
+            deferredResult.setErrorResult(ResponseEntity.badRequest().body(ApiResponseWrapper.error(e.getMessage())));
+            return deferredResult;
+        }
+        if (!rateLimiter.tryAcquireForCurrentUser(estimate.cost())) {
+            deferredResult.setErrorResult(ResponseEntity.status(429)
+                    .body(ApiResponseWrapper.error("Too many requests. Please try again later.")));
+            return deferredResult;
+        }
+
+        try {
+            CompletableFuture.supplyAsync(() ->
+                    GenerationContext.callWith(context, () ->
+                            recipeService.createRecipe(
+                                    ingredients.trim(),
+                                    cuisine.trim().toLowerCase(),
+                                    dietaryRestrictions.trim(),
+                                    estimate
+                            )),
+                    generationExecutor
+            ).thenAccept(result -> {
+                deferredResult.setResult(ResponseEntity.ok(ApiResponseWrapper.success(result)));
+            }).exceptionally(error -> {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof GenerationOverloadedException overloaded) {
+                    deferredResult.setErrorResult(GenerationOverloadedAdvice.overloadedResponse(overloaded));
+                    return null;
+                }
+                if (cause instanceof IllegalArgumentException) {
+                    deferredResult.setErrorResult(ResponseEntity.badRequest().body(ApiResponseWrapper.error(cause.getMessage())));
+                    return null;
+                }
+                if (cause instanceof GenerationCancelledException) {
+                    logger.info("Async recipe generation abandoned: {}", cause.getMessage());
+                    return null;
+                }
+                logger.error("Async recipe failed: {}", error.getMessage());
+                deferredResult.setErrorResult(
+                        ResponseEntity.status(500).body(ApiResponseWrapper.error("Failed to generate recipe"))
+                );
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Async recipe rejected, generation executor is full");
+            deferredResult.setErrorResult(ResponseEntity.status(503)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(ApiResponseWrapper.error(503, "Server is busy. Please try again shortly.")));
+            return deferredResult;
+        }
 
         deferredResult.onTimeout(() -> {
+            cancellation.cancel("timeout");
             logger.warn("Async recipe timeout");
             deferredResult.setErrorResult(
                     ResponseEntity.status(408).body(ApiResponseWrapper.error("Request timeout"))
             );
         });
 
+        deferredResult.onError(error -> cancellation.cancel("disconnect"));
+
         return deferredResult;
     }
 
+    /**
+     * The recipe as ingredients and numbered steps rather than prose, ready to be saved with its
+     * plan so that single steps can be regenerated later.
+     */
+    @GetMapping("/create/structured")
+    @Cacheable(value = "recipes",
+            key = "'structured:' + @cacheKeys.recipe(#ingredients, #cuisine, #dietaryRestrictions)",
+            sync = true)
+    public ResponseEntity<?> createStructuredRecipe(
+            @RequestParam @NotBlank String ingredients,
+            @RequestParam(defaultValue = "any") String cuisine,
+            @RequestParam(defaultValue = "") String dietaryRestrictions) {
+
+        logger.info("Structured recipe request with ingredients: {}", ingredients);
+
+        try {
+            GenerationEstimate estimate = costModel.recipe(ingredients.trim());
+            if (!rateLimiter.tryAcquireForCurrentUser(estimate.cost())) {
+                return ResponseEntity.status(429)
+                        .body(ApiResponseWrapper.error("Too many requests. Please try again later."));
+            }
+
+            StructuredRecipe recipe = structuredPlanService.generateRecipe(
+                    ingredients.trim(),
+                    cuisine.trim().toLowerCase(),
+                    dietaryRestrictions.trim(),
+                    estimate
+            );
+            return ResponseEntity.ok(ApiResponseWrapper.success("Recipe generated", recipe));
+
+        } catch (GenerationOverloadedException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid recipe request: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponseWrapper.error(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error generating structured recipe: {}", e.getMessage(), e);
+            return ResponseEntity.status(500)
+                    .body(ApiResponseWrapper.error("Failed to generate recipe. Please try again."));
+        }
+    }
+
     // 🔥 FIXED: Save using userId from request body
     @PostMapping("/save")
     public ResponseEntity<ApiResponseWrapper<SavedRecipe>> saveRecipe(
@@ -129,13 +266,28 @@ public class RecipeController {
                 userId = "anonymous_user";
             }
 
+            // The text may come as the handle of the response it was generated in
+            String recipeText = request.getRecipeText();
+            if ((recipeText == null || recipeText.isEmpty())
+                    && request.getHandle() != null && !request.getHandle().isEmpty()) {
+                Optional<String> held = generationHandles.resolve(request.getHandle());
+                if (held.isEmpty()) {
+                    return ResponseEntity.status(410)
+                            .body(ApiResponseWrapper.error("Generation handle has expired; send recipeText instead"));
+                }
+                recipeText = held.get();
+            }
+
             SavedRecipe recipe = new SavedRecipe();
             recipe.setUserId(userId);
-            recipe.setRecipeText(request.getRecipeText());
+            recipe.setRecipeText(recipeText);
             recipe.setIngredients(request.getIngredients());
             recipe.setCuisine(request.getCuisine());
             recipe.setDietaryRestrictions(request.getDietaryRestrictions());
             recipe.setRecipeName(request.getRecipeName());
+            if (request.getPlan() != null && request.getPlan().steps() != null) {
+                structuredPlanService.applyPlan(recipe, request.getPlan());
+            }
 
             SavedRecipe saved = savedRecipeRepository.save(recipe);
             logger.info("Recipe saved with ID: {} for user: {}", saved.getId(), userId);
@@ -149,19 +301,37 @@ public class RecipeController {
     }
 
     // 🔥 FIXED: Get saved recipes using userId from query parameter
+    /**
+     * One page of the user's saved recipes, newest first. Pass the {@code X-Next-Cursor} of the
+     * previous page as {@code cursor} to get the next one. Recipes are listed as summaries; full
+     * ones come from /saved/{id}.
+     */
     @GetMapping("/saved")
-    public ResponseEntity<ApiResponseWrapper<List<SavedRecipe>>> getSavedRecipes(
-            @RequestParam String userId) {
+    public ResponseEntity<ApiResponseWrapper<List<SavedRecipeSummary>>> getSavedRecipes(
+            @RequestParam String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
 
         try {
             if (userId == null || userId.isEmpty()) {
                 userId = "anonymous_user";
             }
 
-            List<SavedRecipe> recipes = savedRecipeRepository.findByUserIdOrderBySavedAtDesc(userId);
+            int pageSize = KeysetCursor.pageSize(limit, defaultPageSize, maxPageSize);
+            PageRequest fetch = PageRequest.of(0, pageSize + 1);
+            List<SavedRecipeSummary> recipes;
+            if (cursor == null || cursor.isEmpty()) {
+                recipes = savedRecipeRepository.findSummariesByUserId(userId, fetch);
+            } else {
+                KeysetCursor after = KeysetCursor.decode(cursor);
+                recipes = savedRecipeRepository.findSummariesByUserIdBefore(userId, after.at(), after.id(), fetch);
+            }
 
-            logger.info("Retrieved {} saved recipes for user: {}", recipes.size(), userId);
-            return ResponseEntity.ok(ApiResponseWrapper.success("Recipes retrieved", recipes));
+            logger.info("Retrieved {} saved recipes for user: {}", Math.min(recipes.size(), pageSize), userId);
+            return KeysetCursor.page("Recipes retrieved", recipes, pageSize,
+                    SavedRecipeSummary::getSavedAt, SavedRecipeSummary::getId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponseWrapper.error(e.getMessage()));
         } catch (Exception e) {
             logger.error("Failed to get saved recipes: {}", e.getMessage());
             return ResponseEntity.status(500)
@@ -169,6 +339,22 @@ public class RecipeController {
         }
     }
 
+    /**
+     * How many saved recipes the user has, for counts that would otherwise have to page through all of them.
+     */
+    @GetMapping("/saved/count")
+    public ResponseEntity<ApiResponseWrapper<Long>> countSavedRecipes(@RequestParam(required = false) String userId) {
+        try {
+            if (userId == null || userId.trim().isEmpty()) {
+                userId = "anonymous_user";
+            }
+            return ResponseEntity.ok(ApiResponseWrapper.success("Recipes counted", savedRecipeRepository.countByUserId(userId)));
+        } catch (Exception e) {
+            logger.error("Failed to count saved recipes: {}", e.getMessage());
+            return ResponseEntity.status(500).body(ApiResponseWrapper.error("Failed to count recipes"));
+        }
+    }
+
     @GetMapping("/saved/{id}")
     public ResponseEntity<ApiResponseWrapper<SavedRecipe>> getSavedRecipe(
             @PathVariable Long id,
@@ -191,6 +377,76 @@ public class RecipeController {
         }
     }
 
+    @GetMapping("/saved/{id}/plan")
+    public ResponseEntity<ApiResponseWrapper<StructuredRecipe>> getSavedRecipePlan(
+            @PathVariable Long id,
+            @RequestParam String userId) {
+
+        try {
+            SavedRecipe recipe = savedRecipeRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Recipe not found"));
+
+            if (!recipe.getUserId().equals(userId)) {
+                return ResponseEntity.status(403)
+                        .body(ApiResponseWrapper.error("You don't have permission to view this recipe"));
+            }
+
+            return ResponseEntity.ok(ApiResponseWrapper.success("Plan retrieved", structuredPlanService.planOf(recipe)));
+        } catch (Exception e) {
+            logger.error("Failed to get recipe plan: {}", e.getMessage());
+            return ResponseEntity.status(500)
+                    .body(ApiResponseWrapper.error("Failed to get plan: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Regenerates one step of a saved structured recipe and splices it in. The recipe is loaded
+     * and saved in separate short transactions, so no database connection is held while the
+     * model writes the step.
+     */
+    @PostMapping("/saved/{id}/steps/{step}/regenerate")
+    public ResponseEntity<?> regenerateSavedRecipeStep(
+            @PathVariable Long id,
+            @PathVariable Integer step,
+            @RequestParam String userId,
+            @RequestParam(required = false) String instructions) {
+
+        try {
+            SavedRecipe recipe = savedPlanService.loadRecipe(id)
+                    .orElseThrow(() -> new RuntimeException("Recipe not found"));
+
+            if (!recipe.getUserId().equals(userId)) {
+                return ResponseEntity.status(403)
+                        .body(ApiResponseWrapper.error("You don't have permission to update this recipe"));
+            }
+            if (recipe.getSteps().isEmpty()) {
+                return ResponseEntity.badRequest()
+                        .body(ApiResponseWrapper.error("This recipe was saved without a structured plan"));
+            }
+
+            GenerationEstimate estimate = costModel.recipeStep();
+            if (!rateLimiter.tryAcquireForCurrentUser(estimate.cost())) {
+                return ResponseEntity.status(429)
+                        .body(ApiResponseWrapper.error("Too many requests. Please try again later."));
+            }
+
+            String instruction = structuredPlanService.regenerateStep(recipe, step, instructions);
+            SavedRecipe updated = savedPlanService.replaceStep(id, step, instruction);
+
+            logger.info("Regenerated step {} of recipe {} for user: {}", step, id, userId);
+            return ResponseEntity.ok(ApiResponseWrapper.success("Step regenerated", updated));
+        } catch (GenerationOverloadedException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponseWrapper.error(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Failed to regenerate recipe step: {}", e.getMessage());
+            return ResponseEntity.status(500)
+                    .body(ApiResponseWrapper.error("Failed to regenerate step: " + e.getMessage()));
+        }
+    }
+
     @DeleteMapping("/saved/{id}")
     public ResponseEntity<ApiResponseWrapper<Void>> deleteSavedRecipe(
             @PathVariable Long id,
@@ -230,14 +486,21 @@ public class RecipeController {
 
     public ResponseEntity<?> recipeFallback(String ingredients, String cuisine,
                                             String dietaryRestrictions, Exception e) {
+        if (e instanceof GenerationOverloadedException overloaded) {
+            // A full queue is not a broken backend: answer 503 rather than the placeholder.
+            throw overloaded;
+        }
         logger.warn("Fallback triggered for recipe: {}", e.getMessage());
-        return ResponseEntity.ok(ApiResponseWrapper.success(
-                "Simple Recipe:\n\n" +
-                        "1. Heat oil in a pan\n" +
-                        "2. Add your ingredients and stir-fry\n" +
-                        "3. Season to taste\n" +
-                        "4. Serve hot\n\n" +
-                        "For a detailed AI-generated recipe, please try again later."
-        ));
+        // Placeholder text must not be cached in place of a real answer.
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(ApiResponseWrapper.success(
+                        "Simple Recipe:\n\n" +
+                                "1. Heat oil in a pan\n" +
+                                "2. Add your ingredients and stir-fry\n" +
+                                "3. Season to taste\n" +
+                                "4. Serve hot\n\n" +
+                                "For a detailed AI-generated recipe, please try again later."
+                ));
     }
 }
\ No newline at end of file
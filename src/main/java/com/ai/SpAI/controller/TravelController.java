@@ -1,26 +1,55 @@
 package com.ai.SpAI.controller;
 
+import com.ai.SpAI.cache.GenerationHandleStore;
 import com.ai.SpAI.dto.SaveTravelRequest;
+import com.ai.SpAI.dto.SavedTravelSummary;
+import com.ai.SpAI.dto.StructuredItinerary;
 import com.ai.SpAI.dto.TravelPlanRequest;
 import com.ai.SpAI.entity.SavedTravel;
 import com.ai.SpAI.repository.SavedTravelRepository;
+import com.ai.SpAI.service.GenerationCancellation;
+import com.ai.SpAI.service.GenerationCancelledException;
+import com.ai.SpAI.service.GenerationContext;
+import com.ai.SpAI.service.GenerationCostModel;
+import com.ai.SpAI.service.GenerationEstimate;
+import com.ai.SpAI.service.GenerationOverloadedException;
+import com.ai.SpAI.service.GenerationPriority;
+import com.ai.SpAI.service.ItineraryFanOut;
+import com.ai.SpAI.service.SavedPlanService;
+import com.ai.SpAI.service.StructuredPlanService;
 import com.ai.SpAI.service.TravelPlannerService;
 import com.ai.SpAI.util.ApiResponseWrapper;
+import com.ai.SpAI.util.KeysetCursor;
 import com.ai.SpAI.util.RateLimiter;
+import com.ai.SpAI.util.SseTokenSubscriber;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
 
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/travel")
@@ -31,20 +60,47 @@ public class TravelController {
 
     private final TravelPlannerService travelPlannerService;
     private final RateLimiter rateLimiter;
+    private final GenerationCostModel costModel;
+    private final StructuredPlanService structuredPlanService;
+    private final Executor generationExecutor;
+    private final GenerationHandleStore generationHandles;
+
+    @Value("${app.ai.async.timeout-ms:60000}")
+    private long asyncTimeoutMs;
+
+    @Value("${app.pagination.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${app.pagination.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${app.ai.itinerary.stream.timeout-ms:300000}")
+    private long streamTimeoutMs;
 
     @Autowired
     private SavedTravelRepository savedTravelRepository;
 
     @Autowired
-    public TravelController(TravelPlannerService travelPlannerService, RateLimiter rateLimiter) {
+    private SavedPlanService savedPlanService;
+
+    @Autowired
+    public TravelController(TravelPlannerService travelPlannerService, RateLimiter rateLimiter,
+                            GenerationCostModel costModel, StructuredPlanService structuredPlanService,
+                            @Qualifier("generationExecutor") Executor generationExecutor,
+                            GenerationHandleStore generationHandles) {
         this.travelPlannerService = travelPlannerService;
         this.rateLimiter = rateLimiter;
+        this.costModel = costModel;
+        this.structuredPlanService = structuredPlanService;
+        this.generationExecutor = generationExecutor;
+        this.generationHandles = generationHandles;
     }
 
     @GetMapping("/itinerary")
+    @GeneratedText
     @Cacheable(value = "itineraries",
-            key = "#destination + '_' + #days + '_' + #interests + '_' + #budget",
-            unless = "#result.body == null")
+            key = "@cacheKeys.itinerary(#destination, #days, #interests, #budget)",
+            sync = true)
     @CircuitBreaker(name = "travelService", fallbackMethod = "itineraryFallback")
     @io.github.resilience4j.ratelimiter.annotation.RateLimiter(name = "travelService")
     @Retry(name = "travelService")
@@ -58,25 +114,27 @@ public class TravelController {
         logger.info("Planning itinerary for destination: {}, days: {}", destination, days);
 
         try {
-            if (!rateLimiter.tryAcquire("travel")) {
-                return ResponseEntity.status(429)
-                        .body(ApiResponseWrapper.error("Too many requests. Please try again later."));
-            }
-
             TravelPlanRequest request = new TravelPlanRequest(
                     destination.trim(),
                     days,
                     interests.trim(),
                     budget.trim().toLowerCase()
             );
+            GenerationEstimate estimate = costModel.itinerary(days, interests);
+            if (!rateLimiter.tryAcquireForCurrentUser(travelPlannerService.cost(request, estimate))) {
+                return ResponseEntity.status(429)
+                        .body(ApiResponseWrapper.error("Too many requests. Please try again later."));
+            }
 
-            String itinerary = travelPlannerService.generateItinerary(request);
+            String itinerary = travelPlannerService.generateItinerary(request, estimate);
 
             long duration = System.currentTimeMillis() - startTime;
             logger.info("Itinerary generated in {} ms for {}", duration, destination);
 
             return ResponseEntity.ok(ApiResponseWrapper.success(itinerary));
 
+        } catch (GenerationOverloadedException e) {
+            throw e;
         } catch (IllegalArgumentException e) {
             logger.warn("Invalid request: {}", e.getMessage());
             return ResponseEntity.badRequest()
@@ -89,44 +147,188 @@ public class TravelController {
     }
 
     @GetMapping("/itinerary/async")
+    @GeneratedText
     public DeferredResult<ResponseEntity<?>> planItineraryAsync(
             @RequestParam @NotBlank String destination,
             @RequestParam @Min(1) Integer days,
             @RequestParam(required = false) String interests,
             @RequestParam(required = false) String budget) {
 
-        DeferredResult<ResponseEntity<?>> deferredResult = new DeferredResult<>(60000L);
+        DeferredResult<ResponseEntity<?>> deferredResult = new DeferredResult<>(asyncTimeoutMs);
+        GenerationCancellation cancellation = new GenerationCancellation();
+        GenerationContext context = GenerationContext.of(GenerationPriority.ASYNC, asyncTimeoutMs, cancellation)
+                .forUser(RateLimiter.currentUser());
 
         logger.info("Async itinerary request for {}", destination);
 
-        CompletableFuture.supplyAsync(() -> {
-            TravelPlanRequest request = new TravelPlanRequest(
-                    destination.trim(),
-                    days,
-                    interests != null ? interests.trim() : "general sightseeing",
-                    budget != null ? budget.trim().toLowerCase() : "moderate"
-            );
-            return travelPlannerService.generateItinerary(request);
-        }).thenAccept(result -> {
-            deferredResult.setResult(ResponseEntity.ok(ApiResponseWrapper.success(result)));
-        }).exceptionally(error -> {
-            logger.error("Async itinerary failed: {}", error.getMessage());
-            deferredResult.setErrorResult(
-                    ResponseEntity.status(500).body(ApiResponseWrapper.error("Failed to generate itinerary"))
-            );
-            return null;
-        });
+        TravelPlanRequest request = new TravelPlanRequest(
+                destination.trim(),
+                days,
+                interests != null ? interests.trim() : "general sightseeing",
+                budget != null ? budget.trim().toLowerCase() : "moderate"
+        );
+        GenerationEstimate estimate;
+        try {
+            estimate = costModel.itinerary(request.days(), request.interests());
+        } catch (IllegalArgumentException e) {
+            deferredResult.setErrorResult(ResponseEntity.badRequest().body(ApiResponseWrapper.error(e.getMessage())));
+            return deferredResult;
+        }
+        if (!rateLimiter.tryAcquireForCurrentUser(travelPlannerService.cost(request, estimate))) {
+            deferredResult.setErrorResult(ResponseEntity.status(429)
+                    .body(ApiResponseWrapper.error("Too many requests. Please try again later.")));
+            return deferredResult;
+        }
+
+        try {
+            CompletableFuture.supplyAsync(() -> GenerationContext.callWith(context,
+                            () -> travelPlannerService.generateItinerary(request, estimate)),
+                    generationExecutor).thenAccept(result -> {
+                deferredResult.setResult(ResponseEntity.ok(ApiResponseWrapper.success(result)));
+            }).exceptionally(error -> {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof GenerationOverloadedException overloaded) {
+                    deferredResult.setErrorResult(GenerationOverloadedAdvice.overloadedResponse(overloaded));
+                    return null;
+                }
+                if (cause instanceof IllegalArgumentException) {
+                    deferredResult.setErrorResult(ResponseEntity.badRequest().body(ApiResponseWrapper.error(cause.getMessage())));
+                    return null;
+                }
+                if (cause instanceof GenerationCancelledException) {
+                    logger.info("Async itinerary generation abandoned: {}", cause.getMessage());
+                    return null;
+                }
+                logger.error("Async itinerary failed: {}", error.getMessage());
+                deferredResult.setErrorResult(
+                        ResponseEntity.status(500).body(ApiResponseWrapper.error("Failed to generate itinerary"))
+                );
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Async itinerary rejected, generation executor is full");
+            deferredResult.setErrorResult(ResponseEntity.status(503)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(ApiResponseWrapper.error(503, "Server is busy. Please try again shortly.")));
+            return deferredResult;
+        }
 
         deferredResult.onTimeout(() -> {
+            cancellation.cancel("timeout");
             logger.warn("Async itinerary timeout for {}", destination);
             deferredResult.setErrorResult(
                     ResponseEntity.status(408).body(ApiResponseWrapper.error("Request timeout"))
             );
         });
 
+        deferredResult.onError(error -> cancellation.cancel("disconnect"));
+
         return deferredResult;
     }
 
+    /**
+     * Streams the itinerary as "day" events in the order days finish, each carrying its day
+     * number so the client can place it, then a "done" event.
+     */
+    @GetMapping(value = "/itinerary/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter planItineraryStream(
+            @RequestParam @NotBlank String destination,
+            @RequestParam @Min(1) Integer days,
+            @RequestParam(required = false, defaultValue = "general sightseeing") String interests,
+            @RequestParam(required = false, defaultValue = "moderate") String budget) {
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        long startTime = System.currentTimeMillis();
+        logger.info("Streaming itinerary for destination: {}, days: {}", destination, days);
+
+        TravelPlanRequest request = new TravelPlanRequest(
+                destination.trim(), days, interests.trim(), budget.trim().toLowerCase());
+        GenerationEstimate estimate;
+        try {
+            estimate = costModel.itinerary(days, interests);
+        } catch (IllegalArgumentException e) {
+            return streamError(emitter, ApiResponseWrapper.error(400, e.getMessage()));
+        }
+        if (!rateLimiter.tryAcquireForCurrentUser(travelPlannerService.cost(request, estimate))) {
+            return streamError(emitter, ApiResponseWrapper.error(429, "Too many requests. Please try again later."));
+        }
+        GenerationCancellation cancellation = new GenerationCancellation();
+        GenerationContext context = GenerationContext.of(GenerationPriority.INTERACTIVE, streamTimeoutMs, cancellation)
+                .forUser(RateLimiter.currentUser());
+
+        Disposable subscription = GenerationContext.callWith(context,
+                        () -> travelPlannerService.streamItinerary(request))
+                .subscribe(day -> sendDay(emitter, day, cancellation),
+                        error -> {
+                            logger.error("Itinerary stream for {} failed: {}", destination, error.getMessage());
+                            streamError(emitter, error instanceof GenerationOverloadedException overloaded
+                                    ? ApiResponseWrapper.error(503, overloaded.getMessage())
+                                    : ApiResponseWrapper.error("Failed to generate itinerary"));
+                        },
+                        () -> {
+                            try {
+                                emitter.send(SseEmitter.event().name("done").data(Map.of(
+                                        "days", days, "durationMs", System.currentTimeMillis() - startTime)));
+                                emitter.complete();
+                            } catch (IOException | IllegalStateException e) {
+                                logger.debug("Could not deliver itinerary stream summary: {}", e.getMessage());
+                            }
+                        });
+
+        Runnable abandon = () -> {
+            // A finished stream has nothing left to cancel.
+            if (!subscription.isDisposed()) {
+                cancellation.cancel("disconnect");
+                subscription.dispose();
+            }
+        };
+        emitter.onCompletion(abandon);
+        emitter.onTimeout(abandon);
+        emitter.onError(error -> abandon.run());
+        return emitter;
+    }
+
+    /**
+     * The itinerary as days and activities rather than prose, ready to be saved with its plan so
+     * that single days can be regenerated later.
+     */
+    @GetMapping("/itinerary/structured")
+    @Cacheable(value = "itineraries",
+            key = "'structured:' + @cacheKeys.itinerary(#destination, #days, #interests, #budget)",
+            sync = true)
+    public ResponseEntity<?> planStructuredItinerary(
+            @RequestParam @NotBlank String destination,
+            @RequestParam @Min(1) Integer days,
+            @RequestParam(required = false, defaultValue = "general sightseeing") String interests,
+            @RequestParam(required = false, defaultValue = "moderate") String budget) {
+
+        logger.info("Planning structured itinerary for destination: {}, days: {}", destination, days);
+
+        try {
+            GenerationEstimate estimate = costModel.itinerary(days, interests);
+            TravelPlanRequest request = new TravelPlanRequest(
+                    destination.trim(), days, interests.trim(), budget.trim().toLowerCase());
+            if (!rateLimiter.tryAcquireForCurrentUser(structuredPlanService.cost(request, estimate))) {
+                return ResponseEntity.status(429)
+                        .body(ApiResponseWrapper.error("Too many requests. Please try again later."));
+            }
+
+            StructuredItinerary plan = structuredPlanService.generateItinerary(request, estimate);
+            return ResponseEntity.ok(ApiResponseWrapper.success("Itinerary generated", plan));
+
+        } catch (GenerationOverloadedException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid request: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(ApiResponseWrapper.error(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error generating structured itinerary for {}: {}", destination, e.getMessage(), e);
+            return ResponseEntity.status(500)
+                    .body(ApiResponseWrapper.error("Failed to generate itinerary. Please try again."));
+        }
+    }
+
     // 🔥 FIXED: Save using userId from request body with null check
     @PostMapping("/save")
     public ResponseEntity<ApiResponseWrapper<SavedTravel>> saveItinerary(
@@ -141,13 +343,28 @@ public class TravelController {
 
             logger.info("Saving itinerary for user: {}", userId);
 
+            // The text may come as the handle of the response it was generated in
+            String itineraryText = request.getItineraryText();
+            if ((itineraryText == null || itineraryText.isEmpty())
+                    && request.getHandle() != null && !request.getHandle().isEmpty()) {
+                Optional<String> held = generationHandles.resolve(request.getHandle());
+                if (held.isEmpty()) {
+                    return ResponseEntity.status(410)
+                            .body(ApiResponseWrapper.error("Generation handle has expired; send itineraryText instead"));
+                }
+                itineraryText = held.get();
+            }
+
             SavedTravel travel = new SavedTravel();
             travel.setUserId(userId);
             travel.setDestination(request.getDestination());
             travel.setDays(request.getDays());
             travel.setInterests(request.getInterests());
             travel.setBudget(request.getBudget());
-            travel.setItineraryText(request.getItineraryText());
+            travel.setItineraryText(itineraryText);
+            if (request.getPlan() != null && request.getPlan().days() != null) {
+                structuredPlanService.applyPlan(travel, request.getPlan());
+            }
 
             if (request.getTripName() == null || request.getTripName().isEmpty()) {
                 travel.setTripName(request.getDestination() + " - " + request.getDays() + " days");
@@ -159,6 +376,9 @@ public class TravelController {
             logger.info("Travel itinerary saved with ID: {} for user: {}", saved.getId(), userId);
 
             return ResponseEntity.ok(ApiResponseWrapper.success("Itinerary saved successfully", saved));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid itinerary plan: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponseWrapper.error(e.getMessage()));
         } catch (Exception e) {
             logger.error("Failed to save itinerary: {}", e.getMessage());
             return ResponseEntity.status(500)
@@ -167,9 +387,16 @@ public class TravelController {
     }
 
     // 🔥 FIXED: Get saved using userId from query parameter with null check
+    /**
+     * One page of the user's saved itineraries, newest first. Pass the {@code X-Next-Cursor} of
+     * the previous page as {@code cursor} to get the next one. Trips are listed as summaries; full
+     * ones come from /saved/{id}.
+     */
     @GetMapping("/saved")
-    public ResponseEntity<ApiResponseWrapper<List<SavedTravel>>> getSavedItineraries(
-            @RequestParam(required = false) String userId) {  // Make it optional
+    public ResponseEntity<ApiResponseWrapper<List<SavedTravelSummary>>> getSavedItineraries(
+            @RequestParam(required = false) String userId,  // Make it optional
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
 
         try {
             // 🔥 Handle null userId
@@ -178,10 +405,21 @@ public class TravelController {
             }
 
             logger.info("Fetching saved itineraries for user: {}", userId);
-            List<SavedTravel> itineraries = savedTravelRepository.findByUserIdOrderBySavedAtDesc(userId);
+            int pageSize = KeysetCursor.pageSize(limit, defaultPageSize, maxPageSize);
+            PageRequest fetch = PageRequest.of(0, pageSize + 1);
+            List<SavedTravelSummary> itineraries;
+            if (cursor == null || cursor.isEmpty()) {
+                itineraries = savedTravelRepository.findSummariesByUserId(userId, fetch);
+            } else {
+                KeysetCursor after = KeysetCursor.decode(cursor);
+                itineraries = savedTravelRepository.findSummariesByUserIdBefore(userId, after.at(), after.id(), fetch);
+            }
 
-            logger.info("Retrieved {} saved itineraries for user: {}", itineraries.size(), userId);
-            return ResponseEntity.ok(ApiResponseWrapper.success("Itineraries retrieved", itineraries));
+            logger.info("Retrieved {} saved itineraries for user: {}", Math.min(itineraries.size(), pageSize), userId);
+            return KeysetCursor.page("Itineraries retrieved", itineraries, pageSize,
+                    SavedTravelSummary::getSavedAt, SavedTravelSummary::getId);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponseWrapper.error(e.getMessage()));
         } catch (Exception e) {
             logger.error("Failed to get saved itineraries: {}", e.getMessage());
             return ResponseEntity.status(500)
@@ -189,8 +427,24 @@ public class TravelController {
         }
     }
 
+    /**
+     * How many saved itineraries the user has, for counts that would otherwise have to page through all of them.
+     */
+    @GetMapping("/saved/count")
+    public ResponseEntity<ApiResponseWrapper<Long>> countSavedItineraries(@RequestParam(required = false) String userId) {
+        try {
+            if (userId == null || userId.trim().isEmpty()) {
+                userId = "anonymous_user";
+            }
+            return ResponseEntity.ok(ApiResponseWrapper.success("Itineraries counted", savedTravelRepository.countByUserId(userId)));
+        } catch (Exception e) {
+            logger.error("Failed to count saved itineraries: {}", e.getMessage());
+            return ResponseEntity.status(500).body(ApiResponseWrapper.error("Failed to count itineraries"));
+        }
+    }
+
     @GetMapping("/saved/search")
-    public ResponseEntity<ApiResponseWrapper<List<SavedTravel>>> searchSavedItineraries(
+    public ResponseEntity<ApiResponseWrapper<List<SavedTravelSummary>>> searchSavedItineraries(
             @RequestParam(required = false) String userId,
             @RequestParam String destination) {
 
@@ -199,8 +453,7 @@ public class TravelController {
                 userId = "anonymous_user";
             }
 
-            List<SavedTravel> itineraries = savedTravelRepository
-                    .findByUserIdAndDestinationContainingIgnoreCase(userId, destination);
+            List<SavedTravelSummary> itineraries = savedTravelRepository.searchSummaries(userId, destination);
 
             return ResponseEntity.ok(ApiResponseWrapper.success("Search results", itineraries));
         } catch (Exception e) {
@@ -236,6 +489,85 @@ public class TravelController {
         }
     }
 
+    @GetMapping("/saved/{id}/plan")
+    public ResponseEntity<ApiResponseWrapper<StructuredItinerary>> getSavedItineraryPlan(
+            @PathVariable Long id,
+            @RequestParam(required = false) String userId) {
+
+        try {
+            if (userId == null || userId.trim().isEmpty()) {
+                userId = "anonymous_user";
+            }
+
+            SavedTravel itinerary = savedTravelRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Itinerary not found"));
+
+            if (!itinerary.getUserId().equals(userId)) {
+                return ResponseEntity.status(403)
+                        .body(ApiResponseWrapper.error("You don't have permission to view this itinerary"));
+            }
+
+            return ResponseEntity.ok(ApiResponseWrapper.success("Plan retrieved",
+                    structuredPlanService.planOf(itinerary)));
+        } catch (Exception e) {
+            logger.error("Failed to get itinerary plan: {}", e.getMessage());
+            return ResponseEntity.status(500)
+                    .body(ApiResponseWrapper.error("Failed to get plan: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Regenerates one day of a saved structured itinerary and splices it in, leaving the other
+     * days untouched. The trip is loaded and saved in separate short transactions, so no
+     * database connection is held while the model writes the day.
+     */
+    @PostMapping("/saved/{id}/days/{day}/regenerate")
+    public ResponseEntity<?> regenerateSavedItineraryDay(
+            @PathVariable Long id,
+            @PathVariable Integer day,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String instructions) {
+
+        try {
+            if (userId == null || userId.trim().isEmpty()) {
+                userId = "anonymous_user";
+            }
+
+            SavedTravel itinerary = savedPlanService.loadTrip(id)
+                    .orElseThrow(() -> new RuntimeException("Itinerary not found"));
+
+            if (!itinerary.getUserId().equals(userId)) {
+                return ResponseEntity.status(403)
+                        .body(ApiResponseWrapper.error("You don't have permission to update this itinerary"));
+            }
+            if (itinerary.getDayPlans().isEmpty()) {
+                return ResponseEntity.badRequest()
+                        .body(ApiResponseWrapper.error("This itinerary was saved without a structured plan"));
+            }
+
+            GenerationEstimate estimate = costModel.itineraryDay(itinerary.getInterests());
+            if (!rateLimiter.tryAcquireForCurrentUser(estimate.cost())) {
+                return ResponseEntity.status(429)
+                        .body(ApiResponseWrapper.error("Too many requests. Please try again later."));
+            }
+
+            StructuredItinerary.Day regenerated = structuredPlanService.regenerateDay(itinerary, day, instructions);
+            SavedTravel updated = savedPlanService.replaceDay(id, regenerated);
+
+            logger.info("Regenerated day {} of itinerary {} for user: {}", day, id, userId);
+            return ResponseEntity.ok(ApiResponseWrapper.success("Day regenerated", updated));
+        } catch (GenerationOverloadedException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponseWrapper.error(e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Failed to regenerate itinerary day: {}", e.getMessage());
+            return ResponseEntity.status(500)
+                    .body(ApiResponseWrapper.error("Failed to regenerate day: " + e.getMessage()));
+        }
+    }
+
     @DeleteMapping("/saved/{id}")
     public ResponseEntity<ApiResponseWrapper<Void>> deleteSavedItinerary(
             @PathVariable Long id,
@@ -304,16 +636,36 @@ public class TravelController {
 
     public ResponseEntity<?> itineraryFallback(String destination, Integer days,
                                                String interests, String budget, Exception e) {
+        if (e instanceof GenerationOverloadedException overloaded) {
+            // A full queue is not a broken backend: answer 503 rather than the placeholder.
+            throw overloaded;
+        }
         logger.warn("Fallback triggered for itinerary: {}", e.getMessage());
-        return ResponseEntity.ok(ApiResponseWrapper.success(
-                String.format("Quick guide for %s:\n" +
-                                "Day 1: Arrival and explore main attractions\n" +
-                                "Day 2: Cultural sites and local experiences\n" +
-                                "Day 3: Nature and outdoor activities\n" +
-                                "Day 4: Shopping and relaxation\n" +
-                                "Day 5: Departure\n\n" +
-                                "Please try again later for a detailed AI-generated itinerary.",
-                        destination)
-        ));
+        // Placeholder text must not be cached in place of a real answer.
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(ApiResponseWrapper.success(
+                        String.format("Quick guide for %s:\n" +
+                                        "Day 1: Arrival and explore main attractions\n" +
+                                        "Day 2: Cultural sites and local experiences\n" +
+                                        "Day 3: Nature and outdoor activities\n" +
+                                        "Day 4: Shopping and relaxation\n" +
+                                        "Day 5: Departure\n\n" +
+                                        "Please try again later for a detailed AI-generated itinerary.",
+                                destination)
+                ));
+    }
+
+    private void sendDay(SseEmitter emitter, ItineraryFanOut.Day day, GenerationCancellation cancellation) {
+        try {
+            emitter.send(SseEmitter.event().name("day").data(day));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away; stop the remaining days.
+            cancellation.cancel("disconnect");
+        }
+    }
+
+    private SseEmitter streamError(SseEmitter emitter, ApiResponseWrapper<?> body) {
+        return SseTokenSubscriber.reject(emitter, body);
     }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.ai.SpAI.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chat exchange as shown in the history list, with the first {@value #SNIPPET_LENGTH}
+ * characters of the prompt and of the answer. Full messages come from /message/{id} and
+ * /session/{sessionId}.
+ */
+public interface ChatMessageSummary {
+
+    int SNIPPET_LENGTH = 200;
+
+    Long getId();
+    String getSessionId();
+    LocalDateTime getTimestamp();
+    String getPromptSnippet();
+    String getResponseSnippet();
+}
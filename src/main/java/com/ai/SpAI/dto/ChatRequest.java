@@ -8,4 +8,6 @@ public class ChatRequest {
     private String sessionId;
     private String prompt;
     private String aiResponse;
+    // X-Generation-Handle of the /ask response, in place of aiResponse
+    private String handle;
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.ai.SpAI.dto;
+
+import com.ai.SpAI.entity.GenerationJob;
+import lombok.Data;
+
+/**
+ * Body of POST /api/jobs. Which fields apply depends on the type: prompt for CHAT; ingredients,
+ * cuisine and dietaryRestrictions for RECIPE; destination, days, interests and budget for ITINERARY.
+ */
+@Data
+public class GenerationJobRequest {
+    private GenerationJob.Type type;
+    private String prompt;
+    private String ingredients;
+    private String cuisine;
+    private String dietaryRestrictions;
+    private String destination;
+    private Integer days;
+    private String interests;
+    private String budget;
+}
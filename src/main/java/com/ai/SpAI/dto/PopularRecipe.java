@@ -0,0 +1,11 @@
+package com.ai.SpAI.dto;
+
+/**
+ * Recipe parameters with how many times users saved a recipe for them.
+ */
+public interface PopularRecipe {
+    String getIngredients();
+    String getCuisine();
+    String getDietaryRestrictions();
+    Long getSaves();
+}
@@ -0,0 +1,12 @@
+package com.ai.SpAI.dto;
+
+/**
+ * Itinerary parameters with how many times users saved a trip for them.
+ */
+public interface PopularTrip {
+    String getDestination();
+    Integer getDays();
+    String getInterests();
+    String getBudget();
+    Long getSaves();
+}
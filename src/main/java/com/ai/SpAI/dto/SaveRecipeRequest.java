@@ -6,8 +6,12 @@ import lombok.Data;
 public class SaveRecipeRequest {
     private String userId;
     private String recipeText;
+    // X-Generation-Handle of the /create response, in place of recipeText
+    private String handle;
     private String ingredients;
     private String cuisine;
     private String dietaryRestrictions;
     private String recipeName;
-}
\ No newline at end of file
+    // Structured form from the /structured endpoint; when set, the text is rendered from it
+    private StructuredRecipe plan;
+}
@@ -9,6 +9,10 @@ public class SaveTravelRequest {
     private String interests;
     private String budget;
     private String itineraryText;
+    // X-Generation-Handle of the /itinerary response, in place of itineraryText
+    private String handle;
     private String tripName;
     private String userId;
-}
\ No newline at end of file
+    // Structured form from the /structured endpoint; when set, the text is rendered from it
+    private StructuredItinerary plan;
+}
@@ -0,0 +1,20 @@
+package com.ai.SpAI.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A saved recipe as shown in lists: its name, ingredients, cuisine and save time, plus the
+ * first {@value #SNIPPET_LENGTH} characters of the recipe text. The full recipe, with its
+ * dietary restrictions, comes from /saved/{id}.
+ */
+public interface SavedRecipeSummary {
+
+    int SNIPPET_LENGTH = 200;
+
+    Long getId();
+    String getRecipeName();
+    String getIngredients();
+    String getCuisine();
+    LocalDateTime getSavedAt();
+    String getSnippet();
+}
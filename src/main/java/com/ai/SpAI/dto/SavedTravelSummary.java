@@ -0,0 +1,20 @@
+package com.ai.SpAI.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A saved trip as shown in lists: its name, destination, length and save time, plus the first
+ * {@value #SNIPPET_LENGTH} characters of the itinerary. The full trip, with its interests and
+ * budget, comes from /saved/{id}.
+ */
+public interface SavedTravelSummary {
+
+    int SNIPPET_LENGTH = 200;
+
+    Long getId();
+    String getTripName();
+    String getDestination();
+    Integer getDays();
+    LocalDateTime getSavedAt();
+    String getSnippet();
+}
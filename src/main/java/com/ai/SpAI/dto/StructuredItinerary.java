@@ -0,0 +1,15 @@
+package com.ai.SpAI.dto;
+
+import java.util.List;
+
+/**
+ * Itinerary as the model returns it in structured output mode, and as saved plans are served.
+ */
+public record StructuredItinerary(List<Day> days) {
+
+    public record Day(Integer day, String theme, List<Activity> activities) {
+    }
+
+    public record Activity(String time, String title, String description) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.ai.SpAI.dto;
+
+import java.util.List;
+
+/**
+ * Recipe as the model returns it in structured output mode, and as saved recipes are served.
+ */
+public record StructuredRecipe(String title, List<Ingredient> ingredients, List<String> steps) {
+
+    public record Ingredient(String name, String quantity) {
+    }
+}
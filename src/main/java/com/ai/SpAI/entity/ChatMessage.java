@@ -6,7 +6,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+        @Index(name = "idx_chat_messages_user_time", columnList = "user_id, timestamp, id"),
+        @Index(name = "idx_chat_messages_session_time", columnList = "session_id, timestamp, id")
+})
 @Data
 @NoArgsConstructor
 public class ChatMessage {
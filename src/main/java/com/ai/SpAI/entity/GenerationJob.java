@@ -0,0 +1,86 @@
+package com.ai.SpAI.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A queued generation. Workers on any node claim QUEUED jobs, and RUNNING jobs whose lease
+ * ran out because their worker died, with {@code FOR UPDATE SKIP LOCKED}.
+ */
+@Entity
+@Table(name = "generation_jobs", indexes = {
+        @Index(name = "idx_generation_jobs_claim", columnList = "status, created_at"),
+        @Index(name = "idx_generation_jobs_expired_lease", columnList = "status, lease_until"),
+        @Index(name = "idx_generation_jobs_expiry", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+public class GenerationJob {
+
+    public enum Type { CHAT, RECIPE, ITINERARY }
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false)
+    private String userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Type type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status;
+
+    // The GenerationJobRequest as JSON
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String request;
+
+    @Column(columnDefinition = "TEXT")
+    private String result;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @JsonIgnore
+    @Column
+    private String workerId;
+
+    @JsonIgnore
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column
+    private LocalDateTime startedAt;
+
+    @Column
+    private LocalDateTime finishedAt;
+
+    // Finished jobs are deleted after this; unset while the job is pending
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
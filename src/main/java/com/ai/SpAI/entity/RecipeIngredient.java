@@ -0,0 +1,33 @@
+package com.ai.SpAI.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "recipe_ingredients")
+@Getter
+@Setter
+@NoArgsConstructor
+public class RecipeIngredient {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "recipe_id")
+    private SavedRecipe recipe;
+
+    @Column(nullable = false)
+    private Integer position;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column
+    private String quantity;
+}
@@ -0,0 +1,30 @@
+package com.ai.SpAI.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "recipe_steps", uniqueConstraints = @UniqueConstraint(columnNames = {"recipe_id", "stepNumber"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class RecipeStep {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "recipe_id")
+    private SavedRecipe recipe;
+
+    @Column(nullable = false)
+    private Integer stepNumber;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String instruction;
+}
@@ -1,12 +1,19 @@
 package com.ai.SpAI.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
-@Table(name = "saved_recipes")
+@Table(name = "saved_recipes", indexes = {
+        @Index(name = "idx_saved_recipes_user_time", columnList = "user_id, saved_at, id")
+})
 @Data
 @NoArgsConstructor
 public class SavedRecipe {
@@ -36,6 +43,22 @@ public class SavedRecipe {
     @Column
     private String recipeName; // Optional: extract from recipe or let user name it
 
+    // Structured form of the recipe, empty for recipes saved as text only; recipeText is kept
+    // rendered from it. Served through /saved/{id}/plan rather than with every recipe.
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "recipe", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("position")
+    private List<RecipeIngredient> ingredientList = new ArrayList<>();
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "recipe", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("stepNumber")
+    private List<RecipeStep> steps = new ArrayList<>();
+
     @PrePersist
     protected void onCreate() {
         savedAt = LocalDateTime.now();
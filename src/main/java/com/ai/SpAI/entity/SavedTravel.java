@@ -1,12 +1,19 @@
 package com.ai.SpAI.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
-@Table(name = "saved_trips")
+@Table(name = "saved_trips", indexes = {
+        @Index(name = "idx_saved_trips_user_time", columnList = "user_id, saved_at, id")
+})
 @Data
 @NoArgsConstructor
 public class SavedTravel {
@@ -39,6 +46,15 @@ public class SavedTravel {
     @Column(nullable = false)
     private LocalDateTime savedAt;
 
+    // Structured form of the itinerary, empty for plans saved as text only; itineraryText is
+    // kept rendered from it. Served through /saved/{id}/plan rather than with every trip.
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @OneToMany(mappedBy = "trip", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("dayNumber")
+    private List<TripDay> dayPlans = new ArrayList<>();
+
     @PrePersist
     protected void onCreate() {
         savedAt = LocalDateTime.now();
@@ -0,0 +1,36 @@
+package com.ai.SpAI.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Entity
+@Table(name = "trip_activities")
+@Getter
+@Setter
+@NoArgsConstructor
+public class TripActivity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "day_id")
+    private TripDay day;
+
+    @Column(nullable = false)
+    private Integer position;
+
+    @Column(length = 50)
+    private String timeOfDay;
+
+    @Column(nullable = false, length = 500)
+    private String title;
+
+    @Column(columnDefinition = "TEXT")
+    private String description;
+}
@@ -0,0 +1,37 @@
+package com.ai.SpAI.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Entity
+@Table(name = "trip_days", uniqueConstraints = @UniqueConstraint(columnNames = {"trip_id", "dayNumber"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class TripDay {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "trip_id")
+    private SavedTravel trip;
+
+    @Column(nullable = false)
+    private Integer dayNumber;
+
+    @Column(length = 500)
+    private String theme;
+
+    @OneToMany(mappedBy = "day", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("position")
+    private List<TripActivity> activities = new ArrayList<>();
+}
@@ -1,13 +1,43 @@
 package com.ai.SpAI.repository;
 
+import com.ai.SpAI.dto.ChatMessageSummary;
 import com.ai.SpAI.entity.ChatMessage;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
-    List<ChatMessage> findByUserIdOrderByTimestampDesc(String userId);
     List<ChatMessage> findBySessionIdOrderByTimestampAsc(String sessionId);
     void deleteByUserId(String userId);
-}
\ No newline at end of file
+    long countByUserId(String userId);
+
+    String SUMMARY = "SELECT m.id AS id, m.sessionId AS sessionId, m.timestamp AS timestamp, " +
+            "SUBSTRING(m.userMessage, 1, " + ChatMessageSummary.SNIPPET_LENGTH + ") AS promptSnippet, " +
+            "SUBSTRING(m.aiResponse, 1, " + ChatMessageSummary.SNIPPET_LENGTH + ") AS responseSnippet " +
+            "FROM ChatMessage m ";
+
+    // Keyset pages of summaries, see KeysetCursor; fetch one row more than the page size
+    @Query(SUMMARY + "WHERE m.userId = :userId ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessageSummary> findSummariesByUserId(@Param("userId") String userId, Pageable pageable);
+
+    @Query(SUMMARY + "WHERE m.userId = :userId " +
+            "AND (m.timestamp < :at OR (m.timestamp = :at AND m.id < :id)) " +
+            "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessageSummary> findSummariesByUserIdBefore(@Param("userId") String userId, @Param("at") LocalDateTime at,
+                                                         @Param("id") long id, Pageable pageable);
+
+    @Query(SUMMARY + "WHERE m.sessionId = :sessionId ORDER BY m.timestamp ASC, m.id ASC")
+    List<ChatMessageSummary> findSummariesBySessionId(@Param("sessionId") String sessionId, Pageable pageable);
+
+    @Query(SUMMARY + "WHERE m.sessionId = :sessionId " +
+            "AND (m.timestamp > :at OR (m.timestamp = :at AND m.id > :id)) " +
+            "ORDER BY m.timestamp ASC, m.id ASC")
+    List<ChatMessageSummary> findSummariesBySessionIdAfter(@Param("sessionId") String sessionId,
+                                                           @Param("at") LocalDateTime at,
+                                                           @Param("id") long id, Pageable pageable);
+}
@@ -0,0 +1,39 @@
+package com.ai.SpAI.repository;
+
+import com.ai.SpAI.entity.GenerationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GenerationJobRepository extends JpaRepository<GenerationJob, String> {
+
+    /**
+     * Locks up to {@code limit} queued jobs, oldest first, skipping rows other workers hold so
+     * that concurrent pollers never block on or double-claim each other's jobs. Walks the
+     * (status, created_at) index. Must run in a transaction that marks the rows RUNNING before
+     * it commits.
+     */
+    @Query(value = "SELECT * FROM generation_jobs WHERE status = 'QUEUED' " +
+            "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<GenerationJob> lockQueued(@Param("limit") int limit);
+
+    /**
+     * Same as {@link #lockQueued} for RUNNING jobs whose lease ran out because their worker died,
+     * longest expired first. Walks the (status, lease_until) index.
+     */
+    @Query(value = "SELECT * FROM generation_jobs WHERE status = 'RUNNING' AND lease_until < :now " +
+            "ORDER BY lease_until LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<GenerationJob> lockExpiredLeases(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    long countByUserIdAndStatusIn(String userId, Collection<GenerationJob.Status> statuses);
+
+    @Modifying
+    @Query("DELETE FROM GenerationJob j WHERE j.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
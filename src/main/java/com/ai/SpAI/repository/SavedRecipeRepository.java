@@ -1,12 +1,37 @@
 package com.ai.SpAI.repository;
 
+import com.ai.SpAI.dto.PopularRecipe;
+import com.ai.SpAI.dto.SavedRecipeSummary;
 import com.ai.SpAI.entity.SavedRecipe;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface SavedRecipeRepository extends JpaRepository<SavedRecipe, Long> {
-    List<SavedRecipe> findByUserIdOrderBySavedAtDesc(String userId);
     void deleteByUserIdAndId(String userId, Long id);
-}
\ No newline at end of file
+    long countByUserId(String userId);
+
+    String SUMMARY = "SELECT r.id AS id, r.recipeName AS recipeName, r.ingredients AS ingredients, r.cuisine AS cuisine, " +
+            "r.savedAt AS savedAt, SUBSTRING(r.recipeText, 1, " + SavedRecipeSummary.SNIPPET_LENGTH + ") AS snippet " +
+            "FROM SavedRecipe r ";
+
+    // Keyset pages of summaries, see KeysetCursor; fetch one row more than the page size
+    @Query(SUMMARY + "WHERE r.userId = :userId ORDER BY r.savedAt DESC, r.id DESC")
+    List<SavedRecipeSummary> findSummariesByUserId(@Param("userId") String userId, Pageable pageable);
+
+    @Query(SUMMARY + "WHERE r.userId = :userId " +
+            "AND (r.savedAt < :at OR (r.savedAt = :at AND r.id < :id)) " +
+            "ORDER BY r.savedAt DESC, r.id DESC")
+    List<SavedRecipeSummary> findSummariesByUserIdBefore(@Param("userId") String userId, @Param("at") LocalDateTime at,
+                                                         @Param("id") long id, Pageable pageable);
+
+    @Query("SELECT r.ingredients AS ingredients, r.cuisine AS cuisine, r.dietaryRestrictions AS dietaryRestrictions, " +
+            "COUNT(r) AS saves FROM SavedRecipe r " +
+            "GROUP BY r.ingredients, r.cuisine, r.dietaryRestrictions ORDER BY COUNT(r) DESC")
+    List<PopularRecipe> findMostSaved(Pageable pageable);
+}
@@ -1,13 +1,42 @@
 package com.ai.SpAI.repository;
 
+import com.ai.SpAI.dto.PopularTrip;
+import com.ai.SpAI.dto.SavedTravelSummary;
 import com.ai.SpAI.entity.SavedTravel;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface SavedTravelRepository extends JpaRepository<SavedTravel, Long> {
-    List<SavedTravel> findByUserIdOrderBySavedAtDesc(String userId);
-    List<SavedTravel> findByUserIdAndDestinationContainingIgnoreCase(String userId, String destination);
     void deleteByUserIdAndId(String userId, Long id);
-}
\ No newline at end of file
+    long countByUserId(String userId);
+
+    String SUMMARY = "SELECT t.id AS id, t.tripName AS tripName, t.destination AS destination, t.days AS days, " +
+            "t.savedAt AS savedAt, SUBSTRING(t.itineraryText, 1, " + SavedTravelSummary.SNIPPET_LENGTH + ") AS snippet " +
+            "FROM SavedTravel t ";
+
+    // Keyset pages of summaries, see KeysetCursor; fetch one row more than the page size
+    @Query(SUMMARY + "WHERE t.userId = :userId ORDER BY t.savedAt DESC, t.id DESC")
+    List<SavedTravelSummary> findSummariesByUserId(@Param("userId") String userId, Pageable pageable);
+
+    @Query(SUMMARY + "WHERE t.userId = :userId " +
+            "AND (t.savedAt < :at OR (t.savedAt = :at AND t.id < :id)) " +
+            "ORDER BY t.savedAt DESC, t.id DESC")
+    List<SavedTravelSummary> findSummariesByUserIdBefore(@Param("userId") String userId, @Param("at") LocalDateTime at,
+                                                         @Param("id") long id, Pageable pageable);
+
+    @Query(SUMMARY + "WHERE t.userId = :userId " +
+            "AND LOWER(t.destination) LIKE LOWER(CONCAT('%', :destination, '%')) " +
+            "ORDER BY t.savedAt DESC, t.id DESC")
+    List<SavedTravelSummary> searchSummaries(@Param("userId") String userId, @Param("destination") String destination);
+
+    @Query("SELECT t.destination AS destination, t.days AS days, t.interests AS interests, t.budget AS budget, " +
+            "COUNT(t) AS saves FROM SavedTravel t " +
+            "GROUP BY t.destination, t.days, t.interests, t.budget ORDER BY COUNT(t) DESC")
+    List<PopularTrip> findMostSaved(Pageable pageable);
+}
@@ -4,52 +4,105 @@ import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.ollama.api.OllamaOptions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Service
 public class ChatService {
     private final ChatModel chatModel;
+    private final GenerationCoalescer coalescer;
+    private final SemanticResponseCache semanticCache;
+    private final GenerationCostModel costModel;
 
     @Value("${spring.ai.chat.model:llama3.2:1b}")
     private String defaultModel;
 
     @Autowired
-    public ChatService(@Qualifier("ollamaChatModel") ChatModel chatModel) {
+    public ChatService(@Qualifier("ollamaChatModel") ChatModel chatModel, GenerationCoalescer coalescer,
+                       SemanticResponseCache semanticCache, GenerationCostModel costModel) {
         this.chatModel = chatModel;
+        this.coalescer = coalescer;
+        this.semanticCache = semanticCache;
+        this.costModel = costModel;
     }
 
     public String getResponse(String prompt) {
-        return chatModel.call(prompt);
+        return getResponse(prompt, costModel.chat(prompt));
     }
 
-    public String getResponseOptions(String prompt) {
-        ChatOptions options = ChatOptions.builder()
-                .model(defaultModel)
-                .build();
+    /**
+     * Answers with an estimate the caller already obtained from {@link GenerationCostModel}.
+     */
+    public String getResponse(String prompt, GenerationEstimate estimate) {
+        return semanticCache.getOrGenerate(prompt,
+                () -> coalescer.execute("chat", prompt,
+                        () -> GenerationContext.callWithCost(estimate.cost(),
+                                () -> chatModel.call(new Prompt(prompt, limitedTo(estimate)))
+                                        .getResult().getOutput().getText())));
+    }
+
+    /**
+     * Non-blocking {@link #getResponse(String, GenerationEstimate)} built on the streaming API: no
+     * thread is held while the call queues or the model generates. Skips the semantic cache,
+     * whose embedding lookup is a blocking model call.
+     */
+    public Mono<String> getResponseReactive(String prompt, GenerationEstimate estimate) {
+        GenerationContext context = GenerationContext.current();
+        return coalescer.executeReactive("chat", prompt, () -> ReactiveGeneration.text(
+                GenerationContext.callWith(context, () -> GenerationContext.callWithCost(estimate.cost(),
+                        () -> chatModel.stream(new Prompt(prompt, limitedTo(estimate)))))));
+    }
 
-        ChatResponse response = chatModel.call(
-                new Prompt(
-                        prompt,
-                        options
-                ));
+    /**
+     * Streams the model output chunk by chunk instead of waiting for the whole answer.
+     * Cancelling the subscription aborts the underlying HTTP call to the model server.
+     */
+    public Flux<ChatResponse> streamResponse(String prompt) {
+        GenerationEstimate estimate;
+        try {
+            estimate = costModel.chat(prompt);
+        } catch (IllegalArgumentException e) {
+            return Flux.error(e);
+        }
+        return streamResponse(prompt, estimate);
+    }
+
+    /**
+     * Streams with an estimate the caller already obtained (and charged) from {@link GenerationCostModel}.
+     */
+    public Flux<ChatResponse> streamResponse(String prompt, GenerationEstimate estimate) {
+        return GenerationContext.callWithCost(estimate.cost(),
+                () -> chatModel.stream(new Prompt(prompt, limitedTo(estimate))));
+    }
 
-        return response.getResult().getOutput().getText();
+    public String getResponseOptions(String prompt) {
+        return getResponseOptions(prompt, defaultModel);
     }
 
     public String getResponseOptions(String prompt, String modelName) {
+        GenerationEstimate estimate = costModel.chat(prompt);
         ChatOptions options = ChatOptions.builder()
                 .model(modelName)
+                .maxTokens(estimate.numPredict())
                 .build();
 
-        ChatResponse response = chatModel.call(
-                new Prompt(
-                        prompt,
-                        options
-                ));
+        return coalescer.execute("chat:" + modelName, prompt, () -> GenerationContext.callWithCost(estimate.cost(), () -> {
+            ChatResponse response = chatModel.call(
+                    new Prompt(
+                            prompt,
+                            options
+                    ));
+
+            return response.getResult().getOutput().getText();
+        }));
+    }
 
-        return response.getResult().getOutput().getText();
+    private static ChatOptions limitedTo(GenerationEstimate estimate) {
+        return OllamaOptions.builder().numPredict(estimate.numPredict()).build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.ai.SpAI.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cancellation token for one request's generation. The web layer cancels it when the client
+ * times out or disconnects; the model layer registers a callback that aborts the HTTP call.
+ */
+public class GenerationCancellation {
+
+    private final AtomicReference<String> reason = new AtomicReference<>();
+    private final List<Runnable> callbacks = new CopyOnWriteArrayList<>();
+
+    public void cancel(String why) {
+        if (reason.compareAndSet(null, why)) {
+            callbacks.forEach(Runnable::run);
+        }
+    }
+
+    public boolean isCancelled() {
+        return reason.get() != null;
+    }
+
+    public String getReason() {
+        return reason.get();
+    }
+
+    public void onCancel(Runnable callback) {
+        callbacks.add(callback);
+        if (isCancelled() && callbacks.remove(callback)) {
+            callback.run();
+        }
+    }
+
+    public void removeCallback(Runnable callback) {
+        callbacks.remove(callback);
+    }
+}
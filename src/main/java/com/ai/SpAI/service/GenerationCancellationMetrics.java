@@ -0,0 +1,45 @@
+package com.ai.SpAI.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts abandoned generations and estimates the model time they would still have used,
+ * based on a moving average of the generations that ran to completion.
+ */
+@Component
+public class GenerationCancellationMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationCancellationMetrics.class);
+
+    private final MeterRegistry meterRegistry;
+    private final Counter gpuSecondsSaved;
+    private volatile double averageGenerationMs = 30000;
+
+    public GenerationCancellationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.gpuSecondsSaved = Counter.builder("ai.generation.gpu_seconds_saved")
+                .description("Estimated model seconds not spent because generations were cancelled")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public void recordCompleted(long elapsedMs) {
+        averageGenerationMs = averageGenerationMs * 0.9 + elapsedMs * 0.1;
+    }
+
+    public void recordCancelled(String reason, long elapsedMs) {
+        double savedSeconds = Math.max(0, averageGenerationMs - elapsedMs) / 1000.0;
+        Counter.builder("ai.generation.cancelled")
+                .description("Generations aborted before completion")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        gpuSecondsSaved.increment(savedSeconds);
+        logger.info("Generation cancelled ({}) after {} ms, ~{}s of model time saved",
+                reason, elapsedMs, String.format("%.1f", savedSeconds));
+    }
+}
@@ -0,0 +1,11 @@
+package com.ai.SpAI.service;
+
+/**
+ * Thrown when a generation is abandoned because its request deadline passed or the client went away.
+ */
+public class GenerationCancelledException extends RuntimeException {
+
+    public GenerationCancelledException(String message) {
+        super(message);
+    }
+}
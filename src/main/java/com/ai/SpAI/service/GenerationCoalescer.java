@@ -0,0 +1,282 @@
+package com.ai.SpAI.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight layer in front of the model: concurrent callers asking for the same
+ * canonical prompt share one in-flight generation instead of each queueing their own.
+ * The first caller runs the generation on its own thread, everyone else waits on its future.
+ * <p>
+ * Every caller holds a seat on the flight until it gets the result or gives up through its own
+ * deadline or {@link GenerationCancellation}. The model call is cancelled only when the last seat
+ * is given up, so a leader whose client disconnects, or a preempted cache warmer, no longer takes
+ * the callers that joined it down with it.
+ */
+@Component
+public class GenerationCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationCoalescer.class);
+
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Counter originated;
+    private final Counter coalesced;
+
+    public GenerationCoalescer(MeterRegistry meterRegistry) {
+        this.originated = Counter.builder("ai.generation.coalescer.calls")
+                .description("Generations started against the model")
+                .tag("result", "originated")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("ai.generation.coalescer.calls")
+                .description("Callers that joined an identical in-flight generation")
+                .tag("result", "coalesced")
+                .register(meterRegistry);
+        Gauge.builder("ai.generation.coalescer.in_flight", inFlight, Map::size)
+                .description("Distinct generations currently running")
+                .register(meterRegistry);
+    }
+
+    public String execute(String namespace, String prompt, Supplier<String> generation) {
+        String key = namespace + ':' + canonicalize(prompt);
+        GenerationContext context = GenerationContext.current();
+
+        while (true) {
+            Flight ours = new Flight();
+            Flight existing = inFlight.putIfAbsent(key, ours);
+
+            if (existing != null) {
+                if (!existing.join()) {
+                    // Everyone left and the generation is being cancelled; start a fresh one.
+                    inFlight.remove(key, existing);
+                    continue;
+                }
+                coalesced.increment();
+                logger.debug("Joining in-flight {} generation", namespace);
+                try {
+                    return await(existing, context);
+                } catch (FlightCancelledException e) {
+                    // Everyone else gave up on it before it finished; that says nothing about us.
+                    logger.debug("Shared {} generation was cancelled, retrying", namespace);
+                    continue;
+                }
+            }
+
+            originated.increment();
+            try {
+                String result = lead(ours, context, generation);
+                ours.result.complete(result);
+                return result;
+            } catch (RuntimeException | Error e) {
+                ours.result.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, ours);
+            }
+        }
+    }
+
+    /**
+     * Non-blocking {@link #execute}: joiners subscribe to the leader's result instead of waiting
+     * on it. The generation is subscribed independently of any one caller and disposed when the
+     * last subscriber cancels.
+     */
+    public Mono<String> executeReactive(String namespace, String prompt, Supplier<Mono<String>> generation) {
+        return Mono.defer(() -> {
+            String key = namespace + ':' + canonicalize(prompt);
+            Flight ours = new Flight();
+            Flight existing = inFlight.putIfAbsent(key, ours);
+
+            if (existing != null) {
+                if (!existing.join()) {
+                    inFlight.remove(key, existing);
+                    return executeReactive(namespace, prompt, generation);
+                }
+                coalesced.increment();
+                logger.debug("Joining in-flight {} generation", namespace);
+                return subscribe(existing)
+                        .onErrorResume(GenerationCancelledException.class,
+                                e -> executeReactive(namespace, prompt, generation));
+            }
+
+            originated.increment();
+            ours.result.whenComplete((result, error) -> inFlight.remove(key, ours));
+            Disposable subscription = generation.get().subscribe(
+                    ours.result::complete,
+                    ours.result::completeExceptionally,
+                    () -> ours.result.complete(null));
+            ours.cancellation.onCancel(() -> {
+                subscription.dispose();
+                ours.result.completeExceptionally(
+                        new GenerationCancelledException("Shared " + namespace + " generation was cancelled"));
+            });
+            return subscribe(ours);
+        });
+    }
+
+    static String canonicalize(String prompt) {
+        return prompt == null ? "" : prompt.strip().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Runs the generation on the leader's thread. A bounded leader gives the model call the
+     * flight's cancellation instead of its own, and only gives up its seat when its own deadline
+     * or cancellation fires.
+     */
+    private static String lead(Flight flight, GenerationContext context, Supplier<String> generation) {
+        if (!context.isBounded()) {
+            // An unbounded caller never leaves, so the flight can never be cancelled.
+            return GenerationContext.callWith(context, generation);
+        }
+
+        Seat seat = new Seat(flight);
+        GenerationCancellation own = context.getCancellation();
+        Runnable leaveOnCancel = () -> seat.leave(own.getReason());
+        if (own != null) {
+            own.onCancel(leaveOnCancel);
+        }
+        CompletableFuture<Boolean> deadline = new CompletableFuture<>();
+        if (context.hasDeadline()) {
+            deadline.completeOnTimeout(Boolean.TRUE, context.remainingMs(), TimeUnit.MILLISECONDS)
+                    .thenAccept(expired -> {
+                        if (expired) {
+                            seat.leave("deadline");
+                        }
+                    });
+        }
+        try {
+            return GenerationContext.callWith(context.sharedAs(flight.cancellation), generation);
+        } finally {
+            deadline.complete(Boolean.FALSE);
+            if (own != null) {
+                own.removeCallback(leaveOnCancel);
+            }
+        }
+    }
+
+    /**
+     * Waits for a flight the caller joined, giving up its seat when its own deadline passes or
+     * its cancellation fires.
+     */
+    private static String await(Flight flight, GenerationContext context) {
+        Seat seat = new Seat(flight);
+        // A dependent future, so that abandoning our wait leaves the shared result alone.
+        CompletableFuture<String> ours = flight.result.thenApply(Function.identity());
+        GenerationCancellation own = context.getCancellation();
+        Runnable abandon = () -> ours.cancel(false);
+        if (own != null) {
+            own.onCancel(abandon);
+        }
+        try {
+            return context.hasDeadline()
+                    ? ours.get(context.remainingMs(), TimeUnit.MILLISECONDS)
+                    : ours.get();
+        } catch (TimeoutException e) {
+            seat.leave("deadline");
+            throw new GenerationCancelledException("Generation exceeded the request deadline");
+        } catch (CancellationException e) {
+            String reason = own != null && own.getReason() != null ? own.getReason() : "cancelled";
+            seat.leave(reason);
+            throw new GenerationCancelledException("Generation cancelled: " + reason);
+        } catch (InterruptedException e) {
+            seat.leave("interrupted");
+            Thread.currentThread().interrupt();
+            throw new GenerationCancelledException("Generation interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof GenerationCancelledException) {
+                throw new FlightCancelledException();
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Generation failed", e.getCause());
+        } finally {
+            if (own != null) {
+                own.removeCallback(abandon);
+            }
+        }
+    }
+
+    private static Mono<String> subscribe(Flight flight) {
+        Seat seat = new Seat(flight);
+        return Mono.fromFuture(flight.result, true)
+                .doOnCancel(() -> seat.leave("cancelled"));
+    }
+
+    /**
+     * One shared generation and the number of callers still waiting for it.
+     */
+    private static final class Flight {
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        private final GenerationCancellation cancellation = new GenerationCancellation();
+        private int waiters = 1;
+
+        /**
+         * Takes a seat, or returns false when the last caller already left and the generation
+         * is being cancelled.
+         */
+        private synchronized boolean join() {
+            if (waiters == 0) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        private void leave(String reason) {
+            boolean last;
+            synchronized (this) {
+                last = --waiters == 0;
+            }
+            if (last && !result.isDone()) {
+                cancellation.cancel(reason != null ? reason : "cancelled");
+            }
+        }
+    }
+
+    /**
+     * The flight a caller joined was cancelled for reasons of its own, not the caller's.
+     */
+    private static final class FlightCancelledException extends RuntimeException {
+        private FlightCancelledException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * One caller's place on a flight; leaving twice counts once.
+     */
+    private static final class Seat {
+        private final Flight flight;
+        private final AtomicBoolean left = new AtomicBoolean();
+
+        private Seat(Flight flight) {
+            this.flight = flight;
+        }
+
+        private void leave(String reason) {
+            if (left.compareAndSet(false, true)) {
+                flight.leave(reason);
+            }
+        }
+    }
+}
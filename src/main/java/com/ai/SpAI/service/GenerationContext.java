@@ -0,0 +1,137 @@
+package com.ai.SpAI.service;
+
+import com.ai.SpAI.util.RateLimiter;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread attributes of the generation being requested, read by the model wrappers
+ * further down the stack. Calls made without a context are interactive and unbounded.
+ */
+public final class GenerationContext {
+
+    private static final GenerationContext DEFAULT =
+            new GenerationContext(GenerationPriority.INTERACTIVE, 0, null, null, 1);
+    private static final ThreadLocal<GenerationContext> CURRENT = new ThreadLocal<>();
+
+    private final GenerationPriority priority;
+    private final long deadline;
+    private final GenerationCancellation cancellation;
+    private final String user;
+    private final double cost;
+
+    private GenerationContext(GenerationPriority priority, long deadline, GenerationCancellation cancellation,
+                              String user, double cost) {
+        this.priority = priority;
+        this.deadline = deadline;
+        this.cancellation = cancellation;
+        this.user = user;
+        this.cost = cost;
+    }
+
+    /**
+     * A context whose generation must finish within {@code timeoutMs} and can be cancelled early
+     * through {@code cancellation}.
+     */
+    public static GenerationContext of(GenerationPriority priority, long timeoutMs, GenerationCancellation cancellation) {
+        long deadline = timeoutMs > 0 ? System.currentTimeMillis() + timeoutMs : 0;
+        return new GenerationContext(priority, deadline, cancellation, null, 1);
+    }
+
+    /**
+     * This context on behalf of {@code user}. Needed when the generation runs off the request
+     * thread, where the caller can no longer be looked up.
+     */
+    public GenerationContext forUser(String user) {
+        return new GenerationContext(priority, deadline, cancellation, user, cost);
+    }
+
+    /**
+     * This context for a generation shared with other callers: the deadline is dropped and the
+     * cancellation replaced by the shared one, which fires only once every caller has given up.
+     */
+    public GenerationContext sharedAs(GenerationCancellation shared) {
+        return new GenerationContext(priority, 0, shared, getUser(), cost);
+    }
+
+    /**
+     * This context with its cancellation replaced, for work that can be abandoned on its own
+     * (for example the sibling days of a fanned-out itinerary once one of them failed).
+     */
+    public GenerationContext withCancellation(GenerationCancellation replacement) {
+        return new GenerationContext(priority, deadline, replacement, user, cost);
+    }
+
+    public static GenerationContext current() {
+        GenerationContext context = CURRENT.get();
+        return context != null ? context : DEFAULT;
+    }
+
+    public static GenerationPriority currentPriority() {
+        return current().priority;
+    }
+
+    public static <T> T callWith(GenerationPriority priority, Supplier<T> action) {
+        GenerationContext context = current();
+        return callWith(new GenerationContext(priority, context.deadline, context.cancellation,
+                context.user, context.cost), action);
+    }
+
+    /**
+     * Runs {@code action} with the current context, charging {@code cost} units of model time
+     * for fair queuing between users.
+     */
+    public static <T> T callWithCost(double cost, Supplier<T> action) {
+        GenerationContext context = current();
+        return callWith(new GenerationContext(context.priority, context.deadline, context.cancellation,
+                context.user, cost), action);
+    }
+
+    public static <T> T callWith(GenerationContext context, Supplier<T> action) {
+        GenerationContext previous = CURRENT.get();
+        CURRENT.set(context);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public GenerationPriority getPriority() {
+        return priority;
+    }
+
+    public GenerationCancellation getCancellation() {
+        return cancellation;
+    }
+
+    /**
+     * Who the generation is for; defaults to the caller of the current request.
+     */
+    public String getUser() {
+        return user != null ? user : RateLimiter.currentUser();
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public boolean hasDeadline() {
+        return deadline > 0;
+    }
+
+    /**
+     * True when the generation may be abandoned early, either by deadline or by cancellation.
+     */
+    public boolean isBounded() {
+        return deadline > 0 || cancellation != null;
+    }
+
+    public long remainingMs() {
+        return deadline > 0 ? Math.max(0, deadline - System.currentTimeMillis()) : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,200 @@
+package com.ai.SpAI.service;
+
+import com.ai.SpAI.cache.CacheKeyCanonicalizer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Predicts how long a generation will be before it is started, and applies the per-request
+ * limits: requests beyond the hard caps are rejected with an {@link IllegalArgumentException}
+ * (answered as 400 by the controllers), requests whose expected answer exceeds
+ * {@code max-output-tokens} are downgraded to a briefer answer. The estimate also sets the
+ * model's {@code num_predict}, so a runaway generation stops at a sensible length.
+ * <p>
+ * The per-user budget is the {@link com.ai.SpAI.util.RateLimiter} bucket, charged with
+ * {@link GenerationEstimate#cost()}.
+ */
+@Component
+public class GenerationCostModel {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    // Prompt processing runs much faster than generation.
+    private static final double PREFILL_SPEEDUP = 20;
+    // Room above the estimate before num_predict cuts an answer off.
+    private static final double NUM_PREDICT_HEADROOM = 1.25;
+    private static final int MIN_NUM_PREDICT = 128;
+
+    private final double tokensPerSecond;
+    private final int maxOutputTokens;
+    private final int maxItineraryDays;
+    private final int maxIngredients;
+    private final int maxPromptChars;
+
+    private final MeterRegistry meterRegistry;
+
+    public GenerationCostModel(MeterRegistry meterRegistry,
+                               @Value("${app.ai.cost.tokens-per-second:30}") double tokensPerSecond,
+                               @Value("${app.ai.admission.max-output-tokens:2048}") int maxOutputTokens,
+                               @Value("${app.ai.admission.max-itinerary-days:14}") int maxItineraryDays,
+                               @Value("${app.ai.admission.max-ingredients:30}") int maxIngredients,
+                               @Value("${app.ai.admission.max-prompt-chars:8000}") int maxPromptChars) {
+        this.meterRegistry = meterRegistry;
+        this.tokensPerSecond = tokensPerSecond;
+        this.maxOutputTokens = maxOutputTokens;
+        this.maxItineraryDays = maxItineraryDays;
+        this.maxIngredients = maxIngredients;
+        this.maxPromptChars = maxPromptChars;
+    }
+
+    public GenerationEstimate itinerary(int days, String interests) {
+        if (days > maxItineraryDays) {
+            throw reject("itinerary", "Itineraries are limited to " + maxItineraryDays + " days");
+        }
+        int interestCount = countItems(interests);
+        return estimate("itinerary", 250 + 10 * interestCount, itineraryTokens(days, interestCount));
+    }
+
+    /**
+     * A run of consecutive days of an itinerary too long to write in one answer; the prompt
+     * also carries a summary of the days before it.
+     */
+    public GenerationEstimate itineraryPart(int days, String interests) {
+        int interestCount = countItems(interests);
+        return estimate("itinerary_part", 250 + 10 * interestCount + 30 * days, itineraryTokens(days, interestCount));
+    }
+
+    /**
+     * The most days of an itinerary that one answer can hold without being downgraded.
+     */
+    public int itineraryDaysPerCall(String interests) {
+        int interestCount = countItems(interests);
+        int days = 1;
+        while (itineraryTokens(days + 1, interestCount) <= maxOutputTokens) {
+            days++;
+        }
+        return days;
+    }
+
+    /**
+     * The short day-by-day theme list that a fanned-out itinerary starts from.
+     */
+    public GenerationEstimate itineraryOutline(int days) {
+        return estimate("itinerary_outline", 150, outlineTokens(days));
+    }
+
+    /**
+     * One day of a fanned-out itinerary.
+     */
+    public GenerationEstimate itineraryDay(String interests) {
+        int interestCount = countItems(interests);
+        return estimate("itinerary_day", 250 + 10 * interestCount, dayTokens(interestCount));
+    }
+
+    /**
+     * What a fanned-out itinerary generates in total: the outline covering the longest allowed
+     * trip plus one call per day. Unlike {@link #itinerary} this is not capped at one answer.
+     */
+    public double itineraryFanOutCost(int days, String interests) {
+        int interestCount = countItems(interests);
+        int outlineDays = Math.max(days, maxItineraryDays);
+        double outline = size(150, outlineTokens(outlineDays)).cost();
+        double day = size(250 + 10 * interestCount, dayTokens(interestCount)).cost();
+        return outline + days * day;
+    }
+
+    /**
+     * What a downgraded structured itinerary generates in total: one {@link #itineraryPart} for
+     * every {@link #itineraryDaysPerCall} days.
+     */
+    public double itineraryPartsCost(int days, String interests) {
+        int interestCount = countItems(interests);
+        int daysPerCall = itineraryDaysPerCall(interests);
+        double cost = 0;
+        for (int first = 1; first <= days; first += daysPerCall) {
+            int partDays = Math.min(days, first + daysPerCall - 1) - first + 1;
+            cost += size(250 + 10 * interestCount + 30 * partDays, itineraryTokens(partDays, interestCount)).cost();
+        }
+        return cost;
+    }
+
+    public int maxItineraryDays() {
+        return maxItineraryDays;
+    }
+
+    public GenerationEstimate recipe(String ingredients) {
+        int ingredientCount = countItems(ingredients);
+        if (ingredientCount > maxIngredients) {
+            throw reject("recipe", "Recipes are limited to " + maxIngredients + " ingredients");
+        }
+        return estimate("recipe", 80 + 5 * ingredientCount, 350 + 20 * ingredientCount);
+    }
+
+    /**
+     * One rewritten step of a saved recipe; the prompt carries the whole recipe for context.
+     */
+    public GenerationEstimate recipeStep() {
+        return estimate("recipe_step", 300, 120);
+    }
+
+    public GenerationEstimate chat(String prompt) {
+        if (prompt.length() > maxPromptChars) {
+            throw reject("chat", "Prompts are limited to " + maxPromptChars + " characters");
+        }
+        int promptTokens = prompt.length() / CHARS_PER_TOKEN + 1;
+        return estimate("chat", promptTokens, 256 + Math.min(promptTokens, 1024) / 2);
+    }
+
+    private static int itineraryTokens(int days, int interestCount) {
+        return 120 + 220 * days + 20 * interestCount;
+    }
+
+    private static int outlineTokens(int days) {
+        return 40 + 25 * days;
+    }
+
+    private static int dayTokens(int interestCount) {
+        return 250 + 20 * interestCount;
+    }
+
+    private GenerationEstimate estimate(String kind, int promptTokens, int expectedTokens) {
+        GenerationEstimate estimate = size(promptTokens, expectedTokens);
+        decisions(kind, estimate.downgraded() ? "downgraded" : "admitted").increment();
+        return estimate;
+    }
+
+    private GenerationEstimate size(int promptTokens, int expectedTokens) {
+        boolean downgraded = expectedTokens > maxOutputTokens;
+        int outputTokens = Math.min(expectedTokens, maxOutputTokens);
+        int numPredict = Math.max(MIN_NUM_PREDICT,
+                Math.min(maxOutputTokens, (int) Math.ceil(outputTokens * NUM_PREDICT_HEADROOM)));
+        double gpuSeconds = (outputTokens + promptTokens / PREFILL_SPEEDUP) / tokensPerSecond;
+        return new GenerationEstimate(promptTokens, outputTokens, gpuSeconds, numPredict, downgraded);
+    }
+
+    private IllegalArgumentException reject(String kind, String message) {
+        decisions(kind, "rejected").increment();
+        return new IllegalArgumentException(message);
+    }
+
+    private Counter decisions(String kind, String result) {
+        return Counter.builder("ai.admission.decisions")
+                .description("Generation requests admitted, downgraded or rejected by the cost model")
+                .tag("kind", kind)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static int countItems(String list) {
+        if (list == null || list.isBlank()) {
+            return 0;
+        }
+        return (int) Arrays.stream(CacheKeyCanonicalizer.LIST_SEPARATORS.split(list.toLowerCase(Locale.ROOT)))
+                .filter(item -> !item.isBlank())
+                .count();
+    }
+}
@@ -0,0 +1,25 @@
+package com.ai.SpAI.service;
+
+/**
+ * Predicted size of one generation, produced by {@link GenerationCostModel}.
+ *
+ * @param promptTokens approximate prompt length in tokens
+ * @param outputTokens expected answer length in tokens, after any downgrade
+ * @param gpuSeconds   expected model time
+ * @param numPredict   hard cap on generated tokens passed to the model
+ * @param downgraded   the request asked for more than the per-request budget and should be
+ *                     answered more briefly
+ */
+public record GenerationEstimate(int promptTokens, int outputTokens, double gpuSeconds,
+                                 int numPredict, boolean downgraded) {
+
+    // One cost unit is roughly one itinerary day of output.
+    private static final double TOKENS_PER_COST_UNIT = 250;
+
+    /**
+     * Cost in the units charged by the rate limiter and the fair-share scheduler.
+     */
+    public double cost() {
+        return Math.max(1, outputTokens / TOKENS_PER_COST_UNIT);
+    }
+}
@@ -0,0 +1,244 @@
+package com.ai.SpAI.service;
+
+import com.ai.SpAI.dto.GenerationJobRequest;
+import com.ai.SpAI.entity.GenerationJob;
+import com.ai.SpAI.repository.GenerationJobRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Durable generation jobs: created by the API, claimed and run by {@link GenerationJobWorker}s on
+ * any node, and kept for {@code result-ttl-ms} after they finish.
+ * <p>
+ * Long-poll waiters are completed directly when the job finishes on this node, and by a periodic
+ * check of the table for jobs that finished elsewhere.
+ */
+@Service
+public class GenerationJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationJobService.class);
+    private static final EnumSet<GenerationJob.Status> PENDING =
+            EnumSet.of(GenerationJob.Status.QUEUED, GenerationJob.Status.RUNNING);
+
+    private final GenerationJobRepository repository;
+    private final ObjectMapper objectMapper;
+    private final long resultTtlMs;
+    private final int maxAttempts;
+    private final int maxPendingPerUser;
+    private final Map<String, CompletableFuture<GenerationJob>> waiters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public GenerationJobService(GenerationJobRepository repository,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.ai.jobs.result-ttl-ms:86400000}") long resultTtlMs,
+                                @Value("${app.ai.jobs.max-attempts:3}") int maxAttempts,
+                                @Value("${app.ai.jobs.max-pending-per-user:10}") int maxPendingPerUser) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.resultTtlMs = resultTtlMs;
+        this.maxAttempts = maxAttempts;
+        this.maxPendingPerUser = maxPendingPerUser;
+    }
+
+    /**
+     * Queues a job for {@code userId}, or returns empty when the user already has
+     * {@code max-pending-per-user} jobs waiting or running.
+     */
+    public Optional<GenerationJob> create(String userId, GenerationJobRequest request) {
+        if (repository.countByUserIdAndStatusIn(userId, PENDING) >= maxPendingPerUser) {
+            return Optional.empty();
+        }
+        GenerationJob job = new GenerationJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setUserId(userId);
+        job.setType(request.getType());
+        job.setStatus(GenerationJob.Status.QUEUED);
+        try {
+            job.setRequest(objectMapper.writeValueAsString(request));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid job request", e);
+        }
+        GenerationJob saved = repository.save(job);
+        count(saved.getType(), "queued");
+        return Optional.of(saved);
+    }
+
+    /**
+     * The job, unless it does not exist or its result has expired.
+     */
+    public Optional<GenerationJob> find(String id) {
+        return repository.findById(id)
+                .filter(job -> job.getExpiresAt() == null || job.getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    public GenerationJobRequest requestOf(GenerationJob job) {
+        try {
+            return objectMapper.readValue(job.getRequest(), GenerationJobRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unreadable job request", e);
+        }
+    }
+
+    /**
+     * Claims up to {@code limit} runnable jobs for {@code workerId}, leasing them for
+     * {@code leaseMs}: jobs whose lease expired first, then queued ones. Jobs that already used
+     * up their attempts are failed instead.
+     */
+    @Transactional
+    public List<GenerationJob> claim(String workerId, int limit, long leaseMs) {
+        LocalDateTime now = LocalDateTime.now();
+        List<GenerationJob> runnable = new ArrayList<>(repository.lockExpiredLeases(now, limit));
+        if (runnable.size() < limit) {
+            runnable.addAll(repository.lockQueued(limit - runnable.size()));
+        }
+        List<GenerationJob> claimed = new ArrayList<>();
+        for (GenerationJob job : runnable) {
+            if (job.getAttempts() >= maxAttempts) {
+                // Its worker kept dying or timing out on it.
+                finish(job, GenerationJob.Status.FAILED, null, "Gave up after " + job.getAttempts() + " attempts");
+                continue;
+            }
+            job.setStatus(GenerationJob.Status.RUNNING);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setWorkerId(workerId);
+            job.setStartedAt(now);
+            job.setLeaseUntil(now.plusNanos(leaseMs * 1_000_000));
+            claimed.add(job);
+        }
+        return claimed;
+    }
+
+    @Transactional
+    public void succeed(String id, String workerId, String result) {
+        update(id, workerId, GenerationJob.Status.SUCCEEDED, result, null);
+    }
+
+    @Transactional
+    public void fail(String id, String workerId, String error) {
+        update(id, workerId, GenerationJob.Status.FAILED, null, error);
+    }
+
+    /**
+     * Puts a job back in the queue after a transient failure. An attempt refused for overload is
+     * not counted against the job.
+     */
+    @Transactional
+    public void requeue(String id, String workerId, boolean countAttempt) {
+        repository.findById(id)
+                .filter(job -> job.getStatus() == GenerationJob.Status.RUNNING && workerId.equals(job.getWorkerId()))
+                .ifPresent(job -> {
+                    if (!countAttempt) {
+                        job.setAttempts(job.getAttempts() - 1);
+                    }
+                    job.setStatus(GenerationJob.Status.QUEUED);
+                    job.setWorkerId(null);
+                    job.setLeaseUntil(null);
+                    count(job.getType(), "requeued");
+                });
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Completes once the job has finished, on whichever node it ran.
+     */
+    public CompletableFuture<GenerationJob> awaitFinished(String id) {
+        return waiters.computeIfAbsent(id, key -> new CompletableFuture<>());
+    }
+
+    @Scheduled(fixedDelayString = "${app.ai.jobs.poll-interval-ms:1000}")
+    void completeRemoteWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(waiters.keySet());
+        Map<String, GenerationJob> jobs = new HashMap<>();
+        repository.findAllById(ids).forEach(job -> jobs.put(job.getId(), job));
+        for (String id : ids) {
+            GenerationJob job = jobs.get(id);
+            if (job == null) {
+                // Expired and purged; nobody will see it finish.
+                CompletableFuture<GenerationJob> waiter = waiters.remove(id);
+                if (waiter != null) {
+                    waiter.cancel(false);
+                }
+            } else if (job.isFinished()) {
+                notifyWaiters(job);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.ai.jobs.purge-interval-ms:600000}")
+    @Transactional
+    public void purgeExpired() {
+        int purged = repository.deleteExpired(LocalDateTime.now());
+        if (purged > 0) {
+            logger.info("Purged {} expired generation jobs", purged);
+        }
+    }
+
+    private void update(String id, String workerId, GenerationJob.Status status, String result, String error) {
+        Optional<GenerationJob> found = repository.findById(id);
+        if (found.isEmpty()) {
+            return;
+        }
+        GenerationJob job = found.get();
+        if (job.getStatus() != GenerationJob.Status.RUNNING || !workerId.equals(job.getWorkerId())) {
+            // Our lease ran out and another worker took the job over; its outcome wins.
+            logger.warn("Dropping outcome of job {}: no longer leased to {}", id, workerId);
+            return;
+        }
+        finish(job, status, result, error);
+        notifyWaiters(job);
+    }
+
+    private void finish(GenerationJob job, GenerationJob.Status status, String result, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        job.setStatus(status);
+        job.setResult(result);
+        job.setError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+        job.setFinishedAt(now);
+        job.setLeaseUntil(null);
+        job.setExpiresAt(now.plusNanos(resultTtlMs * 1_000_000));
+        count(job.getType(), status.name().toLowerCase());
+    }
+
+    private void notifyWaiters(GenerationJob job) {
+        CompletableFuture<GenerationJob> waiter = waiters.remove(job.getId());
+        if (waiter != null) {
+            waiter.complete(job);
+        }
+    }
+
+    private void count(GenerationJob.Type type, String event) {
+        Counter.builder("ai.jobs.events")
+                .description("Generation job lifecycle events")
+                .tag("type", type.name().toLowerCase())
+                .tag("event", event)
+                .register(meterRegistry)
+                .increment();
+    }
+}
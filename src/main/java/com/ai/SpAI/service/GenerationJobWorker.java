@@ -0,0 +1,128 @@
+package com.ai.SpAI.service;
+
+import com.ai.SpAI.dto.GenerationJobRequest;
+import com.ai.SpAI.dto.TravelPlanRequest;
+import com.ai.SpAI.entity.GenerationJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls the job table and runs claimed jobs on the generation executor at ASYNC priority, so
+ * they yield to interactive requests in the scheduler. Each node runs one worker; a job whose
+ * worker dies is picked up again by any node once its lease runs out.
+ */
+@Component
+public class GenerationJobWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationJobWorker.class);
+
+    private final GenerationJobService jobService;
+    private final ChatService chatService;
+    private final RecipeService recipeService;
+    private final TravelPlannerService travelPlannerService;
+    private final GenerationCostModel costModel;
+    private final Executor executor;
+    private final String workerId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Value("${app.ai.jobs.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ai.jobs.concurrency:4}")
+    private int concurrency;
+
+    @Value("${app.ai.jobs.lease-ms:300000}")
+    private long leaseMs;
+
+    public GenerationJobWorker(GenerationJobService jobService, ChatService chatService,
+                               RecipeService recipeService, TravelPlannerService travelPlannerService,
+                               GenerationCostModel costModel,
+                               @Qualifier("generationExecutor") Executor executor) {
+        this.jobService = jobService;
+        this.chatService = chatService;
+        this.recipeService = recipeService;
+        this.travelPlannerService = travelPlannerService;
+        this.costModel = costModel;
+        this.executor = executor;
+    }
+
+    @Scheduled(fixedDelayString = "${app.ai.jobs.poll-interval-ms:1000}")
+    public void poll() {
+        int free = concurrency - inFlight.get();
+        if (!enabled || free <= 0) {
+            return;
+        }
+        List<GenerationJob> claimed;
+        try {
+            claimed = jobService.claim(workerId, free, leaseMs);
+        } catch (Exception e) {
+            logger.warn("Failed to claim generation jobs: {}", e.getMessage());
+            return;
+        }
+        for (GenerationJob job : claimed) {
+            inFlight.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        run(job);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                jobService.requeue(job.getId(), workerId, false);
+            }
+        }
+    }
+
+    private void run(GenerationJob job) {
+        long startTime = System.currentTimeMillis();
+        // Give up a little before the lease runs out, so another worker never starts a job we are still running
+        GenerationContext context = GenerationContext.of(GenerationPriority.ASYNC, leaseMs * 9 / 10, null)
+                .forUser(job.getUserId());
+        try {
+            String result = GenerationContext.callWith(context, () -> generate(jobService.requestOf(job)));
+            jobService.succeed(job.getId(), workerId, result);
+            logger.info("Generation job {} ({}) finished in {} ms", job.getId(), job.getType(),
+                    System.currentTimeMillis() - startTime);
+        } catch (GenerationOverloadedException e) {
+            logger.info("Backend overloaded, requeueing generation job {}", job.getId());
+            jobService.requeue(job.getId(), workerId, false);
+        } catch (IllegalArgumentException | GenerationCancelledException e) {
+            logger.warn("Generation job {} failed: {}", job.getId(), e.getMessage());
+            jobService.fail(job.getId(), workerId, e.getMessage());
+        } catch (Exception e) {
+            logger.error("Generation job {} attempt {} failed: {}", job.getId(), job.getAttempts(), e.getMessage(), e);
+            if (job.getAttempts() < jobService.maxAttempts()) {
+                jobService.requeue(job.getId(), workerId, true);
+            } else {
+                jobService.fail(job.getId(), workerId, "Generation failed. Please try again.");
+            }
+        }
+    }
+
+    private String generate(GenerationJobRequest request) {
+        return switch (request.getType()) {
+            case CHAT -> chatService.getResponse(request.getPrompt().trim(), costModel.chat(request.getPrompt().trim()));
+            case RECIPE -> recipeService.createRecipe(request.getIngredients().trim(),
+                    request.getCuisine().trim().toLowerCase(), request.getDietaryRestrictions().trim(),
+                    costModel.recipe(request.getIngredients().trim()));
+            case ITINERARY -> travelPlannerService.generateItinerary(
+                    new TravelPlanRequest(request.getDestination().trim(), request.getDays(),
+                            request.getInterests().trim(), request.getBudget().trim().toLowerCase()),
+                    costModel.itinerary(request.getDays(), request.getInterests()));
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package com.ai.SpAI.service;
+
+/**
+ * Thrown when the model backends are saturated and the dispatch queue cannot take another call.
+ * {@code GenerationOverloadedAdvice} translates it into a 503 with a Retry-After hint.
+ */
+public class GenerationOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public GenerationOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
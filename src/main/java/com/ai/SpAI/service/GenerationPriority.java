@@ -0,0 +1,10 @@
+package com.ai.SpAI.service;
+
+/**
+ * Dispatch priority of a model call. Lower ordinal wins when calls queue for a backend slot.
+ */
+public enum GenerationPriority {
+    INTERACTIVE,
+    ASYNC,
+    BACKGROUND
+}
@@ -0,0 +1,32 @@
+package com.ai.SpAI.service;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/generationqueue}: per-user depth and wait times of the generation queue.
+ * Kept out of the metrics registry because user names would make unbounded tag values.
+ */
+@Component
+@Endpoint(id = "generationqueue")
+public class GenerationQueueEndpoint {
+
+    private final GenerationScheduler scheduler;
+
+    public GenerationQueueEndpoint(GenerationScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @ReadOperation
+    public Map<String, Object> queue() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("active", scheduler.active());
+        body.put("queued", scheduler.queueDepth());
+        body.put("users", scheduler.userStats());
+        return body;
+    }
+}
@@ -0,0 +1,583 @@
+package com.ai.SpAI.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+
+/**
+ * Central admission point for model calls. At most {@code maxConcurrentPerBackend} generations run
+ * per healthy backend, so slots of backends the pool ejected are not handed out; the rest wait in
+ * a bounded priority queue where interactive calls are served before async and background work.
+ * When the queue is full, or a call waited longer than {@code maxQueueWaitMs}, a
+ * {@link GenerationOverloadedException} is thrown instead of piling more work onto the model
+ * server.
+ * <p>
+ * Within a priority, slots are shared fairly between users with self-clocked fair queuing: each
+ * call gets a virtual finish time of {@code max(virtualTime, user's last finish) + cost} and the
+ * smallest finish time is served next. A user with a backlog of expensive itineraries therefore
+ * only delays a light user's chat prompt by the call already running, not by the whole backlog.
+ */
+@Component
+public class GenerationScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationScheduler.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Ticket> waiting = new PriorityQueue<>();
+    private final int maxConcurrentPerBackend;
+    private final IntSupplier healthyBackends;
+    private final int queueCapacity;
+    private final long maxQueueWaitMs;
+
+    private int running;
+    // Fair-queuing state, guarded by lock.
+    private final Map<String, UserShare> shares = new HashMap<>();
+    private double virtualTime;
+    private final Cache<String, UserWaits> recentWaits = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+    private final Set<GenerationCancellation> preemptible = ConcurrentHashMap.newKeySet();
+    private long sequence;
+    private volatile double averageServiceMs;
+
+    private final Map<GenerationPriority, Timer> queueWaitTimers = new EnumMap<>(GenerationPriority.class);
+    private final Map<GenerationPriority, Counter> rejections = new EnumMap<>(GenerationPriority.class);
+    private final Timer serviceTimer;
+
+    @Autowired
+    public GenerationScheduler(MeterRegistry meterRegistry,
+                               @Value("${app.ai.dispatch.max-concurrent-per-backend:1}") int maxConcurrentPerBackend,
+                               ObjectProvider<OllamaBackendPool> backendPool,
+                               @Value("${app.ai.dispatch.queue-capacity:50}") int queueCapacity,
+                               @Value("${app.ai.dispatch.max-queue-wait-ms:120000}") long maxQueueWaitMs) {
+        this(meterRegistry, maxConcurrentPerBackend, healthyBackendsOf(backendPool.getIfAvailable()),
+                queueCapacity, maxQueueWaitMs);
+        OllamaBackendPool pool = backendPool.getIfAvailable();
+        if (pool != null && pool.isEnabled()) {
+            pool.onHealthChange(this::admitWaiting);
+        }
+    }
+
+    /**
+     * A scheduler over {@code healthyBackends} backends, re-read whenever a slot is handed out.
+     */
+    public GenerationScheduler(MeterRegistry meterRegistry, int maxConcurrentPerBackend, IntSupplier healthyBackends,
+                               int queueCapacity, long maxQueueWaitMs) {
+        this.maxConcurrentPerBackend = Math.max(1, maxConcurrentPerBackend);
+        this.healthyBackends = healthyBackends;
+        this.queueCapacity = queueCapacity;
+        this.maxQueueWaitMs = maxQueueWaitMs;
+        this.averageServiceMs = 30000;
+
+        for (GenerationPriority priority : GenerationPriority.values()) {
+            String tag = priority.name().toLowerCase();
+            queueWaitTimers.put(priority, Timer.builder("ai.dispatch.queue.wait")
+                    .description("Time a model call waited for a backend slot")
+                    .tag("priority", tag)
+                    .register(meterRegistry));
+            rejections.put(priority, Counter.builder("ai.dispatch.rejected")
+                    .description("Model calls rejected because the dispatch queue was saturated")
+                    .tag("priority", tag)
+                    .register(meterRegistry));
+        }
+        this.serviceTimer = Timer.builder("ai.dispatch.service.time")
+                .description("Time a model call held a backend slot")
+                .register(meterRegistry);
+        Gauge.builder("ai.dispatch.queue.depth", this, GenerationScheduler::queueDepth)
+                .register(meterRegistry);
+        Gauge.builder("ai.dispatch.active", this, GenerationScheduler::active)
+                .register(meterRegistry);
+        Gauge.builder("ai.dispatch.slots", this, GenerationScheduler::slots)
+                .description("Generation slots on the backends currently in rotation")
+                .register(meterRegistry);
+        Gauge.builder("ai.dispatch.queue.users", this, GenerationScheduler::waitingUsers)
+                .description("Distinct users with calls waiting for a slot")
+                .register(meterRegistry);
+
+        logger.info("Generation scheduler: {} concurrent slots, queue capacity {}", slots(), queueCapacity);
+    }
+
+    /**
+     * Blocks until a backend slot is free for the given priority. The returned permit must be
+     * closed when the model call finishes.
+     */
+    public Permit acquire(GenerationPriority priority) {
+        return acquire(priority, Long.MAX_VALUE);
+    }
+
+    /**
+     * Like {@link #acquire(GenerationPriority)}, but gives up with a
+     * {@link GenerationCancelledException} once the caller's remaining time budget runs out.
+     */
+    public Permit acquire(GenerationPriority priority, long remainingMs) {
+        return acquire(priority, "anonymous", 1, remainingMs);
+    }
+
+    /**
+     * Like {@link #acquire(GenerationPriority, long)}, queuing fairly against other users'
+     * calls. {@code cost} is the estimated model time of the call in arbitrary units, such as
+     * days of an itinerary.
+     */
+    public Permit acquire(GenerationPriority priority, String user, double cost, long remainingMs) {
+        return acquire(priority, user, cost, remainingMs, null);
+    }
+
+    /**
+     * Like {@link #acquire(GenerationPriority, String, double, long)}, but also gives up its place
+     * in the queue with a {@link GenerationCancelledException} as soon as {@code cancellation}
+     * fires, rather than staying parked until a slot frees up.
+     */
+    public Permit acquire(GenerationPriority priority, String user, double cost, long remainingMs,
+                          GenerationCancellation cancellation) {
+        long enqueuedAt = System.nanoTime();
+        Ticket ticket = enqueue(priority, user, cost, enqueuedAt, false);
+        if (ticket == null) {
+            return grant(priority, user, enqueuedAt);
+        }
+
+        Runnable wake = ticket::wake;
+        if (cancellation != null) {
+            cancellation.onCancel(wake);
+        }
+        try {
+            boolean deadlineFirst = remainingMs < maxQueueWaitMs;
+            boolean woken = ticket.granted.await(Math.min(remainingMs, maxQueueWaitMs), TimeUnit.MILLISECONDS);
+            if (!woken || cancellation != null && cancellation.isCancelled()) {
+                lock.lock();
+                try {
+                    if (withdraw(ticket)) {
+                        if (woken) {
+                            throw new GenerationCancelledException(
+                                    "Generation cancelled while queued: " + cancellation.getReason());
+                        }
+                        if (deadlineFirst) {
+                            throw new GenerationCancelledException(
+                                    "Request deadline passed while queued for a generation slot");
+                        }
+                        throw reject(priority, "Timed out waiting for a generation slot");
+                    }
+                    // Granted while the wait timed out or was cancelled; the slot is ours.
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (InterruptedException e) {
+            lock.lock();
+            try {
+                if (!withdraw(ticket)) {
+                    releaseSlot();
+                }
+            } finally {
+                lock.unlock();
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a generation slot", e);
+        } finally {
+            if (cancellation != null) {
+                cancellation.removeCallback(wake);
+            }
+        }
+        return grant(priority, ticket.user, enqueuedAt);
+    }
+
+    /**
+     * Non-blocking {@link #acquire(GenerationPriority, String, double, long)}: the returned Mono
+     * emits the permit once a slot is free, without holding a thread while queued. Cancelling
+     * the subscription gives up the place in the queue, or the slot if it was just granted.
+     */
+    public Mono<Permit> acquireAsync(GenerationPriority priority, String user, double cost, long remainingMs) {
+        return Mono.defer(() -> {
+            long enqueuedAt = System.nanoTime();
+            Ticket ticket = enqueue(priority, user, cost, enqueuedAt, true);
+            if (ticket == null) {
+                return Mono.just(grant(priority, user, enqueuedAt));
+            }
+            boolean deadlineFirst = remainingMs < maxQueueWaitMs;
+            // The grant completes under the lock; hop off that thread before anything runs on it.
+            return Mono.fromFuture(ticket.grantedAsync, true)
+                    .publishOn(Schedulers.parallel())
+                    .timeout(Duration.ofMillis(Math.min(remainingMs, maxQueueWaitMs)),
+                            Mono.defer(() -> expire(ticket, deadlineFirst)))
+                    .<Permit>handle((granted, sink) -> {
+                        if (ticket.claimed.compareAndSet(false, true)) {
+                            sink.next(grant(priority, ticket.user, enqueuedAt));
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (ticket.claimed.compareAndSet(false, true)) {
+                            lock.lock();
+                            try {
+                                if (!withdraw(ticket)) {
+                                    releaseSlot();
+                                }
+                            } finally {
+                                lock.unlock();
+                            }
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Registers speculative background work (cache warming) that should be cancelled as soon as
+     * a user-facing call has to queue for a slot.
+     */
+    public void registerPreemptible(GenerationCancellation cancellation) {
+        preemptible.add(cancellation);
+    }
+
+    public void unregisterPreemptible(GenerationCancellation cancellation) {
+        preemptible.remove(cancellation);
+    }
+
+    /**
+     * True when a call would get a slot immediately without anyone waiting.
+     */
+    public boolean isIdle() {
+        lock.lock();
+        try {
+            return running < slots() && waiting.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * How many generations can run at once on the backends currently in rotation.
+     */
+    public int slots() {
+        return maxConcurrentPerBackend * Math.max(1, healthyBackends.getAsInt());
+    }
+
+    /**
+     * Hands slots that became available, for example after a backend was readmitted, to the
+     * calls waiting for one.
+     */
+    public void admitWaiting() {
+        lock.lock();
+        try {
+            while (running < slots() && !waiting.isEmpty()) {
+                running++;
+                handOver(waiting.poll());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queueDepth() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int active() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int waitingUsers() {
+        lock.lock();
+        try {
+            return (int) shares.values().stream().filter(share -> share.queued > 0).count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Per-user view of the queue for the {@code generationqueue} actuator endpoint: who is
+     * waiting, for how long, and how long each recent user's calls waited on average.
+     */
+    public List<UserQueueStats> userStats() {
+        long now = System.nanoTime();
+        Map<String, int[]> queued = new HashMap<>();
+        Map<String, Long> oldest = new HashMap<>();
+        lock.lock();
+        try {
+            for (Ticket ticket : waiting) {
+                queued.computeIfAbsent(ticket.user, user -> new int[1])[0]++;
+                oldest.merge(ticket.user, ticket.enqueuedAt, Math::min);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        List<UserQueueStats> stats = new ArrayList<>();
+        Map<String, UserWaits> waits = new HashMap<>(recentWaits.asMap());
+        for (String user : queued.keySet()) {
+            waits.putIfAbsent(user, new UserWaits());
+        }
+        waits.forEach((user, userWaits) -> {
+            int depth = queued.containsKey(user) ? queued.get(user)[0] : 0;
+            long oldestWaitMs = oldest.containsKey(user)
+                    ? TimeUnit.NANOSECONDS.toMillis(now - oldest.get(user)) : 0;
+            stats.add(new UserQueueStats(user, depth, oldestWaitMs,
+                    userWaits.averageWaitMs(), userWaits.served()));
+        });
+        stats.sort(Comparator.comparingInt(UserQueueStats::queued).reversed()
+                .thenComparing(UserQueueStats::user));
+        return stats;
+    }
+
+    /**
+     * Takes a slot if one is free and nobody waits, returning null; otherwise queues and returns
+     * the caller's ticket, or throws when the queue is full.
+     */
+    private Ticket enqueue(GenerationPriority priority, String user, double cost, long enqueuedAt, boolean async) {
+        Ticket ticket;
+        lock.lock();
+        try {
+            if (running < slots() && waiting.isEmpty()) {
+                running++;
+                virtualTime = shareOf(user).charge(virtualTime, cost);
+                forgetIdleShares();
+                return null;
+            }
+            if (waiting.size() >= queueCapacity) {
+                throw reject(priority, "Generation queue is full");
+            }
+            UserShare share = shareOf(user);
+            ticket = new Ticket(priority, user, share.charge(virtualTime, cost), sequence++, enqueuedAt, async);
+            share.queued++;
+            waiting.add(ticket);
+        } finally {
+            lock.unlock();
+        }
+        if (priority != GenerationPriority.BACKGROUND) {
+            preemptBackgroundWork();
+        }
+        return ticket;
+    }
+
+    private Mono<Boolean> expire(Ticket ticket, boolean deadlineFirst) {
+        lock.lock();
+        try {
+            if (withdraw(ticket)) {
+                if (deadlineFirst) {
+                    return Mono.error(new GenerationCancelledException(
+                            "Request deadline passed while queued for a generation slot"));
+                }
+                return Mono.error(reject(ticket.priority, "Timed out waiting for a generation slot"));
+            }
+            // Granted while the wait timed out; the slot is ours.
+            return Mono.just(Boolean.TRUE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void preemptBackgroundWork() {
+        for (GenerationCancellation cancellation : preemptible) {
+            cancellation.cancel("preempted");
+        }
+    }
+
+    private Permit grant(GenerationPriority priority, String user, long enqueuedAt) {
+        long waitNanos = System.nanoTime() - enqueuedAt;
+        queueWaitTimers.get(priority).record(waitNanos, TimeUnit.NANOSECONDS);
+        recentWaits.get(user, key -> new UserWaits()).record(waitNanos);
+        return new Permit();
+    }
+
+    private UserShare shareOf(String user) {
+        return shares.computeIfAbsent(user, key -> new UserShare());
+    }
+
+    /**
+     * Takes a ticket that gave up out of the queue; false if it was granted in the meantime.
+     */
+    private boolean withdraw(Ticket ticket) {
+        if (!waiting.remove(ticket)) {
+            return false;
+        }
+        shares.get(ticket.user).queued--;
+        forgetIdleShares();
+        return true;
+    }
+
+    private void forgetIdleShares() {
+        // A user with nothing queued whose finish time the clock has passed would be charged
+        // from the clock anyway, so their state can go.
+        shares.values().removeIf(other -> other.queued == 0 && other.lastFinish <= virtualTime);
+    }
+
+    private GenerationOverloadedException reject(GenerationPriority priority, String reason) {
+        rejections.get(priority).increment();
+        long retryAfter = (long) Math.ceil((waiting.size() + 1) * averageServiceMs / slots() / 1000.0);
+        retryAfter = Math.max(1, Math.min(retryAfter, 300));
+        logger.warn("{} ({} queued, {} running), rejecting {} call", reason, waiting.size(), running, priority);
+        return new GenerationOverloadedException(
+                "The AI service is busy. Please retry in " + retryAfter + " seconds.", retryAfter);
+    }
+
+    private void releaseSlot() {
+        // Slots beyond the current capacity (a backend was ejected) are retired, not handed on.
+        Ticket next = running <= slots() ? waiting.poll() : null;
+        if (next != null) {
+            // Hand the slot straight to the next waiter; running stays unchanged.
+            handOver(next);
+        } else {
+            running--;
+        }
+    }
+
+    private void handOver(Ticket next) {
+        virtualTime = Math.max(virtualTime, next.finishTag);
+        shares.get(next.user).queued--;
+        forgetIdleShares();
+        next.signal();
+    }
+
+    private static IntSupplier healthyBackendsOf(OllamaBackendPool pool) {
+        return pool != null && pool.isEnabled() ? pool::healthyBackends : () -> 1;
+    }
+
+    private void recordService(long nanos) {
+        serviceTimer.record(nanos, TimeUnit.NANOSECONDS);
+        averageServiceMs = averageServiceMs * 0.8 + (nanos / 1_000_000.0) * 0.2;
+    }
+
+    /**
+     * A held backend slot.
+     */
+    public final class Permit implements AutoCloseable {
+        private final long startedAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        @Override
+        public void close() {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            recordService(System.nanoTime() - startedAt);
+            lock.lock();
+            try {
+                releaseSlot();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Queue state of one user: how many of their calls wait, and the virtual finish time of the
+     * last one.
+     */
+    private static final class UserShare {
+        private int queued;
+        private double lastFinish;
+
+        private double charge(double virtualTime, double cost) {
+            lastFinish = Math.max(virtualTime, lastFinish) + Math.max(cost, 0.01);
+            return lastFinish;
+        }
+    }
+
+    private static final class UserWaits {
+        private long served;
+        private double averageWaitMs;
+
+        private synchronized void record(long waitNanos) {
+            double waitMs = waitNanos / 1_000_000.0;
+            averageWaitMs = served == 0 ? waitMs : averageWaitMs * 0.8 + waitMs * 0.2;
+            served++;
+        }
+
+        private synchronized double averageWaitMs() {
+            return averageWaitMs;
+        }
+
+        private synchronized long served() {
+            return served;
+        }
+    }
+
+    public record UserQueueStats(String user, int queued, long oldestWaitMs, double averageWaitMs, long served) {
+    }
+
+    private static final class Ticket implements Comparable<Ticket> {
+        private final GenerationPriority priority;
+        private final String user;
+        private final double finishTag;
+        private final long sequence;
+        private final long enqueuedAt;
+        private final CountDownLatch granted = new CountDownLatch(1);
+        // Set for acquireAsync callers only; claimed decides between the grant and a cancellation.
+        private final CompletableFuture<Boolean> grantedAsync;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Ticket(GenerationPriority priority, String user, double finishTag, long sequence, long enqueuedAt,
+                       boolean async) {
+            this.priority = priority;
+            this.user = user;
+            this.finishTag = finishTag;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+            this.grantedAsync = async ? new CompletableFuture<>() : null;
+        }
+
+        /**
+         * Wakes a blocked waiter without granting it a slot, so it can notice its cancellation.
+         */
+        private void wake() {
+            granted.countDown();
+        }
+
+        private void signal() {
+            granted.countDown();
+            if (grantedAsync != null) {
+                grantedAsync.complete(Boolean.TRUE);
+            }
+        }
+
+        @Override
+        public int compareTo(Ticket other) {
+            int byPriority = priority.compareTo(other.priority);
+            if (byPriority != 0) {
+                return byPriority;
+            }
+            int byFinish = Double.compare(finishTag, other.finishTag);
+            return byFinish != 0 ? byFinish : Long.compare(sequence, other.sequence);
+        }
+    }
+}
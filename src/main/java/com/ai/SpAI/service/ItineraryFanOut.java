@@ -0,0 +1,290 @@
+package com.ai.SpAI.service;
+
+import com.ai.SpAI.cache.CacheKeyCanonicalizer;
+import com.ai.SpAI.dto.TravelPlanRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates long itineraries as one short outline call followed by one call per day, with the
+ * days dispatched in parallel so that latency no longer grows with the trip length.
+ * <p>
+ * The outline always covers the longest allowed trip and is ordered so that every prefix makes
+ * a sensible shorter trip. It is cached without the trip length, and each day is cached under
+ * its destination, interests, budget, number and the themes up to it, so a 5-day and a 7-day
+ * trip to the same place share the outline and days 1-5.
+ * <p>
+ * Fanning out only pays off when the scheduler can run more than one generation at a time;
+ * with a single slot the days would queue behind each other, so such trips are written in one
+ * call instead. When one day fails the remaining days are cancelled.
+ */
+@Component
+public class ItineraryFanOut {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItineraryFanOut.class);
+    private static final Pattern OUTLINE_LINE =
+            Pattern.compile("(?im)^\\W*day\\s*(\\d+)\\s*[:.)\\-–—]+\\s*(.+?)\\s*$");
+    private static final String FALLBACK_THEME = "Free exploration at your own pace";
+
+    private final ChatModel chatModel;
+    private final GenerationCoalescer coalescer;
+    private final GenerationCostModel costModel;
+    private final GenerationScheduler scheduler;
+    private final CacheKeyCanonicalizer cacheKeys;
+    private final Cache dayCache;
+    private final Executor dayExecutor;
+    private final boolean enabled;
+    private final int minDays;
+
+    public ItineraryFanOut(@Qualifier("ollamaChatModel") ChatModel chatModel,
+                           GenerationCoalescer coalescer,
+                           GenerationCostModel costModel,
+                           GenerationScheduler scheduler,
+                           CacheKeyCanonicalizer cacheKeys,
+                           CacheManager cacheManager,
+                           @Qualifier("itineraryDayExecutor") Executor dayExecutor,
+                           @Value("${app.ai.itinerary.fan-out.enabled:true}") boolean enabled,
+                           @Value("${app.ai.itinerary.fan-out.min-days:3}") int minDays) {
+        this.chatModel = chatModel;
+        this.coalescer = coalescer;
+        this.costModel = costModel;
+        this.scheduler = scheduler;
+        this.cacheKeys = cacheKeys;
+        this.dayCache = cacheManager.getCache("itineraryDays");
+        this.dayExecutor = dayExecutor;
+        this.enabled = enabled;
+        this.minDays = minDays;
+    }
+
+    /**
+     * One generated day of an itinerary.
+     */
+    public record Day(int number, String theme, String text) {
+    }
+
+    public boolean appliesTo(TravelPlanRequest request) {
+        return enabled && scheduler.slots() > 1 && request.days() != null && request.days() >= minDays;
+    }
+
+    /**
+     * What the rate limiter should charge for a fanned-out trip: every call it makes, rather
+     * than the single capped answer of {@link GenerationCostModel#itinerary}.
+     */
+    public double cost(TravelPlanRequest request) {
+        return costModel.itineraryFanOutCost(request.days(), request.interests());
+    }
+
+    /**
+     * Generates every day and stitches them back together in order.
+     */
+    public String generate(TravelPlanRequest request) {
+        List<String> themes = outline(request);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Day> days = new ArrayList<>();
+        try {
+            for (CompletableFuture<Day> day : dispatch(request, themes, failure)) {
+                days.add(day.join());
+            }
+        } catch (CompletionException | CancellationException e) {
+            // Report the day that failed, not a sibling cancelled because of it.
+            throw unwrap(failure.get() != null ? failure.get() : e);
+        }
+        return stitch(request, days);
+    }
+
+    /**
+     * Emits days as they complete, which is not necessarily in order. The outline call and the
+     * waits run off the caller's thread.
+     */
+    public Flux<Day> stream(TravelPlanRequest request) {
+        GenerationContext context = captureContext();
+        return Mono.fromCallable(() -> GenerationContext.callWith(context, () -> outline(request)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(themes -> GenerationContext.callWith(context, () -> Flux.merge(
+                        dispatch(request, themes, new AtomicReference<>()).stream()
+                                .map(future -> Mono.fromFuture(future).onErrorMap(CompletionException.class, this::unwrap))
+                                .toList())));
+    }
+
+    /**
+     * Starts every day under a cancellation of their own, which fires when the caller gives up or
+     * when the first day fails; that day's error is kept in {@code failure}.
+     */
+    private List<CompletableFuture<Day>> dispatch(TravelPlanRequest request, List<String> themes,
+                                                  AtomicReference<Throwable> failure) {
+        GenerationContext context = captureContext();
+        GenerationCancellation siblings = new GenerationCancellation();
+        GenerationCancellation caller = context.getCancellation();
+        Runnable callerGaveUp = () -> siblings.cancel(caller.getReason());
+        if (caller != null) {
+            caller.onCancel(callerGaveUp);
+        }
+        GenerationContext dayContext = context.withCancellation(siblings);
+
+        List<CompletableFuture<Day>> days = new ArrayList<>();
+        for (int day = 1; day <= request.days(); day++) {
+            int number = day;
+            days.add(CompletableFuture.supplyAsync(
+                    () -> GenerationContext.callWith(dayContext, () -> day(request, themes, number)), dayExecutor));
+        }
+        for (CompletableFuture<Day> day : days) {
+            day.whenComplete((result, error) -> {
+                if (error != null && failure.compareAndSet(null, error)) {
+                    siblings.cancel("sibling_failed");
+                    days.forEach(other -> other.cancel(false));
+                }
+            });
+        }
+        if (caller != null) {
+            CompletableFuture.allOf(days.toArray(CompletableFuture[]::new))
+                    .whenComplete((ignored, error) -> caller.removeCallback(callerGaveUp));
+        }
+        return days;
+    }
+
+    private List<String> outline(TravelPlanRequest request) {
+        int outlineDays = Math.max(request.days(), costModel.maxItineraryDays());
+        String key = cacheKeys.itineraryOutline(request.destination(), request.interests(), request.budget());
+        String outline = cached(key, () -> {
+            GenerationEstimate estimate = costModel.itineraryOutline(outlineDays);
+            String promptText = String.format("""
+                    You are an expert travel consultant. Plan the themes of a trip of up to %d days.
+
+                    Destination: %s
+                    Interests: %s
+                    Budget: %s
+
+                    Write exactly one line per day in the form "Day N: theme", nothing else.
+                    Order the days so the trip still makes sense if the traveller only stays for
+                    the first few of them: the highlights come first.
+                    """, outlineDays, request.destination(), interests(request), budget(request));
+            return generate("itinerary-outline", promptText, estimate);
+        });
+        return parseOutline(outline, request.days());
+    }
+
+    private Day day(TravelPlanRequest request, List<String> themes, int number) {
+        String theme = themes.get(number - 1);
+        String themesSoFar = String.join("\n", themes.subList(0, number));
+        String key = cacheKeys.itineraryDay(request.destination(), request.interests(), request.budget(),
+                number, themesSoFar);
+        String text = cached(key, () -> {
+            GenerationEstimate estimate = costModel.itineraryDay(request.interests());
+            String earlier = number > 1
+                    ? String.join("; ", themes.subList(0, number - 1))
+                    : "none, this is the first day";
+            String promptText = String.format("""
+                    You are an expert travel consultant writing day %d of a trip to %s.
+
+                    Theme of the day: %s
+                    Earlier days covered: %s
+                    Interests: %s
+                    Budget: %s
+
+                    Describe morning, afternoon and evening activities, a recommended local
+                    restaurant or food experience, and one practical tip. Do not repeat places from
+                    earlier days. Start directly with the morning; do not add a heading.
+                    Write in a friendly, enthusiastic tone.
+                    """, number, request.destination(), theme, earlier, interests(request), budget(request));
+            return generate("itinerary-day", promptText, estimate);
+        });
+        return new Day(number, theme, text);
+    }
+
+    private String generate(String namespace, String promptText, GenerationEstimate estimate) {
+        return coalescer.execute(namespace, promptText, () -> GenerationContext.callWithCost(estimate.cost(), () -> {
+            Prompt prompt = new Prompt(promptText, OllamaOptions.builder().numPredict(estimate.numPredict()).build());
+            return chatModel.call(prompt).getResult().getOutput().getText();
+        }));
+    }
+
+    private String cached(String key, Callable<String> loader) {
+        if (dayCache == null) {
+            try {
+                return loader.call();
+            } catch (Exception e) {
+                throw unwrap(e);
+            }
+        }
+        try {
+            return dayCache.get(key, loader);
+        } catch (Cache.ValueRetrievalException e) {
+            throw unwrap(e);
+        }
+    }
+
+    static List<String> parseOutline(String outline, int days) {
+        Map<Integer, String> themes = new TreeMap<>();
+        Matcher matcher = OUTLINE_LINE.matcher(outline != null ? outline : "");
+        while (matcher.find()) {
+            themes.putIfAbsent(Integer.parseInt(matcher.group(1)), matcher.group(2).replace("*", "").strip());
+        }
+        if (themes.size() < days) {
+            logger.debug("Outline covered {} of {} days, filling the rest", themes.size(), days);
+        }
+        List<String> result = new ArrayList<>(days);
+        for (int day = 1; day <= days; day++) {
+            result.add(themes.getOrDefault(day, FALLBACK_THEME));
+        }
+        return result;
+    }
+
+    static String stitch(TravelPlanRequest request, List<Day> days) {
+        StringBuilder text = new StringBuilder()
+                .append(days.size()).append("-day itinerary for ").append(request.destination()).append("\n");
+        for (Day day : days) {
+            text.append("\nDay ").append(day.number()).append(": ").append(day.theme()).append("\n")
+                    .append(day.text().strip()).append("\n");
+        }
+        return text.toString();
+    }
+
+    /**
+     * The current context with the user resolved now, while the request is still on this thread.
+     */
+    private static GenerationContext captureContext() {
+        GenerationContext context = GenerationContext.current();
+        return context.forUser(context.getUser());
+    }
+
+    private static String interests(TravelPlanRequest request) {
+        return request.interests() != null ? request.interests() : "general sightseeing";
+    }
+
+    private static String budget(TravelPlanRequest request) {
+        return request.budget() != null ? request.budget() : "mid-range";
+    }
+
+    private RuntimeException unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof Cache.ValueRetrievalException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause.getMessage(), cause);
+    }
+}
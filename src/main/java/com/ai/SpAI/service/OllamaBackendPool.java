@@ -0,0 +1,345 @@
+package com.ai.SpAI.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.scheduling.annotation.Scheduled;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ChatModel} that spreads calls over several Ollama servers, always picking the healthy
+ * backend with the fewest outstanding requests. Backends that keep failing, fail a health check,
+ * or become much slower than their peers are ejected for a while and readmitted once their
+ * health check passes again. With no endpoints configured the pool is disabled and the single
+ * auto-configured model is used as before.
+ * <p>
+ * Speed is tracked as time per generated token, so a backend that happened to get the long
+ * answers is not mistaken for a slow one.
+ */
+public class OllamaBackendPool implements ChatModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaBackendPool.class);
+
+    private static final int MAX_CONSECUTIVE_FAILURES = 3;
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final List<Backend> backends;
+    private final ChatOptions defaultOptions;
+    private final long ejectDurationMs;
+    private final double slowFactor;
+    private final HttpClient healthClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private final List<Runnable> healthListeners = new CopyOnWriteArrayList<>();
+
+    public OllamaBackendPool(List<String> endpoints, OllamaOptions options, MeterRegistry meterRegistry,
+                             long ejectDurationMs, double slowFactor) {
+        this(buildModels(endpoints, options), options, meterRegistry, ejectDurationMs, slowFactor);
+    }
+
+    OllamaBackendPool(Map<String, ChatModel> models, ChatOptions defaultOptions, MeterRegistry meterRegistry,
+                      long ejectDurationMs, double slowFactor) {
+        this.defaultOptions = defaultOptions;
+        this.ejectDurationMs = ejectDurationMs;
+        this.slowFactor = slowFactor;
+        this.backends = new ArrayList<>();
+        models.forEach((url, model) -> backends.add(new Backend(url, model, meterRegistry)));
+        if (!backends.isEmpty()) {
+            logger.info("Ollama backend pool with {} endpoints: {}", backends.size(), models.keySet());
+        }
+    }
+
+    public static List<String> parseEndpoints(String endpoints) {
+        if (endpoints == null || endpoints.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(endpoints.split(","))
+                .map(String::trim)
+                .filter(endpoint -> !endpoint.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    public boolean isEnabled() {
+        return !backends.isEmpty();
+    }
+
+    /**
+     * Backends currently in rotation; at least one, since the pool fails open when all are ejected.
+     */
+    public int healthyBackends() {
+        return Math.max(1, (int) backends.stream().filter(backend -> !backend.ejected).count());
+    }
+
+    /**
+     * Runs {@code listener} whenever a backend is ejected or readmitted.
+     */
+    public void onHealthChange(Runnable listener) {
+        healthListeners.add(listener);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        int attempts = Math.min(2, backends.size());
+        RuntimeException lastFailure = null;
+        Backend previous = null;
+
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            Backend backend = choose(previous);
+            long start = System.nanoTime();
+            backend.outstanding.incrementAndGet();
+            try {
+                ChatResponse response = backend.model.call(prompt);
+                backend.recordSuccess(System.nanoTime() - start, generatedTokens(response, 0));
+                return response;
+            } catch (RuntimeException e) {
+                backend.recordFailure();
+                lastFailure = e;
+                previous = backend;
+                logger.warn("Ollama backend {} failed: {}", backend.url, e.getMessage());
+            } finally {
+                backend.outstanding.decrementAndGet();
+            }
+        }
+        throw lastFailure;
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            Backend backend = choose(null);
+            long start = System.nanoTime();
+            AtomicLong tokens = new AtomicLong();
+            backend.outstanding.incrementAndGet();
+            return backend.model.stream(prompt)
+                    .doOnNext(chunk -> tokens.set(generatedTokens(chunk, tokens.get())))
+                    .doOnComplete(() -> backend.recordSuccess(System.nanoTime() - start, tokens.get()))
+                    .doOnError(error -> backend.recordFailure())
+                    .doFinally(signal -> backend.outstanding.decrementAndGet());
+        });
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return defaultOptions;
+    }
+
+    /**
+     * Probes every backend with a cheap model listing, ejecting unreachable ones and letting
+     * ejected backends back in once they answer again and their ejection period is over.
+     */
+    @Scheduled(fixedDelayString = "${app.ai.ollama.health-check-interval-ms:10000}")
+    public void checkHealth() {
+        for (Backend backend : backends) {
+            boolean healthy = probe(backend);
+            if (!healthy) {
+                backend.eject("health check failed", ejectDurationMs);
+            } else if (backend.ejected && System.currentTimeMillis() >= backend.ejectedUntil) {
+                backend.readmit(medianMsPerToken(null));
+            }
+        }
+        ejectSlowOutliers();
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        for (Backend backend : backends) {
+            status.put(backend.url, Map.of(
+                    "healthy", !backend.ejected,
+                    "outstanding", backend.outstanding.get(),
+                    "msPerToken", Math.round(backend.msPerToken * 100) / 100.0));
+        }
+        return status;
+    }
+
+    Backend choose(Backend exclude) {
+        Comparator<Backend> byLoad = Comparator
+                .comparingInt((Backend backend) -> backend.outstanding.get())
+                .thenComparingDouble(backend -> backend.msPerToken);
+
+        return backends.stream()
+                .filter(backend -> backend != exclude)
+                .filter(backend -> !backend.ejected)
+                .min(byLoad)
+                // Everything is ejected: fail open rather than refusing all traffic.
+                .orElseGet(() -> backends.stream()
+                        .filter(backend -> backend != exclude || backends.size() == 1)
+                        .min(byLoad)
+                        .orElseThrow());
+    }
+
+    /**
+     * Ejects backends more than {@code slowFactor} times slower per token than the median of their
+     * peers. Each backend is compared with the others only, so in a pool of two the slow one is
+     * measured against the fast one rather than against itself.
+     */
+    void ejectSlowOutliers() {
+        long comparable = backends.stream().filter(backend -> !backend.ejected && backend.samples > 0).count();
+        if (comparable < 2) {
+            return;
+        }
+        for (Backend backend : backends) {
+            if (backend.ejected || backend.samples == 0) {
+                continue;
+            }
+            double peers = medianMsPerToken(backend);
+            if (backend.msPerToken > peers * slowFactor) {
+                backend.eject(String.format("%.2f ms/token vs %.2f ms/token for its peers", backend.msPerToken, peers),
+                        ejectDurationMs);
+            }
+        }
+    }
+
+    private double medianMsPerToken(Backend exclude) {
+        double[] speeds = backends.stream()
+                .filter(backend -> backend != exclude && !backend.ejected && backend.samples > 0)
+                .mapToDouble(backend -> backend.msPerToken)
+                .sorted()
+                .toArray();
+        if (speeds.length == 0) {
+            return 0;
+        }
+        int middle = speeds.length / 2;
+        return speeds.length % 2 == 1 ? speeds[middle] : (speeds[middle - 1] + speeds[middle]) / 2;
+    }
+
+    /**
+     * Tokens generated so far: the usage the model reported, or else an estimate from the text,
+     * added to {@code previous} for streamed chunks that report no usage.
+     */
+    private static long generatedTokens(ChatResponse response, long previous) {
+        if (response == null) {
+            return previous;
+        }
+        if (response.getMetadata() != null && response.getMetadata().getUsage() != null) {
+            Long reported = response.getMetadata().getUsage().getGenerationTokens();
+            if (reported != null && reported > 0) {
+                return reported;
+            }
+        }
+        String text = response.getResult() != null && response.getResult().getOutput() != null
+                ? response.getResult().getOutput().getText() : null;
+        return previous + (text != null ? text.length() / CHARS_PER_TOKEN : 0);
+    }
+
+    private boolean probe(Backend backend) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(backend.url + "/api/tags"))
+                    .timeout(Duration.ofSeconds(3))
+                    .GET()
+                    .build();
+            return healthClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (Exception e) {
+            logger.debug("Health check for {} failed: {}", backend.url, e.getMessage());
+            return false;
+        }
+    }
+
+    private static Map<String, ChatModel> buildModels(List<String> endpoints, OllamaOptions options) {
+        Map<String, ChatModel> models = new LinkedHashMap<>();
+        for (String endpoint : endpoints) {
+            models.put(endpoint, OllamaChatModel.builder()
+                    .ollamaApi(new OllamaApi(endpoint))
+                    .defaultOptions(OllamaOptions.fromOptions(options))
+                    .build());
+        }
+        return models;
+    }
+
+    final class Backend {
+        private final String url;
+        private final ChatModel model;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final Timer latency;
+
+        private volatile double msPerToken;
+        private volatile long samples;
+        private volatile int consecutiveFailures;
+        private volatile boolean ejected;
+        private volatile long ejectedUntil;
+
+        private Backend(String url, ChatModel model, MeterRegistry meterRegistry) {
+            this.url = url;
+            this.model = model;
+            this.latency = Timer.builder("ai.backend.latency")
+                    .description("Model call latency per Ollama backend")
+                    .tag("backend", url)
+                    .register(meterRegistry);
+            Gauge.builder("ai.backend.outstanding", outstanding, AtomicInteger::get)
+                    .tag("backend", url)
+                    .register(meterRegistry);
+            Gauge.builder("ai.backend.healthy", this, backend -> backend.ejected ? 0 : 1)
+                    .tag("backend", url)
+                    .register(meterRegistry);
+        }
+
+        int outstanding() {
+            return outstanding.get();
+        }
+
+        String url() {
+            return url;
+        }
+
+        private void recordSuccess(long nanos, long tokens) {
+            latency.record(nanos, TimeUnit.NANOSECONDS);
+            double perToken = nanos / 1_000_000.0 / Math.max(1, tokens);
+            msPerToken = samples == 0 ? perToken : msPerToken * 0.8 + perToken * 0.2;
+            samples++;
+            consecutiveFailures = 0;
+        }
+
+        private void recordFailure() {
+            consecutiveFailures++;
+            if (consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+                eject(consecutiveFailures + " consecutive failures", ejectDurationMs);
+            }
+        }
+
+        private void eject(String reason, long durationMs) {
+            long until = System.currentTimeMillis() + durationMs;
+            boolean wasHealthy = !ejected;
+            if (wasHealthy) {
+                logger.warn("Ejecting Ollama backend {}: {}", url, reason);
+            }
+            ejected = true;
+            ejectedUntil = Math.max(ejectedUntil, until);
+            if (wasHealthy) {
+                healthListeners.forEach(Runnable::run);
+            }
+        }
+
+        private void readmit(double baselineMsPerToken) {
+            logger.info("Readmitting Ollama backend {}", url);
+            consecutiveFailures = 0;
+            msPerToken = baselineMsPerToken;
+            ejected = false;
+            healthListeners.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.ai.SpAI.service;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.springframework.ai.chat.model.ChatResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Operators shared by the reactive generation pipeline.
+ */
+public final class ReactiveGeneration {
+
+    private ReactiveGeneration() {
+    }
+
+    /**
+     * Concatenates the text of a streamed model response.
+     */
+    public static Mono<String> text(Flux<ChatResponse> chunks) {
+        return chunks
+                .filter(chunk -> chunk.getResult() != null && chunk.getResult().getOutput() != null
+                        && chunk.getResult().getOutput().getText() != null)
+                .reduce(new StringBuilder(), (text, chunk) -> text.append(chunk.getResult().getOutput().getText()))
+                .map(StringBuilder::toString);
+    }
+
+    /**
+     * Runs {@code source} through {@code circuitBreaker}, the reactive counterpart of the
+     * {@code @CircuitBreaker} annotation: fails fast with {@link CallNotPermittedException} while
+     * the breaker is open and records the outcome and duration of every completed call. A
+     * cancelled call releases its permission without counting either way.
+     */
+    public static <T> Mono<T> withCircuitBreaker(CircuitBreaker circuitBreaker, Mono<T> source) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                return Mono.error(CallNotPermittedException.createCallNotPermittedException(circuitBreaker));
+            }
+            long start = circuitBreaker.getCurrentTimestamp();
+            return source
+                    .doOnSuccess(value -> circuitBreaker.onSuccess(
+                            circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit()))
+                    .doOnError(error -> circuitBreaker.onError(
+                            circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit(), error))
+                    .doOnCancel(circuitBreaker::releasePermission);
+        });
+    }
+}
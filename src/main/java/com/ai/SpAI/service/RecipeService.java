@@ -3,24 +3,66 @@ package com.ai.SpAI.service;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.ollama.api.OllamaOptions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 import java.util.Map;
 
 @Service
 public class RecipeService {
     private final ChatModel chatModel;
+    private final GenerationCoalescer coalescer;
+    private final GenerationCostModel costModel;
 
     @Autowired
-    public RecipeService(@Qualifier("ollamaChatModel")ChatModel chatModel){
+    public RecipeService(@Qualifier("ollamaChatModel")ChatModel chatModel, GenerationCoalescer coalescer,
+                         GenerationCostModel costModel){
         this.chatModel = chatModel;
+        this.coalescer = coalescer;
+        this.costModel = costModel;
     }
 
     public String createRecipe(String ingredients,
                                String cuisine,
                                String dietaryRestrictions){
+        return createRecipe(ingredients, cuisine, dietaryRestrictions, costModel.recipe(ingredients));
+    }
+
+    /**
+     * Generates with an estimate the caller already obtained from {@link GenerationCostModel}.
+     */
+    public String createRecipe(String ingredients,
+                               String cuisine,
+                               String dietaryRestrictions,
+                               GenerationEstimate estimate){
+        Prompt prompt = buildPrompt(ingredients, cuisine, dietaryRestrictions, estimate);
+        return coalescer.execute("recipe", prompt.getContents(),
+                () -> GenerationContext.callWithCost(estimate.cost(),
+                        () -> chatModel.call(prompt).getResult().getOutput().getText()));
+    }
+
+    /**
+     * Non-blocking {@link #createRecipe(String, String, String, GenerationEstimate)} built on the
+     * streaming API.
+     */
+    public Mono<String> createRecipeReactive(String ingredients,
+                                             String cuisine,
+                                             String dietaryRestrictions,
+                                             GenerationEstimate estimate){
+        Prompt prompt = buildPrompt(ingredients, cuisine, dietaryRestrictions, estimate);
+        GenerationContext context = GenerationContext.current();
+        return coalescer.executeReactive("recipe", prompt.getContents(), () -> ReactiveGeneration.text(
+                GenerationContext.callWith(context, () -> GenerationContext.callWithCost(estimate.cost(),
+                        () -> chatModel.stream(prompt)))));
+    }
+
+    private Prompt buildPrompt(String ingredients,
+                               String cuisine,
+                               String dietaryRestrictions,
+                               GenerationEstimate estimate){
         var template = """
                 I want to create a recipe using the following ingredients: {ingredients}.
                 The cuisine type I prefer is {cuisine}.
@@ -35,7 +77,7 @@ public class RecipeService {
                 "dietaryRestrictions", dietaryRestrictions
         );
 
-        Prompt prompt = promptTemplate.create(params);
-        return chatModel.call(prompt).getResult().getOutput().getText();
+        return promptTemplate.create(params,
+                OllamaOptions.builder().numPredict(estimate.numPredict()).build());
     }
 }
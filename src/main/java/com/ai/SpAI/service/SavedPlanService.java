@@ -0,0 +1,68 @@
+package com.ai.SpAI.service;
+
+import com.ai.SpAI.dto.StructuredItinerary;
+import com.ai.SpAI.entity.SavedRecipe;
+import com.ai.SpAI.entity.SavedTravel;
+import com.ai.SpAI.repository.SavedRecipeRepository;
+import com.ai.SpAI.repository.SavedTravelRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Short transactions around the regeneration of part of a saved plan. The plan is loaded
+ * completely in one transaction and the regenerated part saved in another, so no database
+ * connection is held while the model writes the replacement.
+ */
+@Service
+public class SavedPlanService {
+
+    private final SavedTravelRepository savedTravelRepository;
+    private final SavedRecipeRepository savedRecipeRepository;
+    private final StructuredPlanService structuredPlanService;
+
+    public SavedPlanService(SavedTravelRepository savedTravelRepository,
+                            SavedRecipeRepository savedRecipeRepository,
+                            StructuredPlanService structuredPlanService) {
+        this.savedTravelRepository = savedTravelRepository;
+        this.savedRecipeRepository = savedRecipeRepository;
+        this.structuredPlanService = structuredPlanService;
+    }
+
+    /**
+     * The trip with its days and activities loaded, ready to be read outside the transaction.
+     */
+    @Transactional(readOnly = true)
+    public Optional<SavedTravel> loadTrip(Long id) {
+        Optional<SavedTravel> trip = savedTravelRepository.findById(id);
+        trip.ifPresent(structuredPlanService::planOf);
+        return trip;
+    }
+
+    @Transactional
+    public SavedTravel replaceDay(Long id, StructuredItinerary.Day day) {
+        SavedTravel trip = savedTravelRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Itinerary not found"));
+        structuredPlanService.replaceDay(trip, day);
+        return savedTravelRepository.save(trip);
+    }
+
+    /**
+     * The recipe with its ingredients and steps loaded, ready to be read outside the transaction.
+     */
+    @Transactional(readOnly = true)
+    public Optional<SavedRecipe> loadRecipe(Long id) {
+        Optional<SavedRecipe> recipe = savedRecipeRepository.findById(id);
+        recipe.ifPresent(structuredPlanService::planOf);
+        return recipe;
+    }
+
+    @Transactional
+    public SavedRecipe replaceStep(Long id, int stepNumber, String instruction) {
+        SavedRecipe recipe = savedRecipeRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Recipe not found"));
+        structuredPlanService.replaceStep(recipe, stepNumber, instruction);
+        return savedRecipeRepository.save(recipe);
+    }
+}
@@ -0,0 +1,147 @@
+package com.ai.SpAI.service;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link ChatModel} decorator that makes every call, blocking or streaming, hold a
+ * {@link GenerationScheduler} slot for as long as it talks to the model server.
+ * <p>
+ * Blocking calls made under a bounded {@link GenerationContext} are served through the
+ * streaming API and aggregated, because a streaming subscription can be cancelled: when the
+ * deadline passes or the request's {@link GenerationCancellation} fires, the HTTP call to the
+ * model server is closed and the generation stops instead of running on for nobody.
+ */
+public class ScheduledChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final GenerationScheduler scheduler;
+    private final GenerationCancellationMetrics cancellationMetrics;
+
+    public ScheduledChatModel(ChatModel delegate, GenerationScheduler scheduler,
+                              GenerationCancellationMetrics cancellationMetrics) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.cancellationMetrics = cancellationMetrics;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        GenerationContext context = GenerationContext.current();
+        if (context.getCancellation() != null && context.getCancellation().isCancelled()) {
+            throw new GenerationCancelledException("Generation cancelled before it started");
+        }
+
+        try (GenerationScheduler.Permit permit = scheduler.acquire(context.getPriority(),
+                context.getUser(), context.getCost(), context.remainingMs(), context.getCancellation())) {
+            long start = System.currentTimeMillis();
+            ChatResponse response = context.isBounded()
+                    ? cancellableCall(prompt, context, start)
+                    : delegate.call(prompt);
+            cancellationMetrics.recordCompleted(System.currentTimeMillis() - start);
+            return response;
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        GenerationContext context = GenerationContext.current();
+        String user = context.getUser();
+        // Queues without holding a thread, so pending streams cost no more than their subscription.
+        return Flux.usingWhen(
+                scheduler.acquireAsync(context.getPriority(), user, context.getCost(), Long.MAX_VALUE),
+                permit -> delegate.stream(prompt),
+                ScheduledChatModel::release,
+                (permit, error) -> release(permit),
+                ScheduledChatModel::release);
+    }
+
+    private static Mono<Void> release(GenerationScheduler.Permit permit) {
+        return Mono.fromRunnable(permit::close);
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+
+    private ChatResponse cancellableCall(Prompt prompt, GenerationContext context, long start) {
+        CompletableFuture<ChatResponse> future = delegate.stream(prompt)
+                .collect(StreamedResponse::new, StreamedResponse::add)
+                .map(StreamedResponse::toChatResponse)
+                .toFuture();
+
+        // Cancelling the future cancels the subscription, which closes the model HTTP call.
+        GenerationCancellation cancellation = context.getCancellation();
+        Runnable abort = () -> future.cancel(true);
+        if (cancellation != null) {
+            cancellation.onCancel(abort);
+        }
+
+        try {
+            return context.hasDeadline()
+                    ? future.get(context.remainingMs(), TimeUnit.MILLISECONDS)
+                    : future.get();
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            cancellationMetrics.recordCancelled("deadline", System.currentTimeMillis() - start);
+            throw new GenerationCancelledException("Generation exceeded the request deadline");
+        } catch (CancellationException e) {
+            String reason = cancellation != null && cancellation.getReason() != null
+                    ? cancellation.getReason() : "cancelled";
+            cancellationMetrics.recordCancelled(reason, System.currentTimeMillis() - start);
+            throw new GenerationCancelledException("Generation cancelled: " + reason);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            cancellationMetrics.recordCancelled("interrupted", System.currentTimeMillis() - start);
+            throw new GenerationCancelledException("Generation interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Generation failed", e.getCause());
+        } finally {
+            if (cancellation != null) {
+                cancellation.removeCallback(abort);
+            }
+        }
+    }
+
+    /**
+     * Accumulates streamed chunks back into a single response.
+     */
+    private static final class StreamedResponse {
+        private final StringBuilder text = new StringBuilder();
+        private ChatResponseMetadata metadata;
+
+        private void add(ChatResponse chunk) {
+            if (chunk.getResult() != null && chunk.getResult().getOutput() != null
+                    && chunk.getResult().getOutput().getText() != null) {
+                text.append(chunk.getResult().getOutput().getText());
+            }
+            if (chunk.getMetadata() != null) {
+                metadata = chunk.getMetadata();
+            }
+        }
+
+        private ChatResponse toChatResponse() {
+            List<Generation> generations = List.of(new Generation(new AssistantMessage(text.toString())));
+            return metadata != null ? new ChatResponse(generations, metadata) : new ChatResponse(generations);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.ai.SpAI.service;
+
+import com.ai.SpAI.util.LshVectorIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Response cache keyed by meaning rather than exact text: prompts are embedded with the local
+ * embedding model and an answer is reused when a previously answered prompt is at least
+ * {@code threshold} cosine-similar. Capacity is bounded by {@code maxEntries} (least recently
+ * used entries are evicted first) and entries expire after {@code ttlMs}. If the embedding
+ * model is unavailable the cache steps aside and every call is generated.
+ */
+@Component
+public class SemanticResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SemanticResponseCache.class);
+
+    private final ObjectProvider<EmbeddingModel> embeddingModel;
+    private final boolean enabled;
+    private final double threshold;
+    private final double nearMissMargin;
+    private final int maxEntries;
+    private final long ttlMs;
+
+    private final LshVectorIndex index = new LshVectorIndex(8, 12, 42L);
+    private final Map<Long, CachedAnswer> answers = new LinkedHashMap<>(16, 0.75f, true);
+    private long nextId;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter nearMisses;
+    private final Counter evictions;
+
+    public SemanticResponseCache(@Qualifier("ollamaEmbeddingModel") ObjectProvider<EmbeddingModel> embeddingModel,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.ai.semantic-cache.enabled:true}") boolean enabled,
+                                 @Value("${app.ai.semantic-cache.threshold:0.95}") double threshold,
+                                 @Value("${app.ai.semantic-cache.near-miss-margin:0.05}") double nearMissMargin,
+                                 @Value("${app.ai.semantic-cache.max-entries:10000}") int maxEntries,
+                                 @Value("${app.ai.semantic-cache.ttl-ms:3600000}") long ttlMs) {
+        this.embeddingModel = embeddingModel;
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.nearMissMargin = nearMissMargin;
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+        this.nearMisses = lookups(meterRegistry, "near_miss");
+        this.evictions = Counter.builder("ai.semantic_cache.evictions")
+                .description("Semantic cache entries evicted for capacity or age")
+                .register(meterRegistry);
+        Gauge.builder("ai.semantic_cache.size", this, SemanticResponseCache::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns a cached answer for a semantically equivalent prompt, or generates, stores and
+     * returns a new one.
+     */
+    public String getOrGenerate(String prompt, Supplier<String> generation) {
+        float[] embedding = enabled ? embed(prompt) : null;
+        if (embedding == null) {
+            return generation.get();
+        }
+
+        String cached = lookup(embedding);
+        if (cached != null) {
+            return cached;
+        }
+
+        String response = generation.get();
+        if (response != null && !response.isBlank()) {
+            store(embedding, response);
+        }
+        return response;
+    }
+
+    public synchronized int size() {
+        return answers.size();
+    }
+
+    private synchronized String lookup(float[] embedding) {
+        LshVectorIndex.Match match = index.nearest(embedding);
+        if (match == null) {
+            misses.increment();
+            return null;
+        }
+
+        CachedAnswer answer = answers.get(match.id());
+        if (answer == null || answer.isExpired(ttlMs)) {
+            if (answer != null) {
+                evict(match.id());
+            }
+            misses.increment();
+            return null;
+        }
+
+        if (match.similarity() >= threshold) {
+            hits.increment();
+            logger.debug("Semantic cache hit (similarity {})", String.format("%.3f", match.similarity()));
+            return answer.response();
+        }
+        if (match.similarity() >= threshold - nearMissMargin) {
+            nearMisses.increment();
+        } else {
+            misses.increment();
+        }
+        return null;
+    }
+
+    private synchronized void store(float[] embedding, String response) {
+        long id = nextId++;
+        try {
+            index.add(id, embedding);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Not caching response: {}", e.getMessage());
+            return;
+        }
+        answers.put(id, new CachedAnswer(response, System.currentTimeMillis()));
+
+        Iterator<Map.Entry<Long, CachedAnswer>> eldest = answers.entrySet().iterator();
+        while (answers.size() > maxEntries && eldest.hasNext()) {
+            long evictedId = eldest.next().getKey();
+            eldest.remove();
+            index.remove(evictedId);
+            evictions.increment();
+        }
+    }
+
+    private void evict(long id) {
+        answers.remove(id);
+        index.remove(id);
+        evictions.increment();
+    }
+
+    private float[] embed(String prompt) {
+        EmbeddingModel model = embeddingModel.getIfAvailable();
+        if (model == null) {
+            return null;
+        }
+        try {
+            return model.embed(GenerationCoalescer.canonicalize(prompt).toLowerCase());
+        } catch (RuntimeException e) {
+            logger.warn("Embedding failed, bypassing semantic cache: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ai.semantic_cache.lookups")
+                .description("Semantic cache lookups by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record CachedAnswer(String response, long createdAt) {
+        boolean isExpired(long ttlMs) {
+            return System.currentTimeMillis() - createdAt > ttlMs;
+        }
+    }
+}
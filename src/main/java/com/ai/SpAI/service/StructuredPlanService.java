@@ -0,0 +1,398 @@
+package com.ai.SpAI.service;
+
+import com.ai.SpAI.dto.StructuredItinerary;
+import com.ai.SpAI.dto.StructuredRecipe;
+import com.ai.SpAI.dto.TravelPlanRequest;
+import com.ai.SpAI.entity.RecipeIngredient;
+import com.ai.SpAI.entity.RecipeStep;
+import com.ai.SpAI.entity.SavedRecipe;
+import com.ai.SpAI.entity.SavedTravel;
+import com.ai.SpAI.entity.TripActivity;
+import com.ai.SpAI.entity.TripDay;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Structured output mode: itineraries and recipes are generated as JSON, parsed into
+ * {@link StructuredItinerary} / {@link StructuredRecipe} and saved as day, activity, ingredient
+ * and step rows. A single day or step can then be regenerated and spliced into a saved plan,
+ * which costs a fraction of the tokens of regenerating the whole plan.
+ */
+@Service
+public class StructuredPlanService {
+
+    // JSON syntax and keys cost tokens on top of the prose the estimate is sized for.
+    private static final double JSON_OVERHEAD = 1.3;
+
+    private final ChatModel chatModel;
+    private final GenerationCoalescer coalescer;
+    private final GenerationCostModel costModel;
+    private final ObjectMapper objectMapper;
+
+    public StructuredPlanService(@Qualifier("ollamaChatModel") ChatModel chatModel,
+                                 GenerationCoalescer coalescer,
+                                 GenerationCostModel costModel,
+                                 ObjectMapper objectMapper) {
+        this.chatModel = chatModel;
+        this.coalescer = coalescer;
+        this.costModel = costModel;
+        this.objectMapper = objectMapper.copy()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /**
+     * Generates a whole itinerary as JSON. A trip too long for one answer within the output
+     * budget ({@code estimate} was downgraded) is written in consecutive parts, each against the
+     * days before it, because a JSON answer cut off by {@code num_predict} cannot be parsed.
+     */
+    public StructuredItinerary generateItinerary(TravelPlanRequest request, GenerationEstimate estimate) {
+        if (!estimate.downgraded()) {
+            return new StructuredItinerary(generateDays(request, 1, request.days(), List.of(), estimate));
+        }
+        int daysPerCall = costModel.itineraryDaysPerCall(request.interests());
+        List<StructuredItinerary.Day> days = new ArrayList<>();
+        for (int first = 1; first <= request.days(); first += daysPerCall) {
+            int last = Math.min(request.days(), first + daysPerCall - 1);
+            days.addAll(generateDays(request, first, last, days,
+                    costModel.itineraryPart(last - first + 1, request.interests())));
+        }
+        return new StructuredItinerary(days);
+    }
+
+    /**
+     * What the rate limiter should charge for {@code request}, given its single-call estimate:
+     * a trip written in parts is charged for every part.
+     */
+    public double cost(TravelPlanRequest request, GenerationEstimate estimate) {
+        return estimate.downgraded()
+                ? costModel.itineraryPartsCost(request.days(), request.interests())
+                : estimate.cost();
+    }
+
+    private List<StructuredItinerary.Day> generateDays(TravelPlanRequest request, int first, int last,
+                                                       List<StructuredItinerary.Day> earlier,
+                                                       GenerationEstimate estimate) {
+        String scope = first == 1 && last == request.days()
+                ? String.format("Create a %d-day travel itinerary.", request.days())
+                : String.format("Create days %d to %d of a %d-day travel itinerary.", first, last, request.days());
+        String earlierDays = earlier.isEmpty() ? "" : "The earlier days, which must not be repeated:\n"
+                + summarize(earlier) + "\n";
+        String prompt = String.format("""
+                You are an expert travel consultant. %s
+
+                Destination: %s
+                Interests: %s
+                Budget: %s
+                %s
+                Reply with JSON only, in exactly this shape:
+                {"days": [{"day": %d, "theme": "...", "activities": [
+                  {"time": "morning", "title": "...", "description": "..."}]}]}
+                Give every day morning, afternoon and evening activities, including where to eat.
+                """, scope, request.destination(), request.interests(), request.budget(), earlierDays, first);
+        StructuredItinerary itinerary = generateJson("itinerary-json", prompt, estimate, StructuredItinerary.class);
+        List<StructuredItinerary.Day> days = itinerary.days() != null ? itinerary.days() : List.of();
+        // A short answer would leave a gap in the trip, and the next part would not notice it
+        if (days.size() < last - first + 1) {
+            throw new IllegalStateException(String.format(
+                    "The model returned %d of the %d days requested", days.size(), last - first + 1));
+        }
+        List<StructuredItinerary.Day> numbered = new ArrayList<>();
+        for (int i = 0; first + i <= last; i++) {
+            StructuredItinerary.Day day = days.get(i);
+            numbered.add(new StructuredItinerary.Day(first + i, day.theme(), activities(day)));
+        }
+        return numbered;
+    }
+
+    /**
+     * Generates a replacement for one day of a saved trip, written against the other days so
+     * that it does not repeat them.
+     */
+    public StructuredItinerary.Day regenerateDay(SavedTravel trip, int dayNumber, String instructions) {
+        StructuredItinerary plan = planOf(trip);
+        if (plan.days().stream().noneMatch(day -> day.day() == dayNumber)) {
+            throw new IllegalArgumentException("Trip has no day " + dayNumber);
+        }
+        String otherDays = summarize(plan.days().stream()
+                .filter(day -> day.day() != dayNumber)
+                .toList());
+        String prompt = String.format("""
+                You are an expert travel consultant. Rewrite day %d of a %d-day trip to %s.
+
+                Interests: %s
+                Budget: %s
+                The other days, which must not be repeated:
+                %s
+                %s
+                Reply with JSON only, in exactly this shape:
+                {"day": %d, "theme": "...", "activities": [{"time": "morning", "title": "...", "description": "..."}]}
+                """, dayNumber, trip.getDays(), trip.getDestination(), trip.getInterests(), trip.getBudget(),
+                otherDays, instructionLine(instructions), dayNumber);
+        StructuredItinerary.Day day = generateJson("itinerary-day-json", prompt,
+                costModel.itineraryDay(trip.getInterests()), StructuredItinerary.Day.class);
+        return new StructuredItinerary.Day(dayNumber, day.theme(), activities(day));
+    }
+
+    public StructuredRecipe generateRecipe(String ingredients, String cuisine, String dietaryRestrictions,
+                                           GenerationEstimate estimate) {
+        String prompt = String.format("""
+                Create a recipe using the following ingredients: %s.
+                Cuisine: %s
+                Dietary restrictions: %s
+
+                Reply with JSON only, in exactly this shape:
+                {"title": "...", "ingredients": [{"name": "...", "quantity": "..."}], "steps": ["...", "..."]}
+                """, ingredients, cuisine, dietaryRestrictions);
+        StructuredRecipe recipe = generateJson("recipe-json", prompt, estimate, StructuredRecipe.class);
+        if (recipe.steps() == null || recipe.steps().isEmpty()) {
+            throw new IllegalStateException("The model returned a recipe without steps");
+        }
+        return new StructuredRecipe(recipe.title(),
+                recipe.ingredients() != null ? recipe.ingredients() : List.of(), recipe.steps());
+    }
+
+    /**
+     * Generates a replacement for one step of a saved recipe.
+     */
+    public String regenerateStep(SavedRecipe recipe, int stepNumber, String instructions) {
+        StructuredRecipe plan = planOf(recipe);
+        List<String> steps = plan.steps();
+        if (stepNumber < 1 || stepNumber > steps.size()) {
+            throw new IllegalArgumentException("Recipe has no step " + stepNumber);
+        }
+        StringBuilder context = new StringBuilder();
+        for (int i = 0; i < steps.size(); i++) {
+            context.append(i + 1).append(". ").append(i + 1 == stepNumber ? "<rewrite this step>" : steps.get(i)).append('\n');
+        }
+        String prompt = String.format("""
+                Rewrite step %d of the recipe "%s".
+
+                Ingredients: %s
+                Steps:
+                %s%s
+                Reply with JSON only, in exactly this shape: {"instruction": "..."}
+                """, stepNumber, plan.title(), plan.ingredients().stream()
+                        .map(ingredient -> ingredient.quantity() != null
+                                ? ingredient.quantity() + " " + ingredient.name() : ingredient.name())
+                        .collect(Collectors.joining(", ")),
+                context, instructionLine(instructions));
+        StepJson step = generateJson("recipe-step-json", prompt, costModel.recipeStep(), StepJson.class);
+        if (step.instruction() == null || step.instruction().isBlank()) {
+            throw new IllegalStateException("The model returned an empty step");
+        }
+        return step.instruction().strip();
+    }
+
+    /**
+     * Fills the structured days of a trip that is being saved and renders its text from them.
+     * The plan comes from the client, so every day must carry its own day number.
+     */
+    public void applyPlan(SavedTravel trip, StructuredItinerary plan) {
+        Set<Integer> dayNumbers = new HashSet<>();
+        for (StructuredItinerary.Day day : plan.days()) {
+            if (day == null || day.day() == null) {
+                throw new IllegalArgumentException("Every day of the plan needs a day number");
+            }
+            if (!dayNumbers.add(day.day())) {
+                throw new IllegalArgumentException("The plan has day " + day.day() + " more than once");
+            }
+        }
+        trip.getDayPlans().clear();
+        for (StructuredItinerary.Day day : plan.days()) {
+            trip.getDayPlans().add(toEntity(trip, day));
+        }
+        trip.setItineraryText(render(trip.getDestination(), plan));
+    }
+
+    /**
+     * Splices a regenerated day into the trip. The day row is updated in place, since deleting
+     * and re-inserting it would collide on its unique day number when the inserts flush first.
+     */
+    public void replaceDay(SavedTravel trip, StructuredItinerary.Day day) {
+        TripDay existing = trip.getDayPlans().stream()
+                .filter(candidate -> candidate.getDayNumber().equals(day.day()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Trip has no day " + day.day()));
+        TripDay replacement = toEntity(trip, day);
+        existing.setTheme(replacement.getTheme());
+        existing.getActivities().clear();
+        for (TripActivity activity : replacement.getActivities()) {
+            activity.setDay(existing);
+            existing.getActivities().add(activity);
+        }
+        trip.setItineraryText(render(trip.getDestination(), planOf(trip)));
+    }
+
+    /**
+     * Fills the ingredients and steps of a recipe that is being saved and renders its text.
+     */
+    public void applyPlan(SavedRecipe recipe, StructuredRecipe plan) {
+        recipe.getIngredientList().clear();
+        recipe.getSteps().clear();
+        int position = 1;
+        for (StructuredRecipe.Ingredient ingredient : plan.ingredients()) {
+            RecipeIngredient entity = new RecipeIngredient();
+            entity.setRecipe(recipe);
+            entity.setPosition(position++);
+            entity.setName(ingredient.name());
+            entity.setQuantity(ingredient.quantity());
+            recipe.getIngredientList().add(entity);
+        }
+        int number = 1;
+        for (String instruction : plan.steps()) {
+            RecipeStep step = new RecipeStep();
+            step.setRecipe(recipe);
+            step.setStepNumber(number++);
+            step.setInstruction(instruction);
+            recipe.getSteps().add(step);
+        }
+        if (recipe.getRecipeName() == null && plan.title() != null) {
+            recipe.setRecipeName(plan.title());
+        }
+        recipe.setRecipeText(render(plan));
+    }
+
+    /**
+     * Splices a regenerated step into the recipe; the step row is updated in place.
+     */
+    public void replaceStep(SavedRecipe recipe, int stepNumber, String instruction) {
+        RecipeStep step = recipe.getSteps().stream()
+                .filter(existing -> existing.getStepNumber() == stepNumber)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Recipe has no step " + stepNumber));
+        step.setInstruction(instruction);
+        recipe.setRecipeText(render(planOf(recipe)));
+    }
+
+    public StructuredItinerary planOf(SavedTravel trip) {
+        return new StructuredItinerary(trip.getDayPlans().stream()
+                .map(day -> new StructuredItinerary.Day(day.getDayNumber(), day.getTheme(), day.getActivities().stream()
+                        .map(activity -> new StructuredItinerary.Activity(
+                                activity.getTimeOfDay(), activity.getTitle(), activity.getDescription()))
+                        .toList()))
+                .toList());
+    }
+
+    public StructuredRecipe planOf(SavedRecipe recipe) {
+        return new StructuredRecipe(recipe.getRecipeName(),
+                recipe.getIngredientList().stream()
+                        .map(ingredient -> new StructuredRecipe.Ingredient(ingredient.getName(), ingredient.getQuantity()))
+                        .toList(),
+                recipe.getSteps().stream().map(RecipeStep::getInstruction).toList());
+    }
+
+    static String render(String destination, StructuredItinerary plan) {
+        StringBuilder text = new StringBuilder()
+                .append(plan.days().size()).append("-day itinerary for ").append(destination).append('\n');
+        for (StructuredItinerary.Day day : plan.days()) {
+            text.append("\nDay ").append(day.day());
+            if (day.theme() != null && !day.theme().isBlank()) {
+                text.append(": ").append(day.theme());
+            }
+            text.append('\n');
+            for (StructuredItinerary.Activity activity : activities(day)) {
+                text.append("- ");
+                if (activity.time() != null && !activity.time().isBlank()) {
+                    text.append(capitalize(activity.time())).append(": ");
+                }
+                text.append(activity.title());
+                if (activity.description() != null && !activity.description().isBlank()) {
+                    text.append(" - ").append(activity.description().strip());
+                }
+                text.append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    static String render(StructuredRecipe plan) {
+        StringBuilder text = new StringBuilder();
+        if (plan.title() != null) {
+            text.append(plan.title()).append("\n\n");
+        }
+        text.append("Ingredients:\n");
+        for (StructuredRecipe.Ingredient ingredient : plan.ingredients()) {
+            text.append("- ");
+            if (ingredient.quantity() != null && !ingredient.quantity().isBlank()) {
+                text.append(ingredient.quantity()).append(' ');
+            }
+            text.append(ingredient.name()).append('\n');
+        }
+        text.append("\nInstructions:\n");
+        for (int i = 0; i < plan.steps().size(); i++) {
+            text.append(i + 1).append(". ").append(plan.steps().get(i)).append('\n');
+        }
+        return text.toString();
+    }
+
+    private <T> T generateJson(String namespace, String promptText, GenerationEstimate estimate, Class<T> type) {
+        int numPredict = (int) Math.ceil(estimate.numPredict() * JSON_OVERHEAD);
+        String json = coalescer.execute(namespace, promptText, () -> GenerationContext.callWithCost(estimate.cost(), () -> {
+            Prompt prompt = new Prompt(promptText,
+                    OllamaOptions.builder().format("json").numPredict(numPredict).build());
+            return chatModel.call(prompt).getResult().getOutput().getText();
+        }));
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("The model returned malformed JSON for " + namespace, e);
+        }
+    }
+
+    private static TripDay toEntity(SavedTravel trip, StructuredItinerary.Day day) {
+        TripDay entity = new TripDay();
+        entity.setTrip(trip);
+        entity.setDayNumber(day.day());
+        entity.setTheme(day.theme());
+        int position = 1;
+        for (StructuredItinerary.Activity activity : activities(day)) {
+            TripActivity row = new TripActivity();
+            row.setDay(entity);
+            row.setPosition(position++);
+            row.setTimeOfDay(activity.time());
+            row.setTitle(activity.title());
+            row.setDescription(activity.description());
+            entity.getActivities().add(row);
+        }
+        return entity;
+    }
+
+    private static String summarize(List<StructuredItinerary.Day> days) {
+        return days.stream()
+                .map(day -> "Day " + day.day() + ": " + day.theme() + " (" + day.activities().stream()
+                        .map(StructuredItinerary.Activity::title).collect(Collectors.joining(", ")) + ")")
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static List<StructuredItinerary.Activity> activities(StructuredItinerary.Day day) {
+        return day.activities() != null
+                ? day.activities().stream()
+                        .filter(activity -> activity != null && activity.title() != null)
+                        .toList()
+                : List.of();
+    }
+
+    private static String instructionLine(String instructions) {
+        return instructions != null && !instructions.isBlank()
+                ? "The traveller asked for this change: " + instructions.strip() + "\n" : "";
+    }
+
+    private static String capitalize(String value) {
+        return Character.toUpperCase(value.charAt(0)) + value.substring(1);
+    }
+
+    private record StepJson(String instruction) {
+    }
+}
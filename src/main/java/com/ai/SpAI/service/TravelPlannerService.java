@@ -2,26 +2,94 @@ package com.ai.SpAI.service;
 
 import com.ai.SpAI.dto.TravelPlanRequest;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.ollama.api.OllamaOptions;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @Service
 public class TravelPlannerService {
 
     private final ChatModel chatModel;
+    private final GenerationCoalescer coalescer;
+    private final GenerationCostModel costModel;
+    private final ItineraryFanOut fanOut;
 
-    public TravelPlannerService(@Qualifier("ollamaChatModel") ChatModel chatModel) {
+    public TravelPlannerService(@Qualifier("ollamaChatModel") ChatModel chatModel, GenerationCoalescer coalescer,
+                                GenerationCostModel costModel, ItineraryFanOut fanOut) {
         this.chatModel = chatModel;
+        this.coalescer = coalescer;
+        this.costModel = costModel;
+        this.fanOut = fanOut;
     }
 
     public String generateItinerary(TravelPlanRequest request) {
-        String promptText = buildPrompt(request);
-        Prompt prompt = new Prompt(promptText);
-        return chatModel.call(prompt).getResult().getOutput().getText();
+        return generateItinerary(request, costModel.itinerary(request.days(), request.interests()));
     }
 
-    private String buildPrompt(TravelPlanRequest request) {
+    /**
+     * Whether the blocking {@link #generateItinerary} fans {@code request} out into one call per
+     * day, and so writes a different itinerary than the single-call variants.
+     */
+    public boolean fansOut(TravelPlanRequest request) {
+        return fanOut.appliesTo(request);
+    }
+
+    /**
+     * What the rate limiter should charge for {@code request}, given its single-call estimate:
+     * a fanned-out trip is charged for its outline and every day.
+     */
+    public double cost(TravelPlanRequest request, GenerationEstimate estimate) {
+        return fanOut.appliesTo(request) ? fanOut.cost(request) : estimate.cost();
+    }
+
+    /**
+     * Generates with an estimate the caller already obtained from {@link GenerationCostModel}.
+     */
+    public String generateItinerary(TravelPlanRequest request, GenerationEstimate estimate) {
+        if (fanOut.appliesTo(request)) {
+            return fanOut.generate(request);
+        }
+        String promptText = buildPrompt(request, estimate.downgraded());
+        return coalescer.execute("itinerary", promptText, () -> GenerationContext.callWithCost(estimate.cost(), () -> {
+            Prompt prompt = new Prompt(promptText, OllamaOptions.builder().numPredict(estimate.numPredict()).build());
+            return chatModel.call(prompt).getResult().getOutput().getText();
+        }));
+    }
+
+    /**
+     * Non-blocking {@link #generateItinerary(TravelPlanRequest, GenerationEstimate)} built on the
+     * streaming API. Always a single call: fanning out runs the days on a thread pool.
+     */
+    public Mono<String> generateItineraryReactive(TravelPlanRequest request, GenerationEstimate estimate) {
+        String promptText = buildPrompt(request, estimate.downgraded());
+        GenerationContext context = GenerationContext.current();
+        return coalescer.executeReactive("itinerary", promptText, () -> ReactiveGeneration.text(
+                GenerationContext.callWith(context, () -> GenerationContext.callWithCost(estimate.cost(),
+                        () -> chatModel.stream(new Prompt(promptText,
+                                OllamaOptions.builder().numPredict(estimate.numPredict()).build()))))));
+    }
+
+    /**
+     * Streams the itinerary one day at a time as each day completes; short trips that are not
+     * fanned out arrive as a single day 1 holding the whole plan.
+     */
+    public Flux<ItineraryFanOut.Day> streamItinerary(TravelPlanRequest request) {
+        GenerationEstimate estimate = costModel.itinerary(request.days(), request.interests());
+        if (fanOut.appliesTo(request)) {
+            return fanOut.stream(request);
+        }
+        GenerationContext context = GenerationContext.current();
+        GenerationContext captured = context.forUser(context.getUser());
+        return Flux.defer(() -> Flux.just(new ItineraryFanOut.Day(1, request.destination(),
+                        GenerationContext.callWith(captured, () -> generateItinerary(request, estimate)))))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private String buildPrompt(TravelPlanRequest request, boolean brief) {
         return String.format("""
             You are an expert travel consultant. Create a detailed, day-by-day travel itinerary.
 
@@ -36,12 +104,13 @@ public class TravelPlannerService {
             - Cultural tips and hidden gems
             - Practical advice (transport, dress code, etc.)
 
-            Write in a friendly, enthusiastic tone.
+            Write in a friendly, enthusiastic tone.%s
             """,
                 request.destination(),
                 request.days(),
                 request.interests() != null ? request.interests() : "general sightseeing",
-                request.budget() != null ? request.budget() : "mid-range"
+                request.budget() != null ? request.budget() : "mid-range",
+                brief ? "\nThis is a long trip, so keep each day to a few short lines." : ""
         );
     }
 }
\ No newline at end of file
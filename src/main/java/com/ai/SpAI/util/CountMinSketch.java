@@ -0,0 +1,80 @@
+package com.ai.SpAI.util;
+
+/**
+ * Count-min sketch for approximate per-key request counts in fixed memory. Counts are never
+ * underestimated; collisions can only inflate them. Uses conservative update (only the
+ * smallest counters are incremented) to keep that overestimate low, and halves every counter
+ * once {@code sampleSize} additions have been made, so popularity decays and yesterday's
+ * favourites give way to today's.
+ */
+public class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final int[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param width counters per row, rounded up to a power of two
+     */
+    public CountMinSketch(int width) {
+        int size = Integer.highestOneBit(Math.max(16, width - 1)) << 1;
+        this.counters = new int[SEEDS.length][size];
+        this.mask = size - 1;
+        this.sampleSize = size * 10;
+    }
+
+    /**
+     * Records {@code count} occurrences of {@code key} and returns its new estimate.
+     */
+    public synchronized int add(String key, int count) {
+        int[] slots = slots(key);
+        int estimate = estimate(slots) + count;
+        for (int row = 0; row < counters.length; row++) {
+            if (counters[row][slots[row]] < estimate) {
+                counters[row][slots[row]] = estimate;
+            }
+        }
+        additions += count;
+        if (additions >= sampleSize) {
+            halve();
+        }
+        return estimate;
+    }
+
+    public synchronized int estimate(String key) {
+        return estimate(slots(key));
+    }
+
+    private int estimate(int[] slots) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            min = Math.min(min, counters[row][slots[row]]);
+        }
+        return min;
+    }
+
+    private void halve() {
+        for (int[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+        additions /= 2;
+    }
+
+    private int[] slots(String key) {
+        long hash = key.hashCode();
+        int[] slots = new int[SEEDS.length];
+        for (int row = 0; row < SEEDS.length; row++) {
+            long h = (hash + SEEDS[row]) * SEEDS[(row + 1) % SEEDS.length];
+            h ^= h >>> 32;
+            slots[row] = (int) h & mask;
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ai.SpAI.util;
+
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Position in a list ordered by (timestamp, id): the last row of the previous page. Pages are
+ * fetched with {@code WHERE (timestamp, id) < (at, id)} on an index that leads with the owner,
+ * so a page costs the same however deep into the history it is. The id breaks ties between rows
+ * written in the same instant, which keeps the order stable.
+ * <p>
+ * Clients get it as an opaque token in the {@value #NEXT_CURSOR_HEADER} header and pass it back
+ * as {@code cursor}; no header means there are no more rows.
+ */
+public record KeysetCursor(LocalDateTime at, long id) {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public String encode() {
+        String raw = at.toEpochSecond(ZoneOffset.UTC) + "." + at.getNano() + "." + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code token} was not produced by {@link #encode()}
+     */
+    public static KeysetCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\.");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            LocalDateTime at = LocalDateTime.ofEpochSecond(
+                    Long.parseLong(parts[0]), Integer.parseInt(parts[1]), ZoneOffset.UTC);
+            return new KeysetCursor(at, Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * The requested page size, defaulted and capped.
+     */
+    public static int pageSize(Integer requested, int defaultSize, int maxSize) {
+        if (requested == null || requested < 1) {
+            return defaultSize;
+        }
+        return Math.min(requested, maxSize);
+    }
+
+    /**
+     * A 200 response with the first {@code pageSize} of {@code rows}, which were fetched with
+     * one extra row to learn whether another page follows, and the cursor to that page.
+     */
+    public static <T> ResponseEntity<ApiResponseWrapper<List<T>>> page(String message, List<T> rows, int pageSize,
+                                                                     Function<T, LocalDateTime> at,
+                                                                     Function<T, Long> id) {
+        if (rows.size() <= pageSize) {
+            return ResponseEntity.ok(ApiResponseWrapper.success(message, rows));
+        }
+        List<T> page = rows.subList(0, pageSize);
+        T last = page.get(pageSize - 1);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, new KeysetCursor(at.apply(last), id.apply(last)).encode())
+                .body(ApiResponseWrapper.success(message, page));
+    }
+}
@@ -0,0 +1,171 @@
+package com.ai.SpAI.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Approximate nearest-neighbour index for unit-length embedding vectors, using random-hyperplane
+ * locality-sensitive hashing. Each vector is hashed into {@code tables} buckets of {@code bits}
+ * sign bits; a query collects the vectors sharing a bucket with it (plus buckets one bit away)
+ * and ranks only those by exact cosine similarity. Unlike graph indexes, entries can be removed
+ * in O(tables), which keeps eviction cheap.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ */
+public class LshVectorIndex {
+
+    private final int tables;
+    private final int bits;
+    private final long seed;
+    private float[][][] hyperplanes;
+    private final List<Map<Integer, Set<Long>>> buckets = new ArrayList<>();
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    public LshVectorIndex(int tables, int bits, long seed) {
+        if (bits > 30) {
+            throw new IllegalArgumentException("At most 30 bits per table are supported");
+        }
+        this.tables = tables;
+        this.bits = bits;
+        this.seed = seed;
+        for (int t = 0; t < tables; t++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    public record Match(long id, double similarity) {
+    }
+
+    public void add(long id, float[] vector) {
+        float[] unit = normalize(vector);
+        ensureHyperplanes(unit.length);
+        int[] keys = new int[tables];
+        for (int t = 0; t < tables; t++) {
+            keys[t] = signature(t, unit);
+            buckets.get(t).computeIfAbsent(keys[t], k -> new HashSet<>()).add(id);
+        }
+        Entry previous = entries.put(id, new Entry(unit, keys));
+        if (previous != null) {
+            unlink(id, previous);
+        }
+    }
+
+    public void remove(long id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            unlink(id, entry);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the most similar indexed vector, or {@code null} when no candidate shares a bucket.
+     */
+    public Match nearest(float[] query) {
+        if (entries.isEmpty()) {
+            return null;
+        }
+        float[] unit = normalize(query);
+        if (unit.length != hyperplanes[0][0].length) {
+            return null;
+        }
+
+        Set<Long> candidates = new HashSet<>();
+        for (int t = 0; t < tables; t++) {
+            int key = signature(t, unit);
+            collect(t, key, candidates);
+            // Multi-probe: neighbouring buckets catch near vectors that straddle a hyperplane.
+            for (int b = 0; b < bits; b++) {
+                collect(t, key ^ (1 << b), candidates);
+            }
+        }
+
+        Match best = null;
+        for (Long id : candidates) {
+            double similarity = dot(unit, entries.get(id).vector);
+            if (best == null || similarity > best.similarity()) {
+                best = new Match(id, similarity);
+            }
+        }
+        return best;
+    }
+
+    private void collect(int table, int key, Set<Long> candidates) {
+        Set<Long> bucket = buckets.get(table).get(key);
+        if (bucket != null) {
+            candidates.addAll(bucket);
+        }
+    }
+
+    private void unlink(long id, Entry entry) {
+        for (int t = 0; t < tables; t++) {
+            Set<Long> bucket = buckets.get(t).get(entry.keys[t]);
+            if (bucket != null) {
+                bucket.remove(id);
+                if (bucket.isEmpty()) {
+                    buckets.get(t).remove(entry.keys[t]);
+                }
+            }
+        }
+    }
+
+    private int signature(int table, float[] vector) {
+        int key = 0;
+        for (int b = 0; b < bits; b++) {
+            if (dot(hyperplanes[table][b], vector) >= 0) {
+                key |= 1 << b;
+            }
+        }
+        return key;
+    }
+
+    private void ensureHyperplanes(int dimensions) {
+        if (hyperplanes != null) {
+            if (hyperplanes[0][0].length != dimensions) {
+                throw new IllegalArgumentException("Expected vectors of dimension " + hyperplanes[0][0].length
+                        + " but got " + dimensions);
+            }
+            return;
+        }
+        Random random = new Random(seed);
+        hyperplanes = new float[tables][bits][dimensions];
+        for (int t = 0; t < tables; t++) {
+            for (int b = 0; b < bits; b++) {
+                for (int d = 0; d < dimensions; d++) {
+                    hyperplanes[t][b][d] = (float) random.nextGaussian();
+                }
+            }
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        float[] unit = new float[vector.length];
+        if (norm == 0) {
+            return unit;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private record Entry(float[] vector, int[] keys) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.ai.SpAI.util;
+
+/**
+ * Cluster-wide token buckets that every node leases permits from. Amounts are in the
+ * {@link RateLimiter}'s fixed-point units.
+ */
+public interface PermitStore {
+
+    /**
+     * Takes up to {@code requested} units from the shared bucket {@code key}, creating it full if
+     * it does not exist, and returns how many were granted (possibly zero).
+     *
+     * @throws RuntimeException when the store cannot be reached
+     */
+    long take(String key, long requested, long capacity, double refillPerMs);
+}
@@ -1,37 +1,238 @@
 package com.ai.SpAI.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-user token bucket. Each caller (the authenticated principal, or the client address for
+ * anonymous requests) gets a bucket of {@code capacity} tokens that refills at
+ * {@code refill-per-minute}; a request is charged tokens in proportion to its estimated
+ * generation cost.
+ * <p>
+ * A bucket's state (token count and last refill time) is packed into one {@link AtomicLong} and
+ * updated with compare-and-set, so concurrent requests never block each other. Buckets live in
+ * a size-bounded cache and are dropped after {@code idle-eviction-ms} without requests; an idle
+ * bucket would have refilled completely by then anyway, so nothing is lost.
+ * <p>
+ * With a {@link PermitStore} configured the buckets are cluster-wide: each node leases permits
+ * from the shared bucket in batches of {@code lease-size} tokens and serves requests from its
+ * lease, so most checks stay local and the cluster admits at most one lease per node beyond the
+ * limit. If the store cannot be reached the node falls back to its local bucket for
+ * {@code retry-after-failure-ms} rather than rejecting everyone.
+ */
 @Component
 public class RateLimiter {
 
-    private final Map<String, UserRequestCount> requestCounts = new ConcurrentHashMap<>();
-    private final int MAX_REQUESTS_PER_MINUTE = 10;
+    private static final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+
+    // Tokens are tracked in thousandths so fractional costs and slow refill rates stay exact.
+    private static final long UNITS_PER_TOKEN = 1000;
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+
+    private final long capacityUnits;
+    private final double refillUnitsPerMs;
+    private final long origin = System.currentTimeMillis();
+    private final Cache<String, Bucket> buckets;
+
+    private final PermitStore permitStore;
+    private final long leaseUnits;
+    private final long retryAfterFailureMs;
+    private volatile long storeDownUntil;
+
+    private final Counter allowed;
+    private final Counter rejected;
+    private final Counter leaseFetches;
+    private final Counter leaseFailures;
+
+    @Autowired
+    public RateLimiter(MeterRegistry meterRegistry,
+                       ObjectProvider<PermitStore> permitStore,
+                       @Value("${app.rate-limit.capacity:30}") double capacity,
+                       @Value("${app.rate-limit.refill-per-minute:10}") double refillPerMinute,
+                       @Value("${app.rate-limit.idle-eviction-ms:600000}") long idleEvictionMs,
+                       @Value("${app.rate-limit.max-users:100000}") long maxUsers,
+                       @Value("${app.rate-limit.cluster.lease-size:3}") double leaseSize,
+                       @Value("${app.rate-limit.cluster.retry-after-failure-ms:5000}") long retryAfterFailureMs) {
+        this(meterRegistry, permitStore.getIfAvailable(), capacity, refillPerMinute, idleEvictionMs, maxUsers,
+                leaseSize, retryAfterFailureMs);
+    }
+
+    RateLimiter(MeterRegistry meterRegistry, double capacity, double refillPerMinute,
+                long idleEvictionMs, long maxUsers) {
+        this(meterRegistry, (PermitStore) null, capacity, refillPerMinute, idleEvictionMs, maxUsers, 0, 0);
+    }
+
+    RateLimiter(MeterRegistry meterRegistry, PermitStore permitStore, double capacity, double refillPerMinute,
+                long idleEvictionMs, long maxUsers, double leaseSize, long retryAfterFailureMs) {
+        this.capacityUnits = Math.round(capacity * UNITS_PER_TOKEN);
+        if (capacityUnits <= 0 || capacityUnits > TOKEN_MASK) {
+            throw new IllegalArgumentException("Rate limit capacity must be between 0.001 and "
+                    + TOKEN_MASK / UNITS_PER_TOKEN + " tokens");
+        }
+        this.refillUnitsPerMs = refillPerMinute * UNITS_PER_TOKEN / 60_000.0;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(Duration.ofMillis(idleEvictionMs))
+                .build();
+        this.permitStore = permitStore;
+        this.leaseUnits = Math.min(capacityUnits, Math.round(leaseSize * UNITS_PER_TOKEN));
+        this.retryAfterFailureMs = retryAfterFailureMs;
+
+        this.allowed = decisions(meterRegistry, "allowed");
+        this.rejected = decisions(meterRegistry, "rejected");
+        Gauge.builder("ai.rate_limit.tracked_users", buckets, cache -> cache.estimatedSize())
+                .register(meterRegistry);
+        this.leaseFetches = leases(meterRegistry, "ok");
+        this.leaseFailures = leases(meterRegistry, "error");
+    }
 
     public boolean tryAcquire(String userId) {
-        UserRequestCount count = requestCounts.computeIfAbsent(userId,
-                k -> new UserRequestCount());
+        return tryAcquire(userId, 1);
+    }
+
+    /**
+     * Takes {@code cost} tokens from the caller's bucket if it has them. Costs above the bucket
+     * capacity are capped at it, so an expensive request needs a full bucket rather than being
+     * impossible.
+     */
+    public boolean tryAcquire(String userId, double cost) {
+        long costUnits = Math.min(capacityUnits, Math.max(1, Math.round(cost * UNITS_PER_TOKEN)));
+        long now = System.currentTimeMillis() - origin;
+        Bucket bucket = buckets.get(userId, key -> new Bucket(now));
+        boolean granted = permitStore != null && now >= storeDownUntil
+                ? tryConsumeLeased(userId, bucket, costUnits, now)
+                : bucket.tryConsume(costUnits, now);
+        (granted ? allowed : rejected).increment();
+        return granted;
+    }
+
+    private boolean tryConsumeLeased(String userId, Bucket bucket, long costUnits, long now) {
+        long leased = bucket.lease.get();
+        if (bucket.tryTakeLease(costUnits)) {
+            return true;
+        }
+        // Top the lease up to what this request needs plus one batch for the ones after it.
+        long requested = Math.min(capacityUnits, costUnits - leased + leaseUnits);
+        long granted;
+        try {
+            granted = permitStore.take(userId, requested, capacityUnits, refillUnitsPerMs);
+        } catch (RuntimeException e) {
+            storeDownUntil = now + retryAfterFailureMs;
+            leaseFailures.increment();
+            logger.warn("Permit store unavailable, using local rate limits for {} ms: {}",
+                    retryAfterFailureMs, e.getMessage());
+            return bucket.tryConsume(costUnits, now);
+        }
+        leaseFetches.increment();
+        if (granted > 0) {
+            bucket.lease.addAndGet(granted);
+        }
+        return bucket.tryTakeLease(costUnits);
+    }
+
+    public boolean tryAcquireForCurrentUser(double cost) {
+        return tryAcquire(currentUser(), cost);
+    }
+
+    /**
+     * The rate-limit identity of the current request: the authenticated principal, else the
+     * client address.
+     */
+    public static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            return "ip:" + servletAttributes.getRequest().getRemoteAddr();
+        }
+        return "anonymous";
+    }
 
-        return count.incrementAndCheck();
+    private static Counter decisions(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ai.rate_limit.requests")
+                .description("Rate limiter decisions")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
-    private class UserRequestCount {
-        private final AtomicInteger count = new AtomicInteger(0);
-        private long windowStart = System.currentTimeMillis();
+    private static Counter leases(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ai.rate_limit.lease_fetches")
+                .description("Permit batches requested from the shared store")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Packed state: high 40 bits are the last refill time in ms since {@code origin}, low 24 bits
+     * the available tokens in thousandths.
+     */
+    private final class Bucket {
+        private final AtomicLong state;
+        // Units leased from the shared store and not yet spent; only used in cluster mode.
+        private final AtomicLong lease = new AtomicLong();
+
+        private Bucket(long now) {
+            this.state = new AtomicLong(pack(now, capacityUnits));
+        }
+
+        private boolean tryConsume(long costUnits, long now) {
+            while (true) {
+                long current = state.get();
+                long last = current >>> TOKEN_BITS;
+                long tokens = current & TOKEN_MASK;
 
-        public synchronized boolean incrementAndCheck() {
-            long now = System.currentTimeMillis();
+                long added = (long) (Math.max(0, now - last) * refillUnitsPerMs);
+                long available = Math.min(capacityUnits, tokens + added);
+                // Only advance the clock by the time the added tokens account for, so slow refill
+                // rates still accumulate across frequent calls.
+                long refilledAt = available == capacityUnits ? now
+                        : added == 0 ? last : last + (long) (added / refillUnitsPerMs);
 
-            // Reset window every minute
-            if (now - windowStart > 60000) {
-                count.set(0);
-                windowStart = now;
+                if (available < costUnits) {
+                    return false;
+                }
+                if (state.compareAndSet(current, pack(refilledAt, available - costUnits))) {
+                    return true;
+                }
             }
+        }
+
+        private boolean tryTakeLease(long costUnits) {
+            while (true) {
+                long available = lease.get();
+                if (available < costUnits) {
+                    return false;
+                }
+                if (lease.compareAndSet(available, available - costUnits)) {
+                    return true;
+                }
+            }
+        }
 
-            return count.incrementAndGet() <= MAX_REQUESTS_PER_MINUTE;
+        private static long pack(long time, long tokens) {
+            return (time << TOKEN_BITS) | tokens;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+package com.ai.SpAI.util;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+/**
+ * {@link PermitStore} on Redis. Each bucket is a hash {@code spai:ratelimit:<key>} holding the
+ * token count and last refill time; refill and take happen in one Lua script against the Redis
+ * clock, so nodes with skewed clocks still share one consistent bucket. Buckets expire once they
+ * would have refilled completely.
+ */
+public class RedisPermitStore implements PermitStore {
+
+    private static final String KEY_PREFIX = "spai:ratelimit:";
+
+    private static final RedisScript<Long> TAKE = new DefaultRedisScript<>("""
+            local capacity = tonumber(ARGV[1])
+            local rate = tonumber(ARGV[2])
+            local requested = tonumber(ARGV[3])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1]) or capacity
+            local last = tonumber(state[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - last) * rate)
+            local granted = math.min(requested, math.floor(tokens))
+            tokens = tokens - granted
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now)
+            local ttl = rate > 0 and math.ceil(capacity / rate) or 86400000
+            redis.call('PEXPIRE', KEYS[1], math.max(1000, ttl))
+            return granted
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisPermitStore(RedisConnectionFactory connectionFactory) {
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @Override
+    public long take(String key, long requested, long capacity, double refillPerMs) {
+        Long granted = redisTemplate.execute(TAKE, List.of(KEY_PREFIX + key),
+                Long.toString(capacity), Double.toString(refillPerMs), Long.toString(requested));
+        return granted != null ? granted : 0;
+    }
+}
@@ -0,0 +1,155 @@
+package com.ai.SpAI.util;
+
+import com.ai.SpAI.service.GenerationCancellationMetrics;
+import com.ai.SpAI.service.GenerationOverloadedException;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pushes streamed model chunks to an {@link SseEmitter} as "token" events and finishes with a
+ * "done" summary event. Chunks are requested one at a time and only after the previous one was
+ * written, so a slow client slows the model stream down instead of buffering it in memory.
+ * When the client goes away the subscription is cancelled, which aborts the model call.
+ */
+public class SseTokenSubscriber extends BaseSubscriber<ChatResponse> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseTokenSubscriber.class);
+
+    private final SseEmitter emitter;
+    private final GenerationCancellationMetrics cancellationMetrics;
+    private final long startTime = System.currentTimeMillis();
+    private long firstTokenTime = -1;
+    private long chunkCount = 0;
+    private Long generatedTokens;
+    private String model;
+    private volatile boolean finished;
+
+    public SseTokenSubscriber(SseEmitter emitter, GenerationCancellationMetrics cancellationMetrics) {
+        this.emitter = emitter;
+        this.cancellationMetrics = cancellationMetrics;
+        emitter.onCompletion(() -> abandon("disconnect"));
+        emitter.onTimeout(() -> {
+            logger.warn("SSE stream timed out after {} ms", System.currentTimeMillis() - startTime);
+            abandon("timeout");
+        });
+        emitter.onError(error -> {
+            logger.debug("SSE stream closed by client: {}", error.getMessage());
+            abandon("disconnect");
+        });
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+        request(1);
+    }
+
+    @Override
+    protected void hookOnNext(ChatResponse response) {
+        collectMetadata(response);
+        String text = extractText(response);
+
+        if (text != null && !text.isEmpty()) {
+            if (firstTokenTime < 0) {
+                firstTokenTime = System.currentTimeMillis();
+            }
+            chunkCount++;
+            try {
+                emitter.send(SseEmitter.event().name("token").data(text));
+            } catch (IOException | IllegalStateException e) {
+                logger.info("Client disconnected after {} chunks, cancelling generation", chunkCount);
+                abandon("disconnect");
+                return;
+            }
+        }
+        request(1);
+    }
+
+    @Override
+    protected void hookOnComplete() {
+        finished = true;
+        long duration = System.currentTimeMillis() - startTime;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("tokens", generatedTokens != null ? generatedTokens : chunkCount);
+        summary.put("chunks", chunkCount);
+        summary.put("durationMs", duration);
+        summary.put("timeToFirstTokenMs", firstTokenTime < 0 ? null : firstTokenTime - startTime);
+        if (model != null) {
+            summary.put("model", model);
+        }
+
+        cancellationMetrics.recordCompleted(duration);
+        logger.info("Chat stream completed in {} ms ({} chunks, first token after {} ms)",
+                duration, chunkCount, summary.get("timeToFirstTokenMs"));
+        try {
+            emitter.send(SseEmitter.event().name("done").data(summary));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Could not deliver stream summary: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    protected void hookOnError(Throwable error) {
+        finished = true;
+        logger.error("Chat stream failed after {} chunks: {}", chunkCount, error.getMessage());
+        ApiResponseWrapper<Object> body = error instanceof GenerationOverloadedException
+                ? ApiResponseWrapper.error(503, error.getMessage())
+                : error instanceof IllegalArgumentException
+                ? ApiResponseWrapper.error(400, error.getMessage())
+                : ApiResponseWrapper.error("Failed to process request");
+        reject(emitter, body);
+    }
+
+    /**
+     * Ends a stream with a single "error" event, also used to refuse a stream before it starts.
+     */
+    public static SseEmitter reject(SseEmitter emitter, ApiResponseWrapper<?> body) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(body));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Could not deliver stream error: {}", e.getMessage());
+        }
+        return emitter;
+    }
+
+    private void abandon(String reason) {
+        if (finished || isDisposed()) {
+            return;
+        }
+        finished = true;
+        dispose();
+        cancellationMetrics.recordCancelled(reason, System.currentTimeMillis() - startTime);
+    }
+
+    private void collectMetadata(ChatResponse response) {
+        if (response.getMetadata() == null) {
+            return;
+        }
+        if (response.getMetadata().getModel() != null && !response.getMetadata().getModel().isEmpty()) {
+            model = response.getMetadata().getModel();
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage != null && usage.getGenerationTokens() != null && usage.getGenerationTokens() > 0) {
+            generatedTokens = usage.getGenerationTokens();
+        }
+    }
+
+    private static String extractText(ChatResponse response) {
+        Generation generation = response.getResult();
+        if (generation == null || generation.getOutput() == null) {
+            return null;
+        }
+        return generation.getOutput().getText();
+    }
+}
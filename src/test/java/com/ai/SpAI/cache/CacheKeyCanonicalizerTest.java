@@ -0,0 +1,61 @@
+package com.ai.SpAI.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheKeyCanonicalizerTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final CacheKeyCanonicalizer keys = new CacheKeyCanonicalizer(
+			Map.of("nyc", "new york", "la", "los angeles"), Map.of("tomatoes", "tomato"), registry,
+			new PopularityTracker(256));
+
+	@Test
+	void equivalentRecipeRequestsShareAKey() {
+		String first = keys.recipe("tomato, basil", "Italian", "");
+		String second = keys.recipe("Basil,Tomatoes ", " italian", null);
+
+		assertThat(second).isEqualTo(first);
+		assertThat(first).hasSize(32);
+		assertThat(keys.recipe("tomato, basil", "thai", "")).isNotEqualTo(first);
+	}
+
+	@Test
+	void equivalentItineraryRequestsShareAKey() {
+		String first = keys.itinerary("New York", 3, "food and museums", "moderate");
+		String second = keys.itinerary("  NYC ", 3, "Museums, Food", "Moderate");
+
+		assertThat(second).isEqualTo(first);
+		assertThat(keys.itinerary("New York", 4, "food and museums", "moderate")).isNotEqualTo(first);
+	}
+
+	@Test
+	void listTermsAreNormalizedAndSorted() {
+		assertThat(keys.ingredients("Crème fraîche; tomatoes & basil, basil")).isEqualTo("basil,creme fraiche,tomato");
+	}
+
+	@Test
+	void destinationSynonymsApplyOnlyToTheDestination() {
+		assertThat(keys.itinerary("LA", 2, "beaches", "moderate"))
+				.isEqualTo(keys.itinerary("Los Angeles", 2, "beaches", "moderate"));
+		assertThat(keys.itinerary("Madrid", 2, "la liga, la", "moderate"))
+				.isNotEqualTo(keys.itinerary("Madrid", 2, "la liga, los angeles", "moderate"));
+		assertThat(keys.terms("la, nyc")).isEqualTo("la,nyc");
+		assertThat(keys.ingredients("la, tomatoes")).isEqualTo("la,tomato");
+		assertThat(keys.terms("tomatoes")).isEqualTo("tomatoes");
+	}
+
+	@Test
+	void countsLookupsThatOnlyMatchAfterCanonicalization() {
+		keys.recipe("tomato, basil", "any", "");
+		keys.recipe("tomato, basil", "any", "");
+		keys.recipe("basil, tomato", "any", "");
+
+		assertThat(registry.get("ai.cache.keys.requests").tag("cache", "recipes").counter().count()).isEqualTo(3);
+		assertThat(registry.get("ai.cache.keys.uplift").tag("cache", "recipes").counter().count()).isEqualTo(1);
+	}
+}
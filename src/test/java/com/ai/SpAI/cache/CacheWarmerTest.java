@@ -0,0 +1,124 @@
+package com.ai.SpAI.cache;
+
+import com.ai.SpAI.repository.SavedRecipeRepository;
+import com.ai.SpAI.repository.SavedTravelRepository;
+import com.ai.SpAI.service.GenerationCancellation;
+import com.ai.SpAI.service.GenerationCancelledException;
+import com.ai.SpAI.service.GenerationContext;
+import com.ai.SpAI.service.GenerationPriority;
+import com.ai.SpAI.service.GenerationScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheWarmerTest {
+
+	private static final WarmRequest LISBON = new WarmRequest.Itinerary("Lisbon", 3, "food", "moderate");
+	private static final WarmRequest ROME = new WarmRequest.Itinerary("Rome", 2, "history", "moderate");
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final PopularityTracker popularity = new PopularityTracker(256);
+	private final GenerationCache itineraries = new GenerationCache("itineraries",
+			CacheSpec.parse("maximumWeight=1MB,expireAfterWrite=1h"), Runnable::run);
+	private final ServiceCacheRefresher refresher = mock(ServiceCacheRefresher.class);
+	private final GenerationScheduler scheduler = new GenerationScheduler(registry, 1, () -> 1, 10, 5_000);
+
+	@Test
+	void stopsWarmingOnceTheHourlyBudgetIsSpent() {
+		popularity.record("lisbon", LISBON, 5);
+		popularity.record("rome", ROME, 3);
+		when(refresher.generate(any())).thenAnswer(call -> {
+			Thread.sleep(40);
+			return "plan";
+		});
+		CacheWarmer warmer = warmer(30);
+
+		warmer.warmPopular();
+
+		verify(refresher, times(1)).generate(any());
+		assertThat(itineraries.isFresh("lisbon")).isTrue();
+		assertThat(itineraries.get("rome")).isNull();
+		assertThat(warmer.remainingBudgetMs()).isZero();
+	}
+
+	@Test
+	void skipsEntriesThatAreStillFresh() {
+		popularity.record("lisbon", LISBON, 5);
+		itineraries.put("lisbon", "cached plan");
+		CacheWarmer warmer = warmer(60_000);
+
+		warmer.warmPopular();
+
+		verify(refresher, never()).generate(any());
+	}
+
+	@Test
+	void warmsOnlyWhileTheSchedulerIsIdle() {
+		popularity.record("lisbon", LISBON, 5);
+		when(refresher.generate(any())).thenReturn("plan");
+		CacheWarmer warmer = warmer(60_000);
+
+		try (GenerationScheduler.Permit ignored = scheduler.acquire(GenerationPriority.INTERACTIVE)) {
+			warmer.warmPopular();
+			verify(refresher, never()).generate(any());
+		}
+
+		warmer.warmPopular();
+		verify(refresher, times(1)).generate(any());
+	}
+
+	@Test
+	void warmGenerationIsPreemptedWhenAUserCallHasToQueue() throws Exception {
+		popularity.record("lisbon", LISBON, 5);
+		when(refresher.generate(any())).thenAnswer(call -> {
+			GenerationCancellation cancellation = GenerationContext.current().getCancellation();
+			try (GenerationScheduler.Permit ignored = scheduler.acquire(GenerationPriority.BACKGROUND)) {
+				CountDownLatch cancelled = new CountDownLatch(1);
+				cancellation.onCancel(cancelled::countDown);
+				cancelled.await(5, TimeUnit.SECONDS);
+				throw new GenerationCancelledException("Generation cancelled: " + cancellation.getReason());
+			}
+		});
+		CacheWarmer warmer = warmer(60_000);
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+
+		Future<?> pass = pool.submit(warmer::warmPopular);
+		while (scheduler.active() == 0) {
+			Thread.sleep(2);
+		}
+		Future<?> userCall = pool.submit(() -> scheduler.acquire(GenerationPriority.INTERACTIVE).close());
+
+		pass.get(5, TimeUnit.SECONDS);
+		userCall.get(5, TimeUnit.SECONDS);
+		assertThat(registry.get("ai.cache.warmer.generations").tag("result", "preempted").counter().count())
+				.isEqualTo(1);
+		assertThat(itineraries.get("lisbon")).isNull();
+		pool.shutdownNow();
+	}
+
+	private CacheWarmer warmer(long budgetMsPerHour) {
+		SimpleCacheManager cacheManager = new SimpleCacheManager();
+		cacheManager.setCaches(List.of(itineraries));
+		cacheManager.afterPropertiesSet();
+		return new CacheWarmer(cacheManager, popularity,
+				new CacheKeyCanonicalizer(new MockEnvironment(), registry, popularity), refresher, scheduler,
+				mock(SavedTravelRepository.class), mock(SavedRecipeRepository.class), Runnable::run, registry,
+				true, 20, budgetMsPerHour, 50);
+	}
+}
@@ -0,0 +1,165 @@
+package com.ai.SpAI.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiskResponseStoreTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void entriesSurviveReopen() throws Exception {
+		try (DiskResponseStore store = open("llama3", "1")) {
+			store.put("recipes", "tomato_basil", bytes("a recipe ".repeat(100)), Duration.ofHours(1));
+			store.put("recipes", "gone", bytes("evicted"), Duration.ofHours(1));
+			store.evict("recipes", "gone");
+		}
+
+		try (DiskResponseStore store = open("llama3", "1")) {
+			assertThat(text(store.get("recipes", "tomato_basil"))).isEqualTo("a recipe ".repeat(100));
+			assertThat(store.get("recipes", "gone")).isNull();
+			assertThat(store.entries()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	void changingModelOrTemplateVersionDropsEntries() throws Exception {
+		try (DiskResponseStore store = open("llama3", "1")) {
+			store.put("itineraries", "lisbon", bytes("plan"), Duration.ofHours(1));
+		}
+		try (DiskResponseStore store = open("llama3", "2")) {
+			assertThat(store.get("itineraries", "lisbon")).isNull();
+		}
+		try (DiskResponseStore store = open("mistral", "1")) {
+			assertThat(store.get("itineraries", "lisbon")).isNull();
+		}
+	}
+
+	@Test
+	void tornTailIsTruncatedOnReplay() throws Exception {
+		try (DiskResponseStore store = open("llama3", "1")) {
+			store.put("chatResponses", "hi", bytes("hello"), Duration.ofHours(1));
+		}
+		Files.write(directory.resolve("responses.log"), new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+		try (DiskResponseStore store = open("llama3", "1")) {
+			assertThat(text(store.get("chatResponses", "hi"))).isEqualTo("hello");
+			store.put("chatResponses", "bye", bytes("goodbye"), Duration.ofHours(1));
+			assertThat(text(store.get("chatResponses", "bye"))).isEqualTo("goodbye");
+		}
+	}
+
+	@Test
+	void compactionKeepsOnlyLiveRecords() throws Exception {
+		// Incompressible values so the log outgrows the compaction threshold.
+		Random random = new Random(7);
+		String last = null;
+		try (DiskResponseStore store = open("llama3", "1")) {
+			for (int i = 0; i < 1000; i++) {
+				byte[] noise = new byte[3072];
+				random.nextBytes(noise);
+				last = Base64.getEncoder().encodeToString(noise);
+				store.put("recipes", "key-" + (i % 10), bytes(last), Duration.ofHours(1));
+			}
+			long before = store.sizeBytes();
+
+			store.compactIfFragmented();
+
+			assertThat(store.sizeBytes()).isLessThan(before);
+			assertThat(store.sizeBytes()).isEqualTo(store.liveBytes());
+			assertThat(text(store.get("recipes", "key-9"))).isEqualTo(last);
+		}
+		try (DiskResponseStore store = open("llama3", "1")) {
+			assertThat(store.entries()).isEqualTo(10);
+		}
+	}
+
+	@Test
+	void logIsPreallocatedInChunksAndTrimmedOnClose() throws Exception {
+		Path copy = Files.createDirectory(directory.resolve("crashed"));
+		long written;
+		try (DiskResponseStore store = open("llama3", "1")) {
+			for (int i = 0; i < 20; i++) {
+				store.put("recipes", "key-" + i, bytes("recipe " + i), Duration.ofHours(1));
+			}
+			written = store.sizeBytes();
+			assertThat(Files.size(directory.resolve("responses.log"))).isGreaterThan(written);
+			// What a crash leaves behind: the records followed by unused preallocated space.
+			Files.copy(directory.resolve("responses.log"), copy.resolve("responses.log"));
+		}
+		assertThat(Files.size(directory.resolve("responses.log"))).isEqualTo(written);
+
+		try (DiskResponseStore store = new DiskResponseStore(copy, "llama3", "1", 64 * 1024 * 1024,
+				new SimpleMeterRegistry())) {
+			assertThat(store.entries()).isEqualTo(20);
+			assertThat(store.sizeBytes()).isEqualTo(written);
+			store.put("recipes", "key-20", bytes("recipe 20"), Duration.ofHours(1));
+			assertThat(text(store.get("recipes", "key-19"))).isEqualTo("recipe 19");
+			assertThat(text(store.get("recipes", "key-20"))).isEqualTo("recipe 20");
+		}
+	}
+
+	@Test
+	void fullStoreSkipsWritesUntilTheBackgroundCompaction() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		try (DiskResponseStore store = new DiskResponseStore(directory, "llama3", "1", 16 * 1024, registry)) {
+			int puts = 0;
+			while (store.sizeBytes() + 200 < 16 * 1024) {
+				store.put("chatResponses", "hi", bytes("hello " + puts++), Duration.ofHours(1));
+			}
+			byte[] noise = new byte[600];
+			new Random(7).nextBytes(noise);
+			String later = Base64.getEncoder().encodeToString(noise);
+			store.put("chatResponses", "later", bytes(later), Duration.ofHours(1));
+
+			assertThat(registry.get("ai.cache.disk.compactions").counter().count()).isZero();
+			assertThat(store.get("chatResponses", "later")).isNull();
+
+			store.compactIfFragmented();
+			store.put("chatResponses", "later", bytes(later), Duration.ofHours(1));
+
+			assertThat(registry.get("ai.cache.disk.compactions").counter().count()).isEqualTo(1);
+			assertThat(text(store.get("chatResponses", "hi"))).isEqualTo("hello " + (puts - 1));
+			assertThat(text(store.get("chatResponses", "later"))).isEqualTo(later);
+		}
+	}
+
+	@Test
+	void restartedCacheIsServedFromDisk() throws Exception {
+		CacheSpec spec = CacheSpec.parse("maximumWeight=1MB,expireAfterWrite=1h");
+		CacheValueCodec codec = new CacheValueCodec(new ObjectMapper());
+		try (DiskResponseStore store = open("llama3", "1")) {
+			new GenerationCache("recipes", spec, Runnable::run, null, store, codec).put("k", "generated");
+		}
+
+		try (DiskResponseStore store = open("llama3", "1")) {
+			GenerationCache restarted = new GenerationCache("recipes", spec, Runnable::run, null, store, codec);
+			assertThat(restarted.get("k", () -> "regenerated")).isEqualTo("generated");
+		}
+	}
+
+	private DiskResponseStore open(String model, String templateVersion) {
+		return new DiskResponseStore(directory, model, templateVersion, 64 * 1024 * 1024, new SimpleMeterRegistry());
+	}
+
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String text(byte[] bytes) {
+		return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+	}
+}
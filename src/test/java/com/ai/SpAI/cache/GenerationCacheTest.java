@@ -0,0 +1,155 @@
+package com.ai.SpAI.cache;
+
+import com.ai.SpAI.util.ApiResponseWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GenerationCacheTest {
+
+	@Test
+	void parsesSpecString() {
+		CacheSpec spec = CacheSpec.parse("maximumWeight=64MB,expireAfterWrite=6h,refreshAfterWrite=1h");
+
+		assertThat(spec.maximumWeightBytes()).isEqualTo(64L * 1024 * 1024);
+		assertThat(spec.expireAfterWrite()).isEqualTo(Duration.ofHours(6));
+		assertThat(spec.refreshAfterWrite()).isEqualTo(Duration.ofHours(1));
+		assertThat(CacheSpec.parse("maximumWeight=8MB,expireAfterWrite=1h").refreshes()).isFalse();
+	}
+
+	@Test
+	void loadsOnceAndServesFromCache() {
+		GenerationCache cache = new GenerationCache("test",
+				CacheSpec.parse("maximumWeight=1MB,expireAfterWrite=1h"), Runnable::run);
+		AtomicInteger loads = new AtomicInteger();
+
+		String first = cache.get("k", () -> "value-" + loads.incrementAndGet());
+		String second = cache.get("k", () -> "value-" + loads.incrementAndGet());
+
+		assertThat(first).isEqualTo("value-1");
+		assertThat(second).isEqualTo("value-1");
+		assertThat(loads).hasValue(1);
+	}
+
+	@Test
+	void doesNotCacheErrorResponses() {
+		GenerationCache cache = new GenerationCache("test",
+				CacheSpec.parse("maximumWeight=1MB,expireAfterWrite=1h"), Runnable::run);
+
+		cache.get("k", () -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+				.body(ApiResponseWrapper.error("boom")));
+
+		assertThat(cache.get("k")).isNull();
+	}
+
+	@Test
+	void cachesGeneratedTextAndStructuredResults() {
+		assertThat(CacheValues.isCacheable(ResponseEntity.ok(ApiResponseWrapper.success("Day 1: Old town")))).isTrue();
+		assertThat(CacheValues.isCacheable(ResponseEntity.ok(ApiResponseWrapper.success("Itinerary generated", List.of(1)))))
+				.isTrue();
+		assertThat(CacheValues.isCacheable(ResponseEntity.ok(ApiResponseWrapper.success(null, null)))).isFalse();
+	}
+
+	@Test
+	void doesNotCacheNoStoreFallbacks() {
+		GenerationCache cache = new GenerationCache("test",
+				CacheSpec.parse("maximumWeight=1MB,expireAfterWrite=1h"), Runnable::run);
+
+		cache.get("k", () -> ResponseEntity.ok().cacheControl(CacheControl.noStore())
+				.body(ApiResponseWrapper.success("I'm currently experiencing high demand.")));
+
+		assertThat(cache.get("k")).isNull();
+	}
+
+	@Test
+	void staleEntryIsServedAndRefreshedInBackgroundThroughTheRefresher() throws Exception {
+		AtomicInteger refreshes = new AtomicInteger();
+		GenerationCache cache = new GenerationCache("test",
+				CacheSpec.parse("maximumWeight=1MB,expireAfterWrite=1h,refreshAfterWrite=1ms"), Runnable::run,
+				(cacheName, key) -> "refreshed-" + refreshes.incrementAndGet(), null, null, null);
+		AtomicInteger loads = new AtomicInteger();
+
+		cache.get("k", () -> "value-" + loads.incrementAndGet());
+		Thread.sleep(5);
+		String served = cache.get("k", () -> "value-" + loads.incrementAndGet());
+
+		assertThat(served).isEqualTo("value-1");
+		assertThat(loads).hasValue(1);
+		assertThat(refreshes).hasValue(1);
+		assertThat(cache.get("k").get()).isEqualTo("refreshed-1");
+	}
+
+	@Test
+	void uncacheableRefreshKeepsTheStaleEntry() throws Exception {
+		GenerationCache cache = new GenerationCache("test",
+				CacheSpec.parse("maximumWeight=1MB,expireAfterWrite=1h,refreshAfterWrite=1ms"), Runnable::run,
+				(cacheName, key) -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+						.body(ApiResponseWrapper.error("Too many requests")), null, null, null);
+
+		cache.get("k", () -> "value");
+		Thread.sleep(5);
+		cache.get("k", () -> "unused");
+
+		assertThat(cache.get("k").get()).isEqualTo("value");
+	}
+
+	@Test
+	void concurrentMissesRunOneLoader() throws Exception {
+		GenerationCache cache = new GenerationCache("test",
+				CacheSpec.parse("maximumWeight=1MB,expireAfterWrite=1h"), Runnable::run);
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			results.add(pool.submit(() -> cache.get("k", () -> {
+				loads.incrementAndGet();
+				release.await(5, TimeUnit.SECONDS);
+				return "value";
+			})));
+		}
+		Thread.sleep(50);
+		release.countDown();
+
+		for (Future<String> result : results) {
+			assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+		}
+		assertThat(loads).hasValue(1);
+		pool.shutdownNow();
+	}
+
+	@Test
+	void jitterSpreadsDeadlinesOfEntriesWrittenTogether() {
+		GenerationCache cache = new GenerationCache("test",
+				CacheSpec.parse("maximumWeight=1MB,expireAfterWrite=1h,refreshAfterWrite=30m,jitter=10%"), Runnable::run);
+		for (int i = 0; i < 50; i++) {
+			cache.put("k" + i, "v" + i);
+		}
+
+		Set<Long> deadlines = new HashSet<>();
+		for (GenerationCache.Entry entry : cache.getNativeCache().asMap().values()) {
+			long hardTtl = entry.expiresAt() - entry.writtenAt();
+			long softTtl = entry.refreshAt() - entry.writtenAt();
+			assertThat(hardTtl).isBetween(Duration.ofMinutes(54).toMillis(), Duration.ofMinutes(66).toMillis());
+			assertThat(softTtl).isBetween(Duration.ofMinutes(27).toMillis(), Duration.ofMinutes(33).toMillis());
+			deadlines.add(hardTtl);
+		}
+		assertThat(deadlines).hasSizeGreaterThan(40);
+	}
+}
@@ -0,0 +1,57 @@
+package com.ai.SpAI.cache;
+
+import com.ai.SpAI.util.ApiResponseWrapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GenerationHandleStoreTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final InMemorySharedCacheStore sharedStore = new InMemorySharedCacheStore();
+
+	private GenerationHandleStore newNode() {
+		return new GenerationHandleStore(Duration.ofMinutes(30), 1_000_000, sharedStore, objectMapper);
+	}
+
+	@Test
+	void sameTextGetsTheSameShortHandle() {
+		GenerationHandleStore handles = newNode();
+
+		String handle = handles.issue("Day 1: walk the old town");
+
+		assertThat(handle).hasSize(22);
+		assertThat(handles.issue("Day 1: walk the old town")).isEqualTo(handle);
+		assertThat(handles.issue("Day 1: take the ferry")).isNotEqualTo(handle);
+		assertThat(handles.resolve(handle)).contains("Day 1: walk the old town");
+	}
+
+	@Test
+	void unknownHandlesResolveToNothing() {
+		GenerationHandleStore handles = newNode();
+
+		assertThat(handles.resolve("nope")).isEmpty();
+		assertThat(handles.resolve(null)).isEmpty();
+	}
+
+	@Test
+	void handleIssuedOnOneNodeResolvesOnAnother() {
+		String handle = newNode().issue("Stir-fry the tofu");
+
+		assertThat(newNode().resolve(handle)).contains("Stir-fry the tofu");
+	}
+
+	@Test
+	void cachedCompressedBodyYieldsTheHandleOfItsText() throws Exception {
+		GenerationHandleStore handles = newNode();
+		PrecompressedJson body = PrecompressedJson.of(
+				objectMapper.writeValueAsBytes(ApiResponseWrapper.success("Simmer for 20 minutes")));
+
+		assertThat(handles.issue(body)).contains(handles.issue("Simmer for 20 minutes"));
+		assertThat(handles.issue(PrecompressedJson.of(
+				objectMapper.writeValueAsBytes(ApiResponseWrapper.error("Request timeout"))))).isEmpty();
+	}
+}
@@ -0,0 +1,49 @@
+package com.ai.SpAI.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for the Redis tier: one instance shared by several caches plays the
+ * role of the cluster store, and publishing delivers synchronously to every subscriber.
+ */
+class InMemorySharedCacheStore implements SharedCacheStore {
+
+	private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+	private final List<Consumer<CacheInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+	@Override
+	public byte[] get(String cacheName, String key) {
+		return values.get(cacheName + ':' + key);
+	}
+
+	@Override
+	public void put(String cacheName, String key, byte[] value, Duration ttl) {
+		values.put(cacheName + ':' + key, value);
+	}
+
+	@Override
+	public void evict(String cacheName, String key) {
+		values.remove(cacheName + ':' + key);
+	}
+
+	@Override
+	public void clear(String cacheName) {
+		values.keySet().removeIf(key -> key.startsWith(cacheName + ':'));
+	}
+
+	@Override
+	public void publish(CacheInvalidation invalidation) {
+		CacheInvalidation received = CacheInvalidation.decode(invalidation.encode());
+		listeners.forEach(listener -> listener.accept(received));
+	}
+
+	@Override
+	public void subscribe(Consumer<CacheInvalidation> listener) {
+		listeners.add(listener);
+	}
+}
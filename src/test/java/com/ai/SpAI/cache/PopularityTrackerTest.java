@@ -0,0 +1,70 @@
+package com.ai.SpAI.cache;
+
+import com.ai.SpAI.util.CountMinSketch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PopularityTrackerTest {
+
+	@Test
+	void sketchNeverUnderestimatesAndDecays() {
+		CountMinSketch sketch = new CountMinSketch(1024);
+		for (int i = 0; i < 500; i++) {
+			sketch.add("key-" + (i % 50), 1);
+		}
+		for (int i = 0; i < 50; i++) {
+			assertThat(sketch.estimate("key-" + i)).isGreaterThanOrEqualTo(10);
+		}
+
+		int before = sketch.estimate("key-1");
+		for (int i = 0; i < 20_000; i++) {
+			sketch.add("noise-" + i, 1);
+		}
+		assertThat(sketch.estimate("key-1")).isLessThan(before);
+	}
+
+	@Test
+	void keepsTheMostRequestedKeysAsCandidates() {
+		PopularityTracker tracker = new PopularityTracker(3);
+		for (int i = 0; i < 10; i++) {
+			tracker.record("lisbon", itinerary("Lisbon"));
+		}
+		for (int i = 0; i < 5; i++) {
+			tracker.record("rome", itinerary("Rome"));
+		}
+		tracker.record("oslo", itinerary("Oslo"));
+		tracker.record("paris", itinerary("Paris"), 7);
+
+		List<String> top = tracker.top(2).stream().map(PopularityTracker.Candidate::key).toList();
+
+		assertThat(top).containsExactly("lisbon", "paris");
+		assertThat(tracker.top(10)).extracting(PopularityTracker.Candidate::key)
+				.containsExactlyInAnyOrder("lisbon", "paris", "rome");
+	}
+
+	@Test
+	void stripedTrackerKeepsHotKeysAmongManyColdOnes() {
+		PopularityTracker tracker = new PopularityTracker(64, 4);
+		for (int round = 0; round < 20; round++) {
+			for (int hot = 0; hot < 8; hot++) {
+				tracker.record("hot-" + hot, itinerary("Hot " + hot));
+			}
+		}
+		for (int cold = 0; cold < 2_000; cold++) {
+			tracker.record("cold-" + cold, itinerary("Cold " + cold));
+		}
+
+		assertThat(tracker.top(8)).extracting(PopularityTracker.Candidate::key)
+				.containsExactlyInAnyOrder("hot-0", "hot-1", "hot-2", "hot-3", "hot-4", "hot-5", "hot-6", "hot-7");
+		assertThat(tracker.top(100)).hasSizeLessThanOrEqualTo(64);
+		assertThat(tracker.requestFor("itineraries", "hot-3")).isEqualTo(itinerary("Hot 3"));
+		assertThat(tracker.requestFor("recipes", "hot-3")).isNull();
+	}
+
+	private static WarmRequest itinerary(String destination) {
+		return new WarmRequest.Itinerary(destination, 3, "general sightseeing", "moderate");
+	}
+}
@@ -0,0 +1,108 @@
+package com.ai.SpAI.cache;
+
+import com.ai.SpAI.util.ApiResponseWrapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrecompressedJsonHttpMessageConverterTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final CacheValueCodec codec = new CacheValueCodec(objectMapper);
+	private final PrecompressedJsonHttpMessageConverter converter = new PrecompressedJsonHttpMessageConverter();
+
+	@AfterEach
+	void resetRequest() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void gzipClientsReceiveStoredBytesUnchanged() throws Exception {
+		PrecompressedJson body = precompressedItinerary();
+		request("gzip, deflate, br");
+
+		MockHttpOutputMessage output = new MockHttpOutputMessage();
+		converter.write(body, MediaType.APPLICATION_JSON, output);
+
+		assertThat(output.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		assertThat(output.getHeaders().getContentLength()).isEqualTo(body.gzip().length);
+		assertThat(output.getBodyAsBytes()).isEqualTo(body.gzip());
+		String json = new String(new GZIPInputStream(new ByteArrayInputStream(output.getBodyAsBytes())).readAllBytes());
+		assertThat(objectMapper.readTree(json).get("message").asText()).startsWith("Day 1");
+	}
+
+	@Test
+	void otherClientsReceivePlainJson() throws Exception {
+		PrecompressedJson body = precompressedItinerary();
+		request(null);
+
+		MockHttpOutputMessage output = new MockHttpOutputMessage();
+		converter.write(body, MediaType.APPLICATION_JSON, output);
+
+		assertThat(output.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+		assertThat(output.getHeaders().getContentLength()).isEqualTo(body.length());
+		assertThat(objectMapper.readTree(output.getBodyAsString()).get("success").asBoolean()).isTrue();
+	}
+
+	@Test
+	void clientThatRefusesGzipWithAZeroWeightReceivesPlainJson() throws Exception {
+		PrecompressedJson body = precompressedItinerary();
+		request("gzip;q=0, identity");
+
+		MockHttpOutputMessage output = new MockHttpOutputMessage();
+		converter.write(body, MediaType.APPLICATION_JSON, output);
+
+		assertThat(output.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+		assertThat(output.getHeaders().getContentLength()).isEqualTo(body.length());
+	}
+
+	@Test
+	void readsCodingWeightsRatherThanSubstrings() {
+		assertThat(PrecompressedJsonHttpMessageConverter.acceptsGzip("gzip")).isTrue();
+		assertThat(PrecompressedJsonHttpMessageConverter.acceptsGzip("br;q=1.0, GZIP;q=0.5")).isTrue();
+		assertThat(PrecompressedJsonHttpMessageConverter.acceptsGzip("x-gzip")).isTrue();
+		assertThat(PrecompressedJsonHttpMessageConverter.acceptsGzip("*")).isTrue();
+		assertThat(PrecompressedJsonHttpMessageConverter.acceptsGzip("gzip;q=0")).isFalse();
+		assertThat(PrecompressedJsonHttpMessageConverter.acceptsGzip("gzip; q=0.000, *")).isFalse();
+		assertThat(PrecompressedJsonHttpMessageConverter.acceptsGzip("*;q=0")).isFalse();
+		assertThat(PrecompressedJsonHttpMessageConverter.acceptsGzip("identity, nogzip")).isFalse();
+		assertThat(PrecompressedJsonHttpMessageConverter.acceptsGzip("gzip;q=oops")).isFalse();
+		assertThat(PrecompressedJsonHttpMessageConverter.acceptsGzip("")).isFalse();
+	}
+
+	@Test
+	void precompressedEntriesRoundTripThroughCodecAndAreSmaller() {
+		PrecompressedJson body = precompressedItinerary();
+		assertThat(body.gzip().length * 4).isLessThan(body.length());
+
+		ResponseEntity<?> restored = (ResponseEntity<?>) codec.decode(codec.encode(ResponseEntity.ok(body), 1L)).value();
+
+		assertThat(((PrecompressedJson) restored.getBody()).gzip()).isEqualTo(body.gzip());
+	}
+
+	private PrecompressedJson precompressedItinerary() {
+		String itinerary = "Day 1: Arrive, walk the old town and have dinner by the river.\n".repeat(60);
+		ResponseEntity<?> stored = (ResponseEntity<?>) codec.precompress(ResponseEntity.ok(ApiResponseWrapper.success(itinerary)));
+		return (PrecompressedJson) stored.getBody();
+	}
+
+	private static void request(String acceptEncoding) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		if (acceptEncoding != null) {
+			request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+		}
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+	}
+}
@@ -0,0 +1,69 @@
+package com.ai.SpAI.cache;
+
+import com.ai.SpAI.util.ApiResponseWrapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharedGenerationCacheTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final CacheValueCodec codec = new CacheValueCodec(objectMapper);
+	private final InMemorySharedCacheStore store = new InMemorySharedCacheStore();
+	private final CacheSpec spec = CacheSpec.parse("maximumWeight=1MB,expireAfterWrite=1h");
+
+	@Test
+	void responseEntityRoundTripsThroughBinaryCodec() throws Exception {
+		ResponseEntity<ApiResponseWrapper<Map<String, Object>>> response = ResponseEntity.ok()
+				.header("X-Model", "llama3")
+				.body(ApiResponseWrapper.success("Itinerary ready", Map.of("destination", "Lisbon", "days", 3)));
+
+		CacheValueCodec.Decoded decoded = codec.decode(codec.encode(response, 1234L));
+
+		assertThat(decoded.writtenAt()).isEqualTo(1234L);
+		ResponseEntity<?> restored = (ResponseEntity<?>) decoded.value();
+		assertThat(restored.getStatusCode().value()).isEqualTo(200);
+		assertThat(restored.getHeaders().getFirst("X-Model")).isEqualTo("llama3");
+		assertThat(objectMapper.writeValueAsString(restored.getBody()))
+				.isEqualTo(objectMapper.writeValueAsString(response.getBody()));
+	}
+
+	@Test
+	void secondNodeIsServedFromSharedTier() {
+		GenerationCache nodeA = node();
+		GenerationCache nodeB = node();
+		AtomicInteger generations = new AtomicInteger();
+
+		nodeA.get("Lisbon_3", () -> ResponseEntity.ok(ApiResponseWrapper.success("ok", "plan-" + generations.incrementAndGet())));
+		Object fromB = nodeB.get("Lisbon_3", () -> ResponseEntity.ok(ApiResponseWrapper.success("ok", "plan-" + generations.incrementAndGet())));
+
+		assertThat(generations).hasValue(1);
+		assertThat(((JsonNode) ((ResponseEntity<?>) fromB).getBody()).get("data").asText()).isEqualTo("plan-1");
+	}
+
+	@Test
+	void writesInvalidateOtherNodesLocalCopies() {
+		GenerationCache nodeA = node();
+		GenerationCache nodeB = node();
+
+		nodeA.put("k", "v1");
+		assertThat(nodeB.get("k").get()).isEqualTo("v1");
+
+		nodeA.put("k", "v2");
+		assertThat(nodeB.getNativeCache().getIfPresent("k")).isNull();
+		assertThat(nodeB.get("k").get()).isEqualTo("v2");
+
+		nodeA.evict("k");
+		assertThat(nodeB.get("k")).isNull();
+	}
+
+	private GenerationCache node() {
+		return new GenerationCache("itineraries", spec, Runnable::run, store, codec);
+	}
+}
@@ -0,0 +1,91 @@
+package com.ai.SpAI.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to get {@code tasks} concurrent generations through {@link AsyncConfig#blockingExecutor},
+ * where each generation is a thread blocked for {@code waitMs} on the model. The platform pool
+ * runs them {@code platform-threads} at a time; virtual threads park all of them at once.
+ * {@code virtual} needs Java 21, and on older JVMs measures the platform fallback. Not run by
+ * surefire; launch with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.ai.SpAI.config.BlockingExecutorBenchmark}
+ * or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xss1m")
+public class BlockingExecutorBenchmark {
+
+	private static final int PLATFORM_THREADS = 64;
+
+	@Param({"platform", "virtual"})
+	public String mode;
+
+	@Param({"1000", "10000"})
+	public int tasks;
+
+	@Param("50")
+	public long waitMs;
+
+	private Executor executor;
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		executor = AsyncConfig.blockingExecutor("Bench-", "virtual".equals(mode), PLATFORM_THREADS, tasks);
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws Exception {
+		if (executor instanceof DisposableBean disposable) {
+			disposable.destroy();
+		} else if (executor instanceof AutoCloseable closeable) {
+			closeable.close();
+		}
+	}
+
+	@Benchmark
+	public void concurrentGenerations() {
+		CompletableFuture<?>[] generations = new CompletableFuture<?>[tasks];
+		for (int i = 0; i < tasks; i++) {
+			generations[i] = CompletableFuture.runAsync(this::awaitModel, executor);
+		}
+		CompletableFuture.allOf(generations).join();
+	}
+
+	private void awaitModel() {
+		try {
+			Thread.sleep(waitMs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(BlockingExecutorBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
@@ -0,0 +1,85 @@
+package com.ai.SpAI.controller;
+
+import com.ai.SpAI.service.ChatService;
+import com.ai.SpAI.service.GenerationCostModel;
+import com.ai.SpAI.service.GenerationOverloadedException;
+import com.ai.SpAI.service.RecipeService;
+import com.ai.SpAI.util.RateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class GenerationOverloadedAdviceTest {
+
+	private static final GenerationOverloadedException OVERLOADED = new GenerationOverloadedException(
+			"The AI service is busy. Please retry in 12 seconds.", 12);
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final RateLimiter rateLimiter = mock(RateLimiter.class);
+	private final GenerationCostModel costModel = new GenerationCostModel(registry, 30, 2048, 14, 30, 8000);
+	private final ChatService chatService = mock(ChatService.class);
+	private final RecipeService recipeService = mock(RecipeService.class);
+
+	@Test
+	void overloadThrownByAHandlerIsA503WithRetryAfter() throws Exception {
+		when(chatService.getResponseOptions(anyString())).thenThrow(OVERLOADED);
+
+		mvc(new ChatController(chatService, rateLimiter, null, costModel, null))
+				.perform(get("/api/chat/options").param("prompt", "hello"))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().string("Retry-After", "12"))
+				.andExpect(jsonPath("$.success").value(false))
+				.andExpect(jsonPath("$.error").value(OVERLOADED.getMessage()));
+	}
+
+	@Test
+	void overloadReportedToADeferredResultGetsTheSameResponse() throws Exception {
+		when(rateLimiter.tryAcquireForCurrentUser(anyDouble())).thenReturn(true);
+		when(recipeService.createRecipe(anyString(), anyString(), anyString(), any())).thenThrow(OVERLOADED);
+		RecipeController controller = new RecipeController(recipeService, rateLimiter, costModel, null,
+				Runnable::run, null);
+		ReflectionTestUtils.setField(controller, "asyncTimeoutMs", 60_000L);
+		MockMvc mvc = mvc(controller);
+
+		MvcResult started = mvc.perform(get("/api/recipes/create/async").param("ingredients", "eggs, flour"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mvc.perform(asyncDispatch(started))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(header().string("Retry-After", "12"))
+				.andExpect(jsonPath("$.error").value(OVERLOADED.getMessage()));
+	}
+
+	@Test
+	void circuitBreakerFallbackLeavesOverloadToTheAdvice() {
+		ChatController controller = new ChatController(chatService, rateLimiter, null, costModel, null);
+
+		assertThatThrownBy(() -> controller.chatFallback("hello", OVERLOADED)).isSameAs(OVERLOADED);
+		assertThat(controller.chatFallback("hello", new IllegalStateException("model down")).getStatusCode().value())
+				.isEqualTo(200);
+	}
+
+	private static MockMvc mvc(Object controller) {
+		return MockMvcBuilders.standaloneSetup(controller)
+				.setControllerAdvice(new GenerationOverloadedAdvice())
+				.build();
+	}
+}
@@ -0,0 +1,145 @@
+package com.ai.SpAI.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GenerationCoalescerTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final GenerationCoalescer coalescer = new GenerationCoalescer(registry);
+
+	@Test
+	void concurrentIdenticalPromptsShareOneGeneration() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(10);
+
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			results.add(pool.submit(() -> coalescer.execute("itinerary", "Paris  3 days", () -> {
+				calls.incrementAndGet();
+				await(release);
+				return "plan";
+			})));
+		}
+
+		while (registry.get("ai.generation.coalescer.calls").tag("result", "coalesced").counter().count() < 9) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+
+		for (Future<String> result : results) {
+			assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("plan");
+		}
+		assertThat(calls.get()).isEqualTo(1);
+		pool.shutdownNow();
+	}
+
+	@Test
+	void failuresPropagateAndAreNotRemembered() {
+		assertThatThrownBy(() -> coalescer.execute("chat", "hi", () -> {
+			throw new IllegalStateException("model down");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(coalescer.execute("chat", "hi", () -> "hello")).isEqualTo("hello");
+	}
+
+	@Test
+	void leaderCancelDoesNotAbortGenerationSharedWithJoiners() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		AtomicReference<GenerationCancellation> shared = new AtomicReference<>();
+		CountDownLatch release = new CountDownLatch(1);
+		GenerationCancellation leader = new GenerationCancellation();
+		GenerationCancellation joiner = new GenerationCancellation();
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+
+		Supplier<String> generation = () -> {
+			calls.incrementAndGet();
+			shared.set(GenerationContext.current().getCancellation());
+			await(release);
+			return "plan";
+		};
+		Future<String> leaderResult = pool.submit(() -> executeAs(leader, generation));
+		while (shared.get() == null) {
+			Thread.sleep(2);
+		}
+		Future<String> joinerResult = pool.submit(() -> executeAs(joiner, generation));
+		awaitCoalesced(1);
+
+		leader.cancel("client_disconnect");
+		assertThat(shared.get().isCancelled()).isFalse();
+
+		release.countDown();
+		assertThat(joinerResult.get(5, TimeUnit.SECONDS)).isEqualTo("plan");
+		assertThat(leaderResult.get(5, TimeUnit.SECONDS)).isEqualTo("plan");
+		assertThat(calls.get()).isEqualTo(1);
+		pool.shutdownNow();
+	}
+
+	@Test
+	void generationIsCancelledOnlyWhenTheLastCallerLeaves() throws Exception {
+		AtomicReference<GenerationCancellation> shared = new AtomicReference<>();
+		GenerationCancellation leader = new GenerationCancellation();
+		GenerationCancellation joiner = new GenerationCancellation();
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+
+		Supplier<String> generation = () -> {
+			GenerationCancellation cancellation = GenerationContext.current().getCancellation();
+			shared.set(cancellation);
+			CountDownLatch cancelled = new CountDownLatch(1);
+			cancellation.onCancel(cancelled::countDown);
+			await(cancelled);
+			throw new GenerationCancelledException("Generation cancelled: " + cancellation.getReason());
+		};
+		Future<String> leaderResult = pool.submit(() -> executeAs(leader, generation));
+		while (shared.get() == null) {
+			Thread.sleep(2);
+		}
+		Future<String> joinerResult = pool.submit(() -> executeAs(joiner, generation));
+		awaitCoalesced(1);
+
+		joiner.cancel("timeout");
+		assertThatThrownBy(() -> joinerResult.get(5, TimeUnit.SECONDS))
+				.hasCauseInstanceOf(GenerationCancelledException.class);
+		assertThat(shared.get().isCancelled()).isFalse();
+
+		leader.cancel("client_disconnect");
+		assertThatThrownBy(() -> leaderResult.get(5, TimeUnit.SECONDS))
+				.hasCauseInstanceOf(GenerationCancelledException.class);
+		assertThat(shared.get().getReason()).isEqualTo("client_disconnect");
+		pool.shutdownNow();
+	}
+
+	private String executeAs(GenerationCancellation cancellation, Supplier<String> generation) {
+		return GenerationContext.callWith(GenerationContext.of(GenerationPriority.INTERACTIVE, 0, cancellation),
+				() -> coalescer.execute("itinerary", "Rome 2 days", generation));
+	}
+
+	private void awaitCoalesced(int count) throws InterruptedException {
+		while (registry.get("ai.generation.coalescer.calls").tag("result", "coalesced").counter().count() < count) {
+			Thread.sleep(2);
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.ai.SpAI.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GenerationCostModelTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final GenerationCostModel costModel = new GenerationCostModel(registry, 30, 2048, 14, 30, 8000);
+
+	@Test
+	void rejectsRequestsBeyondTheHardCaps() {
+		assertThatThrownBy(() -> costModel.itinerary(365, "museums"))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("14 days");
+		assertThatThrownBy(() -> costModel.chat("x".repeat(8001)))
+				.isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(registry.get("ai.admission.decisions").tag("kind", "itinerary").tag("result", "rejected")
+				.counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void countsListItemsTheWayCacheKeysSplitThem() {
+		assertThat(costModel.recipe("Eggs AND Flour / Milk").outputTokens())
+				.isEqualTo(costModel.recipe("eggs, flour, milk").outputTokens());
+		assertThat(costModel.itinerary(3, "Food and Museums").outputTokens())
+				.isEqualTo(costModel.itinerary(3, "food & museums").outputTokens());
+		assertThat(costModel.recipe("sandwich bread").outputTokens())
+				.isEqualTo(costModel.recipe("bread").outputTokens());
+	}
+
+	@Test
+	void scalesWithTheRequestAndCapsNumPredict() {
+		GenerationEstimate weekend = costModel.itinerary(2, "food, museums");
+		GenerationEstimate week = costModel.itinerary(7, "food, museums");
+
+		assertThat(week.outputTokens()).isGreaterThan(weekend.outputTokens());
+		assertThat(week.gpuSeconds()).isGreaterThan(weekend.gpuSeconds());
+		assertThat(week.cost()).isGreaterThan(weekend.cost());
+		assertThat(week.numPredict()).isGreaterThan(week.outputTokens()).isLessThanOrEqualTo(2048);
+		assertThat(week.downgraded()).isFalse();
+
+		assertThat(costModel.recipe("eggs, flour and milk").outputTokens())
+				.isLessThan(costModel.recipe("eggs, flour, milk, sugar, butter, salt, vanilla").outputTokens());
+	}
+
+	@Test
+	void downgradesLongTripsToTheOutputBudget() {
+		GenerationEstimate fortnight = costModel.itinerary(14, "hiking");
+
+		assertThat(fortnight.downgraded()).isTrue();
+		assertThat(fortnight.outputTokens()).isEqualTo(2048);
+		assertThat(fortnight.numPredict()).isEqualTo(2048);
+	}
+}
@@ -0,0 +1,182 @@
+package com.ai.SpAI.service;
+
+import com.ai.SpAI.dto.GenerationJobRequest;
+import com.ai.SpAI.entity.GenerationJob;
+import com.ai.SpAI.repository.GenerationJobRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GenerationJobServiceTest {
+
+	private final Map<String, GenerationJob> table = new LinkedHashMap<>();
+	private final GenerationJobRepository repository = repository();
+	private final GenerationJobService service = new GenerationJobService(repository, new ObjectMapper(),
+			new SimpleMeterRegistry(), 60_000, 2, 3);
+
+	@Test
+	void claimsQueuedJobsOldestFirstAndLeasesThem() {
+		GenerationJob first = submit("user:ana", 3);
+		GenerationJob second = submit("user:ana", 2);
+		submit("user:ana", 1);
+
+		List<GenerationJob> claimed = service.claim("worker-a", 2, 60_000);
+
+		assertThat(claimed).containsExactly(first, second);
+		assertThat(first.getStatus()).isEqualTo(GenerationJob.Status.RUNNING);
+		assertThat(first.getWorkerId()).isEqualTo("worker-a");
+		assertThat(first.getAttempts()).isEqualTo(1);
+		assertThat(first.getLeaseUntil()).isAfter(LocalDateTime.now());
+		assertThat(service.claim("worker-b", 5, 60_000)).hasSize(1);
+	}
+
+	@Test
+	void expiredLeaseIsTakenOverAndTheLateOutcomeDropped() {
+		GenerationJob job = submit("user:ana", 1);
+		service.claim("worker-a", 1, 60_000);
+		job.setLeaseUntil(LocalDateTime.now().minusSeconds(1));
+
+		assertThat(service.claim("worker-b", 1, 60_000)).containsExactly(job);
+		service.succeed(job.getId(), "worker-a", "stale plan");
+		assertThat(job.getStatus()).isEqualTo(GenerationJob.Status.RUNNING);
+
+		service.succeed(job.getId(), "worker-b", "plan");
+		assertThat(job.getStatus()).isEqualTo(GenerationJob.Status.SUCCEEDED);
+		assertThat(job.getResult()).isEqualTo("plan");
+		assertThat(job.getAttempts()).isEqualTo(2);
+		assertThat(job.getExpiresAt()).isAfter(LocalDateTime.now());
+	}
+
+	@Test
+	void jobOutOfAttemptsIsFailedInsteadOfClaimed() {
+		GenerationJob job = submit("user:ana", 1);
+		for (int attempt = 0; attempt < 2; attempt++) {
+			service.claim("worker-a", 1, 60_000);
+			job.setLeaseUntil(LocalDateTime.now().minusSeconds(1));
+		}
+
+		assertThat(service.claim("worker-b", 1, 60_000)).isEmpty();
+		assertThat(job.getStatus()).isEqualTo(GenerationJob.Status.FAILED);
+		assertThat(job.getError()).isEqualTo("Gave up after 2 attempts");
+	}
+
+	@Test
+	void requeueAfterOverloadDoesNotUseAnAttempt() {
+		GenerationJob job = submit("user:ana", 1);
+		service.claim("worker-a", 1, 60_000);
+
+		service.requeue(job.getId(), "worker-b", true);
+		assertThat(job.getStatus()).isEqualTo(GenerationJob.Status.RUNNING);
+
+		service.requeue(job.getId(), "worker-a", false);
+		assertThat(job.getStatus()).isEqualTo(GenerationJob.Status.QUEUED);
+		assertThat(job.getAttempts()).isZero();
+		assertThat(job.getWorkerId()).isNull();
+		assertThat(service.claim("worker-b", 1, 60_000)).containsExactly(job);
+	}
+
+	@Test
+	void longPollCompletesWhenTheJobFinishesHereOrElsewhere() {
+		GenerationJob local = submit("user:ana", 2);
+		GenerationJob remote = submit("user:ana", 1);
+		service.claim("worker-a", 2, 60_000);
+		CompletableFuture<GenerationJob> localWait = service.awaitFinished(local.getId());
+		CompletableFuture<GenerationJob> remoteWait = service.awaitFinished(remote.getId());
+
+		service.fail(local.getId(), "worker-a", "model down");
+		assertThat(localWait).isCompletedWithValue(local);
+		assertThat(remoteWait).isNotDone();
+
+		// Another node finished it: only the table says so.
+		remote.setStatus(GenerationJob.Status.SUCCEEDED);
+		service.completeRemoteWaiters();
+		assertThat(remoteWait).isCompletedWithValue(remote);
+	}
+
+	@Test
+	void longPollOnAPurgedJobIsCancelled() {
+		GenerationJob job = submit("user:ana", 1);
+		CompletableFuture<GenerationJob> wait = service.awaitFinished(job.getId());
+		table.remove(job.getId());
+
+		service.completeRemoteWaiters();
+
+		assertThat(wait).isCancelled();
+	}
+
+	@Test
+	void refusesUsersWithTooManyPendingJobs() {
+		for (int i = 0; i < 3; i++) {
+			submit("user:ana", 1);
+		}
+
+		assertThat(service.create("user:ana", chat())).isEmpty();
+		assertThat(service.create("user:ben", chat())).isPresent();
+	}
+
+	private GenerationJob submit(String user, int minutesAgo) {
+		GenerationJob job = service.create(user, chat()).orElseThrow();
+		job.setCreatedAt(LocalDateTime.now().minusMinutes(minutesAgo));
+		return job;
+	}
+
+	private static GenerationJobRequest chat() {
+		GenerationJobRequest request = new GenerationJobRequest();
+		request.setType(GenerationJob.Type.CHAT);
+		request.setPrompt("hi");
+		return request;
+	}
+
+	/**
+	 * The repository over an in-memory table, with the claim queries evaluated as the SQL would.
+	 * Jobs are handed out by reference, like managed entities, so changes need no save.
+	 */
+	private GenerationJobRepository repository() {
+		GenerationJobRepository repository = mock(GenerationJobRepository.class);
+		when(repository.save(any(GenerationJob.class))).thenAnswer(call -> {
+			GenerationJob job = call.getArgument(0);
+			job.setCreatedAt(LocalDateTime.now());
+			table.put(job.getId(), job);
+			return job;
+		});
+		when(repository.findById(anyString())).thenAnswer(call -> Optional.ofNullable(table.get(call.<String>getArgument(0))));
+		when(repository.findAllById(any())).thenAnswer(call -> {
+			Collection<String> ids = call.getArgument(0);
+			return ids.stream().map(table::get).filter(job -> job != null).toList();
+		});
+		when(repository.countByUserIdAndStatusIn(anyString(), any())).thenAnswer(call -> {
+			Collection<GenerationJob.Status> statuses = call.getArgument(1);
+			return table.values().stream()
+					.filter(job -> job.getUserId().equals(call.getArgument(0)) && statuses.contains(job.getStatus()))
+					.count();
+		});
+		when(repository.lockQueued(anyInt())).thenAnswer(call -> table.values().stream()
+				.filter(job -> job.getStatus() == GenerationJob.Status.QUEUED)
+				.sorted(Comparator.comparing(GenerationJob::getCreatedAt))
+				.limit(call.<Integer>getArgument(0))
+				.toList());
+		when(repository.lockExpiredLeases(any(), anyInt())).thenAnswer(call -> table.values().stream()
+				.filter(job -> job.getStatus() == GenerationJob.Status.RUNNING
+						&& job.getLeaseUntil().isBefore(call.getArgument(0)))
+				.sorted(Comparator.comparing(GenerationJob::getLeaseUntil))
+				.limit(call.<Integer>getArgument(1))
+				.toList());
+		return repository;
+	}
+}
@@ -0,0 +1,158 @@
+package com.ai.SpAI.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class GenerationSchedulerTest {
+
+	private final GenerationScheduler scheduler =
+			new GenerationScheduler(new SimpleMeterRegistry(), 1, () -> 1, 50, 10_000);
+
+	@Test
+	void lightUserOvertakesHeavyUsersBacklog() throws Exception {
+		List<String> served = new CopyOnWriteArrayList<>();
+		ExecutorService pool = Executors.newCachedThreadPool();
+		GenerationScheduler.Permit running = scheduler.acquire(GenerationPriority.INTERACTIVE, "user:heavy", 30, 10_000);
+
+		for (int i = 0; i < 3; i++) {
+			enqueue(pool, served, "user:heavy", 30);
+		}
+		enqueue(pool, served, "user:light", 1);
+
+		assertThat(scheduler.userStats())
+				.extracting(GenerationScheduler.UserQueueStats::user, GenerationScheduler.UserQueueStats::queued)
+				.startsWith(tuple("user:heavy", 3));
+
+		running.close();
+		pool.shutdown();
+		assertThat(pool.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(served).containsExactly("user:light", "user:heavy", "user:heavy", "user:heavy");
+		assertThat(scheduler.waitingUsers()).isZero();
+	}
+
+	@Test
+	void priorityStillWinsOverFairShare() throws Exception {
+		List<String> served = new CopyOnWriteArrayList<>();
+		ExecutorService pool = Executors.newCachedThreadPool();
+		GenerationScheduler.Permit running = scheduler.acquire(GenerationPriority.INTERACTIVE, "user:a", 1, 10_000);
+
+		int depth = scheduler.queueDepth();
+		pool.execute(() -> {
+			try (GenerationScheduler.Permit permit = scheduler.acquire(GenerationPriority.BACKGROUND, "warmer", 0.1, 10_000)) {
+				served.add("warmer");
+			}
+		});
+		awaitDepth(depth + 1);
+		enqueue(pool, served, "user:b", 30);
+
+		running.close();
+		pool.shutdown();
+		assertThat(pool.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(served).containsExactly("user:b", "warmer");
+	}
+
+	@Test
+	void asyncWaitersQueueWithoutThreadsAndGiveUpTheirPlaceOnCancel() {
+		GenerationScheduler.Permit running = scheduler.acquire(GenerationPriority.INTERACTIVE, "user:a", 1, 10_000);
+
+		CompletableFuture<GenerationScheduler.Permit> abandoned =
+				scheduler.acquireAsync(GenerationPriority.INTERACTIVE, "user:b", 1, 10_000).toFuture();
+		CompletableFuture<GenerationScheduler.Permit> waiting =
+				scheduler.acquireAsync(GenerationPriority.INTERACTIVE, "user:c", 1, 10_000).toFuture();
+		assertThat(scheduler.queueDepth()).isEqualTo(2);
+
+		abandoned.cancel(true);
+		assertThat(scheduler.queueDepth()).isEqualTo(1);
+
+		running.close();
+		GenerationScheduler.Permit granted = waiting.orTimeout(5, TimeUnit.SECONDS).join();
+		assertThat(scheduler.active()).isEqualTo(1);
+		granted.close();
+		assertThat(scheduler.active()).isZero();
+	}
+
+	@Test
+	void asyncWaiterTimesOutWithOverload() {
+		GenerationScheduler impatient = new GenerationScheduler(new SimpleMeterRegistry(), 1, () -> 1, 50, 50);
+		GenerationScheduler.Permit running = impatient.acquire(GenerationPriority.INTERACTIVE, "user:a", 1, 10_000);
+
+		assertThatThrownBy(() -> impatient.acquireAsync(GenerationPriority.INTERACTIVE, "user:b", 1, 10_000).block())
+				.isInstanceOf(GenerationOverloadedException.class);
+		assertThat(impatient.queueDepth()).isZero();
+		running.close();
+		assertThat(impatient.active()).isZero();
+	}
+
+	@Test
+	void cancellingAQueuedCallWakesItAndFreesItsPlace() throws Exception {
+		GenerationScheduler.Permit running = scheduler.acquire(GenerationPriority.INTERACTIVE, "user:a", 1, 10_000);
+		GenerationCancellation cancellation = new GenerationCancellation();
+		CompletableFuture<GenerationScheduler.Permit> queued = CompletableFuture.supplyAsync(() ->
+				scheduler.acquire(GenerationPriority.INTERACTIVE, "user:b", 1, 10_000, cancellation));
+		awaitDepth(1);
+
+		cancellation.cancel("client_disconnect");
+
+		assertThatThrownBy(() -> queued.get(1, TimeUnit.SECONDS))
+				.hasCauseInstanceOf(GenerationCancelledException.class);
+		assertThat(scheduler.queueDepth()).isZero();
+		running.close();
+		assertThat(scheduler.active()).isZero();
+	}
+
+	@Test
+	void slotsFollowTheBackendsInRotation() throws Exception {
+		AtomicInteger healthy = new AtomicInteger(2);
+		GenerationScheduler pooled = new GenerationScheduler(new SimpleMeterRegistry(), 1, healthy::get, 50, 10_000);
+		GenerationScheduler.Permit first = pooled.acquire(GenerationPriority.INTERACTIVE, "user:a", 1, 10_000);
+		GenerationScheduler.Permit second = pooled.acquire(GenerationPriority.INTERACTIVE, "user:a", 1, 10_000);
+
+		// One backend is ejected: its slot is retired when released instead of handed on.
+		healthy.set(1);
+		CompletableFuture<GenerationScheduler.Permit> queued = CompletableFuture.supplyAsync(() ->
+				pooled.acquire(GenerationPriority.INTERACTIVE, "user:b", 1, 10_000));
+		while (pooled.queueDepth() < 1) {
+			Thread.sleep(2);
+		}
+		first.close();
+		assertThat(pooled.active()).isEqualTo(1);
+		assertThat(pooled.queueDepth()).isEqualTo(1);
+
+		// Readmitted: the waiting call gets the slot back without anyone releasing one.
+		healthy.set(2);
+		pooled.admitWaiting();
+		queued.get(1, TimeUnit.SECONDS).close();
+		second.close();
+		assertThat(pooled.active()).isZero();
+	}
+
+	private void enqueue(ExecutorService pool, List<String> served, String user, double cost) throws InterruptedException {
+		int depth = scheduler.queueDepth();
+		pool.execute(() -> {
+			try (GenerationScheduler.Permit permit = scheduler.acquire(GenerationPriority.INTERACTIVE, user, cost, 10_000)) {
+				served.add(user);
+			}
+		});
+		awaitDepth(depth + 1);
+	}
+
+	private void awaitDepth(int depth) throws InterruptedException {
+		while (scheduler.queueDepth() < depth) {
+			Thread.sleep(2);
+		}
+	}
+}
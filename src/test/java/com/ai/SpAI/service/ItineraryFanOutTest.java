@@ -0,0 +1,162 @@
+package com.ai.SpAI.service;
+
+import com.ai.SpAI.cache.CacheKeyCanonicalizer;
+import com.ai.SpAI.cache.PopularityTracker;
+import com.ai.SpAI.dto.TravelPlanRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ItineraryFanOutTest {
+
+	private static final Pattern DAY = Pattern.compile("writing day (\\d+)");
+
+	private final List<String> calls = new CopyOnWriteArrayList<>();
+	private final List<String> cancelledDays = new CopyOnWriteArrayList<>();
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+	private final ItineraryFanOut fanOut = fanOut(4);
+	private int failingDay;
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void shorterAndLongerTripsShareTheOutlineAndLeadingDays() {
+		String fiveDays = fanOut.generate(new TravelPlanRequest("Paris", 5, "museums, food", "moderate"));
+		String sevenDays = fanOut.generate(new TravelPlanRequest("paris", 7, "Food and museums", "moderate"));
+
+		assertThat(calls).filteredOn("outline"::equals).hasSize(1);
+		assertThat(calls).filteredOn(call -> call.startsWith("day")).hasSize(7);
+
+		assertThat(fiveDays).contains("Day 1: Theme 1\nPlan for day 1").doesNotContain("Day 6");
+		assertThat(sevenDays.indexOf("Day 6: Theme 6")).isGreaterThan(sevenDays.indexOf("Day 5: Theme 5"));
+		assertThat(sevenDays).contains("Day 7: Theme 7\nPlan for day 7");
+	}
+
+	@Test
+	void streamsEveryDay() {
+		List<ItineraryFanOut.Day> days = fanOut.stream(new TravelPlanRequest("Rome", 4, "history", "budget"))
+				.collectList().block();
+
+		assertThat(days).extracting(ItineraryFanOut.Day::number).containsExactlyInAnyOrder(1, 2, 3, 4);
+	}
+
+	@Test
+	void tripsAreWrittenInOneCallWhenOnlyOneGenerationCanRunAtATime() {
+		TravelPlanRequest week = new TravelPlanRequest("Rome", 7, "history", "budget");
+
+		assertThat(fanOut(1).appliesTo(week)).isFalse();
+		assertThat(fanOut.appliesTo(week)).isTrue();
+		assertThat(fanOut.appliesTo(new TravelPlanRequest("Rome", 2, "history", "budget"))).isFalse();
+	}
+
+	@Test
+	void failedDayCancelsTheOthersAndIsReported() throws Exception {
+		failingDay = 2;
+
+		assertThatThrownBy(() -> fanOut.generate(new TravelPlanRequest("Oslo", 4, "fjords", "moderate")))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("model down on day 2");
+
+		// Days still waiting on the model would hold the pool for 5s had they not been cancelled.
+		executor.shutdown();
+		assertThat(executor.awaitTermination(2, TimeUnit.SECONDS)).isTrue();
+		assertThat(calls).filteredOn(call -> call.startsWith("day ") && !call.equals("day 2"))
+				.map(call -> call.substring(4))
+				.containsExactlyInAnyOrderElementsOf(cancelledDays);
+	}
+
+	@Test
+	void fanOutIsChargedForEveryCall() {
+		GenerationCostModel costModel = new GenerationCostModel(new SimpleMeterRegistry(), 30, 2048, 14, 30, 8000);
+		TravelPlanRequest week = new TravelPlanRequest("Rome", 7, "history", "budget");
+
+		assertThat(fanOut.cost(week)).isGreaterThan(costModel.itinerary(7, "history").cost());
+		assertThat(fanOut.cost(week)).isEqualTo(costModel.itineraryOutline(14).cost()
+				+ 7 * costModel.itineraryDay("history").cost());
+	}
+
+	@Test
+	void fillsDaysTheOutlineMissed() {
+		List<String> themes = ItineraryFanOut.parseOutline("Here you go:\n**Day 1:** Old town\nDay 3 - Beach\n", 3);
+
+		assertThat(themes).containsExactly("Old town", "Free exploration at your own pace", "Beach");
+	}
+
+	private ItineraryFanOut fanOut(int slots) {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		SimpleCacheManager cacheManager = new SimpleCacheManager();
+		cacheManager.setCaches(List.of(new ConcurrentMapCache("itineraryDays")));
+		cacheManager.afterPropertiesSet();
+		return new ItineraryFanOut(new FakeChatModel(), new GenerationCoalescer(registry),
+				new GenerationCostModel(registry, 30, 2048, 14, 30, 8000),
+				new GenerationScheduler(registry, slots, () -> 1, 50, 120000),
+				new CacheKeyCanonicalizer(new MockEnvironment(), registry, new PopularityTracker(256)),
+				cacheManager, executor, true, 3);
+	}
+
+	private class FakeChatModel implements ChatModel {
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			String text = prompt.getContents();
+			String answer;
+			if (text.contains("Plan the themes")) {
+				calls.add("outline");
+				StringBuilder outline = new StringBuilder();
+				for (int day = 1; day <= 14; day++) {
+					outline.append("Day ").append(day).append(": Theme ").append(day).append('\n');
+				}
+				answer = outline.toString();
+			} else {
+				Matcher matcher = DAY.matcher(text);
+				matcher.find();
+				String day = matcher.group(1);
+				calls.add("day " + day);
+				if (failingDay > 0) {
+					awaitSibling(day);
+				}
+				answer = "Plan for day " + day;
+			}
+			return new ChatResponse(List.of(new Generation(new AssistantMessage(answer))));
+		}
+
+		private void awaitSibling(String day) {
+			if (Integer.parseInt(day) == failingDay) {
+				throw new IllegalStateException("model down on day " + day);
+			}
+			GenerationCancellation cancellation = GenerationContext.current().getCancellation();
+			CountDownLatch cancelled = new CountDownLatch(1);
+			cancellation.onCancel(cancelled::countDown);
+			try {
+				if (cancelled.await(5, TimeUnit.SECONDS)) {
+					cancelledDays.add(day);
+					throw new GenerationCancelledException("Generation cancelled: " + cancellation.getReason());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.ai.SpAI.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OllamaBackendPoolTest {
+
+	private final List<HttpServer> servers = new ArrayList<>();
+
+	@AfterEach
+	void stopServers() {
+		servers.forEach(server -> server.stop(0));
+	}
+
+	@Test
+	void routesToHealthyStubBackendsAndEjectsDeadOnes() throws IOException {
+		String first = startStub("first");
+		String second = startStub("second");
+		OllamaBackendPool pool = new OllamaBackendPool(List.of(first, second),
+				OllamaOptions.builder().model("stub").build(), new SimpleMeterRegistry(), 60000, 3.0);
+
+		List<String> answers = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			answers.add(pool.call(new Prompt("hello")).getResult().getOutput().getText());
+		}
+		assertThat(answers).containsOnly("first", "second");
+
+		servers.get(1).stop(0);
+		pool.checkHealth();
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(pool.call(new Prompt("hello")).getResult().getOutput().getText()).isEqualTo("first");
+		}
+		assertThat(pool.describe()).extractingByKey(second)
+				.asInstanceOf(InstanceOfAssertFactories.MAP)
+				.containsEntry("healthy", false);
+	}
+
+	@Test
+	void slowerOfTwoBackendsIsEjectedAgainstItsPeer() {
+		AtomicInteger healthChanges = new AtomicInteger();
+		OllamaBackendPool pool = pool(Map.of("fast", 0, "slow", 30), 400);
+		pool.onHealthChange(healthChanges::incrementAndGet);
+		pool.call(new Prompt("hello"));
+		pool.call(new Prompt("hello"));
+
+		pool.ejectSlowOutliers();
+
+		assertThat(pool.describe()).extractingByKey("slow")
+				.asInstanceOf(InstanceOfAssertFactories.MAP)
+				.containsEntry("healthy", false);
+		assertThat(pool.describe()).extractingByKey("fast")
+				.asInstanceOf(InstanceOfAssertFactories.MAP)
+				.containsEntry("healthy", true);
+		assertThat(pool.healthyBackends()).isEqualTo(1);
+		assertThat(healthChanges).hasValue(1);
+	}
+
+	@Test
+	void longerAnswersAreNotMistakenForASlowBackend() {
+		Map<String, ChatModel> models = new LinkedHashMap<>();
+		models.put("long-answers", model(40, 4000));
+		models.put("short-answers", model(10, 1000));
+		OllamaBackendPool pool = new OllamaBackendPool(models, OllamaOptions.builder().build(),
+				new SimpleMeterRegistry(), 60000, 3.0);
+		pool.call(new Prompt("hello"));
+		pool.call(new Prompt("hello"));
+
+		pool.ejectSlowOutliers();
+
+		assertThat(pool.healthyBackends()).isEqualTo(2);
+	}
+
+	private static OllamaBackendPool pool(Map<String, Integer> delaysMs, int answerChars) {
+		Map<String, ChatModel> models = new LinkedHashMap<>();
+		delaysMs.entrySet().stream().sorted(Map.Entry.comparingByValue())
+				.forEach(entry -> models.put(entry.getKey(), model(entry.getValue(), answerChars)));
+		return new OllamaBackendPool(models, OllamaOptions.builder().build(), new SimpleMeterRegistry(), 60000, 3.0);
+	}
+
+	private static ChatModel model(int delayMs, int answerChars) {
+		return new ChatModel() {
+			@Override
+			public ChatResponse call(Prompt prompt) {
+				try {
+					Thread.sleep(delayMs);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return new ChatResponse(List.of(new Generation(new AssistantMessage("x".repeat(answerChars)))));
+			}
+		};
+	}
+
+	private String startStub(String name) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/api/tags", exchange -> respond(exchange, "{\"models\":[]}"));
+		server.createContext("/api/chat", exchange -> respond(exchange, """
+				{"model":"stub","created_at":"2024-01-01T00:00:00Z",
+				 "message":{"role":"assistant","content":"%s"},"done":true}
+				""".formatted(name)));
+		server.start();
+		servers.add(server);
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	private static void respond(HttpExchange exchange, String body) throws IOException {
+		exchange.getRequestBody().readAllBytes();
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.ai.SpAI.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemanticResponseCacheTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final Map<String, float[]> embeddings = new HashMap<>();
+	private final AtomicInteger generations = new AtomicInteger();
+
+	@Test
+	void reusesTheAnswerOfAPromptAboveTheThreshold() {
+		SemanticResponseCache cache = cache(10, 3_600_000);
+		embeddings.put("what is the capital of france?", new float[]{1, 0, 0});
+		embeddings.put("capital of france?", new float[]{1, 0.2f, 0});
+
+		assertThat(cache.getOrGenerate("What is the capital of France?", this::generate)).isEqualTo("answer-1");
+		assertThat(cache.getOrGenerate("Capital of France?", this::generate)).isEqualTo("answer-1");
+
+		assertThat(generations).hasValue(1);
+		assertThat(lookups("hit")).isEqualTo(1);
+	}
+
+	@Test
+	void generatesWhenTheClosestPromptIsBelowTheThreshold() {
+		SemanticResponseCache cache = cache(10, 3_600_000);
+		embeddings.put("weather in paris", new float[]{1, 0, 0});
+		// cos = 0.928: inside the near-miss margin, so counted but not served.
+		embeddings.put("weather in rome", new float[]{1, 0.4f, 0});
+
+		cache.getOrGenerate("weather in paris", this::generate);
+		String answer = cache.getOrGenerate("weather in rome", this::generate);
+
+		assertThat(answer).isEqualTo("answer-2");
+		assertThat(lookups("near_miss")).isEqualTo(1);
+		assertThat(lookups("hit")).isZero();
+		assertThat(cache.size()).isEqualTo(2);
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedAnswerAtCapacity() {
+		SemanticResponseCache cache = cache(2, 3_600_000);
+		embeddings.put("a", new float[]{1, 0, 0});
+		embeddings.put("b", new float[]{0, 1, 0});
+		embeddings.put("c", new float[]{0, 0, 1});
+
+		cache.getOrGenerate("a", this::generate);
+		cache.getOrGenerate("b", this::generate);
+		cache.getOrGenerate("a", this::generate);
+		cache.getOrGenerate("c", this::generate);
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.getOrGenerate("a", this::generate)).isEqualTo("answer-1");
+		assertThat(cache.getOrGenerate("b", this::generate)).isEqualTo("answer-4");
+		assertThat(registry.get("ai.semantic_cache.evictions").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void expiredAnswerIsRegenerated() throws Exception {
+		SemanticResponseCache cache = cache(10, 1);
+		embeddings.put("hello", new float[]{1, 0, 0});
+
+		cache.getOrGenerate("hello", this::generate);
+		Thread.sleep(5);
+
+		assertThat(cache.getOrGenerate("hello", this::generate)).isEqualTo("answer-2");
+		assertThat(cache.size()).isEqualTo(1);
+	}
+
+	@Test
+	void stepsAsideWithoutAnEmbeddingModel() {
+		SemanticResponseCache cache = new SemanticResponseCache(
+				new StaticListableBeanFactory().getBeanProvider(EmbeddingModel.class),
+				registry, true, 0.95, 0.05, 10, 3_600_000);
+
+		cache.getOrGenerate("hello", this::generate);
+		cache.getOrGenerate("hello", this::generate);
+
+		assertThat(generations).hasValue(2);
+		assertThat(cache.size()).isZero();
+	}
+
+	private String generate() {
+		return "answer-" + generations.incrementAndGet();
+	}
+
+	private double lookups(String result) {
+		return registry.get("ai.semantic_cache.lookups").tag("result", result).counter().count();
+	}
+
+	private SemanticResponseCache cache(int maxEntries, long ttlMs) {
+		StaticListableBeanFactory beans = new StaticListableBeanFactory(
+				Map.of("ollamaEmbeddingModel", new FakeEmbeddingModel()));
+		return new SemanticResponseCache(beans.getBeanProvider(EmbeddingModel.class),
+				registry, true, 0.95, 0.05, maxEntries, ttlMs);
+	}
+
+	private class FakeEmbeddingModel implements EmbeddingModel {
+		@Override
+		public float[] embed(String text) {
+			return embeddings.get(text);
+		}
+
+		@Override
+		public float[] embed(Document document) {
+			return embed(document.getText());
+		}
+
+		@Override
+		public EmbeddingResponse call(EmbeddingRequest request) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package com.ai.SpAI.service;
+
+import com.ai.SpAI.dto.StructuredItinerary;
+import com.ai.SpAI.dto.StructuredRecipe;
+import com.ai.SpAI.dto.TravelPlanRequest;
+import com.ai.SpAI.entity.SavedRecipe;
+import com.ai.SpAI.entity.SavedTravel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StructuredPlanServiceTest {
+
+	private String answer;
+	private final List<String> prompts = new ArrayList<>();
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final GenerationCostModel costModel = new GenerationCostModel(registry, 30, 2048, 14, 30, 8000);
+	private final StructuredPlanService service = service();
+
+	@Test
+	void parsesAndRenumbersItineraryDays() {
+		answer = """
+				{"days": [
+				  {"day": 4, "theme": "Old town", "activities": [
+				    {"time": "morning", "title": "Cathedral", "description": "Go early"},
+				    {"time": "evening", "title": null}]},
+				  {"day": 9, "theme": "Coast", "activities": []}],
+				 "note": "ignored"}
+				""";
+
+		StructuredItinerary plan = service.generateItinerary(
+				new TravelPlanRequest("Lisbon", 2, "history", "moderate"), estimate());
+
+		assertThat(plan.days()).extracting(StructuredItinerary.Day::day).containsExactly(1, 2);
+		assertThat(plan.days().get(0).activities()).extracting(StructuredItinerary.Activity::title)
+				.containsExactly("Cathedral");
+	}
+
+	@Test
+	void rejectsMalformedJson() {
+		answer = "Day 1: sure, here is your trip";
+
+		assertThatThrownBy(() -> service.generateItinerary(
+				new TravelPlanRequest("Lisbon", 2, "history", "moderate"), estimate()))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	void writesTripsTooLongForOneAnswerInParts() {
+		answer = """
+				{"days": [
+				  {"day": 1, "theme": "Hike", "activities": [{"time": "morning", "title": "Trail"}]},
+				  {"day": 2, "theme": "Hike", "activities": [{"time": "morning", "title": "Trail"}]},
+				  {"day": 3, "theme": "Hike", "activities": [{"time": "morning", "title": "Trail"}]},
+				  {"day": 4, "theme": "Hike", "activities": [{"time": "morning", "title": "Trail"}]},
+				  {"day": 5, "theme": "Hike", "activities": [{"time": "morning", "title": "Trail"}]},
+				  {"day": 6, "theme": "Hike", "activities": [{"time": "morning", "title": "Trail"}]},
+				  {"day": 7, "theme": "Hike", "activities": [{"time": "morning", "title": "Trail"}]},
+				  {"day": 8, "theme": "Hike", "activities": [{"time": "morning", "title": "Trail"}]}]}
+				""";
+		GenerationEstimate fortnight = costModel.itinerary(14, "hiking");
+
+		StructuredItinerary plan = service.generateItinerary(
+				new TravelPlanRequest("Patagonia", 14, "hiking", "moderate"), fortnight);
+
+		assertThat(fortnight.downgraded()).isTrue();
+		assertThat(plan.days()).extracting(StructuredItinerary.Day::day)
+				.containsExactly(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14);
+		assertThat(prompts).hasSize(2);
+		assertThat(prompts.get(1)).contains("days 9 to 14 of a 14-day").contains("Day 8: Hike (Trail)");
+	}
+
+	@Test
+	void rejectsAnAnswerMissingDays() {
+		answer = """
+				{"days": [{"day": 1, "theme": "Old town", "activities": []}]}
+				""";
+
+		assertThatThrownBy(() -> service.generateItinerary(
+				new TravelPlanRequest("Lisbon", 2, "history", "moderate"), estimate()))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("1 of the 2 days");
+	}
+
+	@Test
+	void chargesATripWrittenInPartsForEveryPart() {
+		TravelPlanRequest request = new TravelPlanRequest("Patagonia", 14, "hiking", "moderate");
+		GenerationEstimate fortnight = costModel.itinerary(14, "hiking");
+
+		assertThat(service.cost(request, fortnight)).isGreaterThan(fortnight.cost());
+		assertThat(service.cost(request, estimate())).isEqualTo(estimate().cost());
+	}
+
+	@Test
+	void rejectsASavedPlanWithoutUniqueDayNumbers() {
+		SavedTravel trip = new SavedTravel();
+		trip.setDestination("Lisbon");
+
+		assertThatThrownBy(() -> service.applyPlan(trip, new StructuredItinerary(List.of(
+				new StructuredItinerary.Day(null, "Old town", List.of())))))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> service.applyPlan(trip, new StructuredItinerary(List.of(
+				new StructuredItinerary.Day(1, "Old town", List.of()),
+				new StructuredItinerary.Day(1, "Coast", List.of())))))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("day 1");
+	}
+
+	@Test
+	void savesADayWithoutActivities() {
+		SavedTravel trip = new SavedTravel();
+		trip.setDestination("Lisbon");
+
+		service.applyPlan(trip, new StructuredItinerary(List.of(new StructuredItinerary.Day(1, "Rest", null))));
+
+		assertThat(trip.getDayPlans()).singleElement().satisfies(day -> assertThat(day.getActivities()).isEmpty());
+		assertThat(trip.getItineraryText()).contains("Day 1: Rest");
+	}
+
+	@Test
+	void splicesRegeneratedDayIntoSavedTrip() {
+		SavedTravel trip = new SavedTravel();
+		trip.setDestination("Lisbon");
+		trip.setDays(2);
+		service.applyPlan(trip, new StructuredItinerary(List.of(
+				new StructuredItinerary.Day(1, "Old town", List.of(
+						new StructuredItinerary.Activity("morning", "Cathedral", null))),
+				new StructuredItinerary.Day(2, "Coast", List.of(
+						new StructuredItinerary.Activity("afternoon", "Beach", null))))));
+		answer = """
+				{"day": 7, "theme": "Day trip", "activities": [{"time": "morning", "title": "Sintra"}]}
+				""";
+
+		service.replaceDay(trip, service.regenerateDay(trip, 2, "somewhere green"));
+
+		assertThat(trip.getDayPlans()).hasSize(2);
+		assertThat(service.planOf(trip).days().get(1))
+				.isEqualTo(new StructuredItinerary.Day(2, "Day trip", List.of(
+						new StructuredItinerary.Activity("morning", "Sintra", null))));
+		assertThat(trip.getItineraryText()).contains("Day 1: Old town\n- Morning: Cathedral")
+				.contains("Day 2: Day trip\n- Morning: Sintra").doesNotContain("Beach");
+	}
+
+	@Test
+	void splicesRegeneratedStepIntoSavedRecipe() {
+		SavedRecipe recipe = new SavedRecipe();
+		service.applyPlan(recipe, new StructuredRecipe("Pancakes",
+				List.of(new StructuredRecipe.Ingredient("flour", "200 g")),
+				List.of("Mix.", "Fry.", "Serve.")));
+		answer = "{\"instruction\": \"Fry in butter until golden.\"}";
+
+		service.replaceStep(recipe, 2, service.regenerateStep(recipe, 2, null));
+
+		assertThat(service.planOf(recipe).steps()).containsExactly("Mix.", "Fry in butter until golden.", "Serve.");
+		assertThat(recipe.getRecipeName()).isEqualTo("Pancakes");
+		assertThat(recipe.getRecipeText()).contains("- 200 g flour").contains("2. Fry in butter until golden.");
+		assertThatThrownBy(() -> service.regenerateStep(recipe, 4, null))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static GenerationEstimate estimate() {
+		return new GenerationEstimate(100, 500, 10, 625, false);
+	}
+
+	private StructuredPlanService service() {
+		return new StructuredPlanService(new FakeChatModel(), new GenerationCoalescer(registry),
+				costModel, new ObjectMapper());
+	}
+
+	private class FakeChatModel implements ChatModel {
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			prompts.add(prompt.getContents());
+			return new ChatResponse(List.of(new Generation(new AssistantMessage(answer))));
+		}
+	}
+}
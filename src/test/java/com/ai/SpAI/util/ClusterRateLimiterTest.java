@@ -0,0 +1,59 @@
+package com.ai.SpAI.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClusterRateLimiterTest {
+
+	private final InMemoryPermitStore store = new InMemoryPermitStore();
+
+	private RateLimiter node() {
+		return new RateLimiter(new SimpleMeterRegistry(), store, 30, 0, 600_000, 1000, 3, 60_000);
+	}
+
+	@Test
+	void nodesShareOneBucketToWithinOneLease() {
+		RateLimiter first = node();
+		RateLimiter second = node();
+
+		int admitted = 0;
+		for (int i = 0; i < 100; i++) {
+			if ((i % 2 == 0 ? first : second).tryAcquire("user:alice")) {
+				admitted++;
+			}
+		}
+
+		assertThat(admitted).isBetween(30 - 3, 30);
+		assertThat(second.tryAcquire("user:bob", 30)).isTrue();
+	}
+
+	@Test
+	void servesMostRequestsFromTheLocalLease() {
+		RateLimiter limiter = node();
+
+		for (int i = 0; i < 12; i++) {
+			assertThat(limiter.tryAcquire("user:carol")).isTrue();
+		}
+
+		assertThat(store.calls()).isEqualTo(3);
+	}
+
+	@Test
+	void failsOpenWithLocalLimitsWhenTheStoreIsDown() {
+		RateLimiter limiter = node();
+		store.setAvailable(false);
+
+		int admitted = 0;
+		for (int i = 0; i < 50; i++) {
+			if (limiter.tryAcquire("user:dave")) {
+				admitted++;
+			}
+		}
+
+		assertThat(admitted).isEqualTo(30);
+		// Backs off instead of retrying the store on every request.
+		assertThat(store.calls()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,39 @@
+package com.ai.SpAI.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for the Redis permit store: one instance shared by several limiters plays
+ * the role of the cluster, and {@link #setAvailable(boolean)} simulates an outage.
+ */
+class InMemoryPermitStore implements PermitStore {
+
+	private final Map<String, double[]> buckets = new HashMap<>();
+	private final AtomicInteger calls = new AtomicInteger();
+	private volatile boolean available = true;
+
+	@Override
+	public synchronized long take(String key, long requested, long capacity, double refillPerMs) {
+		calls.incrementAndGet();
+		if (!available) {
+			throw new IllegalStateException("store unreachable");
+		}
+		long now = System.currentTimeMillis();
+		double[] bucket = buckets.computeIfAbsent(key, k -> new double[] {capacity, now});
+		double tokens = Math.min(capacity, bucket[0] + Math.max(0, now - bucket[1]) * refillPerMs);
+		long granted = Math.min(requested, (long) tokens);
+		bucket[0] = tokens - granted;
+		bucket[1] = now;
+		return granted;
+	}
+
+	void setAvailable(boolean available) {
+		this.available = available;
+	}
+
+	int calls() {
+		return calls.get();
+	}
+}
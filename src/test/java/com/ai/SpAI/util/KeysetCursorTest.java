@@ -0,0 +1,53 @@
+package com.ai.SpAI.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTest {
+
+	private record Row(LocalDateTime at, long id) {
+	}
+
+	@Test
+	void cursorRoundTripsToTheNanosecond() {
+		KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2026, 3, 14, 15, 9, 26, 535_897_000), 42);
+
+		assertThat(KeysetCursor.decode(cursor.encode())).isEqualTo(cursor);
+		assertThat(cursor.encode()).doesNotContain("42");
+	}
+
+	@Test
+	void malformedCursorsAreRejected() {
+		assertThatThrownBy(() -> KeysetCursor.decode("not a cursor")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> KeysetCursor.decode("MTIz")).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void pageSizeIsDefaultedAndCapped() {
+		assertThat(KeysetCursor.pageSize(null, 20, 100)).isEqualTo(20);
+		assertThat(KeysetCursor.pageSize(0, 20, 100)).isEqualTo(20);
+		assertThat(KeysetCursor.pageSize(50, 20, 100)).isEqualTo(50);
+		assertThat(KeysetCursor.pageSize(5000, 20, 100)).isEqualTo(100);
+	}
+
+	@Test
+	void extraRowBecomesTheNextCursor() {
+		LocalDateTime now = LocalDateTime.of(2026, 1, 1, 12, 0);
+		List<Row> fetched = List.of(new Row(now, 3), new Row(now, 2), new Row(now.minusSeconds(1), 1));
+
+		ResponseEntity<ApiResponseWrapper<List<Row>>> full = KeysetCursor.page("ok", fetched, 2, Row::at, Row::id);
+		ResponseEntity<ApiResponseWrapper<List<Row>>> last = KeysetCursor.page("ok", fetched, 3, Row::at, Row::id);
+
+		assertThat(full.getBody().getData()).extracting(Row::id).containsExactly(3L, 2L);
+		assertThat(KeysetCursor.decode(full.getHeaders().getFirst(KeysetCursor.NEXT_CURSOR_HEADER)))
+				.isEqualTo(new KeysetCursor(now, 2));
+		assertThat(last.getBody().getData()).hasSize(3);
+		assertThat(last.getHeaders().containsKey(KeysetCursor.NEXT_CURSOR_HEADER)).isFalse();
+	}
+}
@@ -0,0 +1,104 @@
+package com.ai.SpAI.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class LshVectorIndexTest {
+
+	private static final int DIMENSIONS = 64;
+
+	private final Random random = new Random(7);
+
+	@Test
+	void findsTheOriginalOfASlightlyRephrasedVector() {
+		LshVectorIndex index = new LshVectorIndex(8, 12, 42L);
+		float[][] vectors = new float[500][];
+		for (int i = 0; i < vectors.length; i++) {
+			vectors[i] = randomVector();
+			index.add(i, vectors[i]);
+		}
+
+		int found = 0;
+		for (int i = 0; i < vectors.length; i++) {
+			LshVectorIndex.Match match = index.nearest(perturb(vectors[i], 0.1f));
+			if (match != null && match.id() == i) {
+				found++;
+				assertThat(match.similarity()).isGreaterThan(0.95);
+			}
+		}
+		assertThat(found).isGreaterThanOrEqualTo(490);
+	}
+
+	@Test
+	void ranksCandidatesByExactCosineSimilarity() {
+		LshVectorIndex index = new LshVectorIndex(4, 8, 42L);
+		index.add(1, new float[]{1, 0, 0});
+		index.add(2, new float[]{1, 1, 0});
+
+		LshVectorIndex.Match match = index.nearest(new float[]{1, 0.8f, 0});
+
+		assertThat(match.id()).isEqualTo(2);
+		assertThat(match.similarity()).isCloseTo(0.9939, within(0.001));
+	}
+
+	@Test
+	void removedAndReplacedVectorsAreNoLongerReturned() {
+		LshVectorIndex index = new LshVectorIndex(8, 12, 42L);
+		float[] first = randomVector();
+		float[] second = randomVector();
+		index.add(1, first);
+		index.add(2, second);
+
+		index.remove(1);
+		index.add(2, first);
+
+		assertThat(index.size()).isEqualTo(1);
+		assertThat(index.nearest(first).id()).isEqualTo(2);
+		LshVectorIndex.Match stale = index.nearest(second);
+		assertThat(stale == null || stale.similarity() < 0.5).isTrue();
+		index.remove(2);
+		assertThat(index.nearest(first)).isNull();
+	}
+
+	@Test
+	void rejectsVectorsOfAnotherDimension() {
+		LshVectorIndex index = new LshVectorIndex(8, 12, 42L);
+		index.add(1, randomVector());
+
+		assertThatThrownBy(() -> index.add(2, new float[]{1, 2, 3}))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThat(index.nearest(new float[]{1, 2, 3})).isNull();
+	}
+
+	private float[] randomVector() {
+		float[] vector = new float[DIMENSIONS];
+		for (int d = 0; d < DIMENSIONS; d++) {
+			vector[d] = (float) random.nextGaussian();
+		}
+		return unit(vector);
+	}
+
+	private float[] perturb(float[] vector, float amount) {
+		float[] noisy = new float[vector.length];
+		for (int d = 0; d < vector.length; d++) {
+			noisy[d] = vector[d] + amount * (float) random.nextGaussian() / (float) Math.sqrt(DIMENSIONS);
+		}
+		return noisy;
+	}
+
+	private static float[] unit(float[] vector) {
+		double norm = 0;
+		for (float value : vector) {
+			norm += value * value;
+		}
+		for (int d = 0; d < vector.length; d++) {
+			vector[d] /= (float) Math.sqrt(norm);
+		}
+		return vector;
+	}
+}
@@ -0,0 +1,67 @@
+package com.ai.SpAI.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link RateLimiter} with every core hammering either a single hot bucket (worst-case
+ * CAS contention) or a spread of users. Not run by surefire; launch with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.ai.SpAI.util.RateLimiterBenchmark}
+ * or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(Threads.MAX)
+public class RateLimiterBenchmark {
+
+	private static final int USERS = 10_000;
+
+	private RateLimiter limiter;
+	private String[] users;
+
+	@Setup
+	public void setUp() {
+		// A refill rate high enough that buckets never run dry, so every call takes the CAS path.
+		limiter = new RateLimiter(new SimpleMeterRegistry(), 1000, 60_000_000, 600_000, USERS * 2L);
+		users = new String[USERS];
+		for (int i = 0; i < USERS; i++) {
+			users[i] = "user:" + i;
+		}
+	}
+
+	@Benchmark
+	public boolean singleHotUser() {
+		return limiter.tryAcquire("user:hot", 1);
+	}
+
+	@Benchmark
+	public boolean manyUsers() {
+		return limiter.tryAcquire(users[ThreadLocalRandom.current().nextInt(USERS)], 3);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(RateLimiterBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
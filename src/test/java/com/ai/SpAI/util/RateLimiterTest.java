@@ -0,0 +1,67 @@
+package com.ai.SpAI.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+
+	@Test
+	void chargesCostAgainstEachUsersOwnBucket() {
+		RateLimiter limiter = new RateLimiter(new SimpleMeterRegistry(), 10, 0, 600_000, 1000);
+
+		assertThat(limiter.tryAcquire("user:alice", 7)).isTrue();
+		assertThat(limiter.tryAcquire("user:alice", 4)).isFalse();
+		assertThat(limiter.tryAcquire("user:alice", 3)).isTrue();
+		assertThat(limiter.tryAcquire("user:alice", 0.5)).isFalse();
+
+		assertThat(limiter.tryAcquire("user:bob", 10)).isTrue();
+	}
+
+	@Test
+	void capsCostAtCapacityAndRefillsOverTime() throws InterruptedException {
+		RateLimiter limiter = new RateLimiter(new SimpleMeterRegistry(), 2, 1200, 600_000, 1000);
+
+		assertThat(limiter.tryAcquire("user:carol", 50)).isTrue();
+		assertThat(limiter.tryAcquire("user:carol", 2)).isFalse();
+
+		Thread.sleep(150);
+		assertThat(limiter.tryAcquire("user:carol", 2)).isTrue();
+	}
+
+	@Test
+	void admitsExactlyCapacityUnderContention() throws InterruptedException {
+		RateLimiter limiter = new RateLimiter(new SimpleMeterRegistry(), 1000, 0, 600_000, 1000);
+		int threads = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+		AtomicInteger admitted = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			pool.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < 500; i++) {
+					if (limiter.tryAcquire("user:shared")) {
+						admitted.incrementAndGet();
+					}
+				}
+			});
+		}
+		start.countDown();
+		pool.shutdown();
+		assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(admitted.get()).isEqualTo(1000);
+	}
+}
@@ -0,0 +1,147 @@
+package com.ai.SpAI.util;
+
+import com.ai.SpAI.service.GenerationCancellationMetrics;
+import com.ai.SpAI.service.GenerationOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SseTokenSubscriberTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final GenerationCancellationMetrics metrics = new GenerationCancellationMetrics(registry);
+	private final RecordingEmitter emitter = new RecordingEmitter();
+
+	@Test
+	void forwardsEachChunkAsATokenEventAndEndsWithASummary() {
+		Flux.just(chunk("Hel"), chunk(""), chunk("lo"), chunk(" there"))
+				.subscribe(new SseTokenSubscriber(emitter, metrics));
+
+		assertThat(emitter.names()).containsExactly("token", "token", "token", "done");
+		assertThat(emitter.data()).startsWith("Hel", "lo", " there");
+		Map<?, ?> summary = (Map<?, ?>) emitter.data().get(3);
+		assertThat(summary.get("chunks")).isEqualTo(3L);
+		assertThat(summary.get("timeToFirstTokenMs")).isNotNull();
+		assertThat(emitter.completed).isTrue();
+	}
+
+	@Test
+	void requestsTheNextChunkOnlyAfterTheLastWasWritten() {
+		Sinks.Many<ChatResponse> model = Sinks.many().unicast().onBackpressureBuffer();
+		List<Long> requested = new ArrayList<>();
+		model.asFlux().doOnRequest(requested::add).subscribe(new SseTokenSubscriber(emitter, metrics));
+
+		model.tryEmitNext(chunk("a"));
+		model.tryEmitNext(chunk("b"));
+
+		assertThat(requested).containsOnly(1L);
+		assertThat(emitter.names()).containsExactly("token", "token");
+	}
+
+	@Test
+	void deliversAnOverloadAsA503ErrorEvent() {
+		Flux.concat(Flux.just(chunk("Hel")), Flux.error(new GenerationOverloadedException("busy", 5)))
+				.subscribe(new SseTokenSubscriber(emitter, metrics));
+
+		assertThat(emitter.names()).containsExactly("token", "error");
+		ApiResponseWrapper<?> body = (ApiResponseWrapper<?>) emitter.data().get(1);
+		assertThat(body.isSuccess()).isFalse();
+		assertThat(body.getError()).isEqualTo("busy");
+		assertThat(emitter.completed).isTrue();
+	}
+
+	@Test
+	void deliversOtherFailuresWithoutTheirDetails() {
+		Flux.<ChatResponse>error(new IllegalStateException("connection refused by 10.0.0.7"))
+				.subscribe(new SseTokenSubscriber(emitter, metrics));
+
+		ApiResponseWrapper<?> body = (ApiResponseWrapper<?>) emitter.data().get(0);
+		assertThat(body.getError()).isEqualTo("Failed to process request");
+	}
+
+	@Test
+	void clientDisconnectCancelsTheModelStream() {
+		AtomicBoolean cancelled = new AtomicBoolean();
+		Sinks.Many<ChatResponse> model = Sinks.many().unicast().onBackpressureBuffer();
+		model.asFlux().doOnCancel(() -> cancelled.set(true)).subscribe(new SseTokenSubscriber(emitter, metrics));
+		model.tryEmitNext(chunk("Hel"));
+
+		emitter.errorCallback.accept(new IOException("Broken pipe"));
+
+		assertThat(cancelled).isTrue();
+		assertThat(registry.get("ai.generation.cancelled").tag("reason", "disconnect").counter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void failedWriteCancelsTheModelStream() {
+		AtomicBoolean cancelled = new AtomicBoolean();
+		emitter.failWrites = true;
+
+		Flux.just(chunk("Hel"), chunk("lo")).doOnCancel(() -> cancelled.set(true))
+				.subscribe(new SseTokenSubscriber(emitter, metrics));
+
+		assertThat(cancelled).isTrue();
+		assertThat(emitter.names()).isEmpty();
+	}
+
+	private static ChatResponse chunk(String text) {
+		return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+	}
+
+	/**
+	 * Keeps the events it is sent and the callbacks it is given instead of writing to a response.
+	 */
+	private static class RecordingEmitter extends SseEmitter {
+
+		private final List<String> names = new ArrayList<>();
+		private final List<Object> data = new ArrayList<>();
+		private Consumer<Throwable> errorCallback;
+		private boolean failWrites;
+		private boolean completed;
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			if (failWrites) {
+				throw new IOException("Broken pipe");
+			}
+			List<ResponseBodyEmitter.DataWithMediaType> parts = new ArrayList<>(builder.build());
+			String header = parts.get(0).getData().toString();
+			names.add(header.substring("event:".length(), header.indexOf('\n')));
+			data.add(parts.get(1).getData());
+		}
+
+		@Override
+		public synchronized void complete() {
+			completed = true;
+		}
+
+		@Override
+		public synchronized void onError(Consumer<Throwable> callback) {
+			errorCallback = callback;
+		}
+
+		List<String> names() {
+			return names;
+		}
+
+		List<Object> data() {
+			return data;
+		}
+	}
+}